@@ -0,0 +1,317 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+package org.openecard.addon;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nonnull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Pool of initialized instances of one action or protocol of an add-on.
+ * <p>Instances are handed out with {@link #borrow()} and must be handed back with {@link #giveBack(LifecycleTrait,
+ * boolean)} when the caller is done with them. An instance is only used by one caller at a time. Instances of reusable
+ * actions are kept for the next caller, if there is room in the pool, and are destroyed when they have been idle for
+ * longer than the idle timeout. Instances of stateful actions are destroyed when they are handed back.</p>
+ * <p>The pool is thread safe. Instances are created and destroyed outside of the pool's lock, so a slow
+ * initialization does not block other callers.</p>
+ *
+ * @param <T> Type of the pooled actions or protocols.
+ */
+public class ActionPool <T extends LifecycleTrait> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ActionPool.class);
+
+    /**
+     * Factory creating new initialized instances for the pool.
+     *
+     * @param <T> Type of the created actions or protocols.
+     */
+    public interface Factory <T extends LifecycleTrait> {
+
+	/**
+	 * Creates and initializes a new instance.
+	 *
+	 * @return The initialized instance.
+	 * @throws ActionInitializationException Thrown in case the instance could not be initialized.
+	 * @throws AddonException Thrown in case the add-on containing the action could not be loaded.
+	 */
+	@Nonnull
+	T create() throws ActionInitializationException, AddonException;
+
+    }
+
+    private final String name;
+    private final Factory<T> factory;
+    private final boolean reusable;
+    private final int maxIdle;
+    private final long idleTimeout;
+
+    // most recently returned instance first, so the oldest ones are evicted from the end
+    private final ArrayDeque<IdleInstance<T>> idle = new ArrayDeque<>();
+    private final Set<T> borrowed = Collections.newSetFromMap(new IdentityHashMap<T, Boolean>());
+    private boolean closed = false;
+
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong reused = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+    private final AtomicLong destroyed = new AtomicLong();
+
+    /**
+     * Creates a new empty pool.
+     *
+     * @param name Name of the pool used in log messages and metrics.
+     * @param factory Factory creating the instances of the pool.
+     * @param reusable {@code true} if handed back instances may be given to the next caller, {@code false} if they
+     *   must be destroyed.
+     * @param maxIdle Maximum number of idle instances kept in the pool.
+     * @param idleTimeout Time in milliseconds after which an idle instance is destroyed. A value of 0 or less keeps
+     *   idle instances until the pool is closed.
+     */
+    public ActionPool(@Nonnull String name, @Nonnull Factory<T> factory, boolean reusable, int maxIdle,
+	    long idleTimeout) {
+	this.name = name;
+	this.factory = factory;
+	this.reusable = reusable;
+	this.maxIdle = Math.max(0, maxIdle);
+	this.idleTimeout = idleTimeout > 0 ? TimeUnit.MILLISECONDS.toNanos(idleTimeout) : 0;
+    }
+
+    /**
+     * Gets an instance from the pool.
+     * An idle instance is returned if available, otherwise a new instance is created.
+     *
+     * @return An initialized instance which is exclusively used by the caller until it is handed back.
+     * @throws ActionInitializationException Thrown in case a new instance could not be initialized.
+     * @throws AddonException Thrown in case the add-on containing the action could not be loaded.
+     */
+    @Nonnull
+    public T borrow() throws ActionInitializationException, AddonException {
+	List<T> expired;
+	T instance = null;
+	synchronized (this) {
+	    expired = removeExpired(System.nanoTime());
+	    IdleInstance<T> next = idle.pollFirst();
+	    if (next != null) {
+		instance = next.instance;
+		borrowed.add(instance);
+	    }
+	}
+	destroyAll(expired, false);
+
+	if (instance != null) {
+	    reused.incrementAndGet();
+	    return instance;
+	}
+
+	instance = factory.create();
+	created.incrementAndGet();
+	synchronized (this) {
+	    // if the pool is closed in the meantime, the instance is destroyed when it is handed back
+	    borrowed.add(instance);
+	}
+	return instance;
+    }
+
+    /**
+     * Hands back an instance to the pool.
+     * The instance is kept for the next caller if the pool holds reusable instances, the pool is not full and the
+     * caller does not force its destruction. Otherwise the instance is destroyed.
+     *
+     * @param instance Instance obtained from {@link #borrow()}.
+     * @param force {@code true} if the instance must be destroyed, {@code false} otherwise.
+     * @return {@code true} if the instance belongs to this pool, {@code false} if it is unknown and has not been
+     *   touched.
+     */
+    public boolean giveBack(@Nonnull T instance, boolean force) {
+	List<T> expired;
+	boolean keep;
+	synchronized (this) {
+	    if (! borrowed.remove(instance)) {
+		return false;
+	    }
+	    long now = System.nanoTime();
+	    expired = removeExpired(now);
+	    keep = reusable && ! force && ! closed && idle.size() < maxIdle;
+	    if (keep) {
+		idle.addFirst(new IdleInstance<>(instance, now));
+	    }
+	}
+	destroyAll(expired, false);
+
+	if (! keep) {
+	    destroy(instance, force);
+	}
+	return true;
+    }
+
+    /**
+     * Destroys all instances which have been idle for longer than the idle timeout.
+     */
+    public void evictIdle() {
+	List<T> expired;
+	synchronized (this) {
+	    expired = removeExpired(System.nanoTime());
+	}
+	destroyAll(expired, false);
+    }
+
+    /**
+     * Closes the pool and destroys all idle instances.
+     * Instances still in use are destroyed as well if {@code force} is set, otherwise they are destroyed when they are
+     * handed back.
+     *
+     * @param force {@code true} if instances in use must be destroyed, {@code false} otherwise.
+     */
+    public void close(boolean force) {
+	List<T> idleInstances = new ArrayList<>();
+	List<T> inUse = new ArrayList<>();
+	synchronized (this) {
+	    closed = true;
+	    for (IdleInstance<T> next : idle) {
+		idleInstances.add(next.instance);
+	    }
+	    idle.clear();
+	    if (force) {
+		inUse.addAll(borrowed);
+		borrowed.clear();
+	    }
+	}
+	destroyAll(idleInstances, force);
+	destroyAll(inUse, force);
+    }
+
+    private List<T> removeExpired(long now) {
+	if (idleTimeout <= 0 || idle.isEmpty()) {
+	    return Collections.emptyList();
+	}
+	List<T> expired = new ArrayList<>();
+	Iterator<IdleInstance<T>> it = idle.descendingIterator();
+	while (it.hasNext()) {
+	    IdleInstance<T> next = it.next();
+	    if (now - next.since < idleTimeout) {
+		// all instances before this one have been returned later
+		break;
+	    }
+	    it.remove();
+	    expired.add(next.instance);
+	}
+	evicted.addAndGet(expired.size());
+	return expired;
+    }
+
+    private void destroyAll(List<T> instances, boolean force) {
+	for (T next : instances) {
+	    destroy(next, force);
+	}
+    }
+
+    private void destroy(T instance, boolean force) {
+	destroyed.incrementAndGet();
+	try {
+	    instance.destroy(force);
+	} catch (RuntimeException ex) {
+	    LOG.warn("Failed to destroy instance of {}.", name, ex);
+	}
+    }
+
+    public String getName() {
+	return name;
+    }
+
+    public boolean isReusable() {
+	return reusable;
+    }
+
+    public synchronized int getIdleCount() {
+	return idle.size();
+    }
+
+    public synchronized int getBorrowedCount() {
+	return borrowed.size();
+    }
+
+    /**
+     * Gets the number of instances created by this pool.
+     *
+     * @return Number of created instances.
+     */
+    public long getCreatedCount() {
+	return created.get();
+    }
+
+    /**
+     * Gets the number of times an idle instance has been handed out instead of creating a new one.
+     *
+     * @return Number of reuses.
+     */
+    public long getReusedCount() {
+	return reused.get();
+    }
+
+    /**
+     * Gets the number of idle instances destroyed because of the idle timeout.
+     *
+     * @return Number of evicted instances.
+     */
+    public long getEvictedCount() {
+	return evicted.get();
+    }
+
+    /**
+     * Gets the number of instances destroyed by this pool for any reason.
+     *
+     * @return Number of destroyed instances.
+     */
+    public long getDestroyedCount() {
+	return destroyed.get();
+    }
+
+    @Override
+    public String toString() {
+	return String.format("%s[reusable=%b, idle=%d, borrowed=%d, created=%d, reused=%d, evicted=%d]", name,
+		reusable, getIdleCount(), getBorrowedCount(), getCreatedCount(), getReusedCount(), getEvictedCount());
+    }
+
+
+    private static class IdleInstance <T> {
+
+	private final T instance;
+	private final long since;
+
+	IdleInstance(T instance, long since) {
+	    this.instance = instance;
+	    this.since = since;
+	}
+
+    }
+
+}
@@ -0,0 +1,181 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.addon;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import org.openecard.addon.manifest.AddonSpecification;
+import org.openecard.addon.manifest.AppExtensionSpecification;
+import org.openecard.addon.manifest.AppPluginSpecification;
+import org.openecard.addon.manifest.LocalizedString;
+import org.openecard.addon.manifest.ProtocolPluginSpecification;
+
+
+/**
+ * Immutable lookup index over a set of add-on specifications.
+ * The index yields the same results as scanning all specifications with the search methods of
+ * {@link AddonSpecification}, but answers each query with a constant number of hash lookups. Registries replace their
+ * index as a whole whenever their content changes, so readers always see a consistent snapshot.
+ */
+final class AddonIndex {
+
+    static final AddonIndex EMPTY = new AddonIndex(Collections.<AddonSpecification>emptyList());
+
+    private final List<AddonSpecification> addons;
+    private final Map<String, AddonSpecification> byId;
+    private final Map<String, Set<AddonSpecification>> byName;
+    private final Map<String, Set<AddonSpecification>> byIfdUri;
+    private final Map<String, Set<AddonSpecification>> bySalUri;
+    private final Map<String, Set<AddonSpecification>> byActionId;
+    private final Map<String, Set<AddonSpecification>> byResourceName;
+
+    /**
+     * Creates an index over the given add-ons.
+     * When multiple add-ons share the same ID, {@link #search(String)} returns the first one in iteration order.
+     *
+     * @param addons Add-ons to index.
+     */
+    AddonIndex(@Nonnull Collection<AddonSpecification> addons) {
+	this.addons = Collections.unmodifiableList(new ArrayList<>(addons));
+	byId = new HashMap<>();
+	byName = new HashMap<>();
+	byIfdUri = new HashMap<>();
+	bySalUri = new HashMap<>();
+	byActionId = new HashMap<>();
+	byResourceName = new HashMap<>();
+
+	for (AddonSpecification desc : this.addons) {
+	    String id = desc.getId();
+	    if (id != null && ! byId.containsKey(id)) {
+		byId.put(id, desc);
+	    }
+	    for (LocalizedString s : desc.getLocalizedName()) {
+		put(byName, s.getValue(), desc);
+	    }
+	    for (ProtocolPluginSpecification p : desc.getIfdActions()) {
+		put(byIfdUri, p.getUri(), desc);
+	    }
+	    for (ProtocolPluginSpecification p : desc.getSalActions()) {
+		put(bySalUri, p.getUri(), desc);
+	    }
+	    for (AppExtensionSpecification e : desc.getApplicationActions()) {
+		put(byActionId, e.getId(), desc);
+	    }
+	    for (AppPluginSpecification p : desc.getBindingActions()) {
+		put(byResourceName, p.getResourceName(), desc);
+	    }
+	}
+    }
+
+    private static void put(Map<String, Set<AddonSpecification>> index, @Nullable String key, AddonSpecification desc) {
+	if (key != null) {
+	    Set<AddonSpecification> entry = index.get(key);
+	    if (entry == null) {
+		entry = new HashSet<>();
+		index.put(key, entry);
+	    }
+	    entry.add(desc);
+	}
+    }
+
+    private static Set<AddonSpecification> get(Map<String, Set<AddonSpecification>> index, String key) {
+	Set<AddonSpecification> entry = index.get(key);
+	return entry == null ? new HashSet<AddonSpecification>() : new HashSet<>(entry);
+    }
+
+    /**
+     * Creates a new index containing the add-ons of this index and the given add-on.
+     *
+     * @param desc Add-on to add.
+     * @return The new index.
+     */
+    AddonIndex with(@Nonnull AddonSpecification desc) {
+	ArrayList<AddonSpecification> newAddons = new ArrayList<>(addons.size() + 1);
+	newAddons.addAll(addons);
+	newAddons.add(desc);
+	return new AddonIndex(newAddons);
+    }
+
+    /**
+     * Gets all indexed add-ons in the order they were given to the index.
+     *
+     * @return Unmodifiable list of the add-ons.
+     */
+    List<AddonSpecification> getAddons() {
+	return addons;
+    }
+
+    AddonSpecification search(String id) {
+	return byId.get(id);
+    }
+
+    Set<AddonSpecification> searchByName(String name) {
+	return get(byName, name);
+    }
+
+    Set<AddonSpecification> searchIFDProtocol(String uri) {
+	return get(byIfdUri, uri);
+    }
+
+    Set<AddonSpecification> searchSALProtocol(String uri) {
+	return get(bySalUri, uri);
+    }
+
+    Set<AddonSpecification> searchByActionId(String actionId) {
+	return get(byActionId, actionId);
+    }
+
+    /**
+     * Finds all add-ons with an app plugin whose resource name equals the given resource or one of its path prefixes.
+     * The prefixes are formed in the same way as in {@link AddonSpecification#searchByResourceName(String)}.
+     *
+     * @param resourceName Resource name as requested by the client.
+     * @return Set of matching add-ons, which may be empty.
+     */
+    Set<AddonSpecification> searchByResourceName(@Nonnull String resourceName) {
+	Set<AddonSpecification> result = new HashSet<>();
+	if (byResourceName.isEmpty()) {
+	    return result;
+	}
+
+	StringBuilder prefix = new StringBuilder(resourceName.length());
+	for (String part : resourceName.split("/")) {
+	    prefix.append(part);
+	    Set<AddonSpecification> entry = byResourceName.get(prefix.toString());
+	    if (entry != null) {
+		result.addAll(entry);
+	    }
+	    prefix.append('/');
+	}
+	return result;
+    }
+
+}
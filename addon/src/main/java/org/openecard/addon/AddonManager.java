@@ -25,8 +25,15 @@ package org.openecard.addon;
 import org.openecard.common.util.ThreadManager;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Proxy;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.annotation.Nonnull;
 import org.openecard.addon.bind.AppExtensionAction;
 import org.openecard.addon.bind.AppExtensionActionProxy;
@@ -41,9 +48,12 @@ import org.openecard.addon.manifest.AppPluginSpecification;
 import org.openecard.addon.manifest.ProtocolPluginSpecification;
 import org.openecard.addon.sal.SALProtocol;
 import org.openecard.addon.sal.SALProtocolProxy;
+import org.openecard.common.OpenecardProperties;
 import org.openecard.common.sal.state.CardStateMap;
+import org.openecard.common.util.CardContentCache;
 import org.openecard.common.util.FacadeInvocationHandler;
 import org.openecard.common.interfaces.Environment;
+import org.openecard.common.event.EventType;
 import org.openecard.gui.UserConsent;
 import org.openecard.gui.definition.ViewController;
 import org.openecard.ws.marshal.WSMarshallerException;
@@ -74,8 +84,12 @@ public class AddonManager {
     private final EventHandler eventHandler;
     private final ViewController viewController;
     private final ThreadManager<ActionBackgroundTaskKey> backgroundActionManager;
-    // TODO: rework cache to have borrow and return semantic
-    private final Cache cache = new Cache();
+    private final ConcurrentHashMap<PoolKey, ActionPool<?>> pools = new ConcurrentHashMap<>();
+    // instances handed out by the manager and the pool they belong to
+    private final ConcurrentHashMap<LifecycleTrait, ActionPool<LifecycleTrait>> lent = new ConcurrentHashMap<>();
+    private final int poolMaxIdle;
+    private final long poolIdleTimeout;
+    private final AtomicLong lastEviction = new AtomicLong(System.nanoTime());
 
     /**
      * Creates a new AddonManager.
@@ -99,11 +113,15 @@ public class AddonManager {
 	this.env = env;
 	this.userConsent = userConsent;
 	this.cardStates = cardStates;
-	this.eventHandler = new EventHandler();
-	this.env.getEventDispatcher().add(eventHandler);
+	// the handler registers itself while status clients wait for events
+	this.eventHandler = new EventHandler(env.getEventDispatcher());
+	// content read from a card by the add-ons is only valid until the card is removed
+	this.env.getEventDispatcher().add(CardContentCache.getInstance(), EventType.CARD_REMOVED);
 	this.viewController = view;
 
 	this.backgroundActionManager = new ThreadManager<>("BackgroundActions");
+	this.poolMaxIdle = getIntProperty("addon.pool.max_idle", 2);
+	this.poolIdleTimeout = getIntProperty("addon.pool.idle_timeout", 300) * 1000L;
 
 	new Thread(() -> {
 	    loadLoadOnStartAddons();
@@ -116,6 +134,18 @@ public class AddonManager {
 	this(env, userConsent, cardStates, view, null);
     }
 
+    private static int getIntProperty(String key, int defaultValue) {
+	String value = OpenecardProperties.getProperty(key);
+	if (value != null) {
+	    try {
+		return Integer.parseInt(value.trim());
+	    } catch (NumberFormatException ex) {
+		LOG.warn("Invalid value '{}' for property {}, using {} instead.", value, key, defaultValue);
+	    }
+	}
+	return defaultValue;
+    }
+
     /**
      * Load all addons which contain an loadOnStart = true.
      *
@@ -145,7 +175,11 @@ public class AddonManager {
 	if (!addonSpec.getApplicationActions().isEmpty()) {
 	    for (AppExtensionSpecification appExSpec : addonSpec.getApplicationActions()) {
 		if (appExSpec.isLoadOnStartup()) {
-		    getAppExtensionAction(addonSpec, appExSpec.getId());
+		    AppExtensionAction action = getAppExtensionAction(addonSpec, appExSpec.getId());
+		    if (action != null) {
+			// reusable instances stay initialized in the pool, the others are destroyed
+			returnAppExtensionAction(action);
+		    }
 		}
 	    }
 	}
@@ -153,7 +187,10 @@ public class AddonManager {
 	if (!addonSpec.getBindingActions().isEmpty()) {
 	    for (AppPluginSpecification appPlugSpec : addonSpec.getBindingActions()) {
 		if (appPlugSpec.isLoadOnStartup()) {
-		    getAppPluginAction(addonSpec, appPlugSpec.getResourceName());
+		    AppPluginAction action = getAppPluginAction(addonSpec, appPlugSpec.getResourceName());
+		    if (action != null) {
+			returnAppPluginAction(action);
+		    }
 		}
 	    }
 	}
@@ -161,7 +198,10 @@ public class AddonManager {
 	if (!addonSpec.getIfdActions().isEmpty()) {
 	    for (ProtocolPluginSpecification protPlugSpec : addonSpec.getIfdActions()) {
 		if (protPlugSpec.isLoadOnStartup()) {
-		    getIFDProtocol(addonSpec, protPlugSpec.getUri());
+		    IFDProtocol protocol = getIFDProtocol(addonSpec, protPlugSpec.getUri());
+		    if (protocol != null) {
+			returnIFDProtocol(protocol);
+		    }
 		}
 	    }
 	}
@@ -169,7 +209,10 @@ public class AddonManager {
 	if (!addonSpec.getSalActions().isEmpty()) {
 	    for (ProtocolPluginSpecification protPlugSpec : addonSpec.getSalActions()) {
 		if (protPlugSpec.isLoadOnStartup()) {
-		    getSALProtocol(addonSpec, protPlugSpec.getUri());
+		    SALProtocol protocol = getSALProtocol(addonSpec, protPlugSpec.getUri());
+		    if (protocol != null) {
+			returnSALProtocol(protocol, false);
+		    }
 		}
 	    }
 	}
@@ -235,12 +278,15 @@ public class AddonManager {
 	    }
 	}
 
-	Collection<? extends LifecycleTrait> actionsAndProtocols = cache.getAllAddonData(addonSpec);
-	for (LifecycleTrait obj : actionsAndProtocols) {
-	    obj.destroy(true);
+	Iterator<Map.Entry<PoolKey, ActionPool<?>>> it = pools.entrySet().iterator();
+	while (it.hasNext()) {
+	    Map.Entry<PoolKey, ActionPool<?>> next = it.next();
+	    if (next.getKey().addonSpec.equals(addonSpec)) {
+		it.remove();
+		// instances in use are destroyed as well, handing them back later is a no-op
+		next.getValue().close(true);
+	    }
 	}
-
-	cache.removeCompleteAddonCache(addonSpec);
     }
 
 
@@ -309,25 +355,17 @@ public class AddonManager {
      * @return The requested IFDProtocol object or NULL if no such object was found.
      */
     public IFDProtocol getIFDProtocol(@Nonnull AddonSpecification addonSpec, @Nonnull String uri) {
-	IFDProtocol ifdProt = cache.getIFDProtocol(addonSpec, uri);
-	// TODO: find a better way to deal with the reuse of protocol plugins
-//	if (ifdProt != null) {
-//	    // protocol cached so return it
-//	    return ifdProt;
-//	}
-
 	ProtocolPluginSpecification protoSpec = addonSpec.searchIFDActionByURI(uri);
 	if (protoSpec == null) {
 	    LOG.error("Requested IFD Protocol {} does not exist in Add-on {}.", uri, addonSpec.getId());
 	} else {
-	    String className = protoSpec.getClassName();
 	    try {
-		ClassLoader cl = registry.downloadAddon(addonSpec);
-		IFDProtocolProxy protoFactory = new IFDProtocolProxy(className, cl);
-		Context aCtx = createContext(addonSpec);
-		protoFactory.init(aCtx);
-		cache.addIFDProtocol(addonSpec, uri, protoFactory);
-		return protoFactory;
+		return borrow(addonSpec, "ifd", uri, protoSpec.isReusable(), () -> {
+		    ClassLoader cl = registry.downloadAddon(addonSpec);
+		    IFDProtocolProxy protoFactory = new IFDProtocolProxy(protoSpec.getClassName(), cl);
+		    protoFactory.init(createContext(addonSpec));
+		    return protoFactory;
+		});
 	    } catch (ActionInitializationException e) {
 		LOG.error("Initialization of IFD Protocol failed", e);
 	    } catch (AddonException ex) {
@@ -338,7 +376,7 @@ public class AddonManager {
     }
 
     public void returnIFDProtocol(IFDProtocol obj) {
-	obj.destroy(false);
+	giveBack(obj, false);
     }
 
     /**
@@ -349,25 +387,17 @@ public class AddonManager {
      * @return The requested SALProtocol object or NULL if no such object was found.
      */
     public SALProtocol getSALProtocol(@Nonnull AddonSpecification addonSpec, @Nonnull String uri) {
-	SALProtocol salProt = cache.getSALProtocol(addonSpec, uri);
-	// TODO: find a better way to deal with the reuse of protocol plugins
-//	if (salProt != null) {
-//	    // protocol cached so return it
-//	    return salProt;
-//	}
-
 	ProtocolPluginSpecification protoSpec = addonSpec.searchSALActionByURI(uri);
 	if (protoSpec == null) {
 	    LOG.error("Requested SAL Protocol {} does not exist in Add-on {}.", uri, addonSpec.getId());
 	} else {
-	    String className = protoSpec.getClassName();
 	    try {
-		ClassLoader cl = registry.downloadAddon(addonSpec);
-		SALProtocolProxy protoFactory = new SALProtocolProxy(className, cl);
-		Context aCtx = createContext(addonSpec);
-		protoFactory.init(aCtx);
-		cache.addSALProtocol(addonSpec, uri, protoFactory);
-		return protoFactory;
+		return borrow(addonSpec, "sal", uri, protoSpec.isReusable(), () -> {
+		    ClassLoader cl = registry.downloadAddon(addonSpec);
+		    SALProtocolProxy protoFactory = new SALProtocolProxy(protoSpec.getClassName(), cl);
+		    protoFactory.init(createContext(addonSpec));
+		    return protoFactory;
+		});
 	    } catch (ActionInitializationException e) {
 		LOG.error("Initialization of SAL Protocol failed", e);
 	    } catch (AddonException ex) {
@@ -378,7 +408,7 @@ public class AddonManager {
     }
 
     public void returnSALProtocol(SALProtocol obj, boolean force) {
-	obj.destroy(force);
+	giveBack(obj, force);
     }
 
     /**
@@ -390,26 +420,17 @@ public class AddonManager {
      * the given {@code actionId} exists.
      */
     public AppExtensionAction getAppExtensionAction(@Nonnull AddonSpecification addonSpec, @Nonnull String actionId) {
-	// get extension from cache
-	AppExtensionAction appExtAction = cache.getAppExtensionAction(addonSpec, actionId);
-	// TODO: find a better way to deal with the reuse of protocol plugins
-//	if (appExtAction != null) {
-//	    // AppExtensionAction cached so return it
-//	    return appExtAction;
-//	}
-
 	AppExtensionSpecification protoSpec = addonSpec.searchByActionId(actionId);
 	if (protoSpec == null) {
 	    LOG.error("Requested Extension {} does not exist in Add-on {}.", actionId, addonSpec.getId());
 	} else {
-	    String className = protoSpec.getClassName();
 	    try {
-		ClassLoader cl = registry.downloadAddon(addonSpec);
-		AppExtensionActionProxy protoFactory = new AppExtensionActionProxy(className, cl);
-		Context aCtx = createContext(addonSpec);
-		protoFactory.init(aCtx);
-		cache.addAppExtensionAction(addonSpec, actionId, protoFactory);
-		return protoFactory;
+		return borrow(addonSpec, "extension", actionId, protoSpec.isReusable(), () -> {
+		    ClassLoader cl = registry.downloadAddon(addonSpec);
+		    AppExtensionActionProxy protoFactory = new AppExtensionActionProxy(protoSpec.getClassName(), cl);
+		    protoFactory.init(createContext(addonSpec));
+		    return protoFactory;
+		});
 	    } catch (ActionInitializationException e) {
 		LOG.error("Initialization of AppExtensionAction failed", e);
 	    } catch (AddonException ex) {
@@ -420,7 +441,7 @@ public class AddonManager {
     }
 
     public void returnAppExtensionAction(AppExtensionAction obj) {
-	obj.destroy(false);
+	giveBack(obj, false);
     }
 
     /**
@@ -433,25 +454,19 @@ public class AddonManager {
      * such AppPluginAction exists NULL is returned.
      */
     public AppPluginAction getAppPluginAction(@Nonnull AddonSpecification addonSpec, @Nonnull String resourceName) {
-	AppPluginAction appPluginAction = cache.getAppPluginAction(addonSpec, resourceName);
-	// TODO: find a better way to deal with the reuse of protocol plugins
-//	if (appPluginAction != null) {
-//	    // AppExtensionAction cached so return it
-//	    return appPluginAction;
-//	}
-
 	AppPluginSpecification protoSpec = addonSpec.searchByResourceName(resourceName);
 	if (protoSpec == null) {
 	    LOG.error("Plugin for resource {} does not exist in Add-on {}.", resourceName, addonSpec.getId());
 	} else {
-	    String className = protoSpec.getClassName();
 	    try {
-		ClassLoader cl = registry.downloadAddon(addonSpec);
-		AppPluginActionProxy protoFactory = new AppPluginActionProxy(className, cl);
-		Context aCtx = createContext(addonSpec);
-		protoFactory.init(aCtx);
-		cache.addAppPluginAction(addonSpec, resourceName, protoFactory);
-		return protoFactory;
+		// all resources below the plugin's resource name share its pool
+		String poolId = protoSpec.getResourceName();
+		return borrow(addonSpec, "plugin", poolId, protoSpec.isReusable(), () -> {
+		    ClassLoader cl = registry.downloadAddon(addonSpec);
+		    AppPluginActionProxy protoFactory = new AppPluginActionProxy(protoSpec.getClassName(), cl);
+		    protoFactory.init(createContext(addonSpec));
+		    return protoFactory;
+		});
 	    } catch (ActionInitializationException e) {
 		LOG.error("Initialization of AppPluginAction failed", e);
 	    } catch (AddonException ex) {
@@ -462,7 +477,68 @@ public class AddonManager {
     }
 
     public void returnAppPluginAction(AppPluginAction obj) {
-	obj.destroy(false);
+	giveBack(obj, false);
+    }
+
+    /**
+     * Gets the pools of all actions and protocols which have been requested so far.
+     * The pools provide metrics about the created and reused instances.
+     *
+     * @return Snapshot of the current pools.
+     */
+    public Collection<ActionPool<?>> getActionPools() {
+	return Collections.unmodifiableCollection(new ArrayList<>(pools.values()));
+    }
+
+    private <T extends LifecycleTrait> T borrow(AddonSpecification addonSpec, String kind, String id,
+	    boolean reusable, ActionPool.Factory<T> factory) throws ActionInitializationException, AddonException {
+	evictIdleInstances();
+
+	PoolKey key = new PoolKey(addonSpec, kind, id);
+	ActionPool<?> pool = pools.get(key);
+	if (pool == null) {
+	    ActionPool<T> newPool = new ActionPool<>(key.toString(), factory, reusable, poolMaxIdle, poolIdleTimeout);
+	    pool = pools.putIfAbsent(key, newPool);
+	    if (pool == null) {
+		pool = newPool;
+	    }
+	}
+
+	@SuppressWarnings("unchecked")
+	ActionPool<T> typedPool = (ActionPool<T>) pool;
+	T instance = typedPool.borrow();
+	@SuppressWarnings("unchecked")
+	ActionPool<LifecycleTrait> untypedPool = (ActionPool<LifecycleTrait>) pool;
+	lent.put(instance, untypedPool);
+	return instance;
+    }
+
+    private void giveBack(LifecycleTrait obj, boolean force) {
+	ActionPool<LifecycleTrait> pool = lent.remove(obj);
+	if (pool != null) {
+	    pool.giveBack(obj, force);
+	} else {
+	    // not handed out by the manager
+	    obj.destroy(force);
+	}
+    }
+
+    /**
+     * Destroys the expired idle instances of all pools.
+     * The check runs at most twice per idle timeout, so that no separate thread is needed for the eviction.
+     */
+    private void evictIdleInstances() {
+	if (poolIdleTimeout <= 0) {
+	    return;
+	}
+	long now = System.nanoTime();
+	long last = lastEviction.get();
+	long interval = TimeUnit.MILLISECONDS.toNanos(poolIdleTimeout) / 2;
+	if (now - last >= interval && lastEviction.compareAndSet(last, now)) {
+	    for (ActionPool<?> pool : pools.values()) {
+		pool.evictIdle();
+	    }
+	}
     }
 
     private Context createContext(@Nonnull AddonSpecification addonSpec) {
@@ -497,4 +573,38 @@ public class AddonManager {
 	}
     }
 
+
+    private static final class PoolKey {
+
+	private final AddonSpecification addonSpec;
+	private final String kind;
+	private final String id;
+
+	PoolKey(AddonSpecification addonSpec, String kind, String id) {
+	    this.addonSpec = addonSpec;
+	    this.kind = kind;
+	    this.id = id;
+	}
+
+	@Override
+	public int hashCode() {
+	    return (addonSpec.hashCode() * 31 + kind.hashCode()) * 31 + id.hashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+	    if (obj instanceof PoolKey) {
+		PoolKey other = (PoolKey) obj;
+		return addonSpec.equals(other.addonSpec) && kind.equals(other.kind) && id.equals(other.id);
+	    }
+	    return false;
+	}
+
+	@Override
+	public String toString() {
+	    return addonSpec.getId() + "/" + kind + "/" + id;
+	}
+
+    }
+
 }
@@ -22,8 +22,6 @@
 
 package org.openecard.addon;
 
-import java.util.HashMap;
-import java.util.Map;
 import java.util.Set;
 import javax.annotation.Nonnull;
 import org.openecard.addon.bind.AppExtensionAction;
@@ -35,6 +33,7 @@ import org.openecard.addon.sal.SALProtocol;
 
 /**
  * Selector class for add-ons working on top of the registries of the systems AddonManager.
+ * The registries answer the lookups from their indexes, so the selector itself does not cache any results.
  *
  * @author Tobias Wich
  */
@@ -42,22 +41,10 @@ public class AddonSelector {
 
     private final AddonManager manager;
 
-    // TODO: implement caching
-    private final Map<String, AddonSpecification> ifdCache;
-    private final Map<String, AddonSpecification> salCache;
-    private final Map<String, AddonSpecification> extensionCache;
-    private final Map<String, AddonSpecification> pluginCache;
-
     private SelectionStrategy strategy;
 
     public AddonSelector(AddonManager manager) {
 	this.manager = manager;
-
-	ifdCache = new HashMap<>();
-	salCache = new HashMap<>();
-	extensionCache = new HashMap<>();
-	pluginCache = new HashMap<>();
-
 	setStrategy(new HighestVersionSelector());
     }
 
@@ -39,7 +39,10 @@ import org.openecard.addon.sal.SALProtocol;
  * The class implements a cache which stores loaded Actions and Protocols.
  *
  * @author Hans-Martin Haase
+ * @deprecated The {@link AddonManager} keeps its instances in {@link ActionPool}s which are thread safe and have
+ *   borrow and return semantic.
  */
+@Deprecated
 public class Cache {
 
     /**
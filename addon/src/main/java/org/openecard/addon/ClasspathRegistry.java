@@ -31,10 +31,6 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.FutureTask;
 import org.openecard.addon.manifest.AddonSpecification;
-import org.openecard.addon.manifest.AppExtensionSpecification;
-import org.openecard.addon.manifest.AppPluginSpecification;
-import org.openecard.addon.manifest.LocalizedString;
-import org.openecard.addon.manifest.ProtocolPluginSpecification;
 import org.openecard.common.util.FileUtils;
 import org.openecard.ws.marshal.WSMarshaller;
 import org.openecard.ws.marshal.WSMarshallerException;
@@ -57,6 +53,7 @@ public class ClasspathRegistry implements AddonRegistry {
     private static final Logger LOG = LoggerFactory.getLogger(ClasspathRegistry.class);
 
     private final FutureTask<ArrayList<AddonSpecification>> registeredAddons;
+    private volatile AddonIndex index;
 
 
     public ClasspathRegistry() {
@@ -101,6 +98,20 @@ public class ClasspathRegistry implements AddonRegistry {
 	}
     }
 
+    private AddonIndex getIndex() {
+	AddonIndex idx = index;
+	if (idx == null) {
+	    synchronized (this) {
+		idx = index;
+		if (idx == null) {
+		    idx = new AddonIndex(getAddons());
+		    index = idx;
+		}
+	    }
+	}
+	return idx;
+    }
+
     private ArrayList<AddonSpecification> getAddons() {
 	try {
 	    return registeredAddons.get();
@@ -119,62 +130,35 @@ public class ClasspathRegistry implements AddonRegistry {
 	registeredAddons.add(desc);
     }
 
-    public final void register(AddonSpecification desc) {
-	registerInt(getAddons(), desc);
+    public final synchronized void register(AddonSpecification desc) {
+	index = getIndex().with(desc);
     }
 
     @Override
     public Set<AddonSpecification> listAddons() {
 	Set<AddonSpecification> list = new HashSet<>();
-	list.addAll(getAddons());
+	list.addAll(getIndex().getAddons());
 	return list;
     }
 
     @Override
     public AddonSpecification search(String id) {
-	for (AddonSpecification desc : getAddons()) {
-	    if (desc.getId().equals(id)) {
-		return desc;
-	    }
-	}
-	return null;
+	return getIndex().search(id);
     }
 
     @Override
     public Set<AddonSpecification> searchByName(String name) {
-	Set<AddonSpecification> matchingAddons = new HashSet<>();
-	for (AddonSpecification desc : getAddons()) {
-	    for (LocalizedString s : desc.getLocalizedName()) {
-		if (s.getValue().equals(name)) {
-		    matchingAddons.add(desc);
-		}
-	    }
-	}
-	return matchingAddons;
+	return getIndex().searchByName(name);
     }
 
     @Override
     public Set<AddonSpecification> searchIFDProtocol(String uri) {
-	Set<AddonSpecification> matchingAddons = new HashSet<>();
-	for (AddonSpecification desc : getAddons()) {
-	    ProtocolPluginSpecification protocolDesc = desc.searchIFDActionByURI(uri);
-	    if (protocolDesc != null) {
-		matchingAddons.add(desc);
-	    }
-	}
-	return matchingAddons;
+	return getIndex().searchIFDProtocol(uri);
     }
 
     @Override
     public Set<AddonSpecification> searchSALProtocol(String uri) {
-	Set<AddonSpecification> matchingAddons = new HashSet<>();
-	for (AddonSpecification desc : getAddons()) {
-	    ProtocolPluginSpecification protocolDesc = desc.searchSALActionByURI(uri);
-	    if (protocolDesc != null) {
-		matchingAddons.add(desc);
-	    }
-	}
-	return matchingAddons;
+	return getIndex().searchSALProtocol(uri);
     }
 
     @Override
@@ -185,26 +169,12 @@ public class ClasspathRegistry implements AddonRegistry {
 
     @Override
     public Set<AddonSpecification> searchByResourceName(String resourceName) {
-	Set<AddonSpecification> matchingAddons = new HashSet<>();
-	for (AddonSpecification desc : getAddons()) {
-	    AppPluginSpecification actionDesc = desc.searchByResourceName(resourceName);
-	    if (actionDesc != null) {
-		matchingAddons.add(desc);
-	    }
-	}
-	return matchingAddons;
+	return getIndex().searchByResourceName(resourceName);
     }
 
     @Override
     public Set<AddonSpecification> searchByActionId(String actionId) {
-	Set<AddonSpecification> matchingAddons = new HashSet<>();
-	for (AddonSpecification desc : getAddons()) {
-	    AppExtensionSpecification actionDesc = desc.searchByActionId(actionId);
-	    if (actionDesc != null) {
-		matchingAddons.add(desc);
-	    }
-	}
-	return matchingAddons;
+	return getIndex().searchByActionId(actionId);
     }
 
     @Override
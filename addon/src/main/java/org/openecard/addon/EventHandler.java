@@ -23,19 +23,23 @@
 package org.openecard.addon;
 
 import iso.std.iso_iec._24727.tech.schema.ConnectionHandleType;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import org.openecard.common.event.EventType;
 import org.openecard.common.interfaces.EventCallback;
 import org.openecard.common.event.EventObject;
+import org.openecard.common.interfaces.EventDispatcher;
 import org.openecard.ws.schema.StatusChange;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 
 /**
+ * Event callback filling the event queues of the status and WaitForChange clients.
+ * The handler is only registered at the event dispatcher while at least one queue exists. Otherwise it would declare
+ * interest in the API call events and the dispatcher would create them for every message, including each APDU.
  *
  * @author Johannes Schmölz
  * @author Benedikt Biallowons
@@ -46,6 +50,7 @@ public class EventHandler implements EventCallback {
 
     private static final Logger LOG = LoggerFactory.getLogger(EventHandler.class);
 
+    private final EventDispatcher dispatcher;
     private final Map<String, LinkedBlockingQueue<StatusChange>> eventQueues;
     private final Map<String, ReschedulableTimer> timers;
     // after this delay of inactivity an event queue (and it's timer) will be deleted
@@ -53,10 +58,13 @@ public class EventHandler implements EventCallback {
 
     /**
      * Create a new EventHandler.
+     *
+     * @param dispatcher Event dispatcher the handler registers itself at while event queues exist.
      */
-    public EventHandler() {
-	eventQueues = new HashMap<>();
-	timers = new HashMap<>();
+    public EventHandler(EventDispatcher dispatcher) {
+	this.dispatcher = dispatcher;
+	eventQueues = new ConcurrentHashMap<>();
+	timers = new ConcurrentHashMap<>();
     }
 
     /**
@@ -106,8 +114,11 @@ public class EventHandler implements EventCallback {
      *
      * @param sessionIdentifier session identifier
      */
-    public void addQueue(final String sessionIdentifier) {
+    public synchronized void addQueue(final String sessionIdentifier) {
 	if (eventQueues.get(sessionIdentifier) == null) {
+	    if (eventQueues.isEmpty()) {
+		dispatcher.add(this);
+	    }
 	    eventQueues.put(sessionIdentifier, new LinkedBlockingQueue<StatusChange>());
 	    ReschedulableTimer timer = new ReschedulableTimer();
 	    timer.schedule(new DeleteTask(sessionIdentifier), deleteDelay);
@@ -117,6 +128,22 @@ public class EventHandler implements EventCallback {
 	}
     }
 
+    /**
+     * Removes the EventQueue of the given session.
+     * When no queue is left, the handler no longer receives events.
+     *
+     * @param sessionIdentifier session identifier
+     */
+    synchronized void removeQueue(String sessionIdentifier) {
+	if (eventQueues.remove(sessionIdentifier) != null && eventQueues.isEmpty()) {
+	    dispatcher.del(this);
+	}
+	ReschedulableTimer timer = timers.remove(sessionIdentifier);
+	if (timer != null) {
+	    timer.cancel();
+	}
+    }
+
     private final class DeleteTask implements Runnable {
 	private final String sessionIdentifier;
 
@@ -126,8 +153,7 @@ public class EventHandler implements EventCallback {
 
 	@Override
 	public void run() {
-	    eventQueues.remove(sessionIdentifier);
-	    timers.remove(sessionIdentifier);
+	    removeQueue(sessionIdentifier);
 	}
     }
 
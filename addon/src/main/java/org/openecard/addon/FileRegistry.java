@@ -27,20 +27,16 @@ import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLClassLoader;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.FutureTask;
 import org.openecard.addon.manifest.AddonSpecification;
-import org.openecard.addon.manifest.AppExtensionSpecification;
-import org.openecard.addon.manifest.AppPluginSpecification;
-import org.openecard.addon.manifest.LocalizedString;
-import org.openecard.addon.manifest.ProtocolPluginSpecification;
 import org.openecard.common.util.FileUtils;
 import org.openecard.ws.marshal.WSMarshallerException;
 import org.slf4j.Logger;
@@ -58,8 +54,10 @@ public class FileRegistry implements AddonRegistry {
 
     private static final Logger logger = LoggerFactory.getLogger(FileRegistry.class.getName());
 
-    private static final HashMap<String, AddonSpecification> registeredAddons = new HashMap<>();
-    private static final HashMap<String, File> files = new HashMap<>();
+    private static final ConcurrentHashMap<String, AddonSpecification> registeredAddons = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, File> files = new ConcurrentHashMap<>();
+    private static final Object indexLock = new Object();
+    private static volatile AddonIndex index = AddonIndex.EMPTY;
     private final AddonManager manager;
     private final Future<Void> initComplete;
 
@@ -121,12 +119,25 @@ public class FileRegistry implements AddonRegistry {
 	}
     }
 
-    private HashMap<String, AddonSpecification> getAddons() {
+    private ConcurrentHashMap<String, AddonSpecification> getAddons() {
 	blockUntilInit();
 	return registeredAddons;
     }
 
-    private HashMap<String, File> getFiles() {
+    private AddonIndex getIndex() {
+	blockUntilInit();
+	return index;
+    }
+
+    /**
+     * Replaces the lookup index with one reflecting the currently registered add-ons.
+     * The caller must hold {@link #indexLock}.
+     */
+    private static void rebuildIndex() {
+	index = new AddonIndex(registeredAddons.values());
+    }
+
+    private ConcurrentHashMap<String, File> getFiles() {
 	blockUntilInit();
 	return files;
     }
@@ -158,8 +169,11 @@ public class FileRegistry implements AddonRegistry {
      * @param file A {@link File} object which points to the add-ons jar file.
      */
     public void register(AddonSpecification desc, File file) {
-	registeredAddons.put(file.getName(), desc);
-	files.put(desc.getId(), file);
+	synchronized (indexLock) {
+	    registeredAddons.put(file.getName(), desc);
+	    files.put(desc.getId(), file);
+	    rebuildIndex();
+	}
     }
 
     /**
@@ -169,15 +183,18 @@ public class FileRegistry implements AddonRegistry {
      */
     public void unregister(File file) {
 	Set<Entry<String, File>> entrySet = getFiles().entrySet();
-	Iterator<Entry<String, File>> iterator = entrySet.iterator();
-	while (iterator.hasNext()) {
-	    Entry<String, File> next = iterator.next();
-	    if (next.getValue().equals(file)) {
-		String id = next.getKey();
-		registeredAddons.remove(file.getName());
-		files.remove(id);
-		logger.debug("Successfully removed addon {}", file.getName());
-		break;
+	synchronized (indexLock) {
+	    Iterator<Entry<String, File>> iterator = entrySet.iterator();
+	    while (iterator.hasNext()) {
+		Entry<String, File> next = iterator.next();
+		if (next.getValue().equals(file)) {
+		    String id = next.getKey();
+		    registeredAddons.remove(file.getName());
+		    files.remove(id);
+		    rebuildIndex();
+		    logger.debug("Successfully removed addon {}", file.getName());
+		    break;
+		}
 	    }
 	}
     }
@@ -185,55 +202,28 @@ public class FileRegistry implements AddonRegistry {
     @Override
     public Set<AddonSpecification> listAddons() {
 	Set<AddonSpecification> list = new HashSet<>();
-	list.addAll(getAddons().values());
+	list.addAll(getIndex().getAddons());
 	return list;
     }
 
     @Override
     public AddonSpecification search(String id) {
-	for (AddonSpecification desc : getAddons().values()) {
-	    if (desc.getId().equals(id)) {
-		return desc;
-	    }
-	}
-	return null;
+	return getIndex().search(id);
     }
 
     @Override
     public Set<AddonSpecification> searchByName(String name) {
-	Set<AddonSpecification> matchingAddons = new HashSet<>();
-	for (AddonSpecification desc : getAddons().values()) {
-	    for (LocalizedString s : desc.getLocalizedName()) {
-		if (s.getValue().equals(name)) {
-		    matchingAddons.add(desc);
-		}
-	    }
-	}
-	return matchingAddons;
+	return getIndex().searchByName(name);
     }
 
     @Override
     public Set<AddonSpecification> searchIFDProtocol(String uri) {
-	Set<AddonSpecification> matchingAddons = new HashSet<>();
-	for (AddonSpecification desc : getAddons().values()) {
-	    ProtocolPluginSpecification protocolDesc = desc.searchIFDActionByURI(uri);
-	    if (protocolDesc != null) {
-		matchingAddons.add(desc);
-	    }
-	}
-	return matchingAddons;
+	return getIndex().searchIFDProtocol(uri);
     }
 
     @Override
     public Set<AddonSpecification> searchSALProtocol(String uri) {
-	Set<AddonSpecification> matchingAddons = new HashSet<>();
-	for (AddonSpecification desc : getAddons().values()) {
-	    ProtocolPluginSpecification protocolDesc = desc.searchSALActionByURI(uri);
-	    if (protocolDesc != null) {
-		matchingAddons.add(desc);
-	    }
-	}
-	return matchingAddons;
+	return getIndex().searchSALProtocol(uri);
     }
 
     @Override
@@ -253,26 +243,12 @@ public class FileRegistry implements AddonRegistry {
 
     @Override
     public Set<AddonSpecification> searchByResourceName(String resourceName) {
-	Set<AddonSpecification> matchingAddons = new HashSet<>();
-	for (AddonSpecification desc : getAddons().values()) {
-	    AppPluginSpecification actionDesc = desc.searchByResourceName(resourceName);
-	    if (actionDesc != null) {
-		matchingAddons.add(desc);
-	    }
-	}
-	return matchingAddons;
+	return getIndex().searchByResourceName(resourceName);
     }
 
     @Override
     public Set<AddonSpecification> searchByActionId(String actionId) {
-	Set<AddonSpecification> matchingAddons = new HashSet<>();
-	for (AddonSpecification desc : getAddons().values()) {
-	    AppExtensionSpecification actionDesc = desc.searchByActionId(actionId);
-	    if (actionDesc != null) {
-		matchingAddons.add(desc);
-	    }
-	}
-	return matchingAddons;
+	return getIndex().searchByActionId(actionId);
     }
 
     /**
@@ -39,7 +39,7 @@ import org.openecard.addon.utils.LocalizedStringExtractor;
  * @author Hans-Martin Haase
  */
 @XmlRootElement(name = "AppExtensionSpecification")
-@XmlType(propOrder = { "id", "className", "loadOnStartup", "backgroundJob", "autoRestartBackgroundJob", "localizedName", "localizedDescription", "configDescription" })
+@XmlType(propOrder = { "id", "className", "loadOnStartup", "reusable", "backgroundJob", "autoRestartBackgroundJob", "localizedName", "localizedDescription", "configDescription" })
 @XmlAccessorType(XmlAccessType.FIELD)
 public class AppExtensionSpecification {
 
@@ -49,6 +49,8 @@ public class AppExtensionSpecification {
     private String className;
     @XmlElement(name = "LoadOnStartup", required = false, defaultValue = "false")
     private Boolean loadOnStartup;
+    @XmlElement(name = "Reusable", required = false, defaultValue = "false")
+    private Boolean reusable;
     @XmlElement(name = "BackgroundJob", required = false, defaultValue = "false")
     private Boolean backgroundJob;
     @XmlElement(name = "AutoRestartBackgroundJob", required = false, defaultValue = "false")
@@ -113,6 +115,24 @@ public class AppExtensionSpecification {
 	this.loadOnStartup = loadOnStartup;
     }
 
+    /**
+     * Indicates whether an instance of this action may be reused for further invocations.
+     * Reusable actions must not keep state of one invocation beyond its end, so that the
+     * {@link org.openecard.addon.AddonManager} may keep them in its pool instead of destroying them.
+     *
+     * @return {@code true} if the action is reusable, {@code false} otherwise.
+     */
+    public boolean isReusable() {
+	if (reusable == null) {
+	    return false;
+	}
+	return reusable;
+    }
+
+    public void setReusable(boolean reusable) {
+	this.reusable = reusable;
+    }
+
     public void setBackgroundJob(Boolean backgroundJob) {
 	this.backgroundJob = backgroundJob;
     }
@@ -39,7 +39,7 @@ import org.openecard.addon.utils.LocalizedStringExtractor;
  * @author Hans-Martin Haase
  */
 @XmlRootElement(name = "AppPluginSpecification")
-@XmlType(propOrder = { "className", "loadOnStartup", "localizedName", "localizedDescription", "resourceName",
+@XmlType(propOrder = { "className", "loadOnStartup", "reusable", "localizedName", "localizedDescription", "resourceName",
 	    "configDescription", "parameters", "body", "attachments" })
 @XmlAccessorType(XmlAccessType.FIELD)
 public class AppPluginSpecification {
@@ -48,6 +48,8 @@ public class AppPluginSpecification {
     private String className;
     @XmlElement(name = "LoadOnStartup", required = false, defaultValue = "false")
     private Boolean loadOnStartup;
+    @XmlElement(name = "Reusable", required = false, defaultValue = "false")
+    private Boolean reusable;
     @XmlElement(name = "LocalizedName")
     private final List<LocalizedString> localizedName = new ArrayList<>();
     @XmlElement(name = "LocalizedDescription")
@@ -104,6 +106,24 @@ public class AppPluginSpecification {
 	this.loadOnStartup = loadOnStartup;
     }
 
+    /**
+     * Indicates whether an instance of this action may be reused for further invocations.
+     * Reusable actions must not keep state of one invocation beyond its end, so that the
+     * {@link org.openecard.addon.AddonManager} may keep them in its pool instead of destroying them.
+     *
+     * @return {@code true} if the action is reusable, {@code false} otherwise.
+     */
+    public boolean isReusable() {
+	if (reusable == null) {
+	    return false;
+	}
+	return reusable;
+    }
+
+    public void setReusable(boolean reusable) {
+	this.reusable = reusable;
+    }
+
     public void setConfigDescription(Configuration configDescription) {
 	this.configDescription = configDescription;
     }
@@ -38,7 +38,7 @@ import org.openecard.addon.utils.LocalizedStringExtractor;
  * @author Dirk Petrautzki
  */
 @XmlRootElement(name = "ProtocolPluginSpecification")
-@XmlType(propOrder = { "uri", "className", "loadOnStartup", "localizedName", "localizedDescription", "configDescription" })
+@XmlType(propOrder = { "uri", "className", "loadOnStartup", "reusable", "localizedName", "localizedDescription", "configDescription" })
 @XmlAccessorType(XmlAccessType.FIELD)
 public class ProtocolPluginSpecification {
 
@@ -46,6 +46,8 @@ public class ProtocolPluginSpecification {
     private String className;
     @XmlElement(name = "LoadOnStartup", required = false, defaultValue = "false")
     private Boolean loadOnStartup;
+    @XmlElement(name = "Reusable", required = false, defaultValue = "false")
+    private Boolean reusable;
     @XmlElement(name = "URI")
     private String uri;
     @XmlElement(name = "LocalizedName")
@@ -74,6 +76,24 @@ public class ProtocolPluginSpecification {
 	this.loadOnStartup = loadOnStartup;
     }
 
+    /**
+     * Indicates whether an instance of this protocol may be reused for further invocations.
+     * Reusable protocols must not keep state of one invocation beyond its end, so that the
+     * {@link org.openecard.addon.AddonManager} may keep them in its pool instead of destroying them.
+     *
+     * @return {@code true} if the protocol is reusable, {@code false} otherwise.
+     */
+    public boolean isReusable() {
+	if (reusable == null) {
+	    return false;
+	}
+	return reusable;
+    }
+
+    public void setReusable(boolean reusable) {
+	this.reusable = reusable;
+    }
+
     public String getUri() {
 	return uri;
     }
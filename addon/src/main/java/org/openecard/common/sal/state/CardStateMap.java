@@ -31,19 +31,25 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Iterator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
-import java.util.concurrent.ConcurrentSkipListMap;
 import org.openecard.addon.AddonSelector;
 import org.openecard.addon.sal.SALProtocol;
-import org.openecard.common.util.ByteComparator;
+import org.openecard.common.util.ByteArrayWrapper;
 import org.openecard.common.util.ByteUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 
 /**
+ * Index of the card state entries of a SAL.
+ * <p>The entries are indexed by session identifier, context handle and slot handle. The indices are kept in an
+ * immutable snapshot which is replaced on every modification. Lookups work on the current snapshot and therefore never
+ * block, while modifications are serialized.</p>
  *
  * @author Tobias Wich
  */
@@ -51,10 +57,7 @@ public class CardStateMap {
 
     private static final Logger LOG = LoggerFactory.getLogger(CardStateMap.class);
 
-    private final TreeSet<CardStateEntry> allEntries = new TreeSet<>();
-    private final ConcurrentSkipListMap<String,Set<CardStateEntry>> sessionMap = new ConcurrentSkipListMap<>();
-    private final ConcurrentSkipListMap<byte[],Set<CardStateEntry>> contextMap = new ConcurrentSkipListMap<>(new ByteComparator());
-    private final ConcurrentSkipListMap<byte[],Set<CardStateEntry>> slothandleMap = new ConcurrentSkipListMap<>(new ByteComparator());
+    private volatile Index index = new Index();
 
     private AddonSelector protocolSelector;
 
@@ -63,16 +66,18 @@ public class CardStateMap {
     }
 
 
-    public synchronized CardStateEntry getEntry(ConnectionHandleType handle) {
+    public CardStateEntry getEntry(ConnectionHandleType handle) {
 	return getEntry(handle, true);
     }
-    public synchronized CardStateEntry getEntry(ConnectionHandleType handle, boolean filterAppId) {
+    public CardStateEntry getEntry(ConnectionHandleType handle, boolean filterAppId) {
 	if (LOG.isDebugEnabled()) {
 	    LOG.debug("Requesting entry (filterAppId={}) for handle:{}{}",
 		    filterAppId, System.lineSeparator(), HandlePrinter.printHandle(handle));
-	    LOG.debug("Current state entries are:");
-	    for (CardStateEntry e : allEntries) {
-		LOG.debug("{}{}", e, System.lineSeparator());
+	}
+	if (LOG.isTraceEnabled()) {
+	    LOG.trace("Current state entries are:");
+	    for (CardStateEntry e : index.allEntries) {
+		LOG.trace("{}{}", e, System.lineSeparator());
 	    }
 	}
 
@@ -94,13 +99,9 @@ public class CardStateMap {
 	LOG.debug("Add new entry to card states: {}", entry);
 	ConnectionHandleType handle = entry.handleCopy();
 	ChannelHandleType channel = handle.getChannelHandle();
+	String session = (channel != null) ? channel.getSessionIdentifier() : null;
 
-	if (channel != null) {
-	    addMapEntry(channel.getSessionIdentifier(), sessionMap, entry);
-	}
-	addMapEntry(handle.getContextHandle(), contextMap, entry);
-	addMapEntry(handle.getSlotHandle(), slothandleMap, entry);
-	allEntries.add(entry);
+	index = index.add(entry, session, wrap(handle.getContextHandle()), wrap(handle.getSlotHandle()));
     }
 
 
@@ -115,11 +116,9 @@ public class CardStateMap {
 		    System.lineSeparator(), HandlePrinter.printHandle(handle));
 	}
 	Set<CardStateEntry> entries = getMatchingEntries(handle);
-	Iterator<CardStateEntry> it = entries.iterator();
 	boolean removeSlotHandles = handle.getSlotHandle() == null;
 
-	while (it.hasNext()) {
-	    CardStateEntry entry = it.next();
+	for (CardStateEntry entry : entries) {
 	    removeEntry(entry, removeSlotHandles);
 	}
     }
@@ -160,56 +159,13 @@ public class CardStateMap {
 	LOG.debug("Internal removeEntry function called with removeSlotHandles={}.", removeSlotHandles);
 	ConnectionHandleType handle = entry.handleCopy();
 	ChannelHandleType channel = handle.getChannelHandle();
+	String session = (channel != null) ? channel.getSessionIdentifier() : null;
 
-	if (channel != null) {
-	    LOG.debug("Removing entry from session map for channel session={}.", channel.getSessionIdentifier());
-	    removeMapEntry(channel.getSessionIdentifier(), sessionMap, entry);
-	}
-	LOG.debug("Removing entry from context map for ctx={}.", ByteUtils.toHexString(handle.getContextHandle()));
-	removeMapEntry(handle.getContextHandle(), contextMap, entry);
-	// remove all or just the one a key is given for
-	if (removeSlotHandles) {
-	    LOG.debug("Removing all entries for SlotHandles.");
-	    Iterator<byte[]> it = slothandleMap.keySet().iterator();
-	    while (it.hasNext()) {
-		byte[] key = it.next();
-		LOG.debug("Removing entry for slot={}.", ByteUtils.toHexString(key));
-		removeMapEntry(key, slothandleMap, entry);
-	    }
-	} else {
-	    LOG.debug("Removing entry for slot={}.", ByteUtils.toHexString(handle.getSlotHandle()));
-	    removeMapEntry(handle.getSlotHandle(), slothandleMap, entry);
-	}
+	index = index.remove(entry, session, wrap(handle.getContextHandle()), wrap(handle.getSlotHandle()),
+		removeSlotHandles);
 
 	LOG.debug("Removing all protocol instances.");
 	clearProtocolsForEntry(entry);
-
-	LOG.debug("Removing entry from allEntries set.");
-	allEntries.remove(entry);
-    }
-
-
-    private <K> void addMapEntry(K key, ConcurrentSkipListMap<K,Set<CardStateEntry>> map, CardStateEntry entry) {
-	if (key != null) {
-	    Set<CardStateEntry> entrySet = setFromMap(map, key);
-	    boolean empty = entrySet.isEmpty();
-	    entrySet.add(entry);
-	    if (empty) {
-		map.put(key, entrySet);
-	    }
-	}
-    }
-
-    private <K> void removeMapEntry(K key, ConcurrentSkipListMap<K,Set<CardStateEntry>> map, CardStateEntry entry) {
-	if (key != null) {
-	    if (map.containsKey(key)) {
-		Set<CardStateEntry> entrySet = map.get(key);
-		entrySet.remove(entry);
-		if (entrySet.isEmpty()) {
-		    map.remove(key);
-		}
-	    }
-	}
     }
 
 
@@ -227,176 +183,222 @@ public class CardStateMap {
 	return getMatchingEntries(cHandle, null, null, filterAppId);
     }
 
-    private synchronized Set<CardStateEntry> getMatchingEntries(CardApplicationPathType cHandle, byte[] slotHandle,
+    private Set<CardStateEntry> getMatchingEntries(CardApplicationPathType cHandle, byte[] slotHandle,
 	    RecognitionInfo recInfo, boolean filterAppId) {
+	// all lookups work on the same snapshot
+	Index idx = index;
+
 	// extract values from map
 	ChannelHandleType channel = cHandle.getChannelHandle();
 	String session = (channel != null) ? channel.getSessionIdentifier() : null;
 	byte[] ctx = cHandle.getContextHandle();
 	String ifdname = cHandle.getIFDName();
 	BigInteger slotIdx = cHandle.getSlotIndex();
-	byte[] cardApplication = cHandle.getCardApplication();
-
-	// when nothing has been specified, return all elements
-	Set<CardStateEntry> mergedSets;
-	if (session == null && ctx == null && slotHandle == null) {
-	    mergedSets = new TreeSet<>(allEntries);
-	} else {
-	    // fetch applicable lists from maps
-	    Set<CardStateEntry> sessionEntries = setFromMap(sessionMap, session);
-	    Set<CardStateEntry> ctxEntries = setFromMap(contextMap, ctx);
-	    Set<CardStateEntry> slothandleEntries = setFromMap(slothandleMap, slotHandle);
-
-	    // merge entries
-	    ArrayList<Set<CardStateEntry>> setsToMerge = new ArrayList<>(3);
-	    if (session != null) {
-		setsToMerge.add(sessionEntries);
-	    }
-	    if (ctx != null) {
-		setsToMerge.add(ctxEntries);
-	    }
-	    if (slotHandle != null) {
-		setsToMerge.add(slothandleEntries);
-	    }
-
-	    mergedSets = mergeSets(setsToMerge);
+	byte[] cardApplication = filterAppId ? cHandle.getCardApplication() : null;
+	// [TR-03112-4] If no card application is specified, paths to all
+	// available cards (alpha-card applications) and unused card
+	// terminal slots are returned.
+	String cardType = (recInfo != null) ? recInfo.getCardType() : null;
+
+	// fetch applicable sets from the indices
+	List<Set<CardStateEntry>> keySets = new ArrayList<>(3);
+	if (session != null) {
+	    keySets.add(setFromMap(idx.sessionMap, session));
 	}
-
-	// filter maps for slotIndex if any is given
-	if (slotIdx != null) {
-	    filterIdx(mergedSets, slotIdx);
+	if (ctx != null) {
+	    keySets.add(setFromMap(idx.contextMap, new ByteArrayWrapper(ctx)));
 	}
-	if (ifdname != null) {
-	    filterIfdname(mergedSets, ifdname);
+	if (slotHandle != null) {
+	    keySets.add(setFromMap(idx.slothandleMap, new ByteArrayWrapper(slotHandle)));
 	}
 
-	if (filterAppId && cardApplication != null) {
-	    filterCardApplication(mergedSets, cardApplication);
-	} else {
-	    // [TR-03112-4] If no card application is specified, paths to all
-	    // available cards (alpha-card applications) and unused card
-	    // terminal slots are returned.
+	// when nothing has been specified, all elements are candidates, otherwise the smallest set is enough
+	Set<CardStateEntry> candidates = idx.allEntries;
+	if (! keySets.isEmpty()) {
+	    candidates = keySets.get(0);
+	    for (Set<CardStateEntry> next : keySets) {
+		if (next.size() < candidates.size()) {
+		    candidates = next;
+		}
+	    }
 	}
 
-	if (recInfo != null && recInfo.getCardType() != null) {
-	    filterCardType(mergedSets, recInfo.getCardType());
+	TreeSet<CardStateEntry> result = new TreeSet<>();
+	for (CardStateEntry next : candidates) {
+	    if (isContainedInAll(next, keySets)
+		    && matchesIdx(next, slotIdx)
+		    && matchesIfdname(next, ifdname)
+		    && matchesCardApplication(next, cardApplication)
+		    && matchesCardType(next, cardType)) {
+		result.add(next);
+	    }
 	}
 
-	return mergedSets;
+	return result;
     }
 
 
+    private static ByteArrayWrapper wrap(byte[] key) {
+	return (key != null) ? new ByteArrayWrapper(key) : null;
+    }
+
     /**
      * Simplify returning a result from the map.<br>
-     * If key is null or no key is present, the empty list is returned.
+     * If no key is present, the empty set is returned.
      *
      * @param <K>
      * @param map
      * @param key
      * @return
      */
-    private static <K> Set<CardStateEntry> setFromMap(ConcurrentSkipListMap<K, Set<CardStateEntry>> map, K key) {
-	Set<CardStateEntry> result = null;
-	if (key != null) {
-	    result = map.get(key);
-	}
-
-	return (result != null) ? result : new TreeSet<>();
+    private static <K> Set<CardStateEntry> setFromMap(Map<K, Set<CardStateEntry>> map, K key) {
+	Set<CardStateEntry> result = map.get(key);
+	return (result != null) ? result : Collections.<CardStateEntry>emptySet();
     }
 
-    /**
-     * Remove non matching entries (slotIndex) from given list.
-     *
-     * @param entries
-     * @param idx
-     */
-    private static void filterIdx(Set<CardStateEntry> entries, BigInteger idx) {
-	Iterator<CardStateEntry> it = entries.iterator();
-	while (it.hasNext()) {
-	    CardStateEntry next = it.next();
-	    // other index is not equal to this one
-	    if (next.hasSlotIdx() && ! next.matchSlotIdx(idx)) {
-		it.remove();
+    private static boolean isContainedInAll(CardStateEntry entry, List<Set<CardStateEntry>> sets) {
+	for (Set<CardStateEntry> next : sets) {
+	    if (! next.contains(entry)) {
+		return false;
 	    }
 	}
+	return true;
+    }
+
+    private static boolean matchesIdx(CardStateEntry entry, BigInteger idx) {
+	// other index is not equal to this one
+	return idx == null || ! entry.hasSlotIdx() || entry.matchSlotIdx(idx);
+    }
+
+    private static boolean matchesCardApplication(CardStateEntry entry, byte[] cardApplication) {
+	return cardApplication == null
+		|| Arrays.equals(entry.getCurrentCardApplication().getApplicationIdentifier(), cardApplication);
+    }
+
+    private static boolean matchesIfdname(CardStateEntry entry, String ifdName) {
+	String otherName = entry.getIfdName();
+	// other ifdName is not equal to this one
+	return ifdName == null || otherName == null || otherName.equals(ifdName);
     }
 
+    private static boolean matchesCardType(CardStateEntry entry, String cardType) {
+	return cardType == null || entry.getCardType().equals(cardType);
+    }
+
+
     /**
-     * Remove non matching entries (cardApplication) from given list.
-     *
-     * @param entries
-     * @param cardApplication
+     * Immutable snapshot of the indices.
+     * Modifications create a new snapshot which shares all unmodified sets with its predecessor.
      */
-    private static void filterCardApplication(Set<CardStateEntry> entries, byte[] cardApplication) {
-	Iterator<CardStateEntry> it = entries.iterator();
-	while (it.hasNext()) {
-	    CardStateEntry next = it.next();
-	    if (! Arrays.equals(next.getCurrentCardApplication().getApplicationIdentifier(), cardApplication)) {
-		it.remove();
+    private static final class Index {
+
+	private final Set<CardStateEntry> allEntries;
+	private final Map<String, Set<CardStateEntry>> sessionMap;
+	private final Map<ByteArrayWrapper, Set<CardStateEntry>> contextMap;
+	private final Map<ByteArrayWrapper, Set<CardStateEntry>> slothandleMap;
+	// slot handles under which an entry is indexed, so removing all of them needs no scan of the slot index
+	private final Map<CardStateEntry, Set<ByteArrayWrapper>> slothandlesOfEntry;
+
+	Index() {
+	    this(Collections.<CardStateEntry>emptySet(), Collections.<String, Set<CardStateEntry>>emptyMap(),
+		    Collections.<ByteArrayWrapper, Set<CardStateEntry>>emptyMap(),
+		    Collections.<ByteArrayWrapper, Set<CardStateEntry>>emptyMap(),
+		    Collections.<CardStateEntry, Set<ByteArrayWrapper>>emptyMap());
+	}
+
+	private Index(Set<CardStateEntry> allEntries, Map<String, Set<CardStateEntry>> sessionMap,
+		Map<ByteArrayWrapper, Set<CardStateEntry>> contextMap,
+		Map<ByteArrayWrapper, Set<CardStateEntry>> slothandleMap,
+		Map<CardStateEntry, Set<ByteArrayWrapper>> slothandlesOfEntry) {
+	    this.allEntries = allEntries;
+	    this.sessionMap = sessionMap;
+	    this.contextMap = contextMap;
+	    this.slothandleMap = slothandleMap;
+	    this.slothandlesOfEntry = slothandlesOfEntry;
+	}
+
+	Index add(CardStateEntry entry, String session, ByteArrayWrapper ctx, ByteArrayWrapper slotHandle) {
+	    Map<CardStateEntry, Set<ByteArrayWrapper>> newSlothandlesOfEntry = slothandlesOfEntry;
+	    if (slotHandle != null) {
+		newSlothandlesOfEntry = with(slothandlesOfEntry, entry, slotHandle);
 	    }
+	    return new Index(with(allEntries, entry), with(sessionMap, session, entry), with(contextMap, ctx, entry),
+		    with(slothandleMap, slotHandle, entry), newSlothandlesOfEntry);
 	}
-    }
 
-    /**
-     * Remove non matching entries (ifdName) from given list.
-     *
-     * @param entries
-     * @param ifdname
-     */
-    private static void filterIfdname(Set<CardStateEntry> entries, String ifdName) {
-	Iterator<CardStateEntry> it = entries.iterator();
-	while (it.hasNext()) {
-	    CardStateEntry next = it.next();
-	    String otherName = next.getIfdName();
-	    // other ifdName is not equal to this one
-	    if (otherName != null && ! otherName.equals(ifdName)) {
-		it.remove();
+	Index remove(CardStateEntry entry, String session, ByteArrayWrapper ctx, ByteArrayWrapper slotHandle,
+		boolean removeSlotHandles) {
+	    Map<ByteArrayWrapper, Set<CardStateEntry>> newSlothandleMap = slothandleMap;
+	    Map<CardStateEntry, Set<ByteArrayWrapper>> newSlothandlesOfEntry = slothandlesOfEntry;
+	    // remove all or just the one a key is given for
+	    if (removeSlotHandles) {
+		Set<ByteArrayWrapper> keys = slothandlesOfEntry.get(entry);
+		if (keys != null) {
+		    for (ByteArrayWrapper key : keys) {
+			newSlothandleMap = without(newSlothandleMap, key, entry);
+		    }
+		    newSlothandlesOfEntry = new HashMap<>(slothandlesOfEntry);
+		    newSlothandlesOfEntry.remove(entry);
+		}
+	    } else if (slotHandle != null) {
+		newSlothandleMap = without(slothandleMap, slotHandle, entry);
+		newSlothandlesOfEntry = without(slothandlesOfEntry, entry, slotHandle);
 	    }
+
+	    return new Index(without(allEntries, entry), without(sessionMap, session, entry),
+		    without(contextMap, ctx, entry), newSlothandleMap, newSlothandlesOfEntry);
 	}
-    }
 
-    /**
-     * Remove non matching entries (cardType) from given list.
-     *
-     * @param entries
-     * @param cardType
-     */
-    private static void filterCardType(Set<CardStateEntry> entries, String cardType) {
-	Iterator<CardStateEntry> it = entries.iterator();
-	while (it.hasNext()) {
-	    CardStateEntry next = it.next();
-	    String otherType = next.getCardType();
-	    // other ifdName is not equal to this one
-	    if (! otherType.equals(cardType)) {
-		it.remove();
+	private static <E> Set<E> with(Set<E> set, E element) {
+	    if (set.contains(element)) {
+		return set;
 	    }
+	    Set<E> result = new HashSet<>(set);
+	    result.add(element);
+	    return Collections.unmodifiableSet(result);
 	}
-    }
 
+	private static <E> Set<E> without(Set<E> set, E element) {
+	    if (! set.contains(element)) {
+		return set;
+	    }
+	    Set<E> result = new HashSet<>(set);
+	    result.remove(element);
+	    return Collections.unmodifiableSet(result);
+	}
 
-    private static Set<CardStateEntry> mergeSets(ArrayList<Set<CardStateEntry>> setsToMerge) {
-	TreeSet<CardStateEntry> result = new TreeSet<>();
+	private static <K, E> Map<K, Set<E>> with(Map<K, Set<E>> map, K key, E element) {
+	    if (key == null) {
+		return map;
+	    }
+	    Set<E> old = map.get(key);
+	    Set<E> updated = with(old != null ? old : Collections.<E>emptySet(), element);
+	    if (updated == old) {
+		return map;
+	    }
+	    Map<K, Set<E>> result = new HashMap<>(map);
+	    result.put(key, updated);
+	    return Collections.unmodifiableMap(result);
+	}
 
-	if (setsToMerge.isEmpty()) {
-	    return Collections.emptySet();
-	} else {
-	    // add first then try to merge the others
-	    result.addAll(setsToMerge.get(0));
-	    if (setsToMerge.size() >= 2) {
-		for (Set<CardStateEntry> nextSet : setsToMerge.subList(1, setsToMerge.size())) {
-		    Iterator<CardStateEntry> it = result.iterator();
-		    while (it.hasNext()) {
-			CardStateEntry nextEntry = it.next();
-			// remove entry from results if it is not present in the next set
-			if (! nextSet.contains(nextEntry)) {
-			    it.remove();
-			}
-		    }
-		}
+	private static <K, E> Map<K, Set<E>> without(Map<K, Set<E>> map, K key, E element) {
+	    if (key == null) {
+		return map;
+	    }
+	    Set<E> old = map.get(key);
+	    if (old == null || ! old.contains(element)) {
+		return map;
 	    }
-	    // done
-	    return result;
+	    Set<E> updated = without(old, element);
+	    Map<K, Set<E>> result = new HashMap<>(map);
+	    if (updated.isEmpty()) {
+		result.remove(key);
+	    } else {
+		result.put(key, updated);
+	    }
+	    return Collections.unmodifiableMap(result);
 	}
+
     }
 
 }
@@ -0,0 +1,196 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+package org.openecard.addon;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+/**
+ * Test the borrow and return semantic of the ActionPool.
+ */
+public class ActionPoolTest {
+
+    @Test
+    public void testReusable() throws Exception {
+	ActionPool<TestAction> pool = new ActionPool<>("test", TestAction::new, true, 1, 0);
+
+	TestAction first = pool.borrow();
+	Assert.assertTrue(first.initialized);
+	Assert.assertTrue(pool.giveBack(first, false));
+	Assert.assertFalse(first.destroyed);
+	Assert.assertEquals(pool.getIdleCount(), 1);
+
+	TestAction second = pool.borrow();
+	Assert.assertSame(second, first);
+	// pool has no idle instance, so a new one is created
+	TestAction third = pool.borrow();
+	Assert.assertNotSame(third, first);
+	Assert.assertEquals(pool.getCreatedCount(), 2);
+	Assert.assertEquals(pool.getReusedCount(), 1);
+	Assert.assertEquals(pool.getBorrowedCount(), 2);
+
+	pool.giveBack(second, false);
+	// the pool is full, so the second instance is destroyed
+	pool.giveBack(third, false);
+	Assert.assertFalse(second.destroyed);
+	Assert.assertTrue(third.destroyed);
+
+	// forcing the return destroys the instance
+	TestAction fourth = pool.borrow();
+	pool.giveBack(fourth, true);
+	Assert.assertTrue(fourth.destroyed);
+	Assert.assertTrue(fourth.forced);
+	Assert.assertEquals(pool.getIdleCount(), 0);
+    }
+
+    @Test
+    public void testStateful() throws Exception {
+	ActionPool<TestAction> pool = new ActionPool<>("test", TestAction::new, false, 4, 0);
+
+	TestAction first = pool.borrow();
+	pool.giveBack(first, false);
+	Assert.assertTrue(first.destroyed);
+	Assert.assertFalse(first.forced);
+	TestAction second = pool.borrow();
+	Assert.assertNotSame(second, first);
+	Assert.assertEquals(pool.getIdleCount(), 0);
+
+	// unknown instances are not touched
+	TestAction foreign = new TestAction();
+	Assert.assertFalse(pool.giveBack(foreign, false));
+	Assert.assertFalse(foreign.destroyed);
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+	ActionPool<TestAction> pool = new ActionPool<>("test", TestAction::new, true, 2, 10);
+
+	TestAction first = pool.borrow();
+	pool.giveBack(first, false);
+	Thread.sleep(50);
+	pool.evictIdle();
+	Assert.assertTrue(first.destroyed);
+	Assert.assertEquals(pool.getIdleCount(), 0);
+	Assert.assertEquals(pool.getEvictedCount(), 1);
+
+	TestAction second = pool.borrow();
+	Assert.assertNotSame(second, first);
+    }
+
+    @Test
+    public void testClose() throws Exception {
+	ActionPool<TestAction> pool = new ActionPool<>("test", TestAction::new, true, 2, 0);
+
+	TestAction idle = pool.borrow();
+	TestAction inUse = pool.borrow();
+	pool.giveBack(idle, false);
+	pool.close(false);
+	Assert.assertTrue(idle.destroyed);
+	Assert.assertFalse(inUse.destroyed);
+	// instances returned after closing are not kept
+	pool.giveBack(inUse, false);
+	Assert.assertTrue(inUse.destroyed);
+
+	ActionPool<TestAction> pool2 = new ActionPool<>("test", TestAction::new, true, 2, 0);
+	TestAction inUse2 = pool2.borrow();
+	pool2.close(true);
+	Assert.assertTrue(inUse2.destroyed);
+	Assert.assertTrue(inUse2.forced);
+	Assert.assertFalse(pool2.giveBack(inUse2, false));
+	Assert.assertEquals(pool2.getDestroyedCount(), 1);
+    }
+
+    @Test
+    public void testConcurrentBorrow() throws Exception {
+	final ActionPool<TestAction> pool = new ActionPool<>("test", TestAction::new, true, 2, 0);
+	final Set<TestAction> active = Collections.newSetFromMap(new IdentityHashMap<TestAction, Boolean>());
+	ExecutorService exec = Executors.newFixedThreadPool(8);
+	try {
+	    List<Future<Boolean>> results = new ArrayList<>();
+	    for (int i = 0; i < 8; i++) {
+		results.add(exec.submit(new Callable<Boolean>() {
+		    @Override
+		    public Boolean call() throws Exception {
+			for (int j = 0; j < 500; j++) {
+			    TestAction action = pool.borrow();
+			    synchronized (active) {
+				if (! active.add(action) || action.destroyed) {
+				    return false;
+				}
+			    }
+			    synchronized (active) {
+				active.remove(action);
+			    }
+			    pool.giveBack(action, false);
+			}
+			return true;
+		    }
+		}));
+	    }
+	    for (Future<Boolean> next : results) {
+		Assert.assertTrue(next.get(), "Instance was handed out twice or after being destroyed.");
+	    }
+	} finally {
+	    exec.shutdown();
+	}
+
+	Assert.assertEquals(pool.getBorrowedCount(), 0);
+	Assert.assertTrue(pool.getIdleCount() <= 2);
+	Assert.assertEquals(pool.getCreatedCount(), pool.getDestroyedCount() + pool.getIdleCount());
+	Assert.assertEquals(pool.getCreatedCount() + pool.getReusedCount(), 8 * 500);
+    }
+
+
+    private static class TestAction implements LifecycleTrait {
+
+	private volatile boolean initialized;
+	private volatile boolean destroyed;
+	private volatile boolean forced;
+
+	TestAction() {
+	    initialized = true;
+	}
+
+	@Override
+	public void init(Context aCtx) {
+	    initialized = true;
+	}
+
+	@Override
+	public void destroy(boolean force) {
+	    destroyed = true;
+	    forced = force;
+	}
+
+    }
+
+}
@@ -0,0 +1,239 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.addon;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.openecard.addon.manifest.AddonSpecification;
+import org.openecard.addon.manifest.AppExtensionSpecification;
+import org.openecard.addon.manifest.AppPluginSpecification;
+import org.openecard.addon.manifest.LocalizedString;
+import org.openecard.addon.manifest.ProtocolPluginSpecification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.Test;
+import static org.testng.Assert.*;
+
+
+/**
+ * Compares the lookups of the {@link AddonIndex} with a linear scan over randomized add-on specifications.
+ */
+public class AddonIndexTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AddonIndexTest.class);
+
+    private static final String[] SEGMENTS = { "", "eID-Client", "activate", "getStatus", "pin", "a", "b" };
+    private static final String[] URIS = {
+	"urn:oid:1.3.162.15480.3.0.14", "urn:oid:1.3.162.15480.3.0.9", "urn:oid:1.0.24727.3.0.0.7.2",
+	"http://ws.openecard.org/protocol/generic-crypto", "urn:test:a", "urn:test:b"
+    };
+    private static final String[] IDS = { "TR-03112", "ChipGateway", "PIN-Management", "Status", "PKCS#11", "X" };
+
+    @Test
+    public void testEquivalence() {
+	Random rand = new Random(4711);
+	for (int round = 0; round < 50; round++) {
+	    List<AddonSpecification> addons = createAddons(rand, rand.nextInt(30));
+	    AddonIndex index = new AddonIndex(addons);
+
+	    assertEquals(index.getAddons(), addons);
+	    for (int i = 0; i < 200; i++) {
+		String id = pick(rand, IDS) + rand.nextInt(4);
+		assertSame(index.search(id), scanId(addons, id));
+		String name = pick(rand, IDS);
+		assertEquals(index.searchByName(name), scanName(addons, name));
+		String uri = pick(rand, URIS);
+		assertEquals(index.searchIFDProtocol(uri), scanIfd(addons, uri));
+		assertEquals(index.searchSALProtocol(uri), scanSal(addons, uri));
+		String actionId = pick(rand, IDS);
+		assertEquals(index.searchByActionId(actionId), scanActionId(addons, actionId));
+		String resource = randomResource(rand, 5);
+		assertEquals(index.searchByResourceName(resource), scanResource(addons, resource), resource);
+	    }
+	}
+    }
+
+    @Test
+    public void testWith() {
+	Random rand = new Random(42);
+	List<AddonSpecification> addons = createAddons(rand, 10);
+	AddonIndex index = new AddonIndex(addons.subList(0, 9));
+	AddonIndex extended = index.with(addons.get(9));
+
+	assertEquals(index.getAddons().size(), 9);
+	assertEquals(extended.getAddons(), addons);
+	for (String uri : URIS) {
+	    assertEquals(extended.searchSALProtocol(uri), scanSal(addons, uri));
+	}
+    }
+
+    @Test
+    public void testScanVersusIndex() {
+	Random rand = new Random(1);
+	for (int size : new int[] { 6, 50, 500 }) {
+	    List<AddonSpecification> addons = createAddons(rand, size);
+	    AddonIndex index = new AddonIndex(addons);
+	    String[] resources = new String[64];
+	    for (int i = 0; i < resources.length; i++) {
+		resources[i] = randomResource(rand, 4);
+	    }
+
+	    int iterations = 2_000_000 / size;
+	    long sink = 0;
+	    for (int i = 0; i < iterations; i++) {
+		sink += scanResource(addons, resources[i & 63]).size();
+		sink += index.searchByResourceName(resources[i & 63]).size();
+	    }
+
+	    long start = System.nanoTime();
+	    for (int i = 0; i < iterations; i++) {
+		sink += scanResource(addons, resources[i & 63]).size();
+		sink += scanSal(addons, URIS[i % URIS.length]).size();
+	    }
+	    long scan = (System.nanoTime() - start) / iterations;
+
+	    start = System.nanoTime();
+	    for (int i = 0; i < iterations; i++) {
+		sink += index.searchByResourceName(resources[i & 63]).size();
+		sink += index.searchSALProtocol(URIS[i % URIS.length]).size();
+	    }
+	    long indexed = (System.nanoTime() - start) / iterations;
+
+	    LOG.info("{} add-ons: scan {} ns, index {} ns per resource and protocol lookup ({})", size, scan, indexed, sink);
+	}
+    }
+
+    private static List<AddonSpecification> createAddons(Random rand, int num) {
+	List<AddonSpecification> addons = new ArrayList<>(num);
+	for (int i = 0; i < num; i++) {
+	    AddonSpecification spec = new AddonSpecification();
+	    spec.setId(pick(rand, IDS) + rand.nextInt(4));
+	    spec.setVersion("1.0." + rand.nextInt(3));
+	    for (int j = rand.nextInt(3); j > 0; j--) {
+		LocalizedString name = new LocalizedString();
+		name.setLang("EN");
+		name.setValue(pick(rand, IDS));
+		spec.getLocalizedName().add(name);
+	    }
+	    for (int j = rand.nextInt(3); j > 0; j--) {
+		ProtocolPluginSpecification p = new ProtocolPluginSpecification();
+		p.setUri(pick(rand, URIS));
+		spec.getIfdActions().add(p);
+	    }
+	    for (int j = rand.nextInt(3); j > 0; j--) {
+		ProtocolPluginSpecification p = new ProtocolPluginSpecification();
+		p.setUri(pick(rand, URIS));
+		spec.getSalActions().add(p);
+	    }
+	    for (int j = rand.nextInt(3); j > 0; j--) {
+		AppExtensionSpecification e = new AppExtensionSpecification();
+		e.setId(pick(rand, IDS));
+		spec.getApplicationActions().add(e);
+	    }
+	    for (int j = rand.nextInt(3); j > 0; j--) {
+		AppPluginSpecification p = new AppPluginSpecification();
+		p.setResourceName(randomResource(rand, 3));
+		spec.getBindingActions().add(p);
+	    }
+	    addons.add(spec);
+	}
+	return addons;
+    }
+
+    private static String randomResource(Random rand, int maxDepth) {
+	StringBuilder sb = new StringBuilder(pick(rand, SEGMENTS));
+	for (int i = rand.nextInt(maxDepth); i > 0; i--) {
+	    sb.append('/').append(pick(rand, SEGMENTS));
+	}
+	return sb.toString();
+    }
+
+    private static String pick(Random rand, String[] values) {
+	return values[rand.nextInt(values.length)];
+    }
+
+    private static AddonSpecification scanId(List<AddonSpecification> addons, String id) {
+	for (AddonSpecification desc : addons) {
+	    if (desc.getId().equals(id)) {
+		return desc;
+	    }
+	}
+	return null;
+    }
+
+    private static Set<AddonSpecification> scanName(List<AddonSpecification> addons, String name) {
+	Set<AddonSpecification> result = new HashSet<>();
+	for (AddonSpecification desc : addons) {
+	    for (LocalizedString s : desc.getLocalizedName()) {
+		if (s.getValue().equals(name)) {
+		    result.add(desc);
+		}
+	    }
+	}
+	return result;
+    }
+
+    private static Set<AddonSpecification> scanIfd(List<AddonSpecification> addons, String uri) {
+	Set<AddonSpecification> result = new HashSet<>();
+	for (AddonSpecification desc : addons) {
+	    if (desc.searchIFDActionByURI(uri) != null) {
+		result.add(desc);
+	    }
+	}
+	return result;
+    }
+
+    private static Set<AddonSpecification> scanSal(List<AddonSpecification> addons, String uri) {
+	Set<AddonSpecification> result = new HashSet<>();
+	for (AddonSpecification desc : addons) {
+	    if (desc.searchSALActionByURI(uri) != null) {
+		result.add(desc);
+	    }
+	}
+	return result;
+    }
+
+    private static Set<AddonSpecification> scanActionId(List<AddonSpecification> addons, String actionId) {
+	Set<AddonSpecification> result = new HashSet<>();
+	for (AddonSpecification desc : addons) {
+	    if (desc.searchByActionId(actionId) != null) {
+		result.add(desc);
+	    }
+	}
+	return result;
+    }
+
+    private static Set<AddonSpecification> scanResource(List<AddonSpecification> addons, String resource) {
+	Set<AddonSpecification> result = new HashSet<>();
+	for (AddonSpecification desc : addons) {
+	    if (desc.searchByResourceName(resource) != null) {
+		result.add(desc);
+	    }
+	}
+	return result;
+    }
+
+}
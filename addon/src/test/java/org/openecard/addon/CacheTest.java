@@ -40,6 +40,7 @@ import org.testng.annotations.Test;
  *
  * @author Hans-Martin Haase
  */
+@SuppressWarnings("deprecation")
 public class CacheTest {
 
     /**
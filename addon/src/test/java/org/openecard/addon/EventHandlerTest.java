@@ -0,0 +1,64 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+package org.openecard.addon;
+
+import iso.std.iso_iec._24727.tech.schema.Transmit;
+import org.openecard.common.event.EventDispatcherImpl;
+import org.openecard.common.event.EventType;
+import org.testng.annotations.Test;
+import static org.testng.Assert.*;
+
+
+/**
+ * Tests that the status event handler only declares interest in events while event queues exist.
+ */
+public class EventHandlerTest {
+
+    @Test
+    public void testInterestFollowsQueues() {
+	EventDispatcherImpl dispatcher = new EventDispatcherImpl();
+	dispatcher.start();
+	try {
+	    EventHandler handler = new EventHandler(dispatcher);
+	    assertFalse(dispatcher.hasCallbacks(EventType.API_CALL_STARTED, Transmit.class));
+
+	    handler.addQueue("session-1");
+	    handler.addQueue("session-2");
+	    assertTrue(dispatcher.hasCallbacks(EventType.API_CALL_STARTED, Transmit.class));
+	    assertTrue(dispatcher.hasCallbacks(EventType.CARD_INSERTED, null));
+
+	    handler.removeQueue("session-1");
+	    assertTrue(dispatcher.hasCallbacks(EventType.API_CALL_FINISHED, Transmit.class));
+	    handler.removeQueue("session-2");
+	    assertFalse(dispatcher.hasCallbacks(EventType.API_CALL_STARTED, Transmit.class));
+	    assertFalse(dispatcher.hasCallbacks(EventType.API_CALL_FINISHED, Transmit.class));
+
+	    // a new status client registers the handler again
+	    handler.addQueue("session-3");
+	    assertTrue(dispatcher.hasCallbacks(EventType.API_CALL_STARTED, Transmit.class));
+	    handler.removeQueue("session-3");
+	} finally {
+	    dispatcher.terminate();
+	}
+    }
+
+}
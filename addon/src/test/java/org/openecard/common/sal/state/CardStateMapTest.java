@@ -0,0 +1,170 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.common.sal.state;
+
+import iso.std.iso_iec._24727.tech.schema.ApplicationCapabilitiesType;
+import iso.std.iso_iec._24727.tech.schema.CardApplicationPathType;
+import iso.std.iso_iec._24727.tech.schema.CardApplicationType;
+import iso.std.iso_iec._24727.tech.schema.CardInfoType;
+import iso.std.iso_iec._24727.tech.schema.CardTypeType;
+import iso.std.iso_iec._24727.tech.schema.ConnectionHandleType;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.testng.annotations.Test;
+import static org.testng.Assert.*;
+
+
+/**
+ * Tests for the lookups and modifications of the {@link CardStateMap}.
+ */
+public class CardStateMapTest {
+
+    private static final byte[] CTX = new byte[] {1, 2, 3, 4};
+    private static final byte[] ROOT_APP = new byte[] {0x3F, 0x00};
+
+    @Test
+    public void testLookups() {
+	CardStateMap states = new CardStateMap();
+	CardStateEntry a = addConnected(states, "Reader A", 0, "http://type/1");
+	CardStateEntry b = addConnected(states, "Reader B", 0, "http://type/2");
+
+	assertSame(states.getEntry(handle(a)), a);
+	assertSame(states.getEntry(handle(b)), b);
+
+	// context only yields all entries
+	ConnectionHandleType ctxOnly = new ConnectionHandleType();
+	ctxOnly.setContextHandle(CTX);
+	assertEquals(states.getMatchingEntries(ctxOnly).size(), 2);
+
+	// path lookups filter by terminal name
+	CardApplicationPathType path = new CardApplicationPathType();
+	path.setIFDName("Reader B");
+	assertEquals(states.getMatchingEntries(path).size(), 1);
+	assertSame(states.getMatchingEntries(path).iterator().next(), b);
+
+	// card type filter
+	ConnectionHandleType typed = handle(a);
+	typed.setRecognitionInfo(new ConnectionHandleType.RecognitionInfo());
+	typed.getRecognitionInfo().setCardType("http://type/2");
+	assertTrue(states.getMatchingEntries(typed).isEmpty());
+
+	// unknown slot handle
+	ConnectionHandleType unknown = handle(a);
+	unknown.setSlotHandle(new byte[] {9, 9});
+	assertNull(states.getEntry(unknown));
+    }
+
+    @Test
+    public void testRemoval() {
+	CardStateMap states = new CardStateMap();
+	CardStateEntry a = addConnected(states, "Reader A", 0, "http://type/1");
+	CardStateEntry b = addConnected(states, "Reader A", 1, "http://type/1");
+
+	states.removeSlotHandleEntry(CTX, handle(a).getSlotHandle());
+	assertNull(states.getEntry(handle(a)));
+	assertSame(states.getEntry(handle(b)), b);
+
+	// without a slot handle all references are removed
+	ConnectionHandleType byIfd = new ConnectionHandleType();
+	byIfd.setIFDName("Reader A");
+	byIfd.setSlotIndex(BigInteger.ONE);
+	states.removeEntry(byIfd);
+	assertNull(states.getEntry(handle(b)));
+	assertTrue(states.getMatchingEntries(new CardApplicationPathType()).isEmpty());
+    }
+
+    @Test
+    public void testManySlotsWithConcurrentReaders() throws Exception {
+	final CardStateMap states = new CardStateMap();
+	final List<CardStateEntry> stable = new ArrayList<>();
+	for (int i = 0; i < 300; i++) {
+	    stable.add(addConnected(states, "Reader " + (i / 4), i % 4, "http://type/" + (i % 3)));
+	}
+
+	final AtomicBoolean running = new AtomicBoolean(true);
+	final AtomicInteger failures = new AtomicInteger();
+	Thread[] readers = new Thread[4];
+	for (int t = 0; t < readers.length; t++) {
+	    readers[t] = new Thread(() -> {
+		int i = 0;
+		while (running.get()) {
+		    CardStateEntry expected = stable.get(i++ % stable.size());
+		    if (states.getEntry(handle(expected)) != expected) {
+			failures.incrementAndGet();
+		    }
+		}
+	    });
+	    readers[t].start();
+	}
+
+	// modify the map while the readers are active
+	for (int i = 0; i < 500; i++) {
+	    CardStateEntry e = addConnected(states, "Transient", i, "http://type/0");
+	    states.removeSlotHandleEntry(CTX, handle(e).getSlotHandle());
+	}
+	running.set(false);
+	for (Thread reader : readers) {
+	    reader.join();
+	}
+
+	assertEquals(failures.get(), 0);
+	assertEquals(states.getMatchingEntries(new CardApplicationPathType()).size(), stable.size());
+    }
+
+    private static ConnectionHandleType handle(CardStateEntry entry) {
+	ConnectionHandleType handle = entry.handleCopy();
+	handle.setRecognitionInfo(null);
+	return handle;
+    }
+
+    private static CardStateEntry addConnected(CardStateMap states, String ifdName, int slotIdx, String cardType) {
+	ConnectionHandleType handle = new ConnectionHandleType();
+	handle.setContextHandle(CTX);
+	handle.setIFDName(ifdName);
+	handle.setSlotIndex(BigInteger.valueOf(slotIdx));
+	handle.setSlotHandle((ifdName + "/" + slotIdx).getBytes());
+
+	CardStateEntry entry = new CardStateEntry(handle, cif(cardType), null);
+	states.addEntry(entry);
+	return entry;
+    }
+
+    private static CardInfoType cif(String cardType) {
+	CardApplicationType app = new CardApplicationType();
+	app.setApplicationIdentifier(ROOT_APP);
+	ApplicationCapabilitiesType caps = new ApplicationCapabilitiesType();
+	caps.setImplicitlySelectedApplication(ROOT_APP);
+	caps.getCardApplication().add(app);
+	CardTypeType type = new CardTypeType();
+	type.setObjectIdentifier(cardType);
+
+	CardInfoType cif = new CardInfoType();
+	cif.setCardType(type);
+	cif.setApplicationCapabilities(caps);
+	return cif;
+    }
+
+}
@@ -37,6 +37,7 @@ import org.openecard.bouncycastle.tls.TlsClient;
 import org.openecard.bouncycastle.tls.TlsClientProtocol;
 import org.openecard.crypto.tls.ClientCertDefaultTlsClient;
 import org.openecard.crypto.tls.ClientCertTlsClient;
+import org.openecard.crypto.tls.TlsSessionCache;
 import org.openecard.crypto.tls.auth.DynamicAuthentication;
 import org.openecard.crypto.tls.verify.SameCertVerifier;
 import org.openecard.crypto.tls.proxy.ProxySettings;
@@ -108,7 +109,10 @@ public class TlsConnectionHandler {
 		    {
 			// use a smartcard for client authentication if needed
 			TlsCrypto crypto = new BcTlsCrypto(ReusableSecureRandom.getInstance());
-			tlsClient = new ClientCertDefaultTlsClient(crypto, serverHost, true);
+			ClientCertDefaultTlsClient defaultClient = new ClientCertDefaultTlsClient(crypto, serverHost, true);
+			// the ChipGateway is contacted again in every activation
+			defaultClient.setSessionCache(TlsSessionCache.getInstance(), port, null);
+			tlsClient = defaultClient;
 			tlsClient.setClientVersion(version);
 			tlsClient.setMinimumVersion(minVersion);
 			// add PKIX verifier
@@ -80,8 +80,9 @@ public class ActivateAction implements AppPluginAction {
     private final I18n lang = I18n.getTranslation("tr03112");
 
     private TCTokenHandler tokenHandler;
-    private AppPluginAction statusAction;
-    private AppExtensionAction pinManAction;
+    // the actions are borrowed per request, so that this action can be reused without holding them
+    private AddonSpecification statusSpec;
+    private AddonSpecification pinManSpec;
     private UserConsent gui;
     private AddonManager manager;
     private ViewController settingsAndDefaultView;
@@ -97,10 +98,8 @@ public class ActivateAction implements AppPluginAction {
 	manager = ctx.getManager();
 	settingsAndDefaultView = ctx.getViewController();
 	try {
-	    AddonSpecification addonSpecStatus = manager.getRegistry().search("Status");
-	    statusAction = manager.getAppPluginAction(addonSpecStatus, "getStatus");
-	    AddonSpecification addonSpecPinMngmt = manager.getRegistry().search("PIN-Plugin");
-	    pinManAction = manager.getAppExtensionAction(addonSpecPinMngmt, "GetCardsAndPINStatusAction");
+	    statusSpec = manager.getRegistry().search("Status");
+	    pinManSpec = manager.getRegistry().search("PIN-Plugin");
 	} catch (AddonNotFoundException ex) {
 	    // this should never happen because the status and pin plugin are always available
 	    String msg = "Failed to get Status or PIN Plugin.";
@@ -112,8 +111,6 @@ public class ActivateAction implements AppPluginAction {
     @Override
     public void destroy(boolean force) {
 	tokenHandler = null;
-	manager.returnAppPluginAction(statusAction);
-	manager.returnAppExtensionAction(pinManAction);
     }
 
     @Override
@@ -328,7 +325,15 @@ public class ActivateAction implements AppPluginAction {
 	// submit thread
 	ExecutorService es = Executors.newSingleThreadExecutor((Runnable action) -> new Thread(action, "ShowPINManagement"));
 	Future<Void> guiThread = es.submit(() -> {
-	    pinManAction.execute();
+	    AppExtensionAction pinManAction = manager.getAppExtensionAction(pinManSpec, "GetCardsAndPINStatusAction");
+	    if (pinManAction == null) {
+		throw new IllegalStateException("Failed to get PIN Management action.");
+	    }
+	    try {
+		pinManAction.execute();
+	    } finally {
+		manager.returnAppExtensionAction(pinManAction);
+	    }
 	    return null;
 	});
 
@@ -381,8 +386,17 @@ public class ActivateAction implements AppPluginAction {
      * @return A {@link BindingResult} object containing the current status of the App as XML structure.
      */
     private BindingResult processStatus(RequestBody body, Map<String, String> params, Headers headers, List<Attachment> attachments) {
-	BindingResult response = statusAction.execute(body, params, headers, attachments);
-	return response;
+	AppPluginAction statusAction = manager.getAppPluginAction(statusSpec, "getStatus");
+	if (statusAction == null) {
+	    LOG.error("Failed to get Status action.");
+	    return new BindingResult(BindingResultCode.INTERNAL_ERROR);
+	}
+	try {
+	    BindingResult response = statusAction.execute(body, params, headers, attachments);
+	    return response;
+	} finally {
+	    manager.returnAppPluginAction(statusAction);
+	}
     }
 
     /**
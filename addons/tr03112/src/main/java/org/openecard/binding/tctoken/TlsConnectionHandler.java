@@ -40,6 +40,7 @@ import org.openecard.common.interfaces.Dispatcher;
 import org.openecard.crypto.tls.ClientCertDefaultTlsClient;
 import org.openecard.crypto.tls.ClientCertPSKTlsClient;
 import org.openecard.crypto.tls.ClientCertTlsClient;
+import org.openecard.crypto.tls.TlsSessionCache;
 import org.openecard.crypto.tls.auth.CredentialFactory;
 import org.openecard.crypto.tls.auth.DynamicAuthentication;
 import org.openecard.crypto.tls.verify.SameCertVerifier;
@@ -159,7 +160,10 @@ public class TlsConnectionHandler {
 			{
 			    // use a smartcard for client authentication if needed
 			    tlsAuth.setCredentialFactory(makeSmartCardCredential());
-			    tlsClient = new ClientCertDefaultTlsClient(crypto, serverHost, doSni);
+			    ClientCertDefaultTlsClient defaultClient = new ClientCertDefaultTlsClient(crypto, serverHost, doSni);
+			    // sessions with client authentication are not shared, as the card may change between activations
+			    defaultClient.setSessionCache(TlsSessionCache.getInstance(), port, null);
+			    tlsClient = defaultClient;
 			    tlsClient.setClientVersion(version);
 			    tlsClient.setMinimumVersion(minVersion);
 			    // add PKIX verifier
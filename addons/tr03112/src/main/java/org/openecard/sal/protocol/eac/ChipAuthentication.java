@@ -118,7 +118,9 @@ public class ChipAuthentication {
 	    CardResponseAPDU resp = CardUtils.selectFileWithOptions(dispatcher, slotHandle, file, null,
 		    CardUtils.FCP_RESPONSE_DATA);
 	    FCP efCardSecurityFCP = new FCP(TLV.fromBER(resp.getData()));
-	    byte[] efCardSecurity = CardUtils.readFile(efCardSecurityFCP, dispatcher, slotHandle);
+	    // eID cards support extended length, so the file can be read with far less commands
+	    byte[] efCardSecurity = CardUtils.readFile(efCardSecurityFCP, CardUtils.EXTENDED_LENGTH, dispatcher,
+		    slotHandle);
 	    return efCardSecurity;
 	} catch (APDUException ex) {
 	    throw new ProtocolException(ex.getResult());
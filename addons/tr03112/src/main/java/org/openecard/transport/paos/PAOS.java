@@ -29,6 +29,7 @@ import iso.std.iso_iec._24727.tech.schema.EmptyResponseDataType;
 import iso.std.iso_iec._24727.tech.schema.StartPAOS;
 import iso.std.iso_iec._24727.tech.schema.StartPAOSResponse;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.InvocationTargetException;
@@ -42,13 +43,14 @@ import oasis.names.tc.dss._1_0.core.schema.Result;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpException;
 import org.apache.http.HttpResponse;
+import org.apache.http.entity.ByteArrayEntity;
 import org.apache.http.entity.ContentType;
-import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.DefaultConnectionReuseStrategy;
 import org.apache.http.message.BasicHttpEntityEnclosingRequest;
 import org.apache.http.protocol.BasicHttpContext;
 import org.apache.http.protocol.HttpContext;
 import org.apache.http.protocol.HttpRequestExecutor;
+import org.apache.http.util.EntityUtils;
 import org.openecard.bouncycastle.tls.TlsClientProtocol;
 import org.openecard.common.ECardConstants;
 import org.openecard.common.WSHelper;
@@ -212,37 +214,52 @@ public class PAOS {
 	elem.setTextContent(value);
     }
 
-    private Object processPAOSRequest(InputStream content) throws PAOSException, DocumentValidatorException {
+    /**
+     * Reads the SOAP message from the response entity and checks its message ID.
+     * The entity is parsed directly from the connection. It is only buffered when debug logging is enabled, so that
+     * it can be included in the log.
+     *
+     * @param response The response containing the entity.
+     * @return The body element of the message.
+     * @throws PAOSException Thrown in case the entity is no valid PAOS message.
+     * @throws IOException Thrown in case reading the entity failed.
+     */
+    private Element readPAOSRequest(HttpResponse response) throws PAOSException, IOException {
+	HttpEntity entity = response.getEntity();
 	try {
+	    InputStream content = entity.getContent();
+	    if (LOG.isDebugEnabled()) {
+		byte[] entityData = FileUtils.toByteArray(content);
+		HttpUtils.dumpHttpResponse(LOG, response, entityData);
+		content = new ByteArrayInputStream(entityData);
+	    }
+
 	    Document doc = m.str2doc(content);
 	    SOAPMessage msg = m.doc2soap(doc);
 	    Element body = msg.getSOAPBody().getChildElements().get(0);
 	    updateMessageID(msg);
 
-	    if (LOG.isDebugEnabled()) {
-		try {
-		    LOG.debug("Message received:\n{}", m.doc2str(doc));
-		} catch (TransformerException ex) {
-		    LOG.warn("Failed to log PAOS request message.", ex);
-		}
-	    }
-
 	    // fix profile attribute if it is not present
 	    // while there are the eID-Servers to blame, some don't get it right and actually Profile is a useless attribute anyway
 	    if (body.getLocalName().equals("StartPAOSResponse") && ! body.hasAttribute("Profile")) {
 		LOG.warn("Received message without Profile attribute, adding one for proper validation.");
-		body.setAttribute("Profile", ECardConstants.Profile.ECARD_1_1);
-
-		try {
-		    // copy or the validation produces strange errors
-		    String docStr = m.doc2str(body);
-		    Document newDoc = m.str2doc(docStr);
-		    body = newDoc.getDocumentElement();
-		} catch (SAXException | TransformerException ex) {
-		    throw new PAOSException("Failed to copy document.", ex);
-		}
+		// a namespace aware attribute is needed, validators fail on DOM level 1 attributes
+		body.setAttributeNS(null, "Profile", ECardConstants.Profile.ECARD_1_1);
 	    }
 
+	    return body;
+	} catch (SAXException | SOAPException ex) {
+	    String msg = "Failed to read/process message from PAOS server.";
+	    LOG.error(msg, ex);
+	    throw new PAOSException(SOAP_MESSAGE_FAILURE, ex);
+	} finally {
+	    // make sure the connection can be used for the next message
+	    EntityUtils.consume(entity);
+	}
+    }
+
+    private Object processPAOSRequest(Element body) throws PAOSException, DocumentValidatorException {
+	try {
 	    // validate input message
 	    schemaValidator.validate(body);
 
@@ -254,33 +271,30 @@ public class PAOS {
 	    String msg = "Failed to read/process message from PAOS server.";
 	    LOG.error(msg, ex);
 	    throw new PAOSException(MARSHALLING_ERROR, ex);
-	} catch (IOException | SAXException ex) {
-	    String msg = "Failed to read/process message from PAOS server.";
-	    LOG.error(msg, ex);
-	    throw new PAOSException(SOAP_MESSAGE_FAILURE, ex);
 	}
     }
 
-    private String createPAOSResponse(Object obj) throws MarshallingTypeException, SOAPException, TransformerException {
+    private ByteArrayEntity createPAOSResponse(Object obj, ContentType contentType) throws MarshallingTypeException,
+	    SOAPException, TransformerException, IOException {
 	SOAPMessage msg = createSOAPMessage(obj);
-	String result = m.doc2str(msg.getDocument());
+	ByteArrayOutputStream out = new ByteArrayOutputStream(4096);
+	m.doc2stream(msg.getDocument(), out);
+	byte[] result = out.toByteArray();
 
-	LOG.debug("Message sent:\n{}", result);
+	if (LOG.isDebugEnabled()) {
+	    LOG.debug("Message sent:\n{}", new String(result, "UTF-8"));
+	}
 
-	return result;
+	return new ByteArrayEntity(result, contentType);
     }
 
     private SOAPMessage createSOAPMessage(Object content) throws MarshallingTypeException, SOAPException {
 	Document contentDoc = m.marshal(content);
 
 	try {
-	    String docStr = m.doc2str(contentDoc);
-	    Document newDoc = m.str2doc(docStr);
-	    schemaValidator.validate(newDoc);
+	    schemaValidator.validate(contentDoc);
 	} catch (DocumentValidatorException ex) {
 	    LOG.warn("Schema validation of outgoing message failed.", ex);
-	} catch (SAXException | TransformerException ex) {
-	    throw new MarshallingTypeException("Failed to copy document.", ex);
 	}
 
 	SOAPMessage msg = m.add2soap(contentDoc);
@@ -365,8 +379,7 @@ public class PAOS {
 
 			ContentType reqContentType = ContentType.create("application/vnd.paos+xml", "UTF-8");
 			HttpUtils.dumpHttpRequest(LOG, "before adding content", req);
-			String reqMsgStr = createPAOSResponse(msg);
-			StringEntity reqMsg = new StringEntity(reqMsgStr, reqContentType);
+			ByteArrayEntity reqMsg = createPAOSResponse(msg, reqContentType);
 			req.setEntity(reqMsg);
 			req.setHeader(reqMsg.getContentType());
 			req.setHeader("Content-Length", Long.toString(reqMsg.getContentLength()));
@@ -388,12 +401,9 @@ public class PAOS {
 			}
 
 			conn.receiveResponseEntity(response);
-			HttpEntity entity = response.getEntity();
-			byte[] entityData = FileUtils.toByteArray(entity.getContent());
-			HttpUtils.dumpHttpResponse(LOG, response, entityData);
+			Element body = readPAOSRequest(response);
 			try {
-			    // consume entity
-			    Object requestObj = processPAOSRequest(new ByteArrayInputStream(entityData));
+			    Object requestObj = processPAOSRequest(body);
 
 			    // break when message is startpaosresponse
 			    if (requestObj instanceof StartPAOSResponse) {
@@ -422,7 +432,7 @@ public class PAOS {
 			    LOG.error("PAOS input message failed to validate.", ex);
 
 			    // the ecard API forces us to interpret the message because the response must be the equivalent message not a fault
-			    Object responseObj = synthesizeObj(new ByteArrayInputStream(entityData), ex);
+			    Object responseObj = synthesizeObj(body, ex);
 			    if (responseObj != null) {
 				msg = responseObj;
 				if (! validationError.isDelivered()) {
@@ -528,11 +538,8 @@ public class PAOS {
     }
 
     @Nullable
-    private Object synthesizeObj(ByteArrayInputStream content, DocumentValidatorException cause) {
+    private Object synthesizeObj(Element body, DocumentValidatorException cause) {
 	try {
-	    Document doc = m.str2doc(content);
-	    SOAPMessage msg = m.doc2soap(doc);
-	    Element body = msg.getSOAPBody().getChildElements().get(0);
 	    Object obj = m.unmarshal(body);
 
 	    if (obj instanceof DIDAuthenticate) {
@@ -552,7 +559,7 @@ public class PAOS {
 
 	    // no special case needed
 	    return null;
-	} catch (IOException | SAXException | WSMarshallerException ex) {
+	} catch (WSMarshallerException ex) {
 	    // in case of error, just quit
 	    return null;
 	}
@@ -110,7 +110,7 @@ public class HttpBinding {
 	if (addonManager == null) {
 	    throw new HttpServiceError("Trying to use uninitialized HttpBinding instance.");
 	} else {
-	    HttpAppPluginActionHandler handler = new HttpAppPluginActionHandler(addonManager);
+	    HttpAppPluginActionHandler handler = new HttpAppPluginActionHandler(addonManager, documentRoot);
 	    service = new HttpService(port, handler, reqInterceptors, respInterceptors);
 	    service.start();
 	}
@@ -1,5 +1,5 @@
 /****************************************************************************
- * Copyright (C) 2012-2018 ecsec GmbH.
+ * Copyright (C) 2012-2026 ecsec GmbH.
  * All rights reserved.
  * Contact: ecsec GmbH (info@ecsec.de)
  *
@@ -24,20 +24,41 @@ package org.openecard.control.binding.http;
 
 import java.io.IOException;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
-import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.CharsetDecoder;
 import java.nio.charset.CharsetEncoder;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.http.ConnectionClosedException;
 import org.apache.http.ConnectionReuseStrategy;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
 import org.apache.http.HttpRequestInterceptor;
 import org.apache.http.HttpResponseFactory;
 import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.entity.BufferedHttpEntity;
 import org.apache.http.impl.DefaultBHttpServerConnection;
 import org.apache.http.impl.DefaultConnectionReuseStrategy;
 import org.apache.http.impl.DefaultHttpResponseFactory;
+import org.apache.http.impl.io.SessionInputBufferImpl;
+import org.apache.http.io.SessionInputBuffer;
 import org.apache.http.protocol.BasicHttpContext;
 import org.apache.http.protocol.HttpProcessor;
 import org.apache.http.protocol.HttpRequestHandler;
@@ -48,6 +69,24 @@ import org.slf4j.LoggerFactory;
 
 
 /**
+ * Localhost HTTP server based on a selector and a bounded pool of worker threads.
+ * <p>
+ * A single thread accepts connections and watches idle keep-alive connections with a {@link Selector}. Only when a
+ * request arrives on a connection, the connection is handed to a worker thread which processes the request with
+ * blocking IO. Afterwards the connection returns to the selector, so that idle connections do not occupy a thread.
+ * Idle connections are closed after the keep-alive timeout and no further connections are accepted while the maximum
+ * number of connections is open.
+ * </p>
+ * <p>
+ * Long running requests such as WaitForChange or an activation keep their worker. Therefore a request is only queued
+ * when the pool has reached its maximum size, before that a new thread is started for it. The maximum size is
+ * configured independently of the number of connections.
+ * </p>
+ * <p>
+ * The request handler may be interrupted by the action it runs, e.g. when an activation is cancelled. Such an
+ * interrupt would close the channel of the connection if it happens during IO. Therefore interrupts of a worker are
+ * only delivered while the request handler runs and the request has already been read completely.
+ * </p>
  *
  * @author Moritz Horsch
  * @author Tobias Wich
@@ -55,14 +94,24 @@ import org.slf4j.LoggerFactory;
 public class HttpService implements Runnable {
 
     private static final Logger LOG = LoggerFactory.getLogger(HttpService.class);
-    private static final int BACKLOG = 10;
+    private static final long SELECT_INTERVAL = 1000;
+    // time a worker waits for the next request on a connection before returning it to the selector
+    private static final int LINGER_TIME = 50;
 
     private final Thread thread;
     private final org.apache.http.protocol.HttpService service;
+    private final HttpServiceConfig config;
     protected final ServerSocket server;
+    private final ServerSocketChannel serverChannel;
+    private final Selector selector;
+    private final WorkerPool workers;
+    // connections returned by the workers which must be registered at the selector again
+    private final Queue<Connection> idleConnections = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger numConnections = new AtomicInteger();
+    private volatile boolean running = true;
 
     /**
-     * Creates a new HTTPService.
+     * Creates a new HTTPService with the connection settings from the Open eCard properties.
      *
      * @param port Port
      * @param handler Handler
@@ -72,10 +121,34 @@ public class HttpService implements Runnable {
      */
     public HttpService(int port, HttpRequestHandler handler, List<HttpRequestInterceptor> reqInterceptors,
 	    List<HttpResponseInterceptor> respInterceptors) throws Exception {
-	server = new ServerSocket(port, BACKLOG, InetAddress.getByName("127.0.0.1"));
+	this(port, handler, reqInterceptors, respInterceptors, HttpServiceConfig.fromProperties());
+    }
+
+    /**
+     * Creates a new HTTPService.
+     *
+     * @param port Port
+     * @param handler Handler
+     * @param reqInterceptors
+     * @param respInterceptors
+     * @param config Connection settings of the service.
+     * @throws Exception
+     */
+    public HttpService(int port, HttpRequestHandler handler, List<HttpRequestInterceptor> reqInterceptors,
+	    List<HttpResponseInterceptor> respInterceptors, HttpServiceConfig config) throws Exception {
+	this.config = config;
+	serverChannel = ServerSocketChannel.open();
+	server = serverChannel.socket();
+	server.bind(new InetSocketAddress(InetAddress.getByName("127.0.0.1"), port), config.getBacklog());
+	serverChannel.configureBlocking(false);
+	selector = Selector.open();
 	LOG.debug("Starting HTTP Binding on port {}", getPort());
 	thread = new Thread(this, "Open-eCard Localhost-Binding-" + getPort());
 
+	// threads are created on demand and terminate when they are idle for some time
+	int maxWorkers = Math.max(config.getWorkerThreads(), config.getMaxWorkerThreads());
+	workers = new WorkerPool(config.getWorkerThreads(), maxWorkers, new WorkerThreadFactory(getPort()));
+
 	// Reuse strategy
 	ConnectionReuseStrategy connectionReuseStrategy = new DefaultConnectionReuseStrategy();
 	// Response factory
@@ -86,7 +159,29 @@ public class HttpService implements Runnable {
 	// Set up handler registry
 	UriHttpRequestHandlerMapper handlerRegistry = new UriHttpRequestHandlerMapper();
 	LOG.debug("Add handler [{}] for ID [{}]", new Object[]{handler.getClass().getCanonicalName(), "*"});
-	handlerRegistry.register("*", handler);
+	handlerRegistry.register("*", (request, response, context) -> {
+	    if (request instanceof HttpEntityEnclosingRequest) {
+		// read the request completely, so that an interrupt of the handler can not hit the channel
+		HttpEntityEnclosingRequest entityRequest = (HttpEntityEnclosingRequest) request;
+		HttpEntity entity = entityRequest.getEntity();
+		if (entity != null && ! entity.isRepeatable()) {
+		    entityRequest.setEntity(new BufferedHttpEntity(entity));
+		}
+	    }
+	    Thread t = Thread.currentThread();
+	    WorkerThread worker = t instanceof WorkerThread ? (WorkerThread) t : null;
+	    if (worker != null) {
+		worker.setInterruptible(true);
+	    }
+	    try {
+		handler.handle(request, response, context);
+	    } finally {
+		if (worker != null) {
+		    // the response is written afterwards, so interrupts aimed at the handler are discarded from now on
+		    worker.setInterruptible(false);
+		}
+	    }
+	});
 
 	// create service instance
 	service = new org.apache.http.protocol.HttpService(httpProcessor, connectionReuseStrategy, responseFactory, handlerRegistry);
@@ -103,56 +198,139 @@ public class HttpService implements Runnable {
      * Interrupts the server.
      */
     public void interrupt() {
+	running = false;
 	try {
+	    selector.wakeup();
 	    thread.interrupt();
-	    server.close();
+	    thread.join(SELECT_INTERVAL);
 	} catch (Exception ignore) {
 	}
-    }
-
-    protected Socket accept() throws IOException, HttpServiceError {
-	return this.server.accept();
+	workers.shutdownNow();
+	closeQuietly(serverChannel);
     }
 
     @Override
     public void run() {
-	while (! Thread.interrupted()) {
-	    try {
-		final DefaultBHttpServerConnection connection;
-		CharsetDecoder dec = Charset.forName("UTF-8").newDecoder();
-		CharsetEncoder enc = Charset.forName("UTF-8").newEncoder();
-		connection = new DefaultBHttpServerConnection(8192, dec, enc, null);
-		connection.bind(accept());
-
-		new Thread() {
-		    @Override
-		    public void run() {
-			try {
-			    while (connection.isOpen()) {
-				service.handleRequest(connection, new BasicHttpContext());
-			    }
-			} catch (ConnectionClosedException ex) {
-			    // connection closed by client, this is the expected outcome
-			} catch (org.apache.http.HttpException ex) {
-			    LOG.error("Error processing HTTP request or response.", ex);
-			} catch (IOException ex) {
-			    LOG.error("IO Error while processing HTTP request or response.", ex);
-			} finally {
-			    try {
-				connection.shutdown();
-			    } catch (IOException ignore) {
-			    }
-			}
+	try {
+	    SelectionKey acceptKey = serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+	    while (running && ! Thread.interrupted()) {
+		selector.select(SELECT_INTERVAL);
+
+		List<Connection> ready = new ArrayList<>();
+		Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+		while (it.hasNext()) {
+		    SelectionKey key = it.next();
+		    it.remove();
+		    if (! key.isValid()) {
+			continue;
+		    }
+		    if (key.isAcceptable()) {
+			acceptConnections();
+		    } else if (key.isReadable()) {
+			// hand the connection to a worker, it must leave the selector before it can be used blocking
+			key.cancel();
+			ready.add((Connection) key.attachment());
 		    }
+		}
 
-		}.start();
-	    } catch (IOException | HttpServiceError ex) {
-		// if interrupted the error is intentionally (SocketClosedException)
-		if (! Thread.interrupted()) {
-		    LOG.error(ex.getMessage(), ex);
-		} else {
-		    // set interrupt status again after reading it
-		    thread.interrupt();
+		if (! ready.isEmpty()) {
+		    // complete the deregistration of the cancelled keys
+		    selector.selectNow();
+		    for (Connection c : ready) {
+			dispatch(c);
+		    }
+		}
+
+		registerIdleConnections();
+		closeExpiredConnections();
+
+		// stop accepting while all connections are in use, the listen queue holds further clients
+		int ops = numConnections.get() < config.getMaxConnections() ? SelectionKey.OP_ACCEPT : 0;
+		if (acceptKey.interestOps() != ops) {
+		    acceptKey.interestOps(ops);
+		}
+	    }
+	} catch (IOException | ClosedSelectorException ex) {
+	    if (running) {
+		LOG.error("Error in HTTP connection handling.", ex);
+	    }
+	} finally {
+	    running = false;
+	    for (SelectionKey key : selector.keys()) {
+		closeQuietly(key.channel());
+	    }
+	    closeQuietly(selector);
+	    closeQuietly(serverChannel);
+	    Connection c;
+	    while ((c = idleConnections.poll()) != null) {
+		c.close();
+	    }
+	}
+    }
+
+    private void acceptConnections() {
+	while (numConnections.get() < config.getMaxConnections()) {
+	    SocketChannel channel;
+	    try {
+		channel = serverChannel.accept();
+	    } catch (IOException ex) {
+		LOG.error("Failed to accept connection.", ex);
+		return;
+	    }
+	    if (channel == null) {
+		return;
+	    }
+
+	    numConnections.incrementAndGet();
+	    try {
+		channel.configureBlocking(false);
+		channel.register(selector, SelectionKey.OP_READ, new Connection(channel));
+	    } catch (IOException ex) {
+		LOG.error("Failed to register connection.", ex);
+		closeQuietly(channel);
+		numConnections.decrementAndGet();
+	    }
+	}
+    }
+
+    private void dispatch(Connection c) {
+	try {
+	    c.channel.configureBlocking(true);
+	    workers.execute(c);
+	} catch (RejectedExecutionException ex) {
+	    // the pool only rejects connections after it has been shut down
+	    c.close();
+	} catch (Exception ex) {
+	    if (running) {
+		LOG.error("Failed to dispatch connection to a worker thread.", ex);
+	    }
+	    c.close();
+	}
+    }
+
+    private void registerIdleConnections() {
+	Connection c;
+	while ((c = idleConnections.poll()) != null) {
+	    try {
+		c.channel.configureBlocking(false);
+		c.channel.register(selector, SelectionKey.OP_READ, c);
+	    } catch (IOException ex) {
+		LOG.debug("Failed to register idle connection.", ex);
+		c.close();
+	    }
+	}
+    }
+
+    private void closeExpiredConnections() {
+	long timeout = TimeUnit.SECONDS.toMillis(config.getKeepAliveTimeout());
+	long now = System.currentTimeMillis();
+	for (SelectionKey key : selector.keys()) {
+	    Object attachment = key.attachment();
+	    if (attachment instanceof Connection) {
+		Connection c = (Connection) attachment;
+		if (now - c.lastActivity > timeout) {
+		    key.cancel();
+		    c.close();
 		}
 	    }
 	}
@@ -167,4 +345,218 @@ public class HttpService implements Runnable {
 	return server.getLocalPort();
     }
 
+    private static void closeQuietly(java.io.Closeable c) {
+	try {
+	    c.close();
+	} catch (IOException ignore) {
+	}
+    }
+
+
+    /**
+     * Accepted connection which is processed by a worker whenever a request arrives.
+     */
+    private class Connection implements Runnable {
+
+	private final SocketChannel channel;
+	private ServerConnection connection;
+	private volatile long lastActivity = System.currentTimeMillis();
+
+	Connection(SocketChannel channel) {
+	    this.channel = channel;
+	}
+
+	@Override
+	public void run() {
+	    try {
+		if (connection == null) {
+		    CharsetDecoder dec = Charset.forName("UTF-8").newDecoder();
+		    CharsetEncoder enc = Charset.forName("UTF-8").newEncoder();
+		    connection = new ServerConnection(dec, enc);
+		    connection.bind(channel.socket());
+		    connection.setSocketTimeout((int) TimeUnit.SECONDS.toMillis(config.getReadTimeout()));
+		}
+
+		// process the request and all further requests arriving shortly, unless other connections need a worker
+		do {
+		    service.handleRequest(connection, new BasicHttpContext());
+		} while (connection.isOpen() && running && (connection.hasBufferedInput() || (workers.getQueue().isEmpty()
+			&& workers.getPoolSize() <= config.getWorkerThreads() && connection.awaitRequest(LINGER_TIME))));
+
+		if (connection.isOpen() && running && config.getKeepAliveTimeout() > 0) {
+		    lastActivity = System.currentTimeMillis();
+		    idleConnections.add(this);
+		    selector.wakeup();
+		    return;
+		}
+	    } catch (ConnectionClosedException ex) {
+		// connection closed by client, this is the expected outcome
+	    } catch (org.apache.http.HttpException ex) {
+		LOG.error("Error processing HTTP request or response.", ex);
+	    } catch (IOException ex) {
+		if (running) {
+		    LOG.error("IO Error while processing HTTP request or response.", ex);
+		}
+	    }
+	    close();
+	}
+
+	void close() {
+	    try {
+		if (connection != null) {
+		    connection.shutdown();
+		}
+	    } catch (IOException ignore) {
+	    } finally {
+		closeQuietly(channel);
+		numConnections.decrementAndGet();
+		selector.wakeup();
+	    }
+	}
+
+    }
+
+    /**
+     * Server connection which tells whether further requests have already been read from the socket.
+     */
+    private static class ServerConnection extends DefaultBHttpServerConnection {
+
+	ServerConnection(CharsetDecoder dec, CharsetEncoder enc) {
+	    super(8192, dec, enc, null);
+	}
+
+	/**
+	 * Waits for the next request to arrive.
+	 *
+	 * @param timeout Time in milliseconds to wait.
+	 * @return {@code true} if data of the next request is available, {@code false} otherwise.
+	 * @throws IOException Thrown in case the connection is broken.
+	 */
+	boolean awaitRequest(int timeout) throws IOException {
+	    try {
+		return awaitInput(timeout);
+	    } catch (SocketTimeoutException ex) {
+		return false;
+	    }
+	}
+
+	boolean hasBufferedInput() {
+	    SessionInputBuffer buf = getSessionInputBuffer();
+	    return buf instanceof SessionInputBufferImpl && ((SessionInputBufferImpl) buf).hasBufferedData();
+	}
+
+    }
+
+    /**
+     * Thread pool which starts new threads up to its maximum size before requests are queued.
+     */
+    private static class WorkerPool extends ThreadPoolExecutor {
+
+	// number of requests handed to the pool and not yet finished
+	private final AtomicInteger numSubmitted = new AtomicInteger();
+
+	WorkerPool(int coreSize, int maxSize, ThreadFactory threadFactory) {
+	    super(coreSize, maxSize, 60, TimeUnit.SECONDS, new WorkQueue(), threadFactory);
+	    ((WorkQueue) getQueue()).pool = this;
+	    allowCoreThreadTimeOut(true);
+	}
+
+	@Override
+	public void execute(Runnable command) {
+	    numSubmitted.incrementAndGet();
+	    try {
+		super.execute(command);
+	    } catch (RejectedExecutionException ex) {
+		// the pool reached its maximum size after the queue declined the request
+		if (isShutdown() || ! ((WorkQueue) getQueue()).force(command)) {
+		    numSubmitted.decrementAndGet();
+		    throw ex;
+		}
+	    }
+	}
+
+	@Override
+	protected void afterExecute(Runnable r, Throwable t) {
+	    numSubmitted.decrementAndGet();
+	}
+
+    }
+
+    /**
+     * Queue declining requests while the pool can start a new thread for them, so that the pool grows first.
+     */
+    private static class WorkQueue extends LinkedBlockingQueue<Runnable> {
+
+	private static final long serialVersionUID = 1L;
+
+	private transient WorkerPool pool;
+
+	@Override
+	public boolean offer(Runnable r) {
+	    // queue the request if an idle thread picks it up or no further thread may be started
+	    if (pool.numSubmitted.get() <= pool.getPoolSize() || pool.getPoolSize() >= pool.getMaximumPoolSize()) {
+		return super.offer(r);
+	    }
+	    return false;
+	}
+
+	boolean force(Runnable r) {
+	    return super.offer(r);
+	}
+
+    }
+
+    private class WorkerThreadFactory implements ThreadFactory {
+
+	private final AtomicInteger num = new AtomicInteger();
+	private final int port;
+
+	WorkerThreadFactory(int port) {
+	    this.port = port;
+	}
+
+	@Override
+	public Thread newThread(Runnable r) {
+	    Thread t = new WorkerThread(r, "Open-eCard Localhost-Binding-" + port + "-Worker-" + num.incrementAndGet());
+	    t.setDaemon(true);
+	    return t;
+	}
+
+    }
+
+    /**
+     * Worker thread which only accepts interrupts while the request handler runs or the service shuts down.
+     */
+    private class WorkerThread extends Thread {
+
+	private final Object interruptLock = new Object();
+	private boolean interruptible = false;
+
+	WorkerThread(Runnable target, String name) {
+	    super(target, name);
+	}
+
+	void setInterruptible(boolean interruptible) {
+	    synchronized (interruptLock) {
+		this.interruptible = interruptible;
+		if (! interruptible) {
+		    // discard an interrupt which has not been handled by the request handler
+		    Thread.interrupted();
+		}
+	    }
+	}
+
+	@Override
+	public void interrupt() {
+	    synchronized (interruptLock) {
+		if (interruptible || ! running) {
+		    super.interrupt();
+		} else {
+		    LOG.debug("Discarding interrupt of {} after its request handler finished.", getName());
+		}
+	    }
+	}
+
+    }
+
 }
@@ -0,0 +1,170 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.control.binding.http;
+
+import org.openecard.common.OpenecardProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Connection settings of the {@link HttpService}.
+ * The default instance is read from the {@code http-binding.*} entries of the Open eCard properties.
+ */
+public class HttpServiceConfig {
+
+    private static final Logger LOG = LoggerFactory.getLogger(HttpServiceConfig.class);
+
+    public static final int DEFAULT_BACKLOG = 50;
+    public static final int DEFAULT_WORKER_THREADS = 16;
+    public static final int DEFAULT_MAX_WORKER_THREADS = 64;
+    public static final int DEFAULT_MAX_CONNECTIONS = 256;
+    public static final int DEFAULT_KEEP_ALIVE_TIMEOUT = 15;
+    public static final int DEFAULT_READ_TIMEOUT = 30;
+
+    private int backlog = DEFAULT_BACKLOG;
+    private int workerThreads = DEFAULT_WORKER_THREADS;
+    private int maxWorkerThreads = DEFAULT_MAX_WORKER_THREADS;
+    private int maxConnections = DEFAULT_MAX_CONNECTIONS;
+    private int keepAliveTimeout = DEFAULT_KEEP_ALIVE_TIMEOUT;
+    private int readTimeout = DEFAULT_READ_TIMEOUT;
+
+
+    /**
+     * Creates a configuration with the values from the Open eCard properties.
+     * Missing or invalid entries are replaced by the default values.
+     *
+     * @return The configuration.
+     */
+    public static HttpServiceConfig fromProperties() {
+	HttpServiceConfig config = new HttpServiceConfig();
+	config.setBacklog(getIntProperty("http-binding.backlog", DEFAULT_BACKLOG));
+	config.setWorkerThreads(getIntProperty("http-binding.worker_threads", DEFAULT_WORKER_THREADS));
+	config.setMaxWorkerThreads(getIntProperty("http-binding.max_worker_threads", DEFAULT_MAX_WORKER_THREADS));
+	config.setMaxConnections(getIntProperty("http-binding.max_connections", DEFAULT_MAX_CONNECTIONS));
+	config.setKeepAliveTimeout(getIntProperty("http-binding.keep_alive_timeout", DEFAULT_KEEP_ALIVE_TIMEOUT));
+	config.setReadTimeout(getIntProperty("http-binding.read_timeout", DEFAULT_READ_TIMEOUT));
+	return config;
+    }
+
+    private static int getIntProperty(String key, int defaultValue) {
+	String value = OpenecardProperties.getProperty(key);
+	if (value != null) {
+	    try {
+		int result = Integer.parseInt(value.trim());
+		if (result >= 0) {
+		    return result;
+		}
+	    } catch (NumberFormatException ignore) {
+	    }
+	    LOG.warn("Invalid value '{}' configured for property {}.", value, key);
+	}
+	return defaultValue;
+    }
+
+
+    /**
+     * Gets the maximum number of connections waiting in the listen queue of the server socket.
+     *
+     * @return The backlog.
+     */
+    public int getBacklog() {
+	return backlog;
+    }
+
+    public void setBacklog(int backlog) {
+	this.backlog = backlog;
+    }
+
+    /**
+     * Gets the number of threads kept for processing requests.
+     * While more requests are processed at the same time, further threads are created up to
+     * {@link #getMaxWorkerThreads()}.
+     *
+     * @return Number of core worker threads.
+     */
+    public int getWorkerThreads() {
+	return workerThreads;
+    }
+
+    public void setWorkerThreads(int workerThreads) {
+	this.workerThreads = Math.max(1, workerThreads);
+    }
+
+    /**
+     * Gets the maximum number of threads processing requests.
+     * Requests arriving while all of these threads are busy wait until a thread becomes available. Long polls such as
+     * WaitForChange occupy a thread until they are answered, so this value must be larger than the number of long polls
+     * expected at the same time.
+     *
+     * @return Maximum number of worker threads.
+     */
+    public int getMaxWorkerThreads() {
+	return maxWorkerThreads;
+    }
+
+    public void setMaxWorkerThreads(int maxWorkerThreads) {
+	this.maxWorkerThreads = Math.max(1, maxWorkerThreads);
+    }
+
+    /**
+     * Gets the maximum number of open connections.
+     * Further connections stay in the listen queue until a connection is closed.
+     *
+     * @return Maximum number of connections.
+     */
+    public int getMaxConnections() {
+	return maxConnections;
+    }
+
+    public void setMaxConnections(int maxConnections) {
+	this.maxConnections = Math.max(1, maxConnections);
+    }
+
+    /**
+     * Gets the time in seconds an idle connection is kept open for further requests.
+     *
+     * @return The keep-alive timeout, 0 if connections are closed after each request.
+     */
+    public int getKeepAliveTimeout() {
+	return keepAliveTimeout;
+    }
+
+    public void setKeepAliveTimeout(int keepAliveTimeout) {
+	this.keepAliveTimeout = keepAliveTimeout;
+    }
+
+    /**
+     * Gets the time in seconds to wait for data while a request is read.
+     *
+     * @return The read timeout, 0 for no timeout.
+     */
+    public int getReadTimeout() {
+	return readTimeout;
+    }
+
+    public void setReadTimeout(int readTimeout) {
+	this.readTimeout = readTimeout;
+    }
+
+}
@@ -0,0 +1,249 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.control.binding.http.common;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.GZIPOutputStream;
+import javax.annotation.Nonnull;
+import org.openecard.common.util.ByteUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Cache for the static files of the document root.
+ * Each file is loaded once and kept in memory together with a gzip compressed variant and an entity tag derived from
+ * the content, so that repeated requests can be answered without reading, compressing or hashing the file again.
+ * Files located in the file system are loaded again when their modification time or size changes.
+ */
+public class AssetCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AssetCache.class);
+    private static final AssetCache INSTANCE = new AssetCache();
+
+    /** Compressed variant is only kept if it saves at least this fraction of the size. */
+    private static final double MIN_COMPRESSION_RATIO = 0.9;
+
+    private final ConcurrentMap<String, Asset> assets = new ConcurrentHashMap<>();
+
+    /**
+     * Gets the cache shared by all file handlers.
+     *
+     * @return The cache instance.
+     */
+    public static AssetCache getInstance() {
+	return INSTANCE;
+    }
+
+    /**
+     * Gets the cached file for the given URL, loading it if it has not been requested before.
+     *
+     * @param file URL of the file in the document root.
+     * @return The cached file.
+     * @throws IOException Thrown in case the file could not be read.
+     */
+    @Nonnull
+    public Asset get(@Nonnull URL file) throws IOException {
+	String key = file.toString();
+	Asset asset = assets.get(key);
+	if (asset == null || asset.isModified()) {
+	    asset = load(file);
+	    assets.put(key, asset);
+	}
+	return asset;
+    }
+
+    /**
+     * Removes all files from the cache.
+     */
+    public void clear() {
+	assets.clear();
+    }
+
+    private static Asset load(URL file) throws IOException {
+	// determine the state before reading, so that a concurrent modification is detected on the next request
+	File source = toFile(file);
+	long lastModified = source != null ? source.lastModified() : 0;
+	long length = source != null ? source.length() : 0;
+
+	byte[] content;
+	try (InputStream in = file.openStream()) {
+	    ByteArrayOutputStream out = new ByteArrayOutputStream();
+	    byte[] buf = new byte[4096];
+	    int num;
+	    while ((num = in.read(buf)) != -1) {
+		out.write(buf, 0, num);
+	    }
+	    content = out.toByteArray();
+	}
+
+	byte[] gzipContent = compress(content);
+	if (gzipContent.length > content.length * MIN_COMPRESSION_RATIO) {
+	    gzipContent = null;
+	}
+
+	String fileName = file.toString();
+	String fileExtension = fileName.substring(fileName.lastIndexOf(".") + 1);
+	MimeType mimeType = MimeType.fromFilenameExtension(fileExtension);
+	String typeName = (mimeType != null) ? mimeType.getMimeType() : MimeType.TEXT_PLAIN.getMimeType();
+
+	Asset asset = new Asset(typeName, content, gzipContent, hash(content), source, lastModified, length);
+	LOG.debug("Cached file {} ({} bytes, {} bytes compressed).", fileName, content.length,
+		gzipContent != null ? gzipContent.length : "no");
+	return asset;
+    }
+
+    private static File toFile(URL file) {
+	if ("file".equals(file.getProtocol())) {
+	    try {
+		return new File(file.toURI());
+	    } catch (URISyntaxException | IllegalArgumentException ex) {
+		LOG.debug("Failed to convert URL {} to a file.", file, ex);
+	    }
+	}
+	// resources in archives can not change while the application is running
+	return null;
+    }
+
+    private static byte[] compress(byte[] content) throws IOException {
+	ByteArrayOutputStream out = new ByteArrayOutputStream(content.length / 2 + 32);
+	try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+	    gzip.write(content);
+	}
+	return out.toByteArray();
+    }
+
+    private static String hash(byte[] content) {
+	try {
+	    MessageDigest md = MessageDigest.getInstance("SHA-256");
+	    byte[] digest = md.digest(content);
+	    return ByteUtils.toHexString(ByteUtils.copy(digest, 0, 16));
+	} catch (NoSuchAlgorithmException ex) {
+	    throw new IllegalStateException("SHA-256 is not supported by the Java runtime.", ex);
+	}
+    }
+
+
+    /**
+     * File of the document root held in memory.
+     * The returned arrays are shared by all requests and must not be modified.
+     */
+    public static class Asset {
+
+	private final String contentType;
+	private final byte[] content;
+	private final byte[] gzipContent;
+	private final String etag;
+	private final String gzipEtag;
+	private final File source;
+	private final long lastModified;
+	private final long length;
+
+	private Asset(String contentType, byte[] content, byte[] gzipContent, String hash, File source,
+		long lastModified, long length) {
+	    this.contentType = contentType;
+	    this.content = content;
+	    this.gzipContent = gzipContent;
+	    // each content-coding is a different representation and needs its own entity tag
+	    this.etag = "\"" + hash + "\"";
+	    this.gzipEtag = gzipContent != null ? "\"" + hash + "-gzip\"" : null;
+	    this.source = source;
+	    this.lastModified = lastModified;
+	    this.length = length;
+	}
+
+	private boolean isModified() {
+	    return source != null && (source.lastModified() != lastModified || source.length() != length);
+	}
+
+	/**
+	 * Gets the MIME type of the file.
+	 *
+	 * @return The MIME type.
+	 */
+	public String getContentType() {
+	    return contentType;
+	}
+
+	/**
+	 * Gets the content of the file.
+	 *
+	 * @return The unencoded content.
+	 */
+	public byte[] getContent() {
+	    return content;
+	}
+
+	/**
+	 * Gets the gzip compressed content of the file.
+	 *
+	 * @return The compressed content, or {@code null} if compression does not pay off for this file.
+	 */
+	public byte[] getGzipContent() {
+	    return gzipContent;
+	}
+
+	/**
+	 * Gets the entity tag of the file in its quoted form.
+	 *
+	 * @param gzip {@code true} for the tag of the gzip compressed variant, {@code false} for the unencoded content.
+	 * @return The entity tag.
+	 */
+	public String getETag(boolean gzip) {
+	    return gzip ? gzipEtag : etag;
+	}
+
+	/**
+	 * Checks whether the value of an If-None-Match header matches a variant of this file.
+	 * The weak comparison is used, as required for the header.
+	 *
+	 * @param ifNoneMatch Header value containing a list of entity tags or {@code *}.
+	 * @param gzip {@code true} if the gzip compressed variant is selected, {@code false} otherwise.
+	 * @return {@code true} if one of the entity tags matches, {@code false} otherwise.
+	 */
+	public boolean matches(String ifNoneMatch, boolean gzip) {
+	    String expected = getETag(gzip);
+	    for (String tag : ifNoneMatch.split(",")) {
+		tag = tag.trim();
+		if (tag.startsWith("W/")) {
+		    tag = tag.substring(2);
+		}
+		if (tag.equals("*") || tag.equals(expected)) {
+		    return true;
+		}
+	    }
+	    return false;
+	}
+
+    }
+
+}
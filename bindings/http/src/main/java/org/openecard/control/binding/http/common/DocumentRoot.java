@@ -26,8 +26,10 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import org.openecard.common.util.FileUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -79,6 +81,16 @@ public class DocumentRoot {
 	return new ArrayList<URL>(files.values());
     }
 
+    /**
+     * Returns the names of all files and directories in the document root.
+     * The names are the paths under which the files are requested.
+     *
+     * @return Unmodifiable set of the names
+     */
+    public Set<String> getFileNames() {
+	return Collections.unmodifiableSet(files.keySet());
+    }
+
     /**
      * Returns File or directory in the document root.
      *
@@ -1,5 +1,5 @@
 /****************************************************************************
- * Copyright (C) 2012 ecsec GmbH.
+ * Copyright (C) 2012-2026 ecsec GmbH.
  * All rights reserved.
  * Contact: ecsec GmbH (info@ecsec.de)
  *
@@ -25,28 +25,34 @@ package org.openecard.control.binding.http.handler;
 import java.net.URI;
 import java.net.URL;
 import java.net.URLDecoder;
+import org.apache.http.Header;
 import org.apache.http.HttpRequest;
 import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
 import org.apache.http.RequestLine;
-import org.apache.http.entity.BasicHttpEntity;
+import org.apache.http.entity.ByteArrayEntity;
 import org.apache.http.entity.ContentType;
 import org.openecard.control.binding.http.HttpException;
+import org.openecard.control.binding.http.common.AssetCache;
 import org.openecard.control.binding.http.common.DocumentRoot;
+import org.openecard.control.binding.http.common.HeaderTypes;
 import org.openecard.control.binding.http.common.Http11Response;
-import org.openecard.control.binding.http.common.MimeType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 
 /**
+ * Handler delivering the static files of the document root.
+ * The files are served from the {@link AssetCache}. Conditional requests with a matching If-None-Match header are
+ * answered with 304 Not Modified, and the gzip compressed variant is sent to clients accepting it. Both variants have
+ * their own entity tag.
  *
  * @author Moritz Horsch
  */
 public class FileHandler extends ControlCommonHandler {
 
     private static final Logger _logger = LoggerFactory.getLogger(FileHandler.class);
-    private DocumentRoot documentRoot;
+    private final DocumentRoot documentRoot;
 
 
     /**
@@ -72,7 +78,7 @@ public class FileHandler extends ControlCommonHandler {
 	    if (filePath != null) {
 		// Handle file
 		_logger.debug("Handle file request");
-		handleFile(httpResponse, filePath);
+		handleFile(httpRequest, httpResponse, filePath);
 	    } else {
 		_logger.debug("The DocumentRoot does not contain the URI: {}", requestURI.getPath());
 	    }
@@ -84,17 +90,62 @@ public class FileHandler extends ControlCommonHandler {
 	return httpResponse;
     }
 
-    private void handleFile(Http11Response httpResponse, URL file) throws Exception {
-	String fileName = file.toString();
-	String fileExtension = fileName.substring(fileName.lastIndexOf(".") + 1);
-	MimeType mimeType = MimeType.fromFilenameExtension(fileExtension);
-	String typeName = (mimeType != null) ? mimeType.getMimeType() : MimeType.TEXT_PLAIN.getMimeType();
+    private void handleFile(HttpRequest httpRequest, Http11Response httpResponse, URL file) throws Exception {
+	AssetCache.Asset asset = AssetCache.getInstance().get(file);
+	boolean gzip = asset.getGzipContent() != null && acceptsGzip(httpRequest);
+	// files must be revalidated, but may be kept by the browser
+	httpResponse.setHeader(HeaderTypes.CACHE_CONTROL.fieldName(), "no-cache");
+	httpResponse.setHeader(HeaderTypes.ETAG.fieldName(), asset.getETag(gzip));
+	httpResponse.setHeader(HeaderTypes.VARY.fieldName(), HeaderTypes.ACCEPT_ENCODING.fieldName());
+
+	Header ifNoneMatch = httpRequest.getFirstHeader(HeaderTypes.IF_NONE_MATCH.fieldName());
+	if (ifNoneMatch != null && asset.matches(ifNoneMatch.getValue(), gzip)) {
+	    httpResponse.setStatusCode(HttpStatus.SC_NOT_MODIFIED);
+	    return;
+	}
 
 	httpResponse.setStatusCode(HttpStatus.SC_OK);
-	BasicHttpEntity entity = new BasicHttpEntity();
-	entity.setContent(file.openStream());
-	entity.setContentType(ContentType.create(typeName, "UTF-8").toString());
+	ByteArrayEntity entity;
+	if (gzip) {
+	    entity = new ByteArrayEntity(asset.getGzipContent());
+	    entity.setContentEncoding("gzip");
+	} else {
+	    entity = new ByteArrayEntity(asset.getContent());
+	}
+	entity.setContentType(ContentType.create(asset.getContentType(), "UTF-8").toString());
 	httpResponse.setEntity(entity);
     }
 
+    private static boolean acceptsGzip(HttpRequest httpRequest) {
+	boolean result = false;
+	for (Header h : httpRequest.getHeaders(HeaderTypes.ACCEPT_ENCODING.fieldName())) {
+	    for (String coding : h.getValue().split(",")) {
+		String[] parts = coding.split(";");
+		String name = parts[0].trim().toLowerCase();
+		if (name.equals("gzip") || name.equals("x-gzip") || name.equals("*")) {
+		    boolean accepted = true;
+		    for (int i = 1; i < parts.length; i++) {
+			String param = parts[i].trim();
+			if (param.startsWith("q=")) {
+			    try {
+				accepted = Double.parseDouble(param.substring(2).trim()) > 0;
+			    } catch (NumberFormatException ex) {
+				accepted = false;
+			    }
+			}
+		    }
+		    if (name.equals("*")) {
+			// an explicit entry for gzip takes precedence over the wildcard
+			result = result || accepted;
+		    } else if (! accepted) {
+			return false;
+		    } else {
+			result = true;
+		    }
+		}
+	    }
+	}
+	return result;
+    }
+
 }
@@ -27,6 +27,7 @@ import java.io.InputStream;
 import java.net.URI;
 import java.nio.charset.Charset;
 import java.nio.charset.UnsupportedCharsetException;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Map;
@@ -55,6 +56,7 @@ import org.apache.http.entity.ByteArrayEntity;
 import org.apache.http.entity.ContentType;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpRequestHandler;
 import org.openecard.common.OpenecardProperties;
 import org.openecard.common.util.FileUtils;
 import org.openecard.common.util.HttpRequestLineUtils;
@@ -66,6 +68,13 @@ import org.slf4j.LoggerFactory;
 
 
 /**
+ * Handler dispatching requests to the add-on plugin actions of the HTTP binding.
+ * <p>
+ * The handler chain is built once and shared by all requests, as none of the handlers keep any request state. Files of
+ * the document root and the index page are resolved with a routing table computed when the handler is created. They
+ * take precedence over add-on resources of the same name. All other paths are looked up in the add-on registry and fall
+ * back to the file or default handler when no add-on serves them.
+ * </p>
  *
  * @author Dirk Petrautzki
  * @author Tobias Wich
@@ -77,11 +86,45 @@ public class HttpAppPluginActionHandler extends HttpControlHandler {
     public static final String METHOD_HDR = "X-OeC-Method";
 
     private final AddonSelector selector;
+    private final CORSFilter corsFilter;
+    private final HttpRequestHandler fileHandler;
+    private final HttpRequestHandler defaultHandler;
+    // handlers for the paths not served by add-ons, keyed by the request path
+    private final Map<String, HttpRequestHandler> routes;
+    private final boolean caseInsensitivePath;
+
+    /**
+     * Creates a handler serving the default document root.
+     *
+     * @param addonManager Manager providing the add-ons.
+     * @throws IOException Thrown in case the document root cannot be read.
+     */
+    public HttpAppPluginActionHandler(@Nonnull AddonManager addonManager) throws IOException {
+	this(addonManager, new DocumentRoot("/www", "/www-files"));
+    }
 
-    public HttpAppPluginActionHandler(@Nonnull AddonManager addonManager) {
+    /**
+     * Creates a handler serving the given document root.
+     *
+     * @param addonManager Manager providing the add-ons.
+     * @param documentRoot Document root containing the static files.
+     */
+    public HttpAppPluginActionHandler(@Nonnull AddonManager addonManager, @Nonnull DocumentRoot documentRoot) {
 	super("*");
 
 	this.selector = new AddonSelector(addonManager);
+	this.corsFilter = new CORSFilter();
+	this.fileHandler = new FileHandler(documentRoot);
+	this.defaultHandler = new DefaultHandler();
+
+	Map<String, HttpRequestHandler> r = new HashMap<>();
+	for (String file : documentRoot.getFileNames()) {
+	    r.put(file, fileHandler);
+	}
+	r.put("/", new IndexHandler());
+	this.routes = Collections.unmodifiableMap(r);
+
+	this.caseInsensitivePath = Boolean.valueOf(OpenecardProperties.getProperty("legacy.case_insensitive_path"));
     }
 
     @Override
@@ -89,7 +132,6 @@ public class HttpAppPluginActionHandler extends HttpControlHandler {
 	    IOException {
 	LOG.debug("HTTP request: {}", httpRequest.toString());
 
-	CORSFilter corsFilter = new CORSFilter();
 	HttpResponse corsResp = corsFilter.preProcess(httpRequest, context);
 	if (corsResp != null) {
 	    // CORS Response created, return it to the caller
@@ -103,6 +145,14 @@ public class HttpAppPluginActionHandler extends HttpControlHandler {
 	String uri = httpRequest.getRequestLine().getUri();
 	URI requestURI = URI.create(uri);
 	String path = requestURI.getPath();
+
+	// static content is served without consulting the add-on registry
+	HttpRequestHandler route = routes.get(path);
+	if (route != null) {
+	    route.handle(httpRequest, httpResponse, context);
+	    return;
+	}
+
 	String resourceName = path.substring(1, path.length()); // remove leading '/'
 
 	// find suitable addon
@@ -136,12 +186,10 @@ public class HttpAppPluginActionHandler extends HttpControlHandler {
 	    // CORS post processing
 	    corsFilter.postProcess(httpRequest, httpResponse, context);
 	} catch (AddonNotFoundException ex) {
-	    if (path.equals("/")) {
-		new IndexHandler().handle(httpRequest, httpResponse, context);
-	    } else if (path.startsWith("/")) {
-		new FileHandler(new DocumentRoot("/www", "/www-files")).handle(httpRequest, httpResponse, context);
+	    if (path.startsWith("/")) {
+		fileHandler.handle(httpRequest, httpResponse, context);
 	    } else {
-		new DefaultHandler().handle(httpRequest, httpResponse, context);
+		defaultHandler.handle(httpRequest, httpResponse, context);
 	    }
 	} finally {
 	    if (action != null) {
@@ -276,7 +324,6 @@ public class HttpAppPluginActionHandler extends HttpControlHandler {
     }
 
     private Map<String, String> createQueryMap() {
-	boolean caseInsensitivePath = Boolean.valueOf(OpenecardProperties.getProperty("legacy.case_insensitive_path"));
 	if (! caseInsensitivePath) {
 	    return new HashMap<>(0);
 	} else {
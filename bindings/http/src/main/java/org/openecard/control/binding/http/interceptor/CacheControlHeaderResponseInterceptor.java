@@ -33,7 +33,8 @@ import org.apache.http.protocol.HttpContext;
  * HttpResponseInterceptor implementation which adds a {@code Cache-Control} header to the response.
  * <br>
  * <br>
- * The header sets the directive {@code no-store} to advise the user agent to do not cache the response.
+ * The header sets the directive {@code no-store} to advise the user agent to do not cache the response. Responses
+ * which already define their caching behaviour, such as static files, are left untouched.
  *
  * @author Hans-Martin Haase
  */
@@ -41,7 +42,9 @@ public class CacheControlHeaderResponseInterceptor implements HttpResponseInterc
 
     @Override
     public void process(HttpResponse hr, HttpContext hc) throws HttpException, IOException {
-	hr.addHeader("Cache-Control", "no-store");
+	if (! hr.containsHeader("Cache-Control")) {
+	    hr.addHeader("Cache-Control", "no-store");
+	}
     }
 
 }
@@ -0,0 +1,176 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.control.binding.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.protocol.HttpRequestHandler;
+import org.apache.http.protocol.ResponseConnControl;
+import org.apache.http.protocol.ResponseContent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.Test;
+import static org.testng.Assert.*;
+
+
+/**
+ * Load test for the localhost HTTP service using many concurrent loopback clients.
+ */
+@Test(groups={"it"})
+public class HttpServiceLoadTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(HttpServiceLoadTest.class);
+
+    private static final int NUM_CLIENTS = 100;
+    private static final int REQUESTS_PER_CLIENT = 60;
+    // first requests of each client are not measured, so that the JIT compiler can warm up
+    private static final int WARMUP_REQUESTS = 10;
+
+    @Test
+    public void testConcurrentClients() throws Exception {
+	HttpRequestHandler handler = (req, res, ctx) -> {
+	    res.setEntity(new ByteArrayEntity("ok".getBytes(StandardCharsets.US_ASCII)));
+	};
+	List<HttpRequestInterceptor> reqInterceptors = Collections.emptyList();
+	List<HttpResponseInterceptor> respInterceptors = Arrays.asList(new ResponseContent(), new ResponseConnControl());
+	final HttpService service = new HttpService(0, handler, reqInterceptors, respInterceptors);
+	service.start();
+
+	ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+	int threadsBefore = threads.getThreadCount();
+	threads.resetPeakThreadCount();
+
+	final List<Long> latencies = Collections.synchronizedList(new ArrayList<Long>());
+	final AtomicInteger failures = new AtomicInteger();
+	final CountDownLatch start = new CountDownLatch(1);
+	List<Thread> clients = new ArrayList<>();
+	try {
+	    for (int i = 0; i < NUM_CLIENTS; i++) {
+		Thread t = new Thread(() -> {
+		    try {
+			start.await();
+			runClient(service.getPort(), latencies);
+		    } catch (Exception ex) {
+			LOG.debug("Client failed.", ex);
+			failures.incrementAndGet();
+		    }
+		});
+		clients.add(t);
+		t.start();
+	    }
+	    start.countDown();
+	    for (Thread t : clients) {
+		t.join();
+	    }
+	} finally {
+	    service.interrupt();
+	}
+
+	// client threads are included in the peak
+	int peakServerThreads = threads.getPeakThreadCount() - threadsBefore - NUM_CLIENTS;
+	List<Long> sorted = new ArrayList<>(latencies);
+	Collections.sort(sorted);
+	long p50 = percentile(sorted, 50);
+	long p99 = percentile(sorted, 99);
+	LOG.info("{} requests, {} failed clients, p50={}us, p99={}us, peak server threads={}",
+		sorted.size(), failures.get(), p50 / 1000, p99 / 1000, peakServerThreads);
+
+	assertEquals(failures.get(), 0);
+	assertEquals(sorted.size(), NUM_CLIENTS * (REQUESTS_PER_CLIENT - WARMUP_REQUESTS));
+	// the workers and the acceptor thread
+	assertTrue(peakServerThreads <= HttpServiceConfig.DEFAULT_MAX_WORKER_THREADS + 1,
+		"Peak number of server threads exceeds the worker pool: " + peakServerThreads);
+    }
+
+    private static void runClient(int port, List<Long> latencies) throws IOException {
+	byte[] request = ("GET /test HTTP/1.1\r\nHost: 127.0.0.1:" + port + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+	try (Socket s = new Socket(InetAddress.getByName("127.0.0.1"), port)) {
+	    s.setSoTimeout(30000);
+	    OutputStream out = s.getOutputStream();
+	    InputStream in = s.getInputStream();
+	    for (int i = 0; i < REQUESTS_PER_CLIENT; i++) {
+		long begin = System.nanoTime();
+		out.write(request);
+		out.flush();
+		readResponse(in);
+		if (i >= WARMUP_REQUESTS) {
+		    latencies.add(System.nanoTime() - begin);
+		}
+	    }
+	}
+    }
+
+    private static void readResponse(InputStream in) throws IOException {
+	// read header up to the empty line
+	ByteArrayOutputStream header = new ByteArrayOutputStream();
+	int state = 0;
+	while (state < 4) {
+	    int b = in.read();
+	    if (b == -1) {
+		throw new IOException("Connection closed before response was complete.");
+	    }
+	    header.write(b);
+	    state = (b == '\r' && (state == 0 || state == 2)) || (b == '\n' && (state == 1 || state == 3)) ? state + 1 : 0;
+	}
+	String head = new String(header.toByteArray(), StandardCharsets.US_ASCII);
+	if (! head.startsWith("HTTP/1.1 200")) {
+	    throw new IOException("Unexpected response: " + head);
+	}
+	int length = 0;
+	for (String line : head.split("\r\n")) {
+	    if (line.toLowerCase().startsWith("content-length:")) {
+		length = Integer.parseInt(line.substring(15).trim());
+	    }
+	}
+	for (int i = 0; i < length; i++) {
+	    if (in.read() == -1) {
+		throw new IOException("Connection closed before response was complete.");
+	    }
+	}
+    }
+
+    private static long percentile(List<Long> sorted, int p) {
+	if (sorted.isEmpty()) {
+	    return 0;
+	}
+	int idx = (int) Math.ceil(p / 100.0 * sorted.size()) - 1;
+	return sorted.get(Math.max(0, idx));
+    }
+
+}
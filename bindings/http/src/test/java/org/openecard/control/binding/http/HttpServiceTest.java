@@ -0,0 +1,224 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+package org.openecard.control.binding.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.protocol.HttpRequestHandler;
+import org.apache.http.protocol.ResponseConnControl;
+import org.apache.http.protocol.ResponseContent;
+import org.testng.annotations.Test;
+import static org.testng.Assert.*;
+
+
+/**
+ * Tests the scheduling of requests on the worker threads of the {@link HttpService}.
+ */
+public class HttpServiceTest {
+
+    private static final List<HttpResponseInterceptor> RESPONSE_INTERCEPTORS = Arrays.asList(new ResponseContent(),
+	    new ResponseConnControl());
+
+    @Test(timeOut = 30000)
+    public void testBlockedRequestsDoNotStarveOthers() throws Exception {
+	final CountDownLatch release = new CountDownLatch(1);
+	HttpRequestHandler handler = (req, res, ctx) -> {
+	    if (req.getRequestLine().getUri().startsWith("/wait")) {
+		// long poll like WaitForChange
+		try {
+		    release.await();
+		} catch (InterruptedException ex) {
+		    Thread.currentThread().interrupt();
+		}
+	    }
+	    res.setEntity(new ByteArrayEntity("ok".getBytes(StandardCharsets.US_ASCII)));
+	};
+	HttpServiceConfig config = new HttpServiceConfig();
+	config.setWorkerThreads(1);
+	HttpService service = new HttpService(0, handler, Collections.emptyList(), RESPONSE_INTERCEPTORS, config);
+	service.start();
+
+	final int port = service.getPort();
+	Thread[] waiting = new Thread[3];
+	try {
+	    // occupy more threads than the pool keeps
+	    for (int i = 0; i < waiting.length; i++) {
+		waiting[i] = new Thread(() -> {
+		    try {
+			request(port, "/wait");
+		    } catch (IOException ignore) {
+		    }
+		});
+		waiting[i].start();
+	    }
+
+	    long begin = System.nanoTime();
+	    assertEquals(request(port, "/fast"), 200);
+	    assertTrue(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - begin) < 5,
+		    "Request has been delayed by the blocked requests.");
+	} finally {
+	    release.countDown();
+	    for (Thread t : waiting) {
+		t.join();
+	    }
+	    service.interrupt();
+	}
+    }
+
+    @Test(timeOut = 30000)
+    public void testWorkerThreadsAreLimited() throws Exception {
+	final CountDownLatch release = new CountDownLatch(1);
+	final AtomicInteger maxWorkers = new AtomicInteger();
+	final AtomicInteger servicePort = new AtomicInteger();
+	HttpRequestHandler handler = (req, res, ctx) -> {
+	    maxWorkers.accumulateAndGet(countWorkers(servicePort.get()), Math::max);
+	    if (req.getRequestLine().getUri().startsWith("/wait")) {
+		try {
+		    release.await();
+		} catch (InterruptedException ex) {
+		    Thread.currentThread().interrupt();
+		}
+	    }
+	    res.setEntity(new ByteArrayEntity("ok".getBytes(StandardCharsets.US_ASCII)));
+	};
+	HttpServiceConfig config = new HttpServiceConfig();
+	config.setWorkerThreads(1);
+	config.setMaxWorkerThreads(2);
+	HttpService service = new HttpService(0, handler, Collections.emptyList(), RESPONSE_INTERCEPTORS, config);
+	service.start();
+
+	final int port = service.getPort();
+	servicePort.set(port);
+	List<Thread> clients = new ArrayList<>();
+	final AtomicInteger numOk = new AtomicInteger();
+	try {
+	    // two long polls occupy all threads, the third request has to wait for one of them
+	    for (String path : Arrays.asList("/wait", "/wait", "/fast")) {
+		Thread t = new Thread(() -> {
+		    try {
+			if (request(port, path) == 200) {
+			    numOk.incrementAndGet();
+			}
+		    } catch (IOException ignore) {
+		    }
+		});
+		clients.add(t);
+		t.start();
+		Thread.sleep(200);
+	    }
+	    clients.get(2).join(500);
+	    assertEquals(numOk.get(), 0, "Request has been answered without a worker thread.");
+	} finally {
+	    release.countDown();
+	    for (Thread t : clients) {
+		t.join();
+	    }
+	    service.interrupt();
+	}
+	assertEquals(numOk.get(), 3);
+	assertEquals(maxWorkers.get(), 2);
+    }
+
+    @Test(timeOut = 30000)
+    public void testInterruptAfterHandlerKeepsConnection() throws Exception {
+	final byte[] content = new byte[1024 * 1024];
+	final AtomicBoolean handlerInterrupted = new AtomicBoolean();
+	HttpRequestHandler handler = (req, res, ctx) -> {
+	    // an interrupt aimed at the running action reaches the handler
+	    Thread.currentThread().interrupt();
+	    handlerInterrupted.set(Thread.currentThread().isInterrupted());
+	    res.setEntity(new ByteArrayEntity(content) {
+		@Override
+		public void writeTo(OutputStream out) throws IOException {
+		    // the action is interrupted again while the response is written
+		    Thread.currentThread().interrupt();
+		    super.writeTo(out);
+		}
+	    });
+	};
+	HttpServiceConfig config = new HttpServiceConfig();
+	HttpService service = new HttpService(0, handler, Collections.emptyList(), RESPONSE_INTERCEPTORS, config);
+	service.start();
+	try {
+	    for (int i = 0; i < 3; i++) {
+		assertEquals(requestBody(service.getPort(), "/activate").length, content.length);
+		assertTrue(handlerInterrupted.get());
+	    }
+	} finally {
+	    service.interrupt();
+	}
+    }
+
+    private static int countWorkers(int port) {
+	int count = 0;
+	for (Thread t : Thread.getAllStackTraces().keySet()) {
+	    if (t.getName().contains("-" + port + "-Worker-") && t.isAlive()) {
+		count++;
+	    }
+	}
+	return count;
+    }
+
+    private static byte[] requestBody(int port, String path) throws IOException {
+	HttpURLConnection c = (HttpURLConnection) new URL("http://127.0.0.1:" + port + path).openConnection();
+	c.setReadTimeout(20000);
+	try (InputStream in = c.getInputStream()) {
+	    ByteArrayOutputStream out = new ByteArrayOutputStream();
+	    byte[] buf = new byte[4096];
+	    int num;
+	    while ((num = in.read(buf)) != -1) {
+		out.write(buf, 0, num);
+	    }
+	    return out.toByteArray();
+	} finally {
+	    c.disconnect();
+	}
+    }
+
+    private static int request(int port, String path) throws IOException {
+	HttpURLConnection c = (HttpURLConnection) new URL("http://127.0.0.1:" + port + path).openConnection();
+	c.setReadTimeout(20000);
+	try (InputStream in = c.getInputStream()) {
+	    while (in.read() != -1) {
+	    }
+	    return c.getResponseCode();
+	} finally {
+	    c.disconnect();
+	}
+    }
+
+}
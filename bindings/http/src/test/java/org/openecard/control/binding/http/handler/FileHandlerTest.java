@@ -0,0 +1,235 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.control.binding.http.handler;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.message.BasicHttpRequest;
+import org.openecard.common.util.FileUtils;
+import org.openecard.control.binding.http.HttpService;
+import org.openecard.control.binding.http.common.AssetCache;
+import org.openecard.control.binding.http.common.DocumentRoot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import static org.testng.Assert.*;
+
+
+/**
+ * Tests the delivery of static files from the asset cache over a loopback connection.
+ */
+public class FileHandlerTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FileHandlerTest.class);
+
+    private FileHandler handler;
+    private HttpService service;
+
+    @BeforeClass
+    public void setUp() throws Exception {
+	handler = new FileHandler(new DocumentRoot("/www", "/www-files"));
+	List<HttpRequestInterceptor> reqInterceptors = Collections.emptyList();
+	List<HttpResponseInterceptor> respInterceptors = Collections.emptyList();
+	service = new HttpService(0, handler, reqInterceptors, respInterceptors);
+	service.start();
+    }
+
+    @AfterClass
+    public void tearDown() {
+	service.interrupt();
+    }
+
+    @Test
+    public void testContentAndConditionalRequest() throws Exception {
+	byte[] expected = readResource("/www/css/style.css");
+
+	Response plain = request("/css/style.css", Collections.<String, String>emptyMap());
+	assertEquals(plain.status, 200);
+	assertEquals(plain.body, expected);
+	String etag = plain.headers.get("etag");
+	assertNotNull(etag);
+	assertNull(plain.headers.get("content-encoding"));
+
+	Response gzip = request("/css/style.css", Collections.singletonMap("Accept-Encoding", "gzip, deflate"));
+	assertEquals(gzip.status, 200);
+	assertEquals(gzip.headers.get("content-encoding"), "gzip");
+	String gzipEtag = gzip.headers.get("etag");
+	assertEquals(gzipEtag, etag.substring(0, etag.length() - 1) + "-gzip\"");
+	assertEquals(gunzip(gzip.body), expected);
+	assertTrue(gzip.body.length < expected.length);
+
+	Response notModified = request("/css/style.css", Collections.singletonMap("If-None-Match", etag));
+	assertEquals(notModified.status, 304);
+	assertEquals(notModified.body.length, 0);
+	assertEquals(notModified.headers.get("etag"), etag);
+
+	Map<String, String> gzipConditional = new HashMap<>();
+	gzipConditional.put("Accept-Encoding", "gzip");
+	gzipConditional.put("If-None-Match", gzipEtag);
+	assertEquals(request("/css/style.css", gzipConditional).status, 304);
+	// the tag of the compressed variant does not validate the unencoded content
+	Response otherVariant = request("/css/style.css", Collections.singletonMap("If-None-Match", gzipEtag));
+	assertEquals(otherVariant.status, 200);
+	assertEquals(otherVariant.body, expected);
+
+	LOG.info("Bytes received for style.css: plain={}, gzip={}, not modified={}",
+		plain.length, gzip.length, notModified.length);
+	assertTrue(gzip.length < plain.length);
+	assertTrue(notModified.length < gzip.length);
+
+	// a rejected encoding yields the unencoded content
+	Response rejected = request("/css/style.css", Collections.singletonMap("Accept-Encoding", "gzip;q=0, *"));
+	assertNull(rejected.headers.get("content-encoding"));
+	assertEquals(rejected.body, expected);
+    }
+
+    @Test
+    public void testModifiedFileIsReloaded() throws Exception {
+	File file = File.createTempFile("asset", ".txt");
+	try {
+	    URL url = file.toURI().toURL();
+	    Files.write(file.toPath(), "first".getBytes(StandardCharsets.US_ASCII));
+	    AssetCache.Asset first = AssetCache.getInstance().get(url);
+	    assertEquals(first.getContent(), "first".getBytes(StandardCharsets.US_ASCII));
+	    assertSame(AssetCache.getInstance().get(url), first);
+
+	    Files.write(file.toPath(), "second content".getBytes(StandardCharsets.US_ASCII));
+	    assertTrue(file.setLastModified(file.lastModified() + 2000));
+	    AssetCache.Asset second = AssetCache.getInstance().get(url);
+	    assertEquals(second.getContent(), "second content".getBytes(StandardCharsets.US_ASCII));
+	    assertNotEquals(second.getETag(false), first.getETag(false));
+	} finally {
+	    file.delete();
+	}
+    }
+
+    @Test
+    public void testRepeatedRequestsAllocateLess() throws Exception {
+	java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+	if (! (bean instanceof com.sun.management.ThreadMXBean)) {
+	    return;
+	}
+	com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+	long tid = Thread.currentThread().getId();
+	BasicHttpRequest req = new BasicHttpRequest("GET", "/favicon.ico");
+
+	AssetCache.getInstance().clear();
+	long before = threads.getThreadAllocatedBytes(tid);
+	assertEquals(handler.handle(req).getStatusLine().getStatusCode(), 200);
+	long first = threads.getThreadAllocatedBytes(tid) - before;
+
+	long repeated = Long.MAX_VALUE;
+	for (int i = 0; i < 5; i++) {
+	    before = threads.getThreadAllocatedBytes(tid);
+	    assertEquals(handler.handle(req).getStatusLine().getStatusCode(), 200);
+	    repeated = Math.min(repeated, threads.getThreadAllocatedBytes(tid) - before);
+	}
+
+	LOG.info("Bytes allocated for favicon.ico: first request={}, repeated request={}", first, repeated);
+	assertTrue(repeated * 2 < first);
+    }
+
+
+    private static byte[] readResource(String name) throws IOException {
+	try (InputStream in = FileUtils.resolveResourceAsStream(FileHandlerTest.class, name)) {
+	    return readAll(in);
+	}
+    }
+
+    private static byte[] gunzip(byte[] data) throws IOException {
+	try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(data))) {
+	    return readAll(in);
+	}
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+	ByteArrayOutputStream out = new ByteArrayOutputStream();
+	byte[] buf = new byte[1024];
+	int num;
+	while ((num = in.read(buf)) != -1) {
+	    out.write(buf, 0, num);
+	}
+	return out.toByteArray();
+    }
+
+    private Response request(String path, Map<String, String> headers) throws IOException {
+	StringBuilder req = new StringBuilder();
+	req.append("GET ").append(path).append(" HTTP/1.1\r\nHost: 127.0.0.1\r\nConnection: close\r\n");
+	for (Map.Entry<String, String> e : headers.entrySet()) {
+	    req.append(e.getKey()).append(": ").append(e.getValue()).append("\r\n");
+	}
+	req.append("\r\n");
+
+	try (Socket s = new Socket(InetAddress.getByName("127.0.0.1"), service.getPort())) {
+	    s.setSoTimeout(10000);
+	    OutputStream out = s.getOutputStream();
+	    out.write(req.toString().getBytes(StandardCharsets.US_ASCII));
+	    out.flush();
+	    byte[] raw = readAll(s.getInputStream());
+	    return new Response(raw);
+	}
+    }
+
+    private static class Response {
+
+	final int status;
+	final Map<String, String> headers = new HashMap<>();
+	final byte[] body;
+	final int length;
+
+	Response(byte[] raw) {
+	    length = raw.length;
+	    String text = new String(raw, StandardCharsets.ISO_8859_1);
+	    int headEnd = text.indexOf("\r\n\r\n");
+	    String[] lines = text.substring(0, headEnd).split("\r\n");
+	    status = Integer.parseInt(lines[0].split(" ")[1]);
+	    for (int i = 1; i < lines.length; i++) {
+		int idx = lines[i].indexOf(':');
+		headers.put(lines[i].substring(0, idx).trim().toLowerCase(), lines[i].substring(idx + 1).trim());
+	    }
+	    body = Arrays.copyOfRange(raw, headEnd + 4, raw.length);
+	}
+
+    }
+
+}
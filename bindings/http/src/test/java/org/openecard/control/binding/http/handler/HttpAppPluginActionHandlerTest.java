@@ -0,0 +1,187 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.control.binding.http.handler;
+
+import ch.qos.logback.classic.Level;
+import java.util.Collections;
+import java.util.Set;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.message.BasicHttpRequest;
+import org.apache.http.protocol.BasicHttpContext;
+import org.openecard.addon.AddonException;
+import org.openecard.addon.AddonManager;
+import org.openecard.addon.AddonNotFoundException;
+import org.openecard.addon.ClasspathRegistry;
+import org.openecard.addon.CombiningRegistry;
+import org.openecard.addon.FileRegistry;
+import org.openecard.addon.manifest.AddonSpecification;
+import org.openecard.common.ClientEnv;
+import org.openecard.common.event.EventDispatcherImpl;
+import org.openecard.common.sal.state.CardStateMap;
+import org.openecard.control.binding.http.common.DocumentRoot;
+import org.openecard.control.binding.http.common.Http11Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import static org.testng.Assert.*;
+
+
+/**
+ * Tests the routing of the plugin action handler and measures the per request overhead of its handler chain.
+ */
+public class HttpAppPluginActionHandlerTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(HttpAppPluginActionHandlerTest.class);
+
+    private static final int WARMUP = 2000;
+    private static final int ITERATIONS = 20000;
+
+    private HttpAppPluginActionHandler handler;
+
+    @BeforeClass
+    public void setUp() throws Exception {
+	ClientEnv env = new ClientEnv();
+	env.setEventDispatcher(new EventDispatcherImpl());
+	AddonManager manager = new AddonManager(env, null, new CardStateMap(), null, new EmptyRegistry());
+	handler = new HttpAppPluginActionHandler(manager, new DocumentRoot("/www", "/www-files"));
+    }
+
+    @Test
+    public void testRouting() throws Exception {
+	HttpResponse res = request("GET", "/");
+	assertEquals(res.getStatusLine().getStatusCode(), HttpStatus.SC_SEE_OTHER);
+	assertEquals(res.getFirstHeader("Location").getValue(), "/index.html");
+
+	res = request("GET", "/css/style.css");
+	assertEquals(res.getStatusLine().getStatusCode(), HttpStatus.SC_OK);
+	assertNotNull(res.getEntity());
+
+	res = request("POST", "/css/style.css");
+	assertEquals(res.getStatusLine().getStatusCode(), HttpStatus.SC_METHOD_NOT_ALLOWED);
+
+	res = request("GET", "/missing");
+	assertEquals(res.getStatusLine().getStatusCode(), HttpStatus.SC_NOT_FOUND);
+    }
+
+    // timing only, it has no assertions and runs with the integration tests
+    @Test(groups={"it"})
+    public void testPerRequestOverhead() throws Exception {
+	// request logging would dominate the measurement
+	ch.qos.logback.classic.Logger httpLogger;
+	httpLogger = (ch.qos.logback.classic.Logger) LoggerFactory.getLogger("org.openecard.control.binding.http");
+	Level oldLevel = httpLogger.getLevel();
+	httpLogger.setLevel(Level.INFO);
+	try {
+	    measure();
+	} finally {
+	    httpLogger.setLevel(oldLevel);
+	}
+    }
+
+    private void measure() throws Exception {
+	for (String path : new String[] { "/", "/css/style.css", "/missing" }) {
+	    for (int i = 0; i < WARMUP; i++) {
+		request("GET", path);
+	    }
+	    long start = System.nanoTime();
+	    for (int i = 0; i < ITERATIONS; i++) {
+		request("GET", path);
+	    }
+	    long perRequest = (System.nanoTime() - start) / ITERATIONS;
+	    LOG.info("Handler chain overhead for {}: {} ns per request", path, perRequest);
+	}
+    }
+
+    private HttpResponse request(String method, String path) throws Exception {
+	BasicHttpRequest req = new BasicHttpRequest(method, path);
+	HttpResponse res = new Http11Response(HttpStatus.SC_OK);
+	handler.handle(req, res, new BasicHttpContext());
+	return res;
+    }
+
+
+    /**
+     * Registry without any add-ons, so that every plugin lookup misses.
+     */
+    private static class EmptyRegistry implements CombiningRegistry {
+
+	@Override
+	public ClasspathRegistry getClasspathRegistry() {
+	    return null;
+	}
+
+	@Override
+	public FileRegistry getFileRegistry() {
+	    return null;
+	}
+
+	@Override
+	public Set<AddonSpecification> listAddons() {
+	    return Collections.emptySet();
+	}
+
+	@Override
+	public Set<AddonSpecification> listInstalledAddons() {
+	    return Collections.emptySet();
+	}
+
+	@Override
+	public AddonSpecification search(String id) throws AddonNotFoundException {
+	    throw new AddonNotFoundException("Add-on " + id + " is not available.");
+	}
+
+	@Override
+	public Set<AddonSpecification> searchByName(String name) {
+	    return Collections.emptySet();
+	}
+
+	@Override
+	public Set<AddonSpecification> searchIFDProtocol(String protocolUri) {
+	    return Collections.emptySet();
+	}
+
+	@Override
+	public Set<AddonSpecification> searchSALProtocol(String protocolUri) {
+	    return Collections.emptySet();
+	}
+
+	@Override
+	public Set<AddonSpecification> searchByActionId(String actionId) {
+	    return Collections.emptySet();
+	}
+
+	@Override
+	public Set<AddonSpecification> searchByResourceName(String resourceName) {
+	    return Collections.emptySet();
+	}
+
+	@Override
+	public ClassLoader downloadAddon(AddonSpecification addonSpec) throws AddonException {
+	    return null;
+	}
+
+    }
+
+}
@@ -0,0 +1,28 @@
+<?xml version="1.0" encoding="UTF-8"?>
+<!--
+  Creates cif-repo/cif-index.properties, which maps each CIF file to its card type.
+  The input is a list of the CIF files in the form <cifs><cif file="name.xml"/>...</cifs>.
+-->
+<xsl:stylesheet version="1.0" xmlns:xsl="http://www.w3.org/1999/XSL/Transform"
+		xmlns:iso="urn:iso:std:iso-iec:24727:tech:schema">
+
+	<xsl:output method="text" encoding="ISO-8859-1"/>
+
+	<!-- URL of the directory containing the CIF files, ending with a slash -->
+	<xsl:param name="cifDir"/>
+
+	<xsl:template match="/cifs">
+		<xsl:text># Card types of the CIF files, generated from the CIFs at build time.&#10;</xsl:text>
+		<xsl:for-each select="cif">
+			<xsl:variable name="cif" select="document(concat($cifDir, @file))"/>
+			<xsl:if test="not($cif/iso:CardInfo/iso:CardType/iso:ObjectIdentifier)">
+				<xsl:message terminate="yes">CIF <xsl:value-of select="@file"/> contains no card type.</xsl:message>
+			</xsl:if>
+			<xsl:value-of select="@file"/>
+			<xsl:text> = </xsl:text>
+			<xsl:value-of select="normalize-space($cif/iso:CardInfo/iso:CardType/iso:ObjectIdentifier)"/>
+			<xsl:text>&#10;</xsl:text>
+		</xsl:for-each>
+	</xsl:template>
+
+</xsl:stylesheet>
@@ -34,6 +34,7 @@ import org.openecard.common.ClientEnv;
 import org.openecard.common.ECardConstants;
 import org.openecard.common.WSHelper;
 import org.openecard.common.event.EventDispatcherImpl;
+import org.openecard.common.event.EventType;
 import org.openecard.common.ifd.scio.TerminalFactory;
 import org.openecard.common.interfaces.Dispatcher;
 import org.openecard.common.interfaces.EventDispatcher;
@@ -208,7 +209,7 @@ public class OpeneCardContext {
 	    // set up SALStateCallback
 	    cardStates = new CardStateMap();
 	    SALStateCallback salCallback = new SALStateCallback(env, cardStates);
-	    eventDispatcher.add(salCallback);
+	    eventDispatcher.add(salCallback, EventType.CARD_RECOGNIZED, EventType.CARD_REMOVED);
 
 	    // set up ifd
 	    ifd = new IFD();
@@ -200,7 +200,7 @@ public final class RichClient {
 	    // Set up StateCallbacks
 	    cardStates = new CardStateMap();
 	    SALStateCallback salCallback = new SALStateCallback(env, cardStates);
-	    eventDispatcher.add(salCallback);
+	    eventDispatcher.add(salCallback, EventType.CARD_RECOGNIZED, EventType.CARD_REMOVED);
 
 
 	    // Set up the IFD
@@ -21,11 +21,15 @@
  ***************************************************************************/
 package org.openecard.common.apdu.utils;
 
+import iso.std.iso_iec._24727.tech.schema.InputAPDUInfoType;
+import iso.std.iso_iec._24727.tech.schema.Transmit;
+import iso.std.iso_iec._24727.tech.schema.TransmitResponse;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import org.openecard.common.WSHelper;
 import org.openecard.common.apdu.ReadBinary;
 import org.openecard.common.apdu.ReadRecord;
 import org.openecard.common.apdu.Select;
@@ -62,6 +66,27 @@ public class CardUtils {
     public static final int FCI_RESPONSE_DATA = 2;
     public static final int FMD_RESPONSE_DATA = 3;
 
+    /**
+     * Maximum number of bytes read with a short READ BINARY command.
+     */
+    public static final int SHORT_LENGTH = 255;
+    /**
+     * Maximum number of bytes which can be requested with an extended length READ BINARY command.
+     */
+    public static final int EXTENDED_LENGTH = 65536;
+
+    private static final byte[] WRONG_LENGTH = new byte[] {(byte) 0x67, (byte) 0x00};
+    private static final List<byte[]> READ_BINARY_RESPONSES = CardCommandStatus.response(new byte[] {(byte) 0x90, 0x00},
+	    new byte[] {(byte) 0x62, (byte) 0x82}, new byte[] {(byte) 0x6A, (byte) 0x84},
+	    new byte[] {(byte) 0x6A, (byte) 0x83}, new byte[] {(byte) 0x6A, (byte) 0x86}, new byte[] {(byte) 0x6B, 0x00},
+	    new byte[] {(byte) 0x6C});
+    private static final List<byte[]> EXTENDED_READ_BINARY_RESPONSES;
+
+    static {
+	EXTENDED_READ_BINARY_RESPONSES = new ArrayList<>(READ_BINARY_RESPONSES);
+	EXTENDED_READ_BINARY_RESPONSES.add(WRONG_LENGTH);
+    }
+
     /**
      * Selects the Master File.
      *
@@ -235,7 +260,7 @@ public class CardUtils {
     }
 
     /**
-     * Reads a file.
+     * Reads a file with short APDUs.
      *
      * @param dispatcher Dispatcher
      * @param slotHandle Slot handle
@@ -244,67 +269,133 @@ public class CardUtils {
      * @throws APDUException
      */
     public static byte[] readFile(FCP fcp, Dispatcher dispatcher, byte[] slotHandle) throws APDUException {
-	ByteArrayOutputStream baos = new ByteArrayOutputStream();
-	// Read 255 bytes per APDU
-	byte length = (byte) 0xFF;
-	short numToRead = -1; // -1 indicates I don't know
+	return readFile(fcp, SHORT_LENGTH, dispatcher, slotHandle);
+    }
+
+    /**
+     * Reads a file.
+     * The content of transparent files is read in chunks of at most {@code maxLength} bytes. Lengths above
+     * {@link #SHORT_LENGTH} result in extended length APDUs, so such values must only be used when the card is known to
+     * support them. If the card or the reader reject an extended length READ BINARY, the file is read with short APDUs
+     * instead. When the size of the file is known from the FCP, all chunks after the first one are sent in a single
+     * Transmit.
+     *
+     * @param fcp File Control Parameters
+     * @param maxLength Maximum number of bytes requested with a single READ BINARY command. Must be between 1 and
+     *   {@link #EXTENDED_LENGTH}.
+     * @param dispatcher Dispatcher
+     * @param slotHandle Slot handle
+     * @return File content
+     * @throws APDUException
+     */
+    public static byte[] readFile(FCP fcp, int maxLength, Dispatcher dispatcher, byte[] slotHandle)
+	    throws APDUException {
+	if (maxLength < 1 || maxLength > EXTENDED_LENGTH) {
+	    throw new IllegalArgumentException("Invalid maximum length for READ BINARY commands given.");
+	}
+
+	if (isRecordEF(fcp)) {
+	    return readRecords(dispatcher, slotHandle);
+	} else {
+	    return readBinary(fcp, maxLength, dispatcher, slotHandle);
+	}
+    }
+
+    private static byte[] readBinary(FCP fcp, int maxLength, Dispatcher dispatcher, byte[] slotHandle)
+	    throws APDUException {
+	long startTime = System.nanoTime();
+	int numToRead = -1; // -1 indicates I don't know
 	if (fcp != null) {
 	    Long fcpNumBytes = fcp.getNumBytes();
 	    if (fcpNumBytes != null) {
-		// more than short is not possible and besides that very unrealistic
-		numToRead = fcpNumBytes.shortValue();
-		// reduce readout size
-		if (numToRead < 255) {
-		    length = (byte) numToRead;
-		}
+		// offsets above 32767 can not be addressed with READ BINARY, so more is not possible
+		numToRead = (int) Math.min(fcpNumBytes, Short.MAX_VALUE);
 	    }
 	}
 
-	boolean isRecord = isRecordEF(fcp);
-	byte i = (byte) (isRecord ? 1 : 0); // records start at index 1
-	short numRead = 0;
+	ByteArrayOutputStream baos = new ByteArrayOutputStream(numToRead > 0 ? numToRead : SHORT_LENGTH);
+	int length = maxLength;
+	int numRead = 0;
+	int numCommands = 0;
+	// Le demanded by the card with 6Cxx for the current offset, -1 if there is none
+	int requestedLength = -1;
 
 	try {
-	    CardResponseAPDU response;
-	    byte[] trailer;
-	    int lastNumRead = 0;
 	    boolean goAgain;
 	    do {
-		if (! isRecord) {
-		    CardCommandAPDU readBinary = new ReadBinary(numRead, length);
+		// reduce readout size when the remaining part of the file is smaller
+		// the length demanded by the card is used as is, even if the FCP indicates less remaining bytes
+		int remainingBytes = numToRead - numRead;
+		int chunkLength;
+		if (requestedLength > 0) {
+		    chunkLength = requestedLength;
+		} else {
+		    chunkLength = remainingBytes > 0 ? Math.min(length, remainingBytes) : length;
+		}
+		// an Le of 256 is still encoded in a short APDU
+		boolean extended = chunkLength > SHORT_LENGTH + 1;
+
+		CardResponseAPDU response;
+		try {
+		    numCommands++;
+		    CardCommandAPDU readBinary = makeReadBinary(numRead, chunkLength);
 		    // 0x6A84 code for the estonian identity card. The card returns this code
 		    // after the last read process.
-		    response = readBinary.transmit(dispatcher, slotHandle, CardCommandStatus.response(0x9000, 0x6282,
-			    0x6A84, 0x6A83, 0x6A86, 0x6B00));
-		} else {
-		    CardCommandAPDU readRecord = new ReadRecord((byte) i);
-		    response = readRecord.transmit(dispatcher, slotHandle, CardCommandStatus.response(0x9000, 0x6282,
-			    0x6A84, 0x6A83));
+		    response = readBinary.transmit(dispatcher, slotHandle, extended ? EXTENDED_READ_BINARY_RESPONSES
+			    : READ_BINARY_RESPONSES);
+		} catch (APDUException ex) {
+		    if (extended && ex.getResponseAPDU() == null) {
+			// the reader or the driver could not deal with the command
+			LOG.info("Extended length READ BINARY failed, falling back to short APDUs.", ex);
+			length = SHORT_LENGTH;
+			goAgain = true;
+			continue;
+		    }
+		    throw ex;
 		}
 
-		trailer = response.getTrailer();
-		if (! Arrays.equals(trailer, new byte[] {(byte) 0x6A, (byte) 0x84}) &&
-			! Arrays.equals(trailer, new byte[] {(byte) 0x6A, (byte) 0x83}) &&
-			! Arrays.equals(trailer, new byte[] {(byte) 0x6A, (byte) 0x86})) {
+		byte[] trailer = response.getTrailer();
+		if (trailer[0] == (byte) 0x6C) {
+		    // the card tells us how many bytes it can deliver at this offset
+		    int exactLength = trailer[1] == 0 ? SHORT_LENGTH + 1 : trailer[1] & 0xFF;
+		    if (requestedLength > 0 || exactLength == chunkLength) {
+			// the card rejected the length it demanded itself, another retry would not end
+			throw new APDUException(response.getStatusMessage());
+		    }
+		    LOG.debug("Card requested READ BINARY with Le={}.", exactLength);
+		    length = exactLength;
+		    requestedLength = exactLength;
+		    goAgain = true;
+		    continue;
+		} else if (extended && Arrays.equals(trailer, WRONG_LENGTH)) {
+		    LOG.info("Card rejected extended length READ BINARY, falling back to short APDUs.");
+		    length = SHORT_LENGTH;
+		    goAgain = true;
+		    continue;
+		}
+		requestedLength = -1;
+
+		int lastNumRead = 0;
+		if (! isEndOfFile(trailer)) {
 		    byte[] data = response.getData();
 		    // some cards are just pure shit and return 9000 when no bytes have been read
 		    baos.write(data);
 		    lastNumRead = data.length;
 		    numRead += lastNumRead;
 		}
-		i++;
 
 		// update length value
-		goAgain = response.isNormalProcessed() && lastNumRead != 0
-			|| (Arrays.equals(trailer, new byte[]{(byte) 0x62, (byte) 0x82}) && isRecord);
+		goAgain = response.isNormalProcessed() && lastNumRead != 0;
 		if (goAgain && numToRead != -1) {
 		    // we have a limit, enforce it
-		    short remainingBytes = (short) (numToRead - numRead);
-		    if (remainingBytes <= 0) {
+		    if (numToRead - numRead <= 0) {
 			goAgain = false;
-		    } else if (remainingBytes < 255) {
-			// update length when we reached the area below 255
-			length = (byte) remainingBytes;
+		    } else if (lastNumRead == chunkLength) {
+			// the chunk size works, so request all missing chunks at once
+			int batchRead = readBinaryBatch(dispatcher, slotHandle, baos, numRead, numToRead, chunkLength);
+			numCommands += (numToRead - numRead + chunkLength - 1) / chunkLength;
+			numRead += batchRead;
+			goAgain = numRead < numToRead;
 		    }
 		}
 	    } while (goAgain);
@@ -313,6 +404,109 @@ public class CardUtils {
 	    throw new APDUException(e);
 	}
 
+	if (LOG.isDebugEnabled()) {
+	    long duration = (System.nanoTime() - startTime) / 1000000;
+	    LOG.debug("Read {} bytes with {} READ BINARY commands in {} ms.", numRead, numCommands, duration);
+	}
+
+	return baos.toByteArray();
+    }
+
+    /**
+     * Reads the rest of a transparent file with one Transmit containing all READ BINARY commands.
+     * Processing stops at the first response which does not contain the complete chunk. The missing part of the file
+     * is then left to the caller.
+     *
+     * @return The number of bytes read and written to {@code out}.
+     */
+    private static int readBinaryBatch(Dispatcher dispatcher, byte[] slotHandle, ByteArrayOutputStream out,
+	    int offset, int numToRead, int chunkLength) throws APDUException, IOException {
+	Transmit t = new Transmit();
+	t.setSlotHandle(slotHandle);
+	List<Integer> expectedLengths = new ArrayList<>();
+	for (int i = offset; i < numToRead; i += chunkLength) {
+	    int le = Math.min(chunkLength, numToRead - i);
+	    InputAPDUInfoType apdu = new InputAPDUInfoType();
+	    apdu.setInputAPDU(makeReadBinary(i, le).toByteArray());
+	    apdu.getAcceptableStatusCode().addAll(CardCommandStatus.response(0x9000, 0x6282));
+	    t.getInputAPDUInfo().add(apdu);
+	    expectedLengths.add(le);
+	}
+
+	TransmitResponse tr;
+	try {
+	    tr = (TransmitResponse) dispatcher.safeDeliver(t);
+	} catch (RuntimeException ex) {
+	    throw new APDUException(ex);
+	}
+	// an unexpected response only ends the batch, the caller repeats that command on its own
+	if (tr.getOutputAPDU().isEmpty()) {
+	    try {
+		WSHelper.checkResult(tr);
+	    } catch (WSHelper.WSException ex) {
+		throw new APDUException(ex, tr);
+	    }
+	}
+
+	int numRead = 0;
+	for (int i = 0; i < tr.getOutputAPDU().size(); i++) {
+	    CardResponseAPDU response = new CardResponseAPDU(tr.getOutputAPDU().get(i));
+	    if (! response.isNormalProcessed()) {
+		break;
+	    }
+	    byte[] data = response.getData();
+	    out.write(data);
+	    numRead += data.length;
+	    // the offsets of the following commands are wrong when the card returned less than requested
+	    if (data.length != expectedLengths.get(i)) {
+		break;
+	    }
+	}
+	return numRead;
+    }
+
+    private static CardCommandAPDU makeReadBinary(int offset, int length) {
+	CardCommandAPDU readBinary = new ReadBinary((short) offset, (byte) 0xFF);
+	readBinary.setLE(length);
+	return readBinary;
+    }
+
+    private static boolean isEndOfFile(byte[] trailer) {
+	return Arrays.equals(trailer, new byte[] {(byte) 0x6A, (byte) 0x84}) ||
+		Arrays.equals(trailer, new byte[] {(byte) 0x6A, (byte) 0x83}) ||
+		Arrays.equals(trailer, new byte[] {(byte) 0x6A, (byte) 0x86});
+    }
+
+    private static byte[] readRecords(Dispatcher dispatcher, byte[] slotHandle) throws APDUException {
+	ByteArrayOutputStream baos = new ByteArrayOutputStream();
+	byte i = 1; // records start at index 1
+
+	try {
+	    CardResponseAPDU response;
+	    byte[] trailer;
+	    boolean goAgain;
+	    do {
+		CardCommandAPDU readRecord = new ReadRecord((byte) i);
+		response = readRecord.transmit(dispatcher, slotHandle, CardCommandStatus.response(0x9000, 0x6282,
+			0x6A84, 0x6A83));
+
+		trailer = response.getTrailer();
+		int lastNumRead = 0;
+		if (! isEndOfFile(trailer)) {
+		    byte[] data = response.getData();
+		    baos.write(data);
+		    lastNumRead = data.length;
+		}
+		i++;
+
+		goAgain = response.isNormalProcessed() && lastNumRead != 0
+			|| Arrays.equals(trailer, new byte[]{(byte) 0x62, (byte) 0x82});
+	    } while (goAgain);
+	    baos.close();
+	} catch (IOException e) {
+	    throw new APDUException(e);
+	}
+
 	return baos.toByteArray();
     }
 
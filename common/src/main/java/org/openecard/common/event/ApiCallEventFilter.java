@@ -0,0 +1,74 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.common.event;
+
+import iso.std.iso_iec._24727.tech.schema.RequestType;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.openecard.common.interfaces.EventFilter;
+
+
+/**
+ * Filter matching the API call events of particular request types.
+ * The {@link EventDispatcherImpl} evaluates this filter when the events are produced, so that API call events for
+ * other request types are not created at all.
+ */
+public class ApiCallEventFilter implements EventFilter {
+
+    private final List<Class<? extends RequestType>> requestClasses;
+
+    /**
+     * Creates a filter matching the {@link EventType#API_CALL_STARTED} and {@link EventType#API_CALL_FINISHED} events
+     * of the given request types.
+     *
+     * @param requestClasses Request classes the events are created for. Subclasses are matched as well.
+     */
+    @SafeVarargs
+    public ApiCallEventFilter(Class<? extends RequestType>... requestClasses) {
+	this.requestClasses = Collections.unmodifiableList(Arrays.asList(requestClasses.clone()));
+    }
+
+    boolean matchesRequest(Class<?> reqClass) {
+	for (Class<?> next : requestClasses) {
+	    if (next.isAssignableFrom(reqClass)) {
+		return true;
+	    }
+	}
+	return false;
+    }
+
+    static boolean isApiCallEvent(EventType t) {
+	return t == EventType.API_CALL_STARTED || t == EventType.API_CALL_FINISHED;
+    }
+
+    @Override
+    public boolean matches(EventType t, Object o) {
+	if (isApiCallEvent(t) && o instanceof ApiCallEventObject) {
+	    RequestType req = ((ApiCallEventObject) o).getRequest();
+	    return req != null && matchesRequest(req.getClass());
+	}
+	return false;
+    }
+
+}
@@ -23,14 +23,20 @@
 package org.openecard.common.event;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import org.openecard.common.interfaces.EventCallback;
 import org.openecard.common.interfaces.EventDispatcher;
 import org.openecard.common.interfaces.EventFilter;
@@ -41,6 +47,21 @@ import org.slf4j.LoggerFactory;
 /**
  * EventDispatcherImpl class distributing the events to all registered listeners.
  * Filtering is applied as requested at registration of the listener.
+ * <p>
+ * The listeners are indexed by the event types they are registered for, so that only listeners which are interested
+ * in an event are checked when it is fired. Listeners registered with custom filters are checked for every event.
+ * </p>
+ * <p>
+ * Each listener has its own queue and its own delivery thread, so that a listener receives its events in the order
+ * they have been fired and a listener which blocks in its callback does not delay the delivery to other listeners.
+ * The thread is only kept while the listener has pending events. Events which arrive while a listener is busy are
+ * delivered in one batch by the same task.
+ * </p>
+ * <p>
+ * The index is also used to answer {@link #hasCallbacks(EventType, Class)}, so that producers can omit events nobody
+ * has registered for. Listeners registered with an {@link ApiCallEventFilter} limit this interest to particular
+ * request types.
+ * </p>
  *
  * @author Tobias Wich
  * @author René Lottes
@@ -49,10 +70,19 @@ public class EventDispatcherImpl implements EventDispatcher {
 
     private static final Logger LOG = LoggerFactory.getLogger(EventDispatcherImpl.class);
 
+    private static final int MAX_BATCH_SIZE = 64;
+    private static final long IDLE_TIMEOUT = 60;
+    private static final Subscription[] NO_SUBSCRIPTIONS = new Subscription[0];
+
     private final ThreadFactory threadFactory;
 
-    private ConcurrentHashMap<EventCallback, ArrayList<EventFilter>> eventFilter;
-    private HashMap<EventCallback, ExecutorService> threadPools;
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final AtomicLong maxDeliveryLag = new AtomicLong();
+
+    private LinkedHashMap<EventCallback, Subscription> subscriptions;
+    // immutable snapshots of the subscriptions which must be checked for each event type and their interest
+    private volatile EnumMap<EventType, Subscription[]> subscriptionIndex;
+    private volatile EnumMap<EventType, Interest> interestIndex;
     private boolean initialized;
 
     public EventDispatcherImpl() {
@@ -73,23 +103,24 @@ public class EventDispatcherImpl implements EventDispatcher {
 
     @Override
     public synchronized void start() {
-	this.eventFilter = new ConcurrentHashMap<>();
-	this.threadPools = new HashMap<>();
+	this.subscriptions = new LinkedHashMap<>();
 
 	this.initialized = true;
+	updateIndex();
     }
 
     @Override
     public synchronized void terminate() {
 	if (initialized) {
-	    // remove everything and thereby shutdown thread pools
-	    for (EventCallback entry : Collections.list(eventFilter.keys())) {
-		del(entry);
+	    // remove everything and thereby stop the delivery
+	    for (Subscription sub : subscriptions.values()) {
+		sub.cancel();
 	    }
 
 	    initialized = false;
-	    eventFilter = null;
-	    threadPools = null;
+	    subscriptions = null;
+	    subscriptionIndex = null;
+	    interestIndex = null;
 	}
     }
 
@@ -109,47 +140,263 @@ public class EventDispatcherImpl implements EventDispatcher {
     @Override
     public synchronized EventCallback add(EventCallback cb, EventFilter filter) {
 	if (initialized) {
-	    if (! eventFilter.containsKey(cb)) {
-		eventFilter.put(cb, new ArrayList<>());
+	    Subscription sub = subscriptions.get(cb);
+	    if (sub == null) {
+		sub = new Subscription(cb);
+		subscriptions.put(cb, sub);
 	    }
-	    eventFilter.get(cb).add(filter);
-	    // create an executor service for each callback
-	    createExecutorService(cb);
+	    sub.filters.add(filter);
+	    updateIndex();
 	}
 	return cb;
     }
 
     @Override
     public synchronized EventCallback del(EventCallback cb) {
-	if (initialized && eventFilter.containsKey(cb)) {
-	    eventFilter.remove(cb);
-	    ExecutorService exec = threadPools.remove(cb);
-	    exec.shutdownNow();
+	if (initialized) {
+	    Subscription sub = subscriptions.remove(cb);
+	    if (sub != null) {
+		sub.cancel();
+		updateIndex();
+	    }
 	}
 	return cb;
     }
 
     @Override
-    public synchronized void notify(EventType t, EventObject o) {
-	if (initialized) {
-	    for (Map.Entry<EventCallback, ArrayList<EventFilter>> entry : eventFilter.entrySet()) {
-		EventCallback cb = entry.getKey();
-		for (EventFilter filter : entry.getValue()) {
-		    // when there is a filter match, then fire out the event (only once!)
-		    if (filter.matches(t, o)) {
-			LOG.debug("Sending event notification {} to EventCallback {}.", t, cb);
-			ExecutorService executor = threadPools.get(cb);
-			executor.execute(() -> cb.signalEvent(t, o));
-			break;
+    public void notify(EventType t, EventObject o) {
+	EnumMap<EventType, Subscription[]> index = subscriptionIndex;
+	if (index != null) {
+	    for (Subscription sub : index.get(t)) {
+		// when there is a filter match, then fire out the event (only once!)
+		if (sub.matches(t, o)) {
+		    LOG.debug("Sending event notification {} to EventCallback {}.", t, sub.cb);
+		    sub.enqueue(t, o);
+		}
+	    }
+	}
+    }
+
+    @Override
+    public boolean hasCallbacks(EventType t, Class<?> msgClass) {
+	EnumMap<EventType, Interest> index = interestIndex;
+	if (index != null) {
+	    return index.get(t).matches(msgClass);
+	}
+	return false;
+    }
+
+    /**
+     * Gets the number of events which have been fired, but are not yet delivered.
+     *
+     * @return The number of pending events.
+     */
+    public int getQueueDepth() {
+	return queueDepth.get();
+    }
+
+    /**
+     * Gets the maximum time an event has been waiting for its delivery since the dispatcher has been created.
+     *
+     * @return The maximum delivery lag in milliseconds.
+     */
+    public long getMaxDeliveryLag() {
+	return TimeUnit.NANOSECONDS.toMillis(maxDeliveryLag.get());
+    }
+
+    /**
+     * Rebuilds the event type index from the current subscriptions.
+     * Must be called while holding the lock of this instance.
+     */
+    private void updateIndex() {
+	EnumMap<EventType, List<Subscription>> tmp = new EnumMap<>(EventType.class);
+	for (EventType t : EventType.values()) {
+	    tmp.put(t, new ArrayList<>());
+	}
+
+	for (Subscription sub : subscriptions.values()) {
+	    for (EventType t : EventType.values()) {
+		if (sub.isCandidate(t)) {
+		    tmp.get(t).add(sub);
+		}
+	    }
+	}
+
+	EnumMap<EventType, Subscription[]> index = new EnumMap<>(EventType.class);
+	EnumMap<EventType, Interest> interests = new EnumMap<>(EventType.class);
+	for (Map.Entry<EventType, List<Subscription>> e : tmp.entrySet()) {
+	    List<Subscription> subs = e.getValue();
+	    index.put(e.getKey(), subs.isEmpty() ? NO_SUBSCRIPTIONS : subs.toArray(new Subscription[subs.size()]));
+	    interests.put(e.getKey(), new Interest(e.getKey(), subs));
+	}
+	interestIndex = interests;
+	subscriptionIndex = index;
+    }
+
+    private void updateMaxLag(long lag) {
+	long cur;
+	do {
+	    cur = maxDeliveryLag.get();
+	} while (lag > cur && ! maxDeliveryLag.compareAndSet(cur, lag));
+    }
+
+
+    /**
+     * Registered callback together with its filters, queue of pending events and delivery thread.
+     */
+    private class Subscription {
+
+	private final EventCallback cb;
+	private final ThreadPoolExecutor exec;
+	private final CopyOnWriteArrayList<EventFilter> filters;
+	private final ConcurrentLinkedQueue<PendingEvent> queue;
+	private final AtomicBoolean scheduled;
+	private volatile boolean cancelled;
+
+	Subscription(EventCallback cb) {
+	    this.cb = cb;
+	    // the thread is only needed while events are pending
+	    this.exec = new ThreadPoolExecutor(1, 1, IDLE_TIMEOUT, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+		    threadFactory);
+	    this.exec.allowCoreThreadTimeOut(true);
+	    this.filters = new CopyOnWriteArrayList<>();
+	    this.queue = new ConcurrentLinkedQueue<>();
+	    this.scheduled = new AtomicBoolean(false);
+	}
+
+	boolean isCandidate(EventType t) {
+	    for (EventFilter filter : filters) {
+		if (isCandidate(filter, t)) {
+		    return true;
+		}
+	    }
+	    return false;
+	}
+
+	private boolean isCandidate(EventFilter filter, EventType t) {
+	    if (filter instanceof EventTypeFilter) {
+		return ((EventTypeFilter) filter).getEventTypes().contains(t);
+	    } else if (filter instanceof ApiCallEventFilter) {
+		return ApiCallEventFilter.isApiCallEvent(t);
+	    } else {
+		// custom filters must be asked for every event
+		return true;
+	    }
+	}
+
+	boolean matches(EventType t, Object o) {
+	    for (EventFilter filter : filters) {
+		if (filter.matches(t, o)) {
+		    return true;
+		}
+	    }
+	    return false;
+	}
+
+	void enqueue(EventType t, EventObject o) {
+	    if (cancelled) {
+		return;
+	    }
+	    queue.add(new PendingEvent(t, o));
+	    queueDepth.incrementAndGet();
+	    schedule();
+	}
+
+	void cancel() {
+	    cancelled = true;
+	    while (queue.poll() != null) {
+		queueDepth.decrementAndGet();
+	    }
+	    exec.shutdownNow();
+	}
+
+	private void schedule() {
+	    if (scheduled.compareAndSet(false, true)) {
+		try {
+		    exec.execute(this::drain);
+		} catch (RejectedExecutionException ex) {
+		    LOG.debug("Event dispatcher is terminated, dropping events for EventCallback {}.", cb);
+		    scheduled.set(false);
+		}
+	    }
+	}
+
+	private void drain() {
+	    PendingEvent next;
+	    int num = 0;
+	    while (num < MAX_BATCH_SIZE && (next = queue.poll()) != null) {
+		queueDepth.decrementAndGet();
+		num++;
+		if (! cancelled) {
+		    updateMaxLag(System.nanoTime() - next.timestamp);
+		    try {
+			cb.signalEvent(next.type, next.obj);
+		    } catch (RuntimeException ex) {
+			LOG.error("EventCallback " + cb + " failed to process event " + next.type + ".", ex);
+		    }
+		}
+	    }
+	    scheduled.set(false);
+	    // events may have been added after the queue has been drained, or the batch size is exceeded
+	    if (! queue.isEmpty()) {
+		schedule();
+	    }
+	}
+
+    }
+
+    /**
+     * Interest of the registered callbacks in one event type.
+     */
+    private static class Interest {
+
+	private final boolean all;
+	private final List<ApiCallEventFilter> requestFilters;
+
+	Interest(EventType t, List<Subscription> subs) {
+	    boolean allTmp = false;
+	    List<ApiCallEventFilter> filtersTmp = new ArrayList<>();
+	    for (Subscription sub : subs) {
+		for (EventFilter filter : sub.filters) {
+		    if (filter instanceof ApiCallEventFilter) {
+			if (ApiCallEventFilter.isApiCallEvent(t)) {
+			    filtersTmp.add((ApiCallEventFilter) filter);
+			}
+		    } else if (sub.isCandidate(filter, t)) {
+			allTmp = true;
 		    }
 		}
 	    }
+	    this.all = allTmp;
+	    this.requestFilters = filtersTmp;
 	}
+
+	boolean matches(Class<?> msgClass) {
+	    if (all) {
+		return true;
+	    }
+	    for (ApiCallEventFilter filter : requestFilters) {
+		if (filter.matchesRequest(msgClass)) {
+		    return true;
+		}
+	    }
+	    return false;
+	}
+
     }
 
-    private void createExecutorService(EventCallback cb) {
-	ExecutorService executor = Executors.newSingleThreadExecutor(threadFactory);
-	threadPools.put(cb, executor);
+    private static class PendingEvent {
+
+	private final EventType type;
+	private final EventObject obj;
+	private final long timestamp;
+
+	PendingEvent(EventType type, EventObject obj) {
+	    this.type = type;
+	    this.obj = obj;
+	    this.timestamp = System.nanoTime();
+	}
+
     }
 
 }
@@ -22,8 +22,10 @@
 
 package org.openecard.common.event;
 
-import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
 import org.openecard.common.interfaces.EventFilter;
 
 /**
@@ -32,25 +34,29 @@ import org.openecard.common.interfaces.EventFilter;
  */
 class EventTypeFilter implements EventFilter {
 
-    private final ArrayList<EventType> eventType;
+    private final EnumSet<EventType> eventType;
 
     public EventTypeFilter(EventType ... eventType) {
 	if (eventType.length == 0) {
-	    this.eventType = new ArrayList<>(Arrays.asList(EventType.values()));
+	    this.eventType = EnumSet.allOf(EventType.class);
 	} else {
-	    this.eventType = new ArrayList<>(Arrays.asList(eventType));
+	    this.eventType = EnumSet.copyOf(Arrays.asList(eventType));
 	}
     }
 
+    /**
+     * Gets the event types matched by this filter.
+     *
+     * @return Unmodifiable set of the event types.
+     */
+    Set<EventType> getEventTypes() {
+	return Collections.unmodifiableSet(eventType);
+    }
+
 
     @Override
     public boolean matches(EventType t, Object o) {
-	for (EventType next : eventType) {
-	    if (t.equals(next)) {
-		return true;
-	    }
-	}
-	return false;
+	return eventType.contains(t);
     }
 
 }
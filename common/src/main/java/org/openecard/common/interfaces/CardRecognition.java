@@ -27,6 +27,7 @@ import iso.std.iso_iec._24727.tech.schema.ConnectionHandleType.RecognitionInfo;
 import java.io.InputStream;
 import java.math.BigInteger;
 import java.util.List;
+import javax.annotation.Nullable;
 
 
 /**
@@ -53,4 +54,20 @@ public interface CardRecognition {
 
     RecognitionInfo recognizeCard(byte[] ctx, String ifdName, BigInteger slot) throws RecognitionException;
 
+    /**
+     * Recognizes the card in the defined reader.
+     * The card identifier (ATR/ATS) may be used by the implementation to speed up the recognition.
+     *
+     * @param ctx Context handle of the IFD.
+     * @param ifdName Name of the card reader.
+     * @param slot Index of the slot in the reader.
+     * @param cardIdentifier ATR or ATS of the card, or {@code null} if it is not known.
+     * @return Recognition info with the card type, or {@code null} if the card is not recognized.
+     * @throws RecognitionException Thrown in case there was an error in the recognition.
+     */
+    default RecognitionInfo recognizeCard(byte[] ctx, String ifdName, BigInteger slot, @Nullable byte[] cardIdentifier)
+	    throws RecognitionException {
+	return recognizeCard(ctx, ifdName, slot);
+    }
+
 }
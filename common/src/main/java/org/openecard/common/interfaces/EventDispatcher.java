@@ -22,6 +22,7 @@
 
 package org.openecard.common.interfaces;
 
+import javax.annotation.Nonnull;
 import org.openecard.common.event.EventObject;
 import org.openecard.common.event.EventType;
 
@@ -45,5 +46,18 @@ public interface EventDispatcher {
     EventCallback del(EventCallback cb);
     
     void notify(EventType t, EventObject o);
-    
+
+    /**
+     * Checks whether an event of the given type caused by a message of the given class may be delivered to a callback.
+     * Producers of events which are expensive to create can use this method to omit the event if nobody is interested
+     * in it. Implementations which can not determine this must return {@code true}.
+     *
+     * @param t The type of the event.
+     * @param msgClass The class of the message causing the event.
+     * @return {@code false} if the event is certainly not delivered to any callback, {@code true} otherwise.
+     */
+    default boolean hasCallbacks(@Nonnull EventType t, @Nonnull Class<?> msgClass) {
+	return true;
+    }
+
 }
@@ -0,0 +1,253 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.common.tlv;
+
+
+/**
+ * Decoder for the tag and length octets of a BER encoded element.
+ * The decoder works on an offset range of a shared input array, so that no part of the input has to be copied in order
+ * to locate the value or the following sibling of an element. An instance holds the values of the last decoded header
+ * and can be reused for subsequent elements.
+ */
+final class BERHeader {
+
+    /** Class, encoding and tag number bits of the first tag octet. */
+    int leadingBits;
+    long tagNum;
+    long tagNumWithClass;
+    boolean primitive;
+
+    int offset;
+    int valueOffset;
+    int valueLength;
+    /** Offset of the first octet behind this element, including the end of contents octets. */
+    int end;
+
+
+    TagClass getTagClass() {
+	return TagClass.getTagClass((byte) leadingBits);
+    }
+
+    Tag toTag() {
+	Tag tag = new Tag(getTagClass(), primitive, tagNum);
+	tag.numOctets = valueOffset - offset;
+	return tag;
+    }
+
+    /**
+     * Decodes the tag octets starting at the given offset.
+     *
+     * @param data Input containing the element.
+     * @param offset Offset of the first tag octet.
+     * @param limit Offset behind the last octet which may be used by the element.
+     * @return Offset of the first octet behind the tag.
+     * @throws TLVException Thrown in case the tag is truncated or the tag number does not fit into a 64 bit word.
+     */
+    int readTag(byte[] data, int offset, int limit) throws TLVException {
+	if (offset >= limit) {
+	    throw new TLVException("Not enough bytes in input bytes to build TLV tag.");
+	}
+	this.offset = offset;
+	int first = data[offset] & 0xFF;
+	leadingBits = first & 0xE0;
+	primitive = (first & 0x20) == 0;
+
+	int numOctets = 1;
+	if ((first & 0x1F) <= 30) {
+	    // short form
+	    tagNum = first & 0x1F;
+	} else {
+	    // long form, read as long as it is not the last octet
+	    long num = 0;
+	    int next;
+	    do {
+		if (numOctets * 7 > 64) {
+		    throw new TLVException("Tag number doesn't fit into a 64 bit word.");
+		} else if (offset + numOctets >= limit) {
+		    throw new TLVException("Not enough bytes in input bytes to build TLV tag.");
+		}
+		next = data[offset + numOctets] & 0xFF;
+		numOctets++;
+		num = (num << 7) | (next & 0x7F);
+	    } while ((next & 0x80) == 0x80);
+	    tagNum = num;
+	}
+
+	tagNumWithClass = encodeTag(leadingBits, tagNum);
+	return offset + numOctets;
+    }
+
+    /**
+     * Decodes tag and length octets of the element starting at the given offset.
+     * After this method returns, the value of the element is located at {@link #valueOffset} and spans
+     * {@link #valueLength} octets.
+     *
+     * @param data Input containing the element.
+     * @param offset Offset of the first tag octet.
+     * @param limit Offset behind the last octet which may be used by the element.
+     * @throws TLVException Thrown in case the header is malformed or the element exceeds the limit.
+     */
+    void read(byte[] data, int offset, int limit) throws TLVException {
+	int pos = readTag(data, offset, limit);
+	if (pos >= limit) {
+	    throw new TLVException("Not enough bytes in input to read TLV length.");
+	}
+
+	int lenByte = data[pos] & 0xFF;
+	pos++;
+	int dataLength;
+	boolean endOfContents = false;
+	if ((lenByte & 0x80) == 0) {
+	    // short form
+	    dataLength = lenByte;
+	} else if ((lenByte & 0x7F) == 0x00) {
+	    // indefinite form, loop through content to find termination point
+	    endOfContents = true;
+	    int i = 0;
+	    boolean endFound = false;
+	    boolean zeroFound = false;
+	    do {
+		if (pos + i >= limit) {
+		    throw new TLVException("Not enough bytes in input to read TLV length.");
+		}
+		if (data[pos + i] == 0x00) {
+		    if (zeroFound) {
+			endFound = true;
+		    } else {
+			zeroFound = true;
+		    }
+		} else {
+		    zeroFound = false;
+		}
+		i++;
+	    } while (! endFound);
+	    dataLength = i - 2;
+	} else {
+	    // long form, first byte indicates number of length bytes
+	    int numLengthBytes = lenByte & 0x7F;
+	    long len = 0;
+	    for (int i = 0; i < numLengthBytes; i++) {
+		if (i * 8 > 32) {
+		    throw new TLVException("Length doesn't fit into a 32 bit word.");
+		} else if (pos >= limit) {
+		    throw new TLVException("Not enough bytes in input to read TLV length.");
+		}
+		len = (len << 8) | (data[pos] & 0xFF);
+		pos++;
+	    }
+	    if (len > Integer.MAX_VALUE) {
+		throw new TLVException("Length doesn't fit into a 32 bit word.");
+	    }
+	    dataLength = (int) len;
+	}
+
+	valueOffset = pos;
+	valueLength = dataLength;
+	long endPos = (long) pos + dataLength + (endOfContents ? 2 : 0);
+	if (endPos > limit) {
+	    throw new TLVException("Data length and claimed length do not match.");
+	}
+	end = (int) endPos;
+    }
+
+
+    /**
+     * Calculates the numeric tag representation used by {@link Tag#getTagNumWithClass()} without creating any
+     * intermediate objects.
+     *
+     * @param leadingBits Class and encoding bits of the first tag octet.
+     * @param tagNum Tag number.
+     * @return Tag octets in their shortest form interpreted as a big endian number.
+     */
+    static long encodeTag(int leadingBits, long tagNum) {
+	if (tagNum < 31) {
+	    return leadingBits | tagNum;
+	}
+	int numGroups = (64 - Long.numberOfLeadingZeros(tagNum) + 6) / 7;
+	long result = leadingBits | 0x1F;
+	for (int i = numGroups - 1; i >= 0; i--) {
+	    long group = (tagNum >>> (7 * i)) & 0x7F;
+	    if (i > 0) {
+		group |= 0x80;
+	    }
+	    result = (result << 8) | group;
+	}
+	return result;
+    }
+
+    /**
+     * Gets the number of octets needed to encode the given value as an unsigned big endian number.
+     *
+     * @param value Non negative value.
+     * @return Number of octets, at least 1.
+     */
+    static int numOctets(long value) {
+	if (value == 0) {
+	    return 1;
+	}
+	return (64 - Long.numberOfLeadingZeros(value) + 7) / 8;
+    }
+
+    /**
+     * Gets the number of octets needed for the length field of a value with the given length.
+     *
+     * @param valueLength Length of the value.
+     * @return Number of length octets.
+     */
+    static int lengthOctets(int valueLength) {
+	if (valueLength <= 127) {
+	    return 1;
+	} else {
+	    return 1 + numOctets(valueLength);
+	}
+    }
+
+    /**
+     * Writes tag and length octets into the given buffer.
+     *
+     * @param tagNumWithClass Tag as returned by {@link Tag#getTagNumWithClass()}.
+     * @param valueLength Length of the value following the header.
+     * @param out Buffer receiving the octets.
+     * @param offset Offset of the first octet to write.
+     * @return Offset behind the last written octet.
+     */
+    static int writeHeader(long tagNumWithClass, int valueLength, byte[] out, int offset) {
+	offset = writeNumber(tagNumWithClass, numOctets(tagNumWithClass), out, offset);
+	if (valueLength <= 127) {
+	    out[offset++] = (byte) valueLength;
+	} else {
+	    int numLen = numOctets(valueLength);
+	    out[offset++] = (byte) (0x80 | numLen);
+	    offset = writeNumber(valueLength, numLen, out, offset);
+	}
+	return offset;
+    }
+
+    private static int writeNumber(long value, int numOctets, byte[] out, int offset) {
+	for (int i = numOctets - 1; i >= 0; i--) {
+	    out[offset++] = (byte) (value >>> (8 * i));
+	}
+	return offset;
+    }
+
+}
@@ -22,8 +22,6 @@
 
 package org.openecard.common.tlv;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
 import java.util.LinkedList;
 import java.util.List;
 import org.openecard.common.util.ByteUtils;
@@ -32,6 +30,15 @@ import org.openecard.common.util.ByteUtils;
 /**
  * Class representing a TLV object according to the ASN1 specification.
  * This class is capable of representing sequences and has features to navigation in an ASN1 tree.
+ * <p>
+ * Objects created by {@link #fromBER(byte[])} reference the input array instead of copying the values. The children of
+ * a constructed object are only created when they are accessed. Searches which do not need an object tree can be
+ * performed in a single pass with {@link #walk(byte[], TLVVisitor)}.
+ * </p>
+ * <p>
+ * Reading an object from several threads is safe, the children and values created on first access are published
+ * safely. Modifications must not be performed concurrently.
+ * </p>
  *
  * @author Tobias Wich
  */
@@ -40,16 +47,58 @@ public class TLV {
     private TagLengthValue tag;
     //protected TLV parent = null;
     TLV next = null;
-    TLV child = null;
+    private volatile TLV child = null;
+
+    // encoded children which have not been parsed yet, the range must be set before childData
+    private volatile byte[] childData;
+    private int childOffset;
+    private int childEnd;
+    // value must be recalculated from the child, because it has been encoded
+    private volatile boolean valueFromChild = false;
 
     public TLV() {
 	tag = new TagLengthValue();
     }
 
+    private TLV(TagLengthValue tag) {
+	this.tag = tag;
+    }
+
     public TLV(TLV obj) {
+	copyNode(obj);
+	// copy the chain of successors iteratively
+	TLV last = this;
+	for (TLV nextObj = obj.next; nextObj != null; nextObj = nextObj.next) {
+	    TLV copy = new TLV(nextObj.tag);
+	    copy.copyNode(nextObj);
+	    last.next = copy;
+	    last = copy;
+	}
+    }
+
+    private void copyNode(TLV obj) {
 	this.tag = obj.tag;
-	this.next = (obj.next != null) ? new TLV(obj.next) : null;
-	this.child = (obj.child != null) ? new TLV(obj.child) : null;
+	this.valueFromChild = obj.valueFromChild;
+	byte[] data = obj.childData;
+	if (data != null) {
+	    // not yet parsed children are created independently for the copy
+	    this.childOffset = obj.childOffset;
+	    this.childEnd = obj.childEnd;
+	    this.childData = data;
+	} else {
+	    this.child = (obj.child != null) ? new TLV(obj.child) : null;
+	}
+    }
+
+    /**
+     * Creates a copy of this object without its successors.
+     *
+     * @return Copy of this object.
+     */
+    TLV copyWithoutNext() {
+	TLV copy = new TLV(tag);
+	copy.copyNode(this);
+	return copy;
     }
 
 
@@ -102,13 +151,29 @@ public class TLV {
     }
 
     public int getValueLength() {
+	if (valueFromChild) {
+	    TLV c = getChild();
+	    return c != null ? c.getEncodedLength(true) : tag.getValueLength();
+	}
 	return tag.getValueLength();
     }
 
     public byte[] getValue() {
+	if (valueFromChild) {
+	    synchronized (this) {
+		if (valueFromChild) {
+		    TLV c = getChild();
+		    if (c != null) {
+			tag.setValue(c.toBER(true));
+		    }
+		    valueFromChild = false;
+		}
+	    }
+	}
 	return tag.getValue();
     }
     public void setValue(byte[] value) {
+	valueFromChild = false;
 	tag.setValue(value);
     }
 
@@ -148,12 +213,28 @@ public class TLV {
     }
 
     public void setChild(TLV child) {
+	this.childData = null;
 	this.child = child;
     }
     public boolean hasChild() {
-	return child != null;
+	return childData != null || child != null;
     }
     public TLV getChild() {
+	if (childData != null) {
+	    synchronized (this) {
+		byte[] data = childData;
+		if (data != null) {
+		    try {
+			child = parse(data, childOffset, childEnd);
+		    } catch (TLVException ex) {
+			// the structure has been validated when this object was created
+			throw new IllegalStateException("Previously validated TLV structure could not be parsed.", ex);
+		    }
+		    // clear the marker after the child has been set, so readers seeing null also see the child
+		    childData = null;
+		}
+	    }
+	}
 	return child;
     }
 
@@ -169,10 +250,7 @@ public class TLV {
 
 	TLV nextTag = this;
 	while (nextTag != null) {
-	    TLV toAdd = new TLV(nextTag);
-	    toAdd.next = null; // delete reference to next
-	    result.add(toAdd);
-
+	    result.add(nextTag.copyWithoutNext());
 	    nextTag = nextTag.next;
 	}
 
@@ -180,13 +258,14 @@ public class TLV {
     }
 
     public List<TLV> findNextTags(long num) {
-	List<TLV> all = asList();
 	LinkedList<TLV> result = new LinkedList<>();
 
-	for (TLV nextTLV : all) {
-	    if (nextTLV.getTagNumWithClass() == num) {
-		result.add(nextTLV);
+	TLV nextTag = this;
+	while (nextTag != null) {
+	    if (nextTag.getTagNumWithClass() == num) {
+		result.add(nextTag.copyWithoutNext());
 	    }
+	    nextTag = nextTag.next;
 	}
 
 	return result;
@@ -206,44 +285,110 @@ public class TLV {
     ///
 
     public static TLV fromBER(byte[] input) throws TLVException {
-	byte[] rest = input;
-
-	TLV first = new TLV();
-	boolean isFirst = true;
-	TLV last = first;
-	// build as long as there is input left
-	while (rest.length > 0) {
-	    TLV next;
-	    if (isFirst) {
-		next = first;
-	    } else {
-		next = new TLV();
-	    }
+	// check the complete structure first, so that children can be created on demand without further errors
+	validate(input, 0, input.length, new BERHeader());
+	return parse(input, 0, input.length);
+    }
 
+    /**
+     * Checks that the given range contains a well formed chain of TLV objects including all nested objects.
+     */
+    private static void validate(byte[] input, int offset, int end, BERHeader header) throws TLVException {
+	while (offset < end) {
 	    // break execution when 0 tag encountered
-	    if (rest[0] == (byte) 0) {
-		return first;
+	    if (input[offset] == (byte) 0) {
+		return;
 	    }
-	    // convert bytes to flat TLV data
-	    next.tag = TagLengthValue.fromBER(rest);
-	    // if constructed build child structure
-	    if (!next.tag.isPrimitive() && next.tag.getValueLength() > 0) {
-		next.child = fromBER(next.tag.getValue());
+	    header.read(input, offset, end);
+	    int next = header.end;
+	    if (! header.primitive && header.valueLength > 0) {
+		validate(input, header.valueOffset, header.valueOffset + header.valueLength, header);
+	    }
+	    offset = next;
+	}
+    }
+
+    /**
+     * Creates the chain of TLV objects contained in the given range.
+     * Children of constructed objects reference the input and are parsed when they are accessed.
+     */
+    private static TLV parse(byte[] input, int offset, int end) throws TLVException {
+	BERHeader header = new BERHeader();
+	TLV first = null;
+	TLV last = null;
+	// build as long as there is input left and no 0 tag is encountered
+	while (offset < end && input[offset] != (byte) 0) {
+	    header.read(input, offset, end);
+	    TLV next = new TLV(TagLengthValue.fromHeader(header, input));
+	    // if constructed remember the location of the child structure
+	    if (! header.primitive && header.valueLength > 0) {
+		next.childOffset = header.valueOffset;
+		next.childEnd = header.valueOffset + header.valueLength;
+		next.childData = input;
 	    }
 
-	    // set next as sibling in last
-	    if (isFirst) {
-		isFirst = false;
+	    if (first == null) {
+		first = next;
 	    } else {
 		last.next = next;
 	    }
 	    last = next;
-
-	    // get rest of the bytes for next iteration
-	    rest = last.tag.extractRest(rest);
+	    offset = header.end;
 	}
 
-	return first;
+	return first != null ? first : new TLV();
+    }
+
+    /**
+     * Visits all objects in the given BER encoded data in a single pass without creating a TLV tree.
+     *
+     * @param input BER encoded data.
+     * @param visitor Visitor receiving the objects in document order.
+     * @return {@code true} if the visitor stopped the traversal, {@code false} if all objects have been visited.
+     * @throws TLVException Thrown in case the data is malformed or the visitor raised an error.
+     */
+    public static boolean walk(byte[] input, TLVVisitor visitor) throws TLVException {
+	return walk(input, 0, input.length, visitor);
+    }
+
+    /**
+     * Visits all objects in the given range of BER encoded data in a single pass without creating a TLV tree.
+     *
+     * @param input Array containing the BER encoded data.
+     * @param offset Offset of the first object.
+     * @param length Number of bytes to process.
+     * @param visitor Visitor receiving the objects in document order.
+     * @return {@code true} if the visitor stopped the traversal, {@code false} if all objects have been visited.
+     * @throws TLVException Thrown in case the data is malformed or the visitor raised an error.
+     */
+    public static boolean walk(byte[] input, int offset, int length, TLVVisitor visitor) throws TLVException {
+	if (offset < 0 || length < 0 || offset + length > input.length) {
+	    throw new IllegalArgumentException("Range is not contained in the input array.");
+	}
+	return walk(input, offset, offset + length, 0, visitor, new BERHeader());
+    }
+
+    private static boolean walk(byte[] input, int offset, int end, int depth, TLVVisitor visitor, BERHeader header)
+	    throws TLVException {
+	while (offset < end && input[offset] != (byte) 0) {
+	    header.read(input, offset, end);
+	    long tagNum = header.tagNumWithClass;
+	    boolean primitive = header.primitive;
+	    int valueOffset = header.valueOffset;
+	    int valueEnd = valueOffset + header.valueLength;
+	    int next = header.end;
+
+	    TLVVisitor.Result r = visitor.visit(tagNum, primitive, input, valueOffset, header.valueLength, depth);
+	    if (r == TLVVisitor.Result.STOP) {
+		return true;
+	    } else if (r == TLVVisitor.Result.CONTINUE && ! primitive && valueEnd > valueOffset) {
+		if (walk(input, valueOffset, valueEnd, depth + 1, visitor, header)) {
+		    return true;
+		}
+	    }
+	    offset = next;
+	}
+	return false;
     }
 
 
@@ -252,30 +397,91 @@ public class TLV {
     }
 
     public byte[] toBER(boolean withSuccessors) {
-	try {
-	    ByteArrayOutputStream out = new ByteArrayOutputStream();
-	    // value calculated from child if any
-	    toBER(out, withSuccessors);
-	    return out.toByteArray();
-	} catch (IOException ex) {
-	    // IOException depends solely on the stream. The only thing that can happen here is OOM.
-	    throw new RuntimeException(ex);
-	}
+	byte[] out = new byte[getEncodedLength(withSuccessors)];
+	toBER(out, 0, withSuccessors);
+	return out;
+    }
+
+    /**
+     * Gets the number of bytes the encoding of this object occupies.
+     *
+     * @param withSuccessors {@code true} if the successors of this object are included in the encoding.
+     * @return Length of the BER encoding.
+     */
+    public int getEncodedLength(boolean withSuccessors) {
+	int result = 0;
+	TLV nextTLV = this;
+	do {
+	    int valueLen;
+	    TLV c;
+	    if (nextTLV.childData != null) {
+		valueLen = nextTLV.childEnd - nextTLV.childOffset;
+	    } else if ((c = nextTLV.child) != null) {
+		valueLen = c.getEncodedLength(true);
+	    } else {
+		valueLen = nextTLV.tag.getValueLength();
+	    }
+	    result += nextTLV.tag.getEncodedLength(valueLen);
+	    nextTLV = nextTLV.next;
+	} while (withSuccessors && nextTLV != null);
+	return result;
     }
 
-    private void toBER(ByteArrayOutputStream out, boolean withSuccessors) throws IOException {
-	if (child != null) {
-	    byte[] childBytes = child.toBER(true);
-	    tag.setPrimitive(false);
-	    tag.setValue(childBytes);
+    /**
+     * Writes the BER encoding of this object into the given buffer.
+     *
+     * @param out Buffer receiving the encoding.
+     * @param offset Offset of the first byte to write.
+     * @param withSuccessors {@code true} if the successors of this object are included in the encoding.
+     * @return Number of bytes written.
+     * @throws IllegalArgumentException Thrown in case the buffer is too small to hold the encoding.
+     */
+    public int toBER(byte[] out, int offset, boolean withSuccessors) {
+	int length = getEncodedLength(withSuccessors);
+	if (offset < 0 || out.length - offset < length) {
+	    throw new IllegalArgumentException("Buffer is too small to hold the encoded TLV.");
+	}
+	return writeBER(out, offset, withSuccessors) - offset;
+    }
+
+    private int writeBER(byte[] out, int offset, boolean withSuccessors) {
+	int pos = offset;
+	TLV nextTLV = this;
+	do {
+	    pos = nextTLV.writeNode(out, pos);
+	    nextTLV = nextTLV.next;
+	} while (withSuccessors && nextTLV != null);
+	return pos;
+    }
+
+    private int writeNode(byte[] out, int offset) {
+	byte[] data = childData;
+	TLV c = child;
+	if (data != null) {
+	    // children are unmodified, so their encoding can be copied as is
+	    int len = childEnd - childOffset;
+	    setPrimitiveIfChanged(false);
+	    int pos = BERHeader.writeHeader(tag.getTagNumWithClass(), len, out, offset);
+	    System.arraycopy(data, childOffset, out, pos, len);
+	    return pos + len;
+	} else if (c != null) {
+	    int len = c.getEncodedLength(true);
+	    setPrimitiveIfChanged(false);
+	    valueFromChild = true;
+	    int pos = BERHeader.writeHeader(tag.getTagNumWithClass(), len, out, offset);
+	    return c.writeBER(out, pos, true);
 	} else {
-	    tag.setPrimitive(true);
+	    setPrimitiveIfChanged(true);
+	    return tag.writeBER(out, offset);
 	}
-	// write child to output stream
-	out.write(tag.toBER());
+    }
 
-	if (withSuccessors && next != null) {
-	    next.toBER(out, withSuccessors);
+    /**
+     * Updates the primitive flag only if it differs, so that encoding an unmodified tree does not write to it.
+     */
+    private void setPrimitiveIfChanged(boolean primitive) {
+	if (tag.isPrimitive() != primitive) {
+	    tag.setPrimitive(primitive);
 	}
     }
 
@@ -0,0 +1,62 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.common.tlv;
+
+
+/**
+ * Callback interface for the single pass traversal of BER encoded data performed by {@link TLV#walk(byte[], TLVVisitor)}.
+ * The visitor receives the location of each value in the input array instead of a copy, so searches for a few objects
+ * in large structures do not allocate any memory.
+ */
+@FunctionalInterface
+public interface TLVVisitor {
+
+    /**
+     * Result of a visit which controls how the traversal continues.
+     */
+    enum Result {
+	/** Continue with the children of the visited object, if any. */
+	CONTINUE,
+	/** Skip the children of the visited object and continue with its successor. */
+	SKIP_CHILDREN,
+	/** Stop the traversal. */
+	STOP;
+    }
+
+    /**
+     * Called for each object in document order.
+     * The given array must not be modified.
+     *
+     * @param tagNumWithClass Tag of the object as returned by {@link TLV#getTagNumWithClass()}.
+     * @param primitive {@code true} if the object is primitive, {@code false} if it is constructed.
+     * @param data Array containing the encoded data.
+     * @param valueOffset Offset of the value of the object in {@code data}.
+     * @param valueLength Length of the value of the object.
+     * @param depth Nesting level of the object, 0 for objects on the top level.
+     * @return Result indicating how to continue the traversal.
+     * @throws TLVException Thrown in case the visitor wants to abort the traversal with an error.
+     */
+    Result visit(long tagNumWithClass, boolean primitive, byte[] data, int valueOffset, int valueLength, int depth)
+	    throws TLVException;
+
+}
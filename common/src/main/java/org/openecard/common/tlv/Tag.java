@@ -149,39 +149,10 @@ public class Tag {
 
 
     public static Tag fromBER(byte[] data) throws TLVException {
-	// how many octets made up this tag?
-	int numOctets = 1;
-	// get common values independed from encoding type
-	TagClass tagClass = TagClass.getTagClass(data[0]);
-	boolean primitive = ((data[0] >> 5) & 0x01) == 0x00;
-
-	// get value so it can be seen if short or long form is present
-	long tagNum = 0;
-	byte tmpTagNum = (byte) (data[0] & 0x1F);
-	if (tmpTagNum <= 30) {
-	    // short form
-	    tagNum = tmpTagNum;
-	} else {
-	    // long form
-	    byte next;
-	    // read as long as it is not the last octet
-	    do {
-		// terminate if there are no bytes left or the number is larger than 64 bits
-		if (numOctets*7 > 64) {
-		    throw new TLVException("Tag number doesn't fit into a 64 bit word.");
-		} else if (data.length < numOctets) {
-		    throw new TLVException("Not enough bytes in input bytes to build TLV tag.");
-		}
-		// get next number
-		next = data[numOctets];
-		numOctets++;
-		// get next bytes and merge them into result
-		byte nextValue = (byte) (next & 0x7F);
-		tagNum = (tagNum << 7) | nextValue;
-	    } while (((next >> 7) & 0x01) == 0x01);
-	}
+	BERHeader header = new BERHeader();
+	int numOctets = header.readTag(data, 0, data.length);
 
-	Tag resultTag = new Tag(tagClass, primitive, tagNum);
+	Tag resultTag = new Tag(header.getTagClass(), header.primitive, header.tagNum);
 	resultTag.numOctets = numOctets;
 	return resultTag;
     }
@@ -22,14 +22,13 @@
 
 package org.openecard.common.tlv;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
 import java.util.Arrays;
-import org.openecard.common.util.IntegerUtils;
 
 
 /**
  * Internal class representing one entry with a TLV definition.
+ * When created from BER, the value is a view on the input array and is only copied when it is requested with
+ * {@link #getValue()}. The copy is published safely, so the value can be read from several threads.
  *
  * @author Tobias Wich
  */
@@ -38,7 +37,12 @@ class TagLengthValue {
     private int numOctets;
 
     private Tag tag;
-    private byte[] value;
+    private volatile byte[] value;
+
+    // view on the input data, used as long as value is not materialized
+    private byte[] data;
+    private int valueOffset;
+    private int valueLength;
 
 
     private TagLengthValue(int numOctets, Tag tag, byte[] value) {
@@ -103,14 +107,45 @@ class TagLengthValue {
     }
 
     public int getValueLength() {
-	return this.value.length;
+	byte[] v = this.value;
+	if (v != null) {
+	    return v.length;
+	} else {
+	    return this.valueLength;
+	}
     }
 
     public byte[] getValue() {
-	return this.value;
+	byte[] v = this.value;
+	if (v == null) {
+	    synchronized (this) {
+		v = this.value;
+		if (v == null) {
+		    // the view stays in place, so concurrent readers of data never see it disappear
+		    v = Arrays.copyOfRange(data, valueOffset, valueOffset + valueLength);
+		    this.value = v;
+		}
+	    }
+	}
+	return v;
     }
     public void setValue(byte[] value) {
 	this.value = value;
+	this.data = null;
+    }
+
+    /**
+     * Sets the value to a range of the given array without copying it.
+     *
+     * @param data Array containing the value.
+     * @param offset Offset of the value.
+     * @param length Length of the value.
+     */
+    void setValue(byte[] data, int offset, int length) {
+	this.data = data;
+	this.valueOffset = offset;
+	this.valueLength = length;
+	this.value = null;
     }
 
 
@@ -122,128 +157,62 @@ class TagLengthValue {
     int getRawLength() {
 	return this.numOctets;
     }
-    /**
-     * When fed with a large input stream, cut off the portion which makes up this TLV.
-     * @param inputWithThisTag
-     * @return
-     */
-    byte[] extractRest(byte[] inputWithThisTag) throws TLVException {
-	try {
-	    int from = getRawLength();
-	    int to = inputWithThisTag.length;
-	    return Arrays.copyOfRange(inputWithThisTag, from, to);
-	} catch (ArrayIndexOutOfBoundsException | IllegalArgumentException ex) {
-	    throw new TLVException("Data length and claimed length do not match.", ex);
-	}
-    }
 
 
     static TagLengthValue fromBER(byte[] data) throws TLVException {
-	Tag tag = Tag.fromBER(data);
-	// how many octets made up this tag?
-	int numOctets = tag.numOctets;
-
-	// get length
-	int dataLength = 0;
-	boolean endOfLine = false;
-	if (((data[numOctets] >> 7) & 0x01) == 0) {
-	    // short form
-	    dataLength = data[numOctets];
-	    numOctets++;
-	} else {
-	    // has end-of-line octets
-	    if ((data[numOctets] & 0x7F) == 0x00) {
-		endOfLine = true;
-		numOctets++;
-		// loop through content to find termination point
-		int i = 0;
-		boolean endFound = false;
-		boolean zeroFound = false;
-		do {
-		    if (data.length <= numOctets+i) {
-			throw new TLVException("Not enough bytes in input to read TLV length.");
-		    }
-		    byte next = data[numOctets+i];
-		    if (next == 0x00) {
-			if (zeroFound) {
-			    endFound = true;
-			} else {
-			    zeroFound = true;
-			}
-		    } else {
-			zeroFound = false;
-		    }
-		    i++;
-		} while (! endFound);
-		// calculate data length
-		dataLength = i-2;
-	    } else {
-		// long form
-		// first byte indicates number of length bytes
-		int numLengthBytes = data[numOctets] & 0x7F;
-		numOctets++;
-
-		int i = 0;
-		while (i < numLengthBytes) {
-		    if (i*8 > 32) {
-			throw new TLVException("Length doesn't fit into a 32 bit word.");
-		    } else if (data.length < numOctets+i+1) {
-			throw new TLVException("Not enough bytes in input to read TLV length.");
-		    }
-		    if (data[numOctets+i] < 0) {
-			// correct bytes wich are interpreted as negative numbers by java
-			dataLength = (dataLength << 8) | (256+data[numOctets+i]);
-		    } else {
-			dataLength = (dataLength << 8) | data[numOctets+i];
-		    }
-		    i++;
-		}
-		numOctets += i;
-	    }
-	}
-
-	// extract data based on calculated length
-	byte[] dataField = Arrays.copyOfRange(data, numOctets, numOctets+dataLength);
-
-	// recalculate total length of datablock
-	numOctets = numOctets + dataLength;
-	if (endOfLine) {
-	    numOctets += 2;
-	}
+	BERHeader header = new BERHeader();
+	header.read(data, 0, data.length);
+	return fromHeader(header, data);
+    }
 
-	// we have all values, build Tag object and return
-	TagLengthValue result = new TagLengthValue(numOctets, tag, dataField);
+    /**
+     * Creates an entry from an already decoded header.
+     * The value of the entry references the given input array.
+     *
+     * @param header Header of the element.
+     * @param data Input the header has been decoded from.
+     * @return Entry for the element.
+     */
+    static TagLengthValue fromHeader(BERHeader header, byte[] data) {
+	TagLengthValue result = new TagLengthValue(header.end - header.offset, header.toTag(), null);
+	result.setValue(data, header.valueOffset, header.valueLength);
 	return result;
     }
 
 
-    byte[] toBER() {
-	try {
-	    ByteArrayOutputStream out = new ByteArrayOutputStream();
-
-	    byte[] tagBytes = tag.toBER();
-	    out.write(tagBytes);
-
-	    // calculate length according to input data
-	    int len = getValueLength();
-	    if (len <= 127) {
-		// short form
-		out.write((byte)len);
-	    } else {
-		byte[] lenBytes = IntegerUtils.toByteArray(len);
-		byte lenHeader = (byte) (0x80 | lenBytes.length);
-		out.write(lenHeader);
-		out.write(lenBytes);
-	    }
-
-	    // write actual data
-	    out.write(getValue());
+    /**
+     * Gets the number of bytes {@link #toBER()} produces for a value of the given length.
+     *
+     * @param valueLength Length of the value.
+     * @return Length of the encoded entry.
+     */
+    int getEncodedLength(int valueLength) {
+	return BERHeader.numOctets(getTagNumWithClass()) + BERHeader.lengthOctets(valueLength) + valueLength;
+    }
 
-	    return out.toByteArray();
-	} catch (IOException ex) {
-	    // IOException depends solely on the stream. The only thing that can happen here is OOM.
-	    throw new RuntimeException(ex);
+    /**
+     * Writes tag and length octets followed by the value into the given buffer.
+     *
+     * @param out Buffer receiving the encoded entry.
+     * @param offset Offset of the first octet to write.
+     * @return Offset behind the last written octet.
+     */
+    int writeBER(byte[] out, int offset) {
+	byte[] v = this.value;
+	int len = v != null ? v.length : this.valueLength;
+	offset = BERHeader.writeHeader(getTagNumWithClass(), len, out, offset);
+	if (v != null) {
+	    System.arraycopy(v, 0, out, offset, len);
+	} else {
+	    System.arraycopy(this.data, this.valueOffset, out, offset, len);
 	}
+	return offset + len;
+    }
+
+    byte[] toBER() {
+	byte[] result = new byte[getEncodedLength(getValueLength())];
+	writeBER(result, 0);
+	return result;
     }
 
 }
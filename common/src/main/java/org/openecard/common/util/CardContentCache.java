@@ -0,0 +1,306 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.common.util;
+
+import iso.std.iso_iec._24727.tech.schema.ConnectionHandleType;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import org.openecard.common.OpenecardProperties;
+import org.openecard.common.event.EventObject;
+import org.openecard.common.event.EventType;
+import org.openecard.common.interfaces.EventCallback;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Process wide cache for the content of data sets which do not change, such as certificates.
+ * <p>Entries are bound to the slot handle of the card connection they have been read with. The IFD creates a new random
+ * slot handle for every connection, so the content of one card is never returned for another card, even when the
+ * cards are swapped before the removal event has been processed. All entries of a slot are dropped when the card is
+ * removed. The cache must therefore be registered for {@link EventType#CARD_REMOVED} events. Entries of handles without
+ * terminal name and slot index can not be matched to a removal and are only dropped by the size limit.</p>
+ * <p>The size of the cache is limited by the sum of the cached bytes, which is configured with the property
+ * {@code sal.content_cache.max_size}. The least recently used entries are evicted first.</p>
+ */
+public class CardContentCache implements EventCallback {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CardContentCache.class);
+
+    private static final int DEFAULT_MAX_SIZE = 1024 * 1024;
+
+    private static final CardContentCache INSTANCE = new CardContentCache(readMaxSize());
+
+    private final int maxSize;
+    private final LinkedHashMap<String, Entry> entries;
+    private int size = 0;
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    /**
+     * Creates a new cache instance.
+     *
+     * @param maxSize Maximum number of bytes held by the cache.
+     */
+    public CardContentCache(int maxSize) {
+	this.maxSize = maxSize;
+	this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Gets the cache shared by the whole process.
+     *
+     * @return The cache instance.
+     */
+    public static CardContentCache getInstance() {
+	return INSTANCE;
+    }
+
+    private static int readMaxSize() {
+	String value = OpenecardProperties.getProperty("sal.content_cache.max_size");
+	if (value != null) {
+	    try {
+		return Integer.parseInt(value.trim());
+	    } catch (NumberFormatException ex) {
+		LOG.warn("Invalid value '{}' configured for property sal.content_cache.max_size.", value);
+	    }
+	}
+	return DEFAULT_MAX_SIZE;
+    }
+
+    /**
+     * Determines the identity of the card referenced by the given handle.
+     *
+     * @param handle Handle of a connected card.
+     * @return The identity of the card, or {@code null} if the handle contains no slot handle.
+     */
+    @Nullable
+    public static CardIdentity getCardIdentity(@Nonnull ConnectionHandleType handle) {
+	if (handle.getSlotHandle() == null) {
+	    return null;
+	}
+	return new CardIdentity(getSlotKey(handle), ByteUtils.toHexString(handle.getSlotHandle()));
+    }
+
+    /**
+     * Determines the identity of the card connected with the given slot handle.
+     * Entries of this identity are not removed when the card is removed, because the slot is not known.
+     *
+     * @param slotHandle Slot handle of a connected card.
+     * @return The identity of the card.
+     */
+    @Nonnull
+    public static CardIdentity getCardIdentity(@Nonnull byte[] slotHandle) {
+	return new CardIdentity(null, ByteUtils.toHexString(slotHandle));
+    }
+
+    @Nullable
+    private static String getSlotKey(ConnectionHandleType handle) {
+	if (handle.getIFDName() == null || handle.getSlotIndex() == null) {
+	    return null;
+	}
+	return handle.getIFDName() + "|" + handle.getSlotIndex();
+    }
+
+    /**
+     * Gets the cached content of a data set.
+     *
+     * @param cardIdentity Identity of the card as returned by {@link #getCardIdentity(ConnectionHandleType)}.
+     * @param application Identifier of the card application containing the data set.
+     * @param dataSetName Name of the data set.
+     * @return A copy of the cached content, or {@code null} if nothing is cached.
+     */
+    @Nullable
+    public synchronized byte[] get(@Nonnull CardIdentity cardIdentity, @Nullable byte[] application,
+	    @Nonnull String dataSetName) {
+	Entry e = entries.get(makeKey(cardIdentity, application, dataSetName));
+	if (e != null) {
+	    hits++;
+	    return ByteUtils.clone(e.data);
+	} else {
+	    misses++;
+	    return null;
+	}
+    }
+
+    /**
+     * Saves the content of a data set.
+     *
+     * @param cardIdentity Identity of the card as returned by {@link #getCardIdentity(ConnectionHandleType)}.
+     * @param application Identifier of the card application containing the data set.
+     * @param dataSetName Name of the data set.
+     * @param data Content of the data set.
+     */
+    public synchronized void put(@Nonnull CardIdentity cardIdentity, @Nullable byte[] application,
+	    @Nonnull String dataSetName, @Nonnull byte[] data) {
+	if (data.length > maxSize) {
+	    return;
+	}
+
+	Entry old = entries.put(makeKey(cardIdentity, application, dataSetName),
+		new Entry(cardIdentity, ByteUtils.clone(data)));
+	if (old != null) {
+	    size -= old.data.length;
+	}
+	size += data.length;
+
+	// evict least recently used entries
+	Iterator<Map.Entry<String, Entry>> lruIt = entries.entrySet().iterator();
+	while (size > maxSize && lruIt.hasNext()) {
+	    Entry next = lruIt.next().getValue();
+	    size -= next.data.length;
+	    evictions++;
+	    lruIt.remove();
+	}
+    }
+
+    private static String makeKey(CardIdentity cardIdentity, byte[] application, String dataSetName) {
+	return cardIdentity.slotHandle + "|" + ByteUtils.toHexString(application) + "|" + dataSetName;
+    }
+
+    /**
+     * Removes all entries of the card in the slot referenced by the given handle.
+     * If the handle contains a slot handle, the entries read with this slot handle are removed as well.
+     *
+     * @param handle Handle containing the terminal name and the slot index, or the slot handle.
+     */
+    public synchronized void invalidate(@Nonnull ConnectionHandleType handle) {
+	String slot = getSlotKey(handle);
+	String slotHandle = handle.getSlotHandle() != null ? ByteUtils.toHexString(handle.getSlotHandle()) : null;
+	if (slot == null && slotHandle == null) {
+	    return;
+	}
+	Iterator<Entry> it = entries.values().iterator();
+	while (it.hasNext()) {
+	    Entry next = it.next();
+	    CardIdentity id = next.cardIdentity;
+	    if ((slot != null && slot.equals(id.slot)) || (slotHandle != null && slotHandle.equals(id.slotHandle))) {
+		size -= next.data.length;
+		it.remove();
+	    }
+	}
+    }
+
+    /**
+     * Removes all entries from the cache.
+     */
+    public synchronized void clear() {
+	entries.clear();
+	size = 0;
+    }
+
+    @Override
+    public void signalEvent(EventType eventType, EventObject eventData) {
+	if (eventType == EventType.CARD_REMOVED && eventData != null && eventData.getHandle() != null) {
+	    invalidate(eventData.getHandle());
+	}
+    }
+
+    /**
+     * Gets the maximum number of bytes held by the cache.
+     *
+     * @return The maximum size in bytes.
+     */
+    public int getMaxSize() {
+	return maxSize;
+    }
+
+    /**
+     * Gets the number of bytes currently held by the cache.
+     *
+     * @return The size in bytes.
+     */
+    public synchronized int getSize() {
+	return size;
+    }
+
+    /**
+     * Gets the number of lookups which have been answered from the cache.
+     *
+     * @return The number of hits.
+     */
+    public synchronized long getHitCount() {
+	return hits;
+    }
+
+    /**
+     * Gets the number of lookups for which nothing was cached.
+     *
+     * @return The number of misses.
+     */
+    public synchronized long getMissCount() {
+	return misses;
+    }
+
+    /**
+     * Gets the number of entries removed to stay within the size limit.
+     *
+     * @return The number of evictions.
+     */
+    public synchronized long getEvictionCount() {
+	return evictions;
+    }
+
+    /**
+     * Gets the fraction of lookups which have been answered from the cache.
+     *
+     * @return The hit ratio between 0 and 1.
+     */
+    public synchronized double getHitRatio() {
+	long total = hits + misses;
+	return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    /**
+     * Identity of a card connection in a particular slot.
+     */
+    public static final class CardIdentity {
+
+	@Nullable
+	private final String slot;
+	private final String slotHandle;
+
+	private CardIdentity(@Nullable String slot, String slotHandle) {
+	    this.slot = slot;
+	    this.slotHandle = slotHandle;
+	}
+
+    }
+
+    private static class Entry {
+
+	private final CardIdentity cardIdentity;
+	private final byte[] data;
+
+	Entry(CardIdentity cardIdentity, byte[] data) {
+	    this.cardIdentity = cardIdentity;
+	    this.data = data;
+	}
+
+    }
+
+}
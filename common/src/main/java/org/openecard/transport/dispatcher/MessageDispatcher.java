@@ -30,7 +30,9 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.TreeMap;
 import java.util.TreeSet;
 import org.openecard.common.event.ApiCallEventObject;
@@ -59,14 +61,15 @@ public class MessageDispatcher implements Dispatcher {
     private static final Logger LOG = LoggerFactory.getLogger(MessageDispatcher.class);
 
     private final Environment environment;
-    /** Key is parameter classname */
-    private final TreeMap<String, Service> serviceMap;
+    /** Key is parameter class */
+    private final Map<Class<?>, Route> routes;
     /** Key is service interface classname */
     private final TreeMap<String, Method> serviceInstMap;
 
     private final List<String> availableServiceNames;
 
     private final boolean isFilter;
+    private final MessageTrace trace;
 
     /**
      * Creates a new MessageDispatcher instance and loads all definitions from the webservice interfaces in the
@@ -75,19 +78,14 @@ public class MessageDispatcher implements Dispatcher {
      * @param environment The environment with the webservice interface getters.
      */
     public MessageDispatcher(Environment environment) {
-	this.environment = environment;
-	isFilter = false;
-	serviceMap = new TreeMap<>();
-	serviceInstMap = new TreeMap<>();
-	initDefinitions();
-	availableServiceNames = new ArrayList<>();
-	createServiceList();
+	this(environment, false, MessageTrace.fromProperties());
     }
 
-    private MessageDispatcher(Environment environment, boolean isFilter) {
+    private MessageDispatcher(Environment environment, boolean isFilter, MessageTrace trace) {
 	this.environment = environment;
 	this.isFilter = isFilter;
-	serviceMap = new TreeMap<>();
+	this.trace = trace;
+	routes = new HashMap<>();
 	serviceInstMap = new TreeMap<>();
 	initDefinitions();
 	availableServiceNames = new ArrayList<>();
@@ -97,26 +95,40 @@ public class MessageDispatcher implements Dispatcher {
 
     @Override
     public Object deliver(Object req) throws DispatcherException, InvocationTargetException {
+	Class<?> reqClass = req.getClass();
 	EventDispatcher disp = environment.getEventDispatcher();
-	// send API CALL STARTED event
-	ConnectionHandleType handle = HandlerUtils.extractHandle(req);
+	// only create API CALL events when someone is interested in them
+	boolean fireStart = false;
+	boolean fireFinish = false;
 	if (disp != null && req instanceof RequestType) {
+	    fireStart = disp.hasCallbacks(EventType.API_CALL_STARTED, reqClass);
+	    fireFinish = disp.hasCallbacks(EventType.API_CALL_FINISHED, reqClass);
+	}
+	ConnectionHandleType handle = null;
+	if (fireStart || fireFinish) {
+	    handle = HandlerUtils.extractHandle(req);
+	}
+
+	// send API CALL STARTED event
+	if (fireStart) {
 	    ApiCallEventObject startEvt = new ApiCallEventObject(handle, (RequestType) req);
 	    LOG.debug("Sending API_CALL_STARTED event.");
 	    disp.notify(EventType.API_CALL_STARTED, startEvt);
 	}
 
+	long startTime = System.nanoTime();
+	Object result = null;
+	Throwable error = null;
 	try {
-	    Class<?> reqClass = req.getClass();
-	    Service s = getService(reqClass);
-	    Object serviceImpl = getServiceImpl(s);
+	    Route r = getRoute(reqClass);
+	    Object serviceImpl = getServiceImpl(r);
 
-	    LOG.debug("Delivering message of type: {}", req.getClass().getName());
+	    LOG.debug("Delivering message of type: {}", reqClass.getName());
 
-	    Object result =  s.invoke(serviceImpl, req);
+	    result =  r.service.invoke(r.method, serviceImpl, req);
 
 	    // send API CALL FINISHED event
-	    if (disp != null && req instanceof RequestType && result instanceof ResponseType) {
+	    if (fireFinish && result instanceof ResponseType) {
 		ApiCallEventObject finEvt = new ApiCallEventObject(handle, (RequestType) req);
 		finEvt.setResponse((ResponseType) result);
 		LOG.debug("Sending API_CALL_FINISHED event.");
@@ -125,7 +137,13 @@ public class MessageDispatcher implements Dispatcher {
 
 	    return result;
 	} catch (IllegalAccessException | IllegalArgumentException ex) {
+	    error = ex;
 	    throw new DispatcherException(ex);
+	} catch (DispatcherException | InvocationTargetException | RuntimeException ex) {
+	    error = ex;
+	    throw ex;
+	} finally {
+	    trace.record(handle, req, result, startTime, error);
 	}
     }
 
@@ -140,21 +158,17 @@ public class MessageDispatcher implements Dispatcher {
 	}
     }
 
-    private Service getService(Class<?> reqClass) throws IllegalAccessException {
-	if (! serviceMap.containsKey(reqClass.getName())) {
+    private Route getRoute(Class<?> reqClass) throws IllegalAccessException {
+	Route r = routes.get(reqClass);
+	if (r == null) {
 	    String msg = "No service with a method containing parameter type " + reqClass.getName() + " present.";
 	    throw new IllegalAccessException(msg);
 	}
-	return serviceMap.get(reqClass.getName());
+	return r;
     }
 
-    private Object getServiceImpl(Service s) throws IllegalAccessException, InvocationTargetException {
-	Method m = serviceInstMap.get(s.getServiceInterface().getName());
-	if (m == null) {
-	    String msg = "The environment does not contain a service for class " + s.getServiceInterface().getName();
-	    throw new IllegalAccessException(msg);
-	}
-	Object impl = m.invoke(environment);
+    private Object getServiceImpl(Route r) throws IllegalAccessException, InvocationTargetException {
+	Object impl = r.accessor.get(environment);
 	return impl;
     }
 
@@ -206,14 +220,20 @@ public class MessageDispatcher implements Dispatcher {
 
 		// create service and map its request parameters
 		Service service = new Service(returnType, returnTypeImpl, isFilter);
+		ServiceAccessor accessor = ServiceAccessor.forMethod(nextAccessor);
 
 		for (Class<?> reqClass : service.getRequestClasses()) {
-		    if (serviceMap.containsKey(reqClass.getName())) {
+		    if (routes.containsKey(reqClass)) {
 			String msg = "Omitting method with parameter type {} in service interface {} because its ";
 			msg += "type already associated with another service.";
 			LOG.warn(msg, reqClass.getName(), returnType.getName());
 		    } else {
-			serviceMap.put(reqClass.getName(), service);
+			try {
+			    routes.put(reqClass, new Route(service, accessor, service.getMethod(reqClass)));
+			} catch (NoSuchMethodException ex) {
+			    // can not happen as the request classes are taken from the service itself
+			    LOG.error("Failed to resolve method for parameter type " + reqClass.getName() + ".", ex);
+			}
 		    }
 		}
 	    }
@@ -230,15 +250,48 @@ public class MessageDispatcher implements Dispatcher {
 	if (isFilter) {
 	    return this;
 	}
-	return new MessageDispatcher(this.environment, true);
+	return new MessageDispatcher(this.environment, true, trace);
+    }
+
+    /**
+     * Gets the trace recording the messages delivered by this dispatcher.
+     * The trace is shared between this instance and its filter.
+     *
+     * @return The message trace of this dispatcher.
+     */
+    public MessageTrace getTrace() {
+	return trace;
     }
 
     private void createServiceList() {
 	TreeSet<Service> services = new TreeSet<>();
-	services.addAll(serviceMap.values());
+	for (Route r : routes.values()) {
+	    services.add(r.service);
+	}
 	for (Service service : services) {
 	    availableServiceNames.addAll(service.getActionList());
 	}
     }
 
+
+
+    /**
+     * Precomputed dispatch target of a request class.
+     * The route is created once when the dispatcher is initialized, so that no lookups are needed when delivering a
+     * message.
+     */
+    private static class Route {
+
+	private final Service service;
+	private final ServiceAccessor accessor;
+	private final Method method;
+
+	Route(Service service, ServiceAccessor accessor, Method method) {
+	    this.service = service;
+	    this.accessor = accessor;
+	    this.method = method;
+	}
+
+    }
+
 }
@@ -0,0 +1,390 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.transport.dispatcher;
+
+import iso.std.iso_iec._24727.tech.schema.ConnectionHandleType;
+import iso.std.iso_iec._24727.tech.schema.InputAPDUInfoType;
+import iso.std.iso_iec._24727.tech.schema.ResponseType;
+import iso.std.iso_iec._24727.tech.schema.Transmit;
+import iso.std.iso_iec._24727.tech.schema.TransmitResponse;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.xml.transform.TransformerException;
+import oasis.names.tc.dss._1_0.core.schema.Result;
+import org.openecard.common.OpenecardProperties;
+import org.openecard.common.util.ByteUtils;
+import org.openecard.ws.marshal.WSMarshaller;
+import org.openecard.ws.marshal.WSMarshallerException;
+import org.openecard.ws.marshal.WSMarshallerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Ring buffer recording the messages delivered by the {@link MessageDispatcher}.
+ * Each delivered message results in one small {@link Entry} containing the request type, slot handle, timing, result
+ * and APDU sizes. The buffer has a fixed size, so that the oldest entries are overwritten when it is full. Recording an
+ * entry does not marshal the message, which makes it cheap enough to keep the trace enabled all the time.
+ * <p>
+ * Optionally every n-th message is also captured as XML. Marshalling is performed on a background thread, so the XML
+ * is attached to the entry some time after the message has been delivered. The message objects must therefore not be
+ * modified after they have been delivered, which is the case for all eCard API messages.
+ * </p>
+ * <p>
+ * The buffer size and the sampling rate are configured with the properties {@code dispatcher.trace.buffer_size} and
+ * {@code dispatcher.trace.xml_sampling} of the {@link OpenecardProperties}.
+ * </p>
+ */
+public class MessageTrace {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MessageTrace.class);
+
+    private static final int DEFAULT_BUFFER_SIZE = 256;
+
+    private static final ExecutorService CAPTURE_EXEC = Executors.newSingleThreadExecutor((Runnable r) -> {
+	Thread t = new Thread(r, "Dispatcher-Trace-Capture");
+	t.setDaemon(true);
+	return t;
+    });
+    // only accessed by the capture thread
+    private static WSMarshaller captureMarshaller;
+
+    private final AtomicReferenceArray<Entry> entries;
+    private final AtomicLong seqNum;
+    private final int xmlSampling;
+
+    /**
+     * Creates a trace with the given parameters.
+     *
+     * @param bufferSize Number of entries the trace keeps. A value of 0 disables the trace.
+     * @param xmlSampling Capture the XML of every n-th message. A value of 0 disables the XML capture.
+     */
+    public MessageTrace(int bufferSize, int xmlSampling) {
+	this.entries = new AtomicReferenceArray<>(Math.max(0, bufferSize));
+	this.seqNum = new AtomicLong();
+	this.xmlSampling = Math.max(0, xmlSampling);
+    }
+
+    /**
+     * Creates a trace configured by the values in the {@link OpenecardProperties}.
+     *
+     * @return The configured trace instance.
+     */
+    public static MessageTrace fromProperties() {
+	int bufferSize = readIntProperty("dispatcher.trace.buffer_size", DEFAULT_BUFFER_SIZE);
+	int xmlSampling = readIntProperty("dispatcher.trace.xml_sampling", 0);
+	return new MessageTrace(bufferSize, xmlSampling);
+    }
+
+    private static int readIntProperty(String key, int defaultValue) {
+	String value = OpenecardProperties.getProperty(key);
+	if (value != null) {
+	    try {
+		return Integer.parseInt(value.trim());
+	    } catch (NumberFormatException ex) {
+		LOG.warn("Invalid value '{}' configured for property {}.", value, key);
+	    }
+	}
+	return defaultValue;
+    }
+
+    /**
+     * Gets whether this trace records messages.
+     *
+     * @return {@code true} if messages are recorded, {@code false} otherwise.
+     */
+    public boolean isEnabled() {
+	return entries.length() > 0;
+    }
+
+    /**
+     * Records a delivered message in the trace.
+     *
+     * @param handle The connection handle extracted from the request, or {@code null} if it has not been extracted.
+     *   In that case the slot handle is only recorded for Transmit messages.
+     * @param req The request object.
+     * @param res The response object, or {@code null} if the delivery failed.
+     * @param startNanos Value of {@link System#nanoTime()} when the delivery was started.
+     * @param error The exception thrown by the delivery, or {@code null} if it succeeded.
+     */
+    void record(@Nullable ConnectionHandleType handle, @Nonnull Object req, @Nullable Object res, long startNanos,
+	    @Nullable Throwable error) {
+	int size = entries.length();
+	if (size == 0) {
+	    return;
+	}
+
+	long duration = System.nanoTime() - startNanos;
+	long num = seqNum.getAndIncrement();
+	Entry e = new Entry(num, req, res, handle, duration, error);
+	entries.set((int) (num % size), e);
+
+	if (xmlSampling > 0 && num % xmlSampling == 0) {
+	    try {
+		CAPTURE_EXEC.execute(() -> e.xml = captureXml(req, res));
+	    } catch (RejectedExecutionException ex) {
+		LOG.debug("Failed to schedule XML capture of message.", ex);
+	    }
+	}
+    }
+
+    private static String captureXml(Object req, Object res) {
+	try {
+	    if (captureMarshaller == null) {
+		captureMarshaller = WSMarshallerFactory.createInstance();
+	    }
+	    StringBuilder sb = new StringBuilder();
+	    sb.append(captureMarshaller.doc2str(captureMarshaller.marshal(req)));
+	    if (res != null) {
+		sb.append("\n");
+		sb.append(captureMarshaller.doc2str(captureMarshaller.marshal(res)));
+	    }
+	    return sb.toString();
+	} catch (TransformerException | WSMarshallerException ex) {
+	    LOG.debug("Failed to capture XML of message.", ex);
+	    return null;
+	}
+    }
+
+    /**
+     * Exports the entries currently contained in the trace.
+     * The entries are ordered from the oldest to the newest entry.
+     *
+     * @return A snapshot of the trace entries.
+     */
+    @Nonnull
+    public List<Entry> export() {
+	int size = entries.length();
+	if (size == 0) {
+	    return Collections.emptyList();
+	}
+
+	long last = seqNum.get();
+	long first = Math.max(0, last - size);
+	ArrayList<Entry> result = new ArrayList<>((int) (last - first));
+	for (long i = first; i < last; i++) {
+	    Entry e = entries.get((int) (i % size));
+	    // skip entries which have been overwritten or are not yet written
+	    if (e != null && e.seqNum == i) {
+		result.add(e);
+	    }
+	}
+	return result;
+    }
+
+
+    /**
+     * Single record of the message trace.
+     */
+    public static class Entry {
+
+	private final long seqNum;
+	private final long timestamp;
+	private final long durationNanos;
+	private final String requestType;
+	private final byte[] slotHandle;
+	private final String resultMajor;
+	private final String resultMinor;
+	private final String error;
+	private final int commandSize;
+	private final int responseSize;
+	private volatile String xml;
+
+	private Entry(long seqNum, Object req, Object res, ConnectionHandleType handle, long durationNanos,
+		Throwable error) {
+	    this.seqNum = seqNum;
+	    this.timestamp = System.currentTimeMillis();
+	    this.durationNanos = durationNanos;
+	    this.requestType = req.getClass().getSimpleName();
+	    if (handle != null) {
+		this.slotHandle = handle.getSlotHandle();
+	    } else if (req instanceof Transmit) {
+		this.slotHandle = ((Transmit) req).getSlotHandle();
+	    } else {
+		this.slotHandle = null;
+	    }
+	    if (error instanceof InvocationTargetException && error.getCause() != null) {
+		error = error.getCause();
+	    }
+	    this.error = error != null ? error.getClass().getName() : null;
+
+	    Result r = res instanceof ResponseType ? ((ResponseType) res).getResult() : null;
+	    this.resultMajor = r != null ? r.getResultMajor() : null;
+	    this.resultMinor = r != null ? r.getResultMinor() : null;
+
+	    int cmdSize = -1;
+	    if (req instanceof Transmit) {
+		cmdSize = 0;
+		for (InputAPDUInfoType apdu : ((Transmit) req).getInputAPDUInfo()) {
+		    byte[] data = apdu.getInputAPDU();
+		    cmdSize += data != null ? data.length : 0;
+		}
+	    }
+	    this.commandSize = cmdSize;
+
+	    int resSize = -1;
+	    if (res instanceof TransmitResponse) {
+		resSize = 0;
+		for (byte[] data : ((TransmitResponse) res).getOutputAPDU()) {
+		    resSize += data != null ? data.length : 0;
+		}
+	    }
+	    this.responseSize = resSize;
+	}
+
+	/**
+	 * Gets the sequence number of the entry.
+	 *
+	 * @return The sequence number of the entry.
+	 */
+	public long getSeqNum() {
+	    return seqNum;
+	}
+
+	/**
+	 * Gets the time when the delivery of the message has been finished.
+	 *
+	 * @return The time in milliseconds since the epoch.
+	 */
+	public long getTimestamp() {
+	    return timestamp;
+	}
+
+	/**
+	 * Gets the time it took to deliver the message.
+	 *
+	 * @return The duration in nanoseconds.
+	 */
+	public long getDurationNanos() {
+	    return durationNanos;
+	}
+
+	/**
+	 * Gets the simple class name of the request.
+	 *
+	 * @return The request type.
+	 */
+	public String getRequestType() {
+	    return requestType;
+	}
+
+	/**
+	 * Gets the slot handle of the request.
+	 *
+	 * @return The slot handle, or {@code null} if the request contains none.
+	 */
+	@Nullable
+	public byte[] getSlotHandle() {
+	    return ByteUtils.clone(slotHandle);
+	}
+
+	/**
+	 * Gets the ResultMajor of the response.
+	 *
+	 * @return The ResultMajor, or {@code null} if the response contains no result.
+	 */
+	@Nullable
+	public String getResultMajor() {
+	    return resultMajor;
+	}
+
+	/**
+	 * Gets the ResultMinor of the response.
+	 *
+	 * @return The ResultMinor, or {@code null} if the response contains no result minor.
+	 */
+	@Nullable
+	public String getResultMinor() {
+	    return resultMinor;
+	}
+
+	/**
+	 * Gets the class name of the exception thrown while the message was delivered.
+	 *
+	 * @return The exception class name, or {@code null} if the delivery succeeded.
+	 */
+	@Nullable
+	public String getError() {
+	    return error;
+	}
+
+	/**
+	 * Gets the accumulated size of the command APDUs in a Transmit request.
+	 *
+	 * @return The size in bytes, or -1 if the request is not a Transmit message.
+	 */
+	public int getCommandSize() {
+	    return commandSize;
+	}
+
+	/**
+	 * Gets the accumulated size of the response APDUs in a TransmitResponse.
+	 *
+	 * @return The size in bytes, or -1 if the response is not a TransmitResponse message.
+	 */
+	public int getResponseSize() {
+	    return responseSize;
+	}
+
+	/**
+	 * Gets the captured XML of the request and response.
+	 * The XML is only available for sampled messages and only after the background capture has been completed.
+	 *
+	 * @return The XML representation of the messages, or {@code null} if none has been captured.
+	 */
+	@Nullable
+	public String getXml() {
+	    return xml;
+	}
+
+	@Override
+	public String toString() {
+	    StringBuilder sb = new StringBuilder();
+	    sb.append("#").append(seqNum).append(" ").append(requestType);
+	    sb.append(" slot=").append(ByteUtils.toHexString(slotHandle));
+	    sb.append(" time=").append(durationNanos / 1000).append("us");
+	    sb.append(" major=").append(resultMajor).append(" minor=").append(resultMinor);
+	    if (commandSize >= 0) {
+		sb.append(" cmd=").append(commandSize);
+	    }
+	    if (responseSize >= 0) {
+		sb.append(" res=").append(responseSize);
+	    }
+	    if (error != null) {
+		sb.append(" error=").append(error);
+	    }
+	    return sb.toString();
+	}
+
+    }
+
+}
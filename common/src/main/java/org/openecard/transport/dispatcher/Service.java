@@ -30,7 +30,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
-import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.xml.transform.TransformerException;
 import org.openecard.common.interfaces.DispatcherException;
 import org.openecard.common.interfaces.Publish;
@@ -55,8 +55,8 @@ class Service implements Comparable<Service> {
     private final Class<?> iface;
     private final Class<?> impl;
     private final ArrayList<Class<?>> requestClasses;
-    private final TreeMap<String, Method> requestMethods;
-    private final HashMap<Class<?>, MessageLogger> objectLoggers;
+    private final HashMap<Class<?>, Method> requestMethods;
+    private final ConcurrentHashMap<Class<?>, MessageLogger> objectLoggers;
     private final List<String> actions;
     private final boolean isFilter;
 
@@ -74,8 +74,8 @@ class Service implements Comparable<Service> {
 	this.impl = impl;
 
 	requestClasses = new ArrayList<>();
-	requestMethods = new TreeMap<>();
-	objectLoggers = new HashMap<>();
+	requestMethods = new HashMap<>();
+	objectLoggers = new ConcurrentHashMap<>();
 	actions = new ArrayList<>();
 	this.isFilter = isFilter;
 
@@ -88,7 +88,7 @@ class Service implements Comparable<Service> {
 	    ECardApiMethod webAnnotation = getAnnotation(m, ECardApiMethod.class);
 	    if (isReqParam(m) &&  webAnnotation != null) {
 		Class<?> reqClass = getReqParamClass(m);
-		if (requestMethods.containsKey(reqClass.getName())) {
+		if (requestMethods.containsKey(reqClass)) {
 		    String msg = "Omitting method {} in service interface {}, because its parameter type is ";
 		    msg += "already associated with another method.";
 		    LOG.warn(msg, m.getName(), impl.getName());
@@ -96,20 +96,28 @@ class Service implements Comparable<Service> {
 		    String action = webAnnotation.action();
 		    if (isFilter) {
 			if (getAnnotation(m, Publish.class) != null) {
-			    requestClasses.add(reqClass);
-			    requestMethods.put(reqClass.getName(), m);
-			    actions.add(action);
+			    addMethod(reqClass, m, action);
 			}
 		    } else {
-			requestClasses.add(reqClass);
-			requestMethods.put(reqClass.getName(), m);
-			actions.add(action);
+			addMethod(reqClass, m, action);
 		    }
 		}
 	    }
 	}
     }
 
+    private void addMethod(Class<?> reqClass, Method m, String action) {
+	// access checks are performed once here instead of on every invocation
+	try {
+	    m.setAccessible(true);
+	} catch (SecurityException ex) {
+	    LOG.debug("Method {} can not be made accessible, using checked invocation.", m);
+	}
+	requestClasses.add(reqClass);
+	requestMethods.put(reqClass, m);
+	actions.add(action);
+    }
+
     private static <A extends Annotation> A getAnnotation(Method m, final Class<? extends A> aClass) {
 	// direct lookup
 	A a = m.getAnnotation(aClass);
@@ -162,15 +170,15 @@ class Service implements Comparable<Service> {
      */
     private MessageLogger getLogger(Object ifaceImpl) {
 	Class<?> implClass = ifaceImpl.getClass();
-	if (objectLoggers.containsKey(implClass)) {
-	    return objectLoggers.get(implClass);
-	} else {
-	    synchronized (this) {
-		MessageLogger implLogger = new MessageLogger(ifaceImpl.getClass());
-		objectLoggers.put(implClass, implLogger);
-		return implLogger;
+	MessageLogger implLogger = objectLoggers.get(implClass);
+	if (implLogger == null) {
+	    implLogger = new MessageLogger(implClass);
+	    MessageLogger existing = objectLoggers.putIfAbsent(implClass, implLogger);
+	    if (existing != null) {
+		implLogger = existing;
 	    }
 	}
+	return implLogger;
     }
 
     /**
@@ -183,16 +191,35 @@ class Service implements Comparable<Service> {
      * @throws InvocationTargetException In case the dispatched method throws en exception.
      */
     public Object invoke(Object ifaceImpl, Object req) throws DispatcherException, InvocationTargetException {
+	try {
+	    Method m = getMethod(req.getClass());
+	    return invoke(m, ifaceImpl, req);
+	} catch (NoSuchMethodException ex) {
+	    throw new DispatcherException(ex);
+	}
+    }
+
+    /**
+     * Invokes the given webservice method in the given webservice class instance.
+     * The method must have been obtained by {@link #getMethod(Class)} from this instance. This variant is used by the
+     * dispatcher which resolves the method once when it is initialized.
+     *
+     * @param m The webservice method which is invoked.
+     * @param ifaceImpl The instance implementing the webservice interface this instance is responsible for.
+     * @param req The request object to dispatch.
+     * @return The result of the method invocation.
+     * @throws DispatcherException In case an error happens in the reflections part of the dispatcher.
+     * @throws InvocationTargetException In case the dispatched method throws en exception.
+     */
+    Object invoke(Method m, Object ifaceImpl, Object req) throws DispatcherException, InvocationTargetException {
 	try {
 	    MessageLogger l = getLogger(ifaceImpl);
-	    Class<?> reqClass = req.getClass();
-	    Method m = getMethod(reqClass.getName());
 	    // invoke method
 	    l.logRequest(req);
 	    Object res = m.invoke(ifaceImpl, req);
 	    l.logResponse(res);
 	    return res;
-	} catch (IllegalAccessException | NoSuchMethodException | IllegalArgumentException ex) {
+	} catch (IllegalAccessException | IllegalArgumentException ex) {
 	    throw new DispatcherException(ex);
 	}
     }
@@ -218,11 +245,18 @@ class Service implements Comparable<Service> {
 	return Collections.unmodifiableList(requestClasses);
     }
 
-    private Method getMethod(String paramClass) throws NoSuchMethodException {
+    /**
+     * Gets the webservice method accepting the given request class.
+     *
+     * @param paramClass The class of the request object.
+     * @return The method associated with the request class.
+     * @throws NoSuchMethodException Thrown in case no method accepts the given request class.
+     */
+    Method getMethod(Class<?> paramClass) throws NoSuchMethodException {
 	Method m = requestMethods.get(paramClass);
 	if (m == null) {
-	    String msg = "Method containing parameter with class '" + paramClass + "' does not exist in interface '";
-	    msg += iface.getName() + "'.";
+	    String msg = "Method containing parameter with class '" + paramClass.getName() + "' does not exist in ";
+	    msg += "interface '" + iface.getName() + "'.";
 	    throw new NoSuchMethodException(msg);
 	}
 	return m;
@@ -240,7 +274,8 @@ class Service implements Comparable<Service> {
 
     /**
      * Internal logger class for request and response objects.
-     * It only logs
+     * It only logs when the trace level is enabled for the receiver or the dispatcher. The marshaller needed to
+     * serialize the objects is created the first time a message is logged and reused afterwards.
      */
     private class MessageLogger {
 
@@ -249,6 +284,8 @@ class Service implements Comparable<Service> {
 	private final String reqLogMsg;
 	private final String resLogMsg;
 
+	private WSMarshaller m;
+
 	public MessageLogger(Class<?> receiverClass) {
 	    this.l = LoggerFactory.getLogger(receiverClass);
 
@@ -264,19 +301,23 @@ class Service implements Comparable<Service> {
 	}
 
 	private void logObject(Logger l, String msg, Object msgObj) {
+	    if (l.isTraceEnabled()) {
+		l.trace("{}\n{}", msg, toString(msgObj));
+	    } else if (LOG.isTraceEnabled()) {
+		// check if the message needs to be logged in the dispatcher class
+		LOG.trace("{}\n{}", msg, toString(msgObj));
+	    }
+	}
+
+	private synchronized String toString(Object msgObj) {
 	    try {
-		if (l.isTraceEnabled()) {
-		    WSMarshaller m = WSMarshallerFactory.createInstance();
-		    String msgObjStr = m.doc2str(m.marshal(msgObj));
-		    l.trace("{}\n{}", msg, msgObjStr);
-		} else if (LOG.isTraceEnabled()) {
-		    // check if the message needs to be logged in the dispatcher class
-		    WSMarshaller m = WSMarshallerFactory.createInstance();
-		    String msgObjStr = m.doc2str(m.marshal(msgObj));
-		    LOG.trace("{}\n{}", msg, msgObjStr);
+		if (m == null) {
+		    m = WSMarshallerFactory.createInstance();
 		}
+		return m.doc2str(m.marshal(msgObj));
 	    } catch (TransformerException | WSMarshallerException ex) {
 		LOG.error("Failed to log message.", ex);
+		return null;
 	    }
 	}
 
@@ -0,0 +1,81 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.transport.dispatcher;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import org.openecard.common.interfaces.Environment;
+
+
+/**
+ * Accessor for a {@link org.openecard.common.interfaces.Dispatchable} service getter of the environment.
+ * The accessors for the getters defined in the {@link Environment} interface are bound directly, so that no reflection
+ * is needed when the service instance is retrieved for a message. All other getters are called reflectively.
+ */
+@FunctionalInterface
+interface ServiceAccessor {
+
+    /**
+     * Gets the current service instance from the environment.
+     *
+     * @param env The environment containing the service.
+     * @return The service instance, or {@code null} if none is set in the environment.
+     * @throws IllegalAccessException In case the getter is not accessible.
+     * @throws InvocationTargetException In case the getter throws an exception.
+     */
+    Object get(Environment env) throws IllegalAccessException, InvocationTargetException;
+
+    /**
+     * Creates an accessor for the given environment getter.
+     *
+     * @param getter The getter method in the environment implementation.
+     * @return The accessor for the getter.
+     */
+    static ServiceAccessor forMethod(final Method getter) {
+	if (getter.getParameterTypes().length == 0 && isEnvironmentMethod(getter)) {
+	    switch (getter.getName()) {
+		case "getIFD":
+		    return Environment::getIFD;
+		case "getSAL":
+		    return Environment::getSAL;
+		case "getManagement":
+		    return Environment::getManagement;
+		default:
+		    break;
+	    }
+	}
+
+	// no direct binding available, use reflection
+	return env -> getter.invoke(env);
+    }
+
+    static boolean isEnvironmentMethod(Method m) {
+	try {
+	    Environment.class.getMethod(m.getName());
+	    return true;
+	} catch (NoSuchMethodException ex) {
+	    return false;
+	}
+    }
+
+}
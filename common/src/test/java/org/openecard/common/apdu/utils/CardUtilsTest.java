@@ -0,0 +1,221 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.common.apdu.utils;
+
+import iso.std.iso_iec._24727.tech.schema.InputAPDUInfoType;
+import iso.std.iso_iec._24727.tech.schema.Transmit;
+import iso.std.iso_iec._24727.tech.schema.TransmitResponse;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.openecard.common.ECardConstants;
+import org.openecard.common.WSHelper;
+import org.openecard.common.apdu.exception.APDUException;
+import org.openecard.common.interfaces.Dispatcher;
+import org.openecard.common.tlv.iso7816.FCP;
+import org.openecard.common.util.ByteUtils;
+import org.testng.annotations.Test;
+import static org.testng.Assert.*;
+
+
+/**
+ * Tests for reading files with the methods of {@link CardUtils}.
+ */
+public class CardUtilsTest {
+
+    @Test
+    public void testShortReadIsBatched() throws Exception {
+	byte[] content = randomContent(600);
+	FileCard card = new FileCard(content, 256, false);
+
+	byte[] result = CardUtils.readFile(transparentFCP(content.length), card, new byte[0]);
+	assertEquals(result, content);
+	// the first command probes the chunk size, the others are sent together
+	assertEquals(card.numTransmits, 2);
+	assertEquals(card.numCommands, 3);
+    }
+
+    @Test
+    public void testExtendedRead() throws Exception {
+	byte[] content = randomContent(1500);
+	FileCard card = new FileCard(content, 65536, true);
+
+	byte[] result = CardUtils.readFile(transparentFCP(content.length), CardUtils.EXTENDED_LENGTH, card, new byte[0]);
+	assertEquals(result, content);
+	assertEquals(card.numTransmits, 1);
+    }
+
+    @Test
+    public void testExtendedReadFallback() throws Exception {
+	byte[] content = randomContent(1500);
+	FileCard card = new FileCard(content, 256, false);
+
+	byte[] result = CardUtils.readFile(transparentFCP(content.length), CardUtils.EXTENDED_LENGTH, card, new byte[0]);
+	assertEquals(result, content);
+	// rejected extended command, probe with a short command and the rest in one batch
+	assertEquals(card.numTransmits, 3);
+    }
+
+    @Test
+    public void testCardReturnsLessThanRequested() throws Exception {
+	byte[] content = randomContent(3000);
+	FileCard card = new FileCard(content, 1000, true);
+
+	byte[] result = CardUtils.readFile(transparentFCP(content.length), CardUtils.EXTENDED_LENGTH, card, new byte[0]);
+	assertEquals(result, content);
+    }
+
+    @Test
+    public void testUnknownSize() throws Exception {
+	byte[] content = randomContent(700);
+	FileCard card = new FileCard(content, 256, false);
+
+	byte[] result = CardUtils.readFile(null, card, new byte[0]);
+	assertEquals(result, content);
+    }
+
+    @Test(timeOut = 10000)
+    public void testCardDemandsMoreThanFcpSize() throws Exception {
+	byte[] content = randomContent(400);
+	FileCard card = new FileCard(content, 256, false);
+	card.exactLength = true;
+
+	// the FCP announces less than the card holds and the card insists on the Le for its real size
+	byte[] result = CardUtils.readFile(transparentFCP(300), card, new byte[0]);
+	assertEquals(result, content);
+    }
+
+    @Test(timeOut = 10000, expectedExceptions = APDUException.class)
+    public void testRepeatedWrongLength() throws Exception {
+	byte[] content = randomContent(400);
+	FileCard card = new FileCard(content, 256, false);
+	card.exactLength = true;
+	card.rejectDemandedLength = true;
+
+	CardUtils.readFile(transparentFCP(content.length), card, new byte[0]);
+    }
+
+    private static byte[] randomContent(int size) {
+	byte[] content = new byte[size];
+	new Random(size).nextBytes(content);
+	return content;
+    }
+
+    private static FCP transparentFCP(int size) throws Exception {
+	byte[] fcp = new byte[] {0x62, 0x07, (byte) 0x80, 0x02, (byte) (size >> 8), (byte) size, (byte) 0x82, 0x01, 0x01};
+	return new FCP(fcp);
+    }
+
+    /**
+     * Card with a single transparent file answering READ BINARY commands.
+     */
+    private static class FileCard implements Dispatcher {
+
+	private final byte[] content;
+	private final int maxResponseLength;
+	private final boolean extendedLength;
+	private int numTransmits = 0;
+	private int numCommands = 0;
+	// answer 6Cxx unless Le matches the number of available bytes
+	private boolean exactLength = false;
+	// answer 6Cxx with a different length every time
+	private boolean rejectDemandedLength = false;
+
+	FileCard(byte[] content, int maxResponseLength, boolean extendedLength) {
+	    this.content = content;
+	    this.maxResponseLength = maxResponseLength;
+	    this.extendedLength = extendedLength;
+	}
+
+	@Override
+	public Object deliver(Object request) {
+	    return safeDeliver(request);
+	}
+
+	@Override
+	public Object safeDeliver(Object request) {
+	    numTransmits++;
+	    TransmitResponse response = WSHelper.makeResponse(TransmitResponse.class, WSHelper.makeResultOK());
+	    for (InputAPDUInfoType input : ((Transmit) request).getInputAPDUInfo()) {
+		numCommands++;
+		byte[] rapdu = readBinary(input.getInputAPDU());
+		response.getOutputAPDU().add(rapdu);
+		if (! isAcceptable(rapdu, input.getAcceptableStatusCode())) {
+		    response.setResult(WSHelper.makeResultError(ECardConstants.Minor.IFD.UNKNOWN_ERROR, "Unexpected."));
+		    break;
+		}
+	    }
+	    return response;
+	}
+
+	private byte[] readBinary(byte[] apdu) {
+	    int offset = ((apdu[2] & 0x7F) << 8) | (apdu[3] & 0xFF);
+	    int le;
+	    if (apdu.length == 5) {
+		le = apdu[4] == 0 ? 256 : apdu[4] & 0xFF;
+	    } else if (extendedLength) {
+		le = ((apdu[5] & 0xFF) << 8) | (apdu[6] & 0xFF);
+		le = le == 0 ? 65536 : le;
+	    } else {
+		return new byte[] {0x67, 0x00};
+	    }
+
+	    if (offset >= content.length) {
+		return new byte[] {0x6B, 0x00};
+	    }
+	    int len = Math.min(Math.min(le, maxResponseLength), content.length - offset);
+	    if (exactLength) {
+		int available = Math.min(maxResponseLength, content.length - offset);
+		if (rejectDemandedLength) {
+		    return new byte[] {0x6C, (byte) (le - 1)};
+		} else if (le != available) {
+		    return new byte[] {0x6C, (byte) available};
+		}
+	    }
+	    byte[] data = Arrays.copyOfRange(content, offset, offset + len);
+	    return ByteUtils.concatenate(data, new byte[] {(byte) 0x90, 0x00});
+	}
+
+	private static boolean isAcceptable(byte[] rapdu, List<byte[]> codes) {
+	    byte[] sw = Arrays.copyOfRange(rapdu, rapdu.length - 2, rapdu.length);
+	    for (byte[] code : codes) {
+		if (ByteUtils.isPrefix(code, sw)) {
+		    return true;
+		}
+	    }
+	    return codes.isEmpty();
+	}
+
+	@Override
+	public List<String> getServiceList() {
+	    throw new UnsupportedOperationException("Not supported.");
+	}
+
+	@Override
+	public Dispatcher getFilter() {
+	    throw new UnsupportedOperationException("Not supported.");
+	}
+
+    }
+
+}
@@ -0,0 +1,180 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.common.event;
+
+import iso.std.iso_iec._24727.tech.schema.Connect;
+import iso.std.iso_iec._24727.tech.schema.Transmit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.openecard.common.interfaces.EventCallback;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import static org.testng.Assert.*;
+
+
+/**
+ * Tests for the delivery of events by the {@link EventDispatcherImpl}.
+ */
+public class EventDispatcherImplTest {
+
+    private EventDispatcherImpl disp;
+
+    @BeforeMethod
+    public void setUp() {
+	disp = new EventDispatcherImpl();
+	disp.start();
+    }
+
+    @AfterMethod
+    public void tearDown() {
+	disp.terminate();
+    }
+
+    @Test
+    public void testOrderAndFilter() throws InterruptedException {
+	int numEvents = 1000;
+	List<RecordingCallback> cbs = new ArrayList<>();
+	for (int i = 0; i < 10; i++) {
+	    RecordingCallback cb = new RecordingCallback(numEvents);
+	    disp.add(cb, EventType.API_CALL_STARTED);
+	    cbs.add(cb);
+	}
+	RecordingCallback other = new RecordingCallback(1);
+	disp.add(other, EventType.CARD_INSERTED);
+
+	for (int i = 0; i < numEvents; i++) {
+	    disp.notify(EventType.API_CALL_STARTED, new TestEvent(i));
+	}
+
+	for (RecordingCallback cb : cbs) {
+	    assertTrue(cb.done.await(10, TimeUnit.SECONDS));
+	    for (int i = 0; i < numEvents; i++) {
+		assertEquals(cb.received.get(i).num, i);
+	    }
+	}
+	assertTrue(other.received.isEmpty());
+	assertEquals(disp.getQueueDepth(), 0);
+    }
+
+    @Test
+    public void testCustomFilter() throws InterruptedException {
+	RecordingCallback cb = new RecordingCallback(1);
+	disp.add(cb, (t, o) -> ((TestEvent) o).num == 2);
+
+	for (int i = 0; i < 4; i++) {
+	    disp.notify(EventType.CARD_REMOVED, new TestEvent(i));
+	}
+
+	assertTrue(cb.done.await(10, TimeUnit.SECONDS));
+	assertEquals(cb.received.size(), 1);
+	assertEquals(cb.received.get(0).num, 2);
+    }
+
+    @Test
+    public void testRemovedCallback() throws InterruptedException {
+	RecordingCallback cb = new RecordingCallback(1);
+	disp.add(cb);
+	disp.del(cb);
+
+	disp.notify(EventType.CARD_INSERTED, new TestEvent(0));
+
+	assertFalse(cb.done.await(200, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testBlockingCallback() throws InterruptedException {
+	CountDownLatch release = new CountDownLatch(1);
+	disp.add((t, o) -> {
+	    try {
+		release.await();
+	    } catch (InterruptedException ex) {
+		Thread.currentThread().interrupt();
+	    }
+	}, EventType.CARD_REMOVED);
+	RecordingCallback cb = new RecordingCallback(2);
+	disp.add(cb, EventType.CARD_REMOVED);
+
+	// the blocked callback must not delay the delivery to the other one
+	disp.notify(EventType.CARD_REMOVED, new TestEvent(0));
+	disp.notify(EventType.CARD_REMOVED, new TestEvent(1));
+	assertTrue(cb.done.await(10, TimeUnit.SECONDS));
+	release.countDown();
+    }
+
+    @Test
+    public void testApiCallInterest() {
+	assertFalse(disp.hasCallbacks(EventType.API_CALL_STARTED, Transmit.class));
+
+	RecordingCallback cardCb = new RecordingCallback(1);
+	disp.add(cardCb, EventType.CARD_INSERTED);
+	assertFalse(disp.hasCallbacks(EventType.API_CALL_STARTED, Transmit.class));
+	assertTrue(disp.hasCallbacks(EventType.CARD_INSERTED, Object.class));
+
+	RecordingCallback connectCb = new RecordingCallback(1);
+	disp.add(connectCb, new ApiCallEventFilter(Connect.class));
+	assertTrue(disp.hasCallbacks(EventType.API_CALL_STARTED, Connect.class));
+	assertTrue(disp.hasCallbacks(EventType.API_CALL_FINISHED, Connect.class));
+	assertFalse(disp.hasCallbacks(EventType.API_CALL_STARTED, Transmit.class));
+
+	RecordingCallback allCb = new RecordingCallback(1);
+	disp.add(allCb);
+	assertTrue(disp.hasCallbacks(EventType.API_CALL_STARTED, Transmit.class));
+
+	disp.del(allCb);
+	assertFalse(disp.hasCallbacks(EventType.API_CALL_STARTED, Transmit.class));
+    }
+
+
+    private static class TestEvent extends EventObject {
+
+	private final int num;
+
+	TestEvent(int num) {
+	    super(null);
+	    this.num = num;
+	}
+
+    }
+
+    private static class RecordingCallback implements EventCallback {
+
+	private final List<TestEvent> received = Collections.synchronizedList(new ArrayList<>());
+	private final CountDownLatch done;
+
+	RecordingCallback(int expected) {
+	    this.done = new CountDownLatch(expected);
+	}
+
+	@Override
+	public void signalEvent(EventType eventType, EventObject eventData) {
+	    received.add((TestEvent) eventData);
+	    done.countDown();
+	}
+
+    }
+
+}
@@ -0,0 +1,163 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.common.tlv;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.openecard.common.util.StringUtils;
+import org.testng.annotations.Test;
+import static org.testng.Assert.*;
+
+
+/**
+ * Tests for the parsing, traversal and encoding of TLV structures.
+ */
+public class TLVTest {
+
+    private static final byte[] CVC = new BigInteger("7F218201427F4E81FB5F290100420E5A5A4456434141544130303030357F494F060A04007F0007020202020386410470C07FAA329E927D961F490F5430B395EECF3D2A538194D8B637DE0F8ACF60A9031816AC51B594097EB211FB8F55FAA8507D5800EF7B94E024F9630314116C755F200B5A5A444B423230303033557F4C12060904007F0007030102025305000301DF045F25060100000601085F2406010000070001655E732D060904007F00070301030280207C1901932DB75D08539F2D4A27C938F79E69E083C442C068B299D185BC8AFA78732D060904007F0007030103018020BFD2A6A2E4237948D7DCCF7975D71D40F15307AA59F580A48777CBEED093F54B5F3740618F584E4293F75DDE8977311694B69A3ED73BBE43FDAFEC11B7ECF054F84ACB1231615338CE8D6EC332480883E14E0664950F85134290DD716B7C153232BC96", 16).toByteArray();
+
+    @Test
+    public void testRoundTrip() throws TLVException {
+	TLV tlv = TLV.fromBER(CVC);
+	assertEquals(tlv.toBER(true), CVC);
+
+	// materialize the children and encode again
+	TLV body = tlv.findChildTags(0x7F4E).get(0);
+	assertEquals(body.findChildTags(0x5F20).get(0).getValue(), "ZZDKB20003U".getBytes());
+	tlv.getChild().getChild();
+	assertEquals(tlv.toBER(true), CVC);
+
+	byte[] out = new byte[CVC.length + 3];
+	assertEquals(tlv.getEncodedLength(true), CVC.length);
+	assertEquals(tlv.toBER(out, 3, true), CVC.length);
+	for (int i = 0; i < CVC.length; i++) {
+	    assertEquals(out[i + 3], CVC[i]);
+	}
+    }
+
+    @Test
+    public void testManySiblings() throws TLVException {
+	int num = 20000;
+	byte[] input = new byte[num * 3];
+	for (int i = 0; i < num; i++) {
+	    input[i * 3] = (byte) 0x81;
+	    input[i * 3 + 1] = 1;
+	    input[i * 3 + 2] = (byte) i;
+	}
+
+	TLV tlv = TLV.fromBER(input);
+	List<TLV> all = tlv.asList();
+	assertEquals(all.size(), num);
+	assertEquals(all.get(num - 1).getValue(), new byte[] { (byte) (num - 1) });
+	assertEquals(tlv.toBER(true), input);
+    }
+
+    @Test
+    public void testModifiedChild() throws TLVException {
+	byte[] input = StringUtils.toByteArray("7C 06 81 01 01 82 01 02", true);
+	TLV tlv = TLV.fromBER(input);
+	assertEquals(tlv.getValue(), StringUtils.toByteArray("81 01 01 82 01 02", true));
+
+	// copies do not share parsed children
+	TLV copy = new TLV(tlv);
+	copy.getChild().setValue(new byte[] { 0x05, 0x06 });
+	assertEquals(copy.toBER(), StringUtils.toByteArray("7C 07 81 02 05 06 82 01 02", true));
+	assertEquals(tlv.toBER(), input);
+
+	// the value of the parent reflects the encoded children
+	assertEquals(copy.getValueLength(), 7);
+	assertEquals(copy.getValue(), StringUtils.toByteArray("81 02 05 06 82 01 02", true));
+    }
+
+    @Test
+    public void testWalk() throws TLVException {
+	final List<String> found = new ArrayList<>();
+	boolean stopped = TLV.walk(CVC, (tag, primitive, data, offset, length, depth) -> {
+	    if (tag == 0x7F49) {
+		return TLVVisitor.Result.SKIP_CHILDREN;
+	    } else if (tag == 0x5F20) {
+		found.add(new String(data, offset, length));
+		return TLVVisitor.Result.STOP;
+	    } else if (tag == 0x86) {
+		fail("Children of the public key must not be visited.");
+	    }
+	    return TLVVisitor.Result.CONTINUE;
+	});
+
+	assertTrue(stopped);
+	assertEquals(found.size(), 1);
+	assertEquals(found.get(0), "ZZDKB20003U");
+
+	final int[] count = new int[1];
+	assertFalse(TLV.walk(CVC, (tag, primitive, data, offset, length, depth) -> {
+	    count[0]++;
+	    return TLVVisitor.Result.CONTINUE;
+	}));
+	assertEquals(count[0], 21);
+    }
+
+    @Test
+    public void testConcurrentRead() throws Exception {
+	final int threads = 8;
+	ExecutorService exec = Executors.newFixedThreadPool(threads);
+	try {
+	    for (int i = 0; i < 50; i++) {
+		// all threads materialize children and values of the same freshly parsed object
+		final TLV cvc = TLV.fromBER(CVC);
+		List<Callable<TLV>> tasks = new ArrayList<>();
+		for (int j = 0; j < threads; j++) {
+		    tasks.add(() -> {
+			TLV body = cvc.getChild();
+			assertEquals(body.getValue().length, body.getValueLength());
+			assertEquals(body.toBER(true).length, body.getEncodedLength(true));
+			return body;
+		    });
+		}
+		TLV first = null;
+		for (Future<TLV> f : exec.invokeAll(tasks)) {
+		    TLV body = f.get();
+		    // every reader must get the same child object
+		    if (first == null) {
+			first = body;
+		    }
+		    assertSame(body, first);
+		}
+		assertEquals(cvc.toBER(), CVC);
+	    }
+	} finally {
+	    exec.shutdownNow();
+	}
+    }
+
+    @Test(expectedExceptions = TLVException.class)
+    public void testTruncatedChild() throws TLVException {
+	// inner object claims more bytes than its parent provides
+	TLV.fromBER(StringUtils.toByteArray("7C 03 81 05 01 82 00", true));
+    }
+
+}
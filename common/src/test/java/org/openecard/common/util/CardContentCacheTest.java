@@ -0,0 +1,135 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.common.util;
+
+import iso.std.iso_iec._24727.tech.schema.ConnectionHandleType;
+import java.math.BigInteger;
+import org.openecard.common.event.EventType;
+import org.openecard.common.event.IfdEventObject;
+import org.openecard.common.util.CardContentCache.CardIdentity;
+import org.testng.annotations.Test;
+import static org.testng.Assert.*;
+
+
+/**
+ * Tests for the cache of static card content.
+ */
+public class CardContentCacheTest {
+
+    private static final byte[] APP = new byte[] {1, 2, 3};
+    private static final byte[] CERT = new byte[] {0x30, 0x03, 0x02, 0x01, 0x01};
+
+    private static final byte[] SLOT_HANDLE_1 = new byte[] {0x11, 0x22, 0x33, 0x44};
+    private static final byte[] SLOT_HANDLE_2 = new byte[] {0x55, 0x66, 0x77, (byte) 0x88};
+
+    @Test
+    public void testCardIdentity() {
+	assertNull(CardContentCache.getCardIdentity(new ConnectionHandleType()));
+	assertNull(CardContentCache.getCardIdentity(handle("Reader", null)));
+	assertNotNull(CardContentCache.getCardIdentity(handle("Reader", SLOT_HANDLE_1)));
+    }
+
+    @Test
+    public void testRemovalInvalidates() {
+	CardContentCache cache = new CardContentCache(1024);
+	ConnectionHandleType handle = handle("Reader", SLOT_HANDLE_1);
+	CardIdentity id = CardContentCache.getCardIdentity(handle);
+
+	assertNull(cache.get(id, APP, "EF.C.CH.AUT"));
+	cache.put(id, APP, "EF.C.CH.AUT", CERT);
+	assertEquals(cache.get(id, APP, "EF.C.CH.AUT"), CERT);
+	assertEquals(cache.getHitCount(), 1);
+	assertEquals(cache.getMissCount(), 1);
+	assertEquals(cache.getSize(), CERT.length);
+
+	// card in other slot is not affected
+	cache.signalEvent(EventType.CARD_REMOVED, new IfdEventObject(handle("Other", null)));
+	assertNotNull(cache.get(id, APP, "EF.C.CH.AUT"));
+
+	// removal events carry no slot handle
+	cache.signalEvent(EventType.CARD_REMOVED, new IfdEventObject(handle("Reader", null)));
+	assertNull(cache.get(id, APP, "EF.C.CH.AUT"));
+	assertEquals(cache.getSize(), 0);
+    }
+
+    @Test
+    public void testOtherCardInSlot() {
+	CardContentCache cache = new CardContentCache(1024);
+	CardIdentity id1 = CardContentCache.getCardIdentity(handle("Reader", SLOT_HANDLE_1));
+	CardIdentity id2 = CardContentCache.getCardIdentity(handle("Reader", SLOT_HANDLE_2));
+
+	// the connection to another card in the same slot never sees the content of the first card
+	cache.put(id1, APP, "EF.C.CH.AUT", CERT);
+	assertNull(cache.get(id2, APP, "EF.C.CH.AUT"));
+	cache.put(id2, APP, "EF.C.CH.AUT", CERT);
+	assertEquals(cache.getSize(), 2 * CERT.length);
+
+	cache.signalEvent(EventType.CARD_REMOVED, new IfdEventObject(handle("Reader", null)));
+	assertEquals(cache.getSize(), 0);
+    }
+
+    @Test
+    public void testSlotHandleOnly() {
+	CardContentCache cache = new CardContentCache(1024);
+	CardIdentity id = CardContentCache.getCardIdentity(SLOT_HANDLE_1);
+	cache.put(id, APP, "EF.C.CH.AUT", CERT);
+
+	// without the slot the entry can only be removed by its slot handle
+	cache.signalEvent(EventType.CARD_REMOVED, new IfdEventObject(handle("Reader", null)));
+	assertNotNull(cache.get(id, APP, "EF.C.CH.AUT"));
+	ConnectionHandleType handle = new ConnectionHandleType();
+	handle.setSlotHandle(SLOT_HANDLE_1);
+	cache.invalidate(handle);
+	assertNull(cache.get(id, APP, "EF.C.CH.AUT"));
+    }
+
+    @Test
+    public void testSizeLimit() {
+	CardContentCache cache = new CardContentCache(12);
+	CardIdentity id = CardContentCache.getCardIdentity(handle("Reader", SLOT_HANDLE_1));
+
+	cache.put(id, APP, "A", CERT);
+	cache.put(id, APP, "B", CERT);
+	cache.get(id, APP, "A");
+	cache.put(id, APP, "C", CERT);
+
+	// B is the least recently used entry
+	assertNull(cache.get(id, APP, "B"));
+	assertNotNull(cache.get(id, APP, "A"));
+	assertNotNull(cache.get(id, APP, "C"));
+	assertEquals(cache.getEvictionCount(), 1);
+	assertTrue(cache.getSize() <= 12);
+    }
+
+    private static ConnectionHandleType handle(String ifdName, byte[] slotHandle) {
+	ConnectionHandleType handle = new ConnectionHandleType();
+	handle.setIFDName(ifdName);
+	handle.setSlotIndex(BigInteger.ZERO);
+	handle.setSlotHandle(slotHandle);
+	ConnectionHandleType.RecognitionInfo rInfo = new ConnectionHandleType.RecognitionInfo();
+	rInfo.setCardType("http://card");
+	handle.setRecognitionInfo(rInfo);
+	return handle;
+    }
+
+}
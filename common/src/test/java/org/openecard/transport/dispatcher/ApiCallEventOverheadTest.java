@@ -0,0 +1,123 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+package org.openecard.transport.dispatcher;
+
+import iso.std.iso_iec._24727.tech.schema.InputAPDUInfoType;
+import iso.std.iso_iec._24727.tech.schema.Transmit;
+import iso.std.iso_iec._24727.tech.schema.TransmitResponse;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openecard.common.WSHelper;
+import org.openecard.common.event.EventDispatcherImpl;
+import org.openecard.common.event.EventType;
+import org.openecard.common.interfaces.EventCallback;
+import org.openecard.common.interfaces.EventDispatcher;
+import org.openecard.common.util.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.Test;
+import static org.testng.Assert.*;
+
+
+/**
+ * Measures the time of APDU round trips through the dispatcher with and without subscribers for API call events.
+ */
+@Test(groups={"it"})
+public class ApiCallEventOverheadTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ApiCallEventOverheadTest.class);
+
+    private static final int WARMUP = 2000;
+    private static final int ROUNDS = 10000;
+
+    @Test
+    public void testTransmitRoundTrip() throws Exception {
+	final EventDispatcherImpl events = new EventDispatcherImpl();
+	events.start();
+	try {
+	    Environment env = new Environment(events);
+	    env.setIFD(new TestIFD() {
+		@Override
+		public TransmitResponse transmit(Transmit parameters) {
+		    TransmitResponse res = WSHelper.makeResponse(TransmitResponse.class, WSHelper.makeResultOK());
+		    res.getOutputAPDU().add(new byte[] { (byte) 0x90, 0x00 });
+		    return res;
+		}
+	    });
+	    MessageDispatcher disp = new MessageDispatcher(env);
+
+	    // only card events are observed, as in a client without status or WaitForChange clients
+	    final AtomicInteger apiEvents = new AtomicInteger();
+	    EventCallback cardCb = (t, o) -> { };
+	    events.add(cardCb, EventType.CARD_INSERTED, EventType.CARD_REMOVED, EventType.CARD_RECOGNIZED);
+	    long unobserved = measure(disp);
+
+	    // a status client waits for events, so that all events are created and delivered
+	    EventCallback allCb = (t, o) -> {
+		if (t == EventType.API_CALL_STARTED || t == EventType.API_CALL_FINISHED) {
+		    apiEvents.incrementAndGet();
+		}
+	    };
+	    events.add(allCb);
+	    long observed = measure(disp);
+	    events.del(allCb);
+
+	    LOG.info("Transmit round trip: {} ns without API call subscribers, {} ns with a subscriber for all events.",
+		    unobserved, observed);
+	    assertTrue(apiEvents.get() > 0);
+	    assertTrue(unobserved < observed, "Round trips without subscribers must be faster.");
+	} finally {
+	    events.terminate();
+	}
+    }
+
+    private static long measure(MessageDispatcher disp) throws Exception {
+	Transmit req = new Transmit();
+	req.setSlotHandle(new byte[] { 0x01 });
+	req.getInputAPDUInfo().add(new InputAPDUInfoType());
+	req.getInputAPDUInfo().get(0).setInputAPDU(StringUtils.toByteArray("00A4040C07A0000002471001"));
+	for (int i = 0; i < WARMUP; i++) {
+	    disp.deliver(req);
+	}
+	long start = System.nanoTime();
+	for (int i = 0; i < ROUNDS; i++) {
+	    disp.deliver(req);
+	}
+	return (System.nanoTime() - start) / ROUNDS;
+    }
+
+
+    private static class Environment extends TestEnv1 {
+
+	private final EventDispatcher events;
+
+	Environment(EventDispatcher events) {
+	    this.events = events;
+	}
+
+	@Override
+	public EventDispatcher getEventDispatcher() {
+	    return events;
+	}
+
+    }
+
+}
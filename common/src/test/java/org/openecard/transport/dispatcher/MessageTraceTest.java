@@ -0,0 +1,88 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.transport.dispatcher;
+
+import iso.std.iso_iec._24727.tech.schema.ConnectionHandleType;
+import iso.std.iso_iec._24727.tech.schema.InputAPDUInfoType;
+import iso.std.iso_iec._24727.tech.schema.Transmit;
+import iso.std.iso_iec._24727.tech.schema.TransmitResponse;
+import java.util.List;
+import org.openecard.common.WSHelper;
+import org.testng.annotations.Test;
+import static org.testng.Assert.*;
+
+
+/**
+ * Tests for the ring buffer of the {@link MessageTrace}.
+ */
+public class MessageTraceTest {
+
+    @Test
+    public void testTransmitEntry() {
+	MessageTrace trace = new MessageTrace(4, 0);
+
+	ConnectionHandleType handle = new ConnectionHandleType();
+	handle.setSlotHandle(new byte[] { 1, 2 });
+	Transmit req = new Transmit();
+	InputAPDUInfoType apdu = new InputAPDUInfoType();
+	apdu.setInputAPDU(new byte[] { 0x00, (byte) 0xA4, 0x04, 0x0C });
+	req.getInputAPDUInfo().add(apdu);
+	TransmitResponse res = WSHelper.makeResponse(TransmitResponse.class, WSHelper.makeResultOK());
+	res.getOutputAPDU().add(new byte[] { (byte) 0x90, 0x00 });
+
+	trace.record(handle, req, res, System.nanoTime(), null);
+
+	List<MessageTrace.Entry> entries = trace.export();
+	assertEquals(entries.size(), 1);
+	MessageTrace.Entry e = entries.get(0);
+	assertEquals(e.getRequestType(), "Transmit");
+	assertEquals(e.getSlotHandle(), new byte[] { 1, 2 });
+	assertEquals(e.getCommandSize(), 4);
+	assertEquals(e.getResponseSize(), 2);
+	assertNotNull(e.getResultMajor());
+	assertNull(e.getError());
+    }
+
+    @Test
+    public void testOverwrite() {
+	MessageTrace trace = new MessageTrace(3, 0);
+	for (int i = 0; i < 5; i++) {
+	    trace.record(null, new Transmit(), null, System.nanoTime(), null);
+	}
+
+	List<MessageTrace.Entry> entries = trace.export();
+	assertEquals(entries.size(), 3);
+	assertEquals(entries.get(0).getSeqNum(), 2);
+	assertEquals(entries.get(2).getSeqNum(), 4);
+    }
+
+    @Test
+    public void testDisabled() {
+	MessageTrace trace = new MessageTrace(0, 1);
+	trace.record(null, new Transmit(), null, System.nanoTime(), null);
+
+	assertFalse(trace.isEnabled());
+	assertTrue(trace.export().isEmpty());
+    }
+
+}
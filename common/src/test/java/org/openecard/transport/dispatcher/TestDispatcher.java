@@ -78,4 +78,28 @@ public class TestDispatcher {
 	assertTrue(res instanceof EstablishContextResponse);
     }
 
+    /**
+     * Test that the service instance is taken from the environment when the message is delivered.
+     *
+     * @throws Exception If the test is a failure.
+     */
+    @Test
+    public void testReplacedService() throws Exception {
+	Environment env = new TestEnv1();
+	env.setIFD(new TestIFD());
+	MessageDispatcher disp = new MessageDispatcher(env);
+
+	final EstablishContextResponse expected = new EstablishContextResponse();
+	env.setIFD(new TestIFD() {
+	    @Override
+	    public EstablishContextResponse establishContext(EstablishContext parameters) {
+		return expected;
+	    }
+	});
+
+	Object res = disp.deliver(new EstablishContext());
+
+	assertSame(res, expected);
+    }
+
 }
@@ -0,0 +1,126 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.crypto.common.asn1.eac;
+
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.Map;
+import org.openecard.bouncycastle.asn1.x9.X9ECParameters;
+import org.openecard.bouncycastle.crypto.ec.CustomNamedCurves;
+import org.openecard.bouncycastle.jce.ECNamedCurveTable;
+import org.openecard.bouncycastle.jce.spec.ECNamedCurveParameterSpec;
+import org.openecard.bouncycastle.jce.spec.ECParameterSpec;
+import org.openecard.bouncycastle.math.ec.ECMultiplier;
+import org.openecard.bouncycastle.math.ec.ECPoint;
+import org.openecard.bouncycastle.math.ec.FixedPointCombMultiplier;
+import org.openecard.bouncycastle.math.ec.FixedPointUtil;
+
+
+/**
+ * Process wide registry of the elliptic curves used by the standardized EAC domain parameters.
+ * <p>Each curve is built only once and shared by all PACE and CA runs. Multiplications of the generator of such a
+ * curve use a fixed-base comb whose table is attached to the shared generator, so it is computed only for the first
+ * multiplication. Generators which are not registered here, such as the mapped generators of PACE, are multiplied
+ * with the default multiplier of their curve.</p>
+ * <p>Where Bouncy Castle offers a curve implementation with specialised field arithmetic, this implementation is
+ * used instead of the generic one. Both produce the same points and encodings.</p>
+ */
+public final class StandardizedCurves {
+
+    private static final Map<String, ECParameterSpec> CURVES = new HashMap<>();
+    private static final ECMultiplier COMB_MULTIPLIER = new FixedPointCombMultiplier();
+
+    private StandardizedCurves() {
+    }
+
+    /**
+     * Gets the shared parameters of the named curve.
+     * The parameters are created on first access.
+     *
+     * @param name Name of the curve, e.g. {@code BrainpoolP256r1}.
+     * @return Parameters of the curve.
+     * @throws IllegalArgumentException Thrown in case the curve is unknown.
+     */
+    public static synchronized ECParameterSpec getParameterSpec(String name) {
+	ECParameterSpec spec = CURVES.get(name);
+	if (spec == null) {
+	    spec = createParameterSpec(name);
+	    CURVES.put(name, spec);
+	}
+	return spec;
+    }
+
+    private static ECParameterSpec createParameterSpec(String name) {
+	X9ECParameters custom = CustomNamedCurves.getByName(name);
+	if (custom != null) {
+	    return new ECNamedCurveParameterSpec(name, custom.getCurve(), custom.getG(), custom.getN(), custom.getH(),
+		    custom.getSeed());
+	}
+	ECParameterSpec spec = ECNamedCurveTable.getParameterSpec(name);
+	if (spec == null) {
+	    throw new IllegalArgumentException("Unknown curve " + name + ".");
+	}
+	return spec;
+    }
+
+    /**
+     * Computes the fixed-base comb table for the generator of the named curve.
+     * Calling this method is optional, the table is otherwise computed with the first multiplication.
+     *
+     * @param name Name of the curve, e.g. {@code BrainpoolP256r1}.
+     * @throws IllegalArgumentException Thrown in case the curve is unknown.
+     */
+    public static void precompute(String name) {
+	FixedPointUtil.precompute(getParameterSpec(name).getG());
+    }
+
+    /**
+     * Multiplies the generator of the given parameters with a scalar.
+     * The fixed-base comb is only used when the parameters carry the generator of a registered curve.
+     *
+     * @param params Parameters whose generator is multiplied.
+     * @param k Scalar to multiply the generator with.
+     * @return The point {@code k * G}.
+     */
+    public static ECPoint multiplyGenerator(ECParameterSpec params, BigInteger k) {
+	ECPoint g = params.getG();
+	if (! isRegisteredGenerator(g)) {
+	    return g.multiply(k);
+	}
+	// the comb only covers scalars up to the bit length of the group order
+	if (k.signum() < 0 || k.bitLength() > params.getN().bitLength()) {
+	    k = k.mod(params.getN());
+	}
+	return COMB_MULTIPLIER.multiply(g, k);
+    }
+
+    private static synchronized boolean isRegisteredGenerator(ECPoint g) {
+	for (ECParameterSpec spec : CURVES.values()) {
+	    if (spec.getG() == g) {
+		return true;
+	    }
+	}
+	return false;
+    }
+
+}
@@ -26,7 +26,6 @@ import java.math.BigInteger;
 import java.security.spec.AlgorithmParameterSpec;
 import java.util.HashMap;
 import java.util.Map;
-import org.openecard.bouncycastle.jce.ECNamedCurveTable;
 import org.openecard.bouncycastle.jce.spec.ElGamalParameterSpec;
 
 
@@ -97,7 +96,7 @@ public final class StandardizedDomainParameters extends DomainParameters {
 	    if (index >= 0 && index <= 2) {
 		domainParameter = (AlgorithmParameterSpec) value;
 	    } else if (index >= 8 && index <= 18) {
-		domainParameter = ECNamedCurveTable.getParameterSpec(value.toString());
+		domainParameter = StandardizedCurves.getParameterSpec(value.toString());
 	    }
 	}
     }
@@ -38,6 +38,8 @@ import org.openecard.common.ECardConstants;
 import org.openecard.common.SecurityConditionUnsatisfiable;
 import org.openecard.common.WSHelper;
 import org.openecard.common.util.ByteUtils;
+import org.openecard.common.util.CardContentCache;
+import org.openecard.common.util.CardContentCache.CardIdentity;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -156,21 +158,60 @@ public class DataSetInfo {
 
     public byte[] read() throws WSHelper.WSException {
 	if (cachedData == null) {
-	    select();
+	    cachedData = readFromCard();
+	}
+
+	// copy to be safe from cache manipulation
+	return ByteUtils.clone(cachedData);
+    }
 
-	    DSIRead req = new DSIRead();
-	    req.setConnectionHandle(didInfos.getHandle(application));
-	    req.setDSIName(datasetNameTarget.getDataSetName());
+    /**
+     * Reads the data set and keeps its content in the {@link CardContentCache}.
+     * This method must only be used for data sets whose content never changes, such as certificates. The cached
+     * content is only used when the access conditions of the data set are currently satisfied.
+     *
+     * @return Content of the data set.
+     * @throws WSHelper.WSException Thrown in case reading the data set failed.
+     */
+    byte[] readStatic() throws WSHelper.WSException {
+	if (cachedData == null) {
+	    CardIdentity cardIdentity = didInfos.getCardIdentity();
+	    String datasetName = datasetNameTarget.getDataSetName();
+	    CardContentCache contentCache = CardContentCache.getInstance();
 
-	    DSIReadResponse res = (DSIReadResponse) didInfos.getDispatcher().safeDeliver(req);
-	    WSHelper.checkResult(res);
-	    cachedData = res.getDSIContent();
+	    if (isAccessGranted()) {
+		cachedData = contentCache.get(cardIdentity, application, datasetName);
+	    }
+	    if (cachedData == null) {
+		cachedData = readFromCard();
+		contentCache.put(cardIdentity, application, datasetName, cachedData);
+	    }
 	}
 
 	// copy to be safe from cache manipulation
 	return ByteUtils.clone(cachedData);
     }
 
+    private boolean isAccessGranted() throws WSHelper.WSException {
+	try {
+	    return getMissingDids().isEmpty();
+	} catch (SecurityConditionUnsatisfiable ex) {
+	    return false;
+	}
+    }
+
+    private byte[] readFromCard() throws WSHelper.WSException {
+	select();
+
+	DSIRead req = new DSIRead();
+	req.setConnectionHandle(didInfos.getHandle(application));
+	req.setDSIName(datasetNameTarget.getDataSetName());
+
+	DSIReadResponse res = (DSIReadResponse) didInfos.getDispatcher().safeDeliver(req);
+	WSHelper.checkResult(res);
+	return res.getDSIContent();
+    }
+
     private void select() throws WSHelper.WSException {
 	DataSetSelect req = new DataSetSelect();
 	req.setConnectionHandle(didInfos.getHandle(application));
@@ -113,16 +113,17 @@ public class DidInfo {
 	this.didTarget.setDIDName(didStruct.getDIDName());
 	this.didScope = didStruct.getDIDScope();
 	if (pin != null) {
-	    Arrays.fill(this.pin, ' ');
 	    this.pin = pin.clone();
 	} else {
 	    this.pin = null;
 	}
     }
 
-    public void setPin(char[] pin) {
-	if (pin != null) {
+    public void setPin(@Nullable char[] pin) {
+	if (this.pin != null) {
 	    Arrays.fill(this.pin, ' ');
+	}
+	if (pin != null) {
 	    this.pin = pin.clone();
 	} else {
 	    this.pin = null;
@@ -376,7 +377,7 @@ public class DidInfo {
 		    if (dsi.isPinSufficient()) {
 			dsi.connectApplication();
 			dsi.authenticate();
-			byte[] data = dsi.read();
+			byte[] data = dsi.readStatic();
 			rawCerts.add(data);
 		    } else {
 			allCertsRead = false;
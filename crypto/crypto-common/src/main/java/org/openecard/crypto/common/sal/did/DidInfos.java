@@ -47,6 +47,8 @@ import org.openecard.common.WSHelper;
 import org.openecard.common.interfaces.Dispatcher;
 import org.openecard.common.util.ByteComparator;
 import org.openecard.common.util.ByteUtils;
+import org.openecard.common.util.CardContentCache;
+import org.openecard.common.util.CardContentCache.CardIdentity;
 import org.openecard.common.util.HandlerUtils;
 
 
@@ -61,6 +63,7 @@ public class DidInfos {
     private char[] pin;
 
     private ConnectionHandleType handle;
+    private CardIdentity cardIdentity;
     private List<byte[]> applications;
     private Map<byte[], List<String>> allDidNames;
     private Map<byte[], Map<String, DidInfo>> cachedDids;
@@ -68,6 +71,7 @@ public class DidInfos {
 
     public DidInfos(@Nonnull Dispatcher dispatcher, @Nullable char[] pin, @Nonnull ConnectionHandleType handle) {
 	this(dispatcher, pin, handle.getSlotHandle());
+	this.cardIdentity = CardContentCache.getCardIdentity(handle);
     }
 
     public DidInfos(@Nonnull Dispatcher dispatcher, @Nullable char[] pin, @Nonnull byte[] slotHandle) {
@@ -80,6 +84,7 @@ public class DidInfos {
 
 	handle = new ConnectionHandleType();
 	handle.setSlotHandle(ByteUtils.clone(slotHandle));
+	cardIdentity = CardContentCache.getCardIdentity(slotHandle);
 	cachedDids = new TreeMap<>(new ByteComparator());
 	cachedDataSets = new TreeMap<>(new ByteComparator());
     }
@@ -104,6 +109,16 @@ public class DidInfos {
 	return applicationCache;
     }
 
+    /**
+     * Gets the identity of the card used to look up its content in the {@link CardContentCache}.
+     *
+     * @return The identity of the card connection.
+     */
+    @Nonnull
+    CardIdentity getCardIdentity() {
+	return cardIdentity;
+    }
+
     Dispatcher getDispatcher() {
 	return dispatcher;
     }
@@ -136,13 +151,26 @@ public class DidInfos {
     }
 
 
+    /**
+     * Sets the PIN used by this object and by all DID objects created by it.
+     *
+     * @param pin The PIN, or {@code null} to remove the PIN.
+     */
     public void setPin(@Nullable char[] pin) {
-	if (pin != null) {
+	if (this.pin != null) {
 	    Arrays.fill(this.pin, ' ');
+	}
+	if (pin != null) {
 	    this.pin = pin.clone();
 	} else {
 	    this.pin = null;
 	}
+	// DID objects handed out earlier keep their own copy, so they must get the new PIN as well
+	for (Map<String, DidInfo> appCache : cachedDids.values()) {
+	    for (DidInfo did : appCache.values()) {
+		did.setPin(pin);
+	    }
+	}
     }
 
     public List<byte[]> getApplications() throws WSHelper.WSException {
@@ -332,14 +360,21 @@ public class DidInfos {
 	WSHelper.checkResult(res);
     }
 
-    public void clearPin(byte[] slotHandle) {
+    /**
+     * Removes the PIN from this object and from all DID objects created by it.
+     */
+    public void clearPin() {
 	setPin(null);
-	for (Map.Entry<byte[], Map<String, DidInfo>> e1 : cachedDids.entrySet()) {
-	    if (ByteUtils.compare(slotHandle, e1.getKey())) {
-		for (Map.Entry<String, DidInfo> e2 : e1.getValue().entrySet()) {
-		    e2.getValue().setPin(null);
-		}
-	    }
+    }
+
+    /**
+     * Removes the PIN if this object belongs to the given slot handle.
+     *
+     * @param slotHandle Slot handle of the card connection.
+     */
+    public void clearPin(byte[] slotHandle) {
+	if (ByteUtils.compare(slotHandle, handle.getSlotHandle())) {
+	    clearPin();
 	}
     }
 
@@ -23,39 +23,64 @@
 package org.openecard.crypto.common.sal.did;
 
 import iso.std.iso_iec._24727.tech.schema.ConnectionHandleType;
-import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.TreeMap;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import org.openecard.common.interfaces.Dispatcher;
-import org.openecard.common.util.ByteComparator;
+import org.openecard.common.util.ByteUtils;
 
 
 /**
  * Simple cache for the DIDInfos entry point to card data.
+ * The cache holds the entries of the {@value #MAX_ENTRIES} most recently used slot handles. The PIN of an entry is
+ * cleared when it is dropped.
  *
  * @author Tobias Wich
  */
 public class TokenCache {
 
+    static final int MAX_ENTRIES = 8;
+
     private final Dispatcher dispatcher;
-    private final Map<byte[], DidInfos> cachedInfos;
+    private final Map<String, DidInfos> cachedInfos;
 
     public TokenCache(@Nonnull Dispatcher dispatcher) {
 	this.dispatcher = dispatcher;
-	this.cachedInfos = new TreeMap<>(new ByteComparator());
+	this.cachedInfos = new LinkedHashMap<String, DidInfos>(16, 0.75f, true) {
+	    @Override
+	    protected boolean removeEldestEntry(Map.Entry<String, DidInfos> eldest) {
+		if (size() > MAX_ENTRIES) {
+		    eldest.getValue().setPin(null);
+		    return true;
+		}
+		return false;
+	    }
+	};
     }
 
-    public DidInfos getInfo(@Nullable char[] pin, @Nonnull ConnectionHandleType handle) {
-	return getInfo(pin, handle.getSlotHandle());
+    public synchronized DidInfos getInfo(@Nullable char[] pin, @Nonnull ConnectionHandleType handle) {
+	String key = ByteUtils.toHexString(handle.getSlotHandle());
+	DidInfos result = cachedInfos.get(key);
+
+	if (result == null) {
+	    // the complete handle allows to drop the content of the card from the content cache when it is removed
+	    result = new DidInfos(dispatcher, pin, handle);
+	    cachedInfos.put(key, result);
+	} else if (pin != null) {
+	    result.setPin(pin);
+	}
+
+	return result;
     }
 
-    public DidInfos getInfo(@Nullable char[] pin, @Nonnull byte[] slotHandle) {
-	DidInfos result = cachedInfos.get(slotHandle);
+    public synchronized DidInfos getInfo(@Nullable char[] pin, @Nonnull byte[] slotHandle) {
+	String key = ByteUtils.toHexString(slotHandle);
+	DidInfos result = cachedInfos.get(key);
 
 	if (result == null) {
 	    result = new DidInfos(dispatcher, pin, slotHandle);
+	    cachedInfos.put(key, result);
 	} else if (pin != null) {
 	    result.setPin(pin);
 	}
@@ -63,13 +88,9 @@ public class TokenCache {
 	return result;
     }
 
-    public void clearPins() {
-	Iterator<Map.Entry<byte[], DidInfos>> it = cachedInfos.entrySet().iterator();
-	while (it.hasNext()) {
-	    Map.Entry<byte[], DidInfos> next = it.next();
-	    byte[] slotHandle = next.getKey();
-	    DidInfos dids = next.getValue();
-	    dids.clearPin(slotHandle);
+    public synchronized void clearPins() {
+	for (DidInfos dids : cachedInfos.values()) {
+	    dids.clearPin();
 	}
     }
 
@@ -0,0 +1,89 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.crypto.common.asn1.eac;
+
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import org.openecard.bouncycastle.jce.ECNamedCurveTable;
+import org.openecard.bouncycastle.jce.spec.ECNamedCurveParameterSpec;
+import org.openecard.bouncycastle.jce.spec.ECParameterSpec;
+import org.openecard.bouncycastle.math.ec.ECPoint;
+import org.testng.annotations.Test;
+import static org.testng.Assert.*;
+
+
+/**
+ * Tests for the shared curves of the standardized domain parameters.
+ */
+public class StandardizedCurvesTest {
+
+    private static final int[] EC_INDICES = { 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18 };
+
+    @Test
+    public void testSharedParameters() {
+	for (int i : EC_INDICES) {
+	    Object first = new StandardizedDomainParameters(i).getParameter();
+	    Object second = new StandardizedDomainParameters(i).getParameter();
+	    assertSame(first, second);
+	}
+    }
+
+    @Test
+    public void testGeneratorMultiplication() {
+	SecureRandom rand = new SecureRandom();
+	for (int i : EC_INDICES) {
+	    ECParameterSpec p = (ECParameterSpec) new StandardizedDomainParameters(i).getParameter();
+	    String name = ((ECNamedCurveParameterSpec) p).getName();
+	    ECParameterSpec ref = ECNamedCurveTable.getParameterSpec(name);
+
+	    // same curve as the generic implementation
+	    assertEquals(p.getG().getEncoded(false), ref.getG().getEncoded(false));
+	    assertEquals(p.getN(), ref.getN());
+
+	    BigInteger[] scalars = {
+		BigInteger.ONE,
+		p.getN().subtract(BigInteger.ONE),
+		p.getN().add(BigInteger.TEN),
+		new BigInteger(p.getN().bitLength(), rand),
+		new BigInteger(128, rand),
+	    };
+	    for (BigInteger k : scalars) {
+		ECPoint expected = ref.getG().multiply(k);
+		ECPoint actual = StandardizedCurves.multiplyGenerator(p, k);
+		assertEquals(actual.getEncoded(false), expected.getEncoded(false));
+	    }
+	}
+    }
+
+    @Test
+    public void testUnregisteredGenerator() {
+	ECParameterSpec p = StandardizedCurves.getParameterSpec("BrainpoolP256r1");
+	ECPoint g2 = p.getG().twice().normalize();
+	ECParameterSpec mapped = new ECParameterSpec(p.getCurve(), g2, p.getN(), p.getH());
+
+	BigInteger k = BigInteger.valueOf(12345);
+	ECPoint expected = p.getG().multiply(k.shiftLeft(1));
+	assertEquals(StandardizedCurves.multiplyGenerator(mapped, k).getEncoded(false), expected.getEncoded(false));
+    }
+
+}
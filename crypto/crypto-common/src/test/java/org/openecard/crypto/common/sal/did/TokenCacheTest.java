@@ -0,0 +1,171 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.crypto.common.sal.did;
+
+import iso.std.iso_iec._24727.tech.schema.CardApplicationList;
+import iso.std.iso_iec._24727.tech.schema.CardApplicationListResponse;
+import iso.std.iso_iec._24727.tech.schema.DIDAuthenticate;
+import iso.std.iso_iec._24727.tech.schema.DIDAuthenticateResponse;
+import iso.std.iso_iec._24727.tech.schema.DIDAuthenticationDataType;
+import iso.std.iso_iec._24727.tech.schema.DIDGet;
+import iso.std.iso_iec._24727.tech.schema.DIDGetResponse;
+import iso.std.iso_iec._24727.tech.schema.DIDList;
+import iso.std.iso_iec._24727.tech.schema.DIDListResponse;
+import iso.std.iso_iec._24727.tech.schema.DIDNameListType;
+import iso.std.iso_iec._24727.tech.schema.DIDStructureType;
+import iso.std.iso_iec._24727.tech.schema.PinCompareMarkerType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.openecard.common.WSHelper;
+import org.openecard.common.anytype.pin.PINCompareDIDAuthenticateInputType;
+import org.openecard.common.interfaces.Dispatcher;
+import org.testng.annotations.Test;
+import static org.testng.Assert.*;
+
+
+/**
+ * Tests for the size limit and the PIN handling of the {@link TokenCache}.
+ */
+public class TokenCacheTest {
+
+    @Test
+    public void testLeastRecentlyUsedSlotIsDropped() {
+	TokenCache cache = new TokenCache(new NoDispatcher());
+	DidInfos first = cache.getInfo(null, slotHandle(0));
+	DidInfos second = cache.getInfo(null, slotHandle(1));
+	for (int i = 2; i < TokenCache.MAX_ENTRIES; i++) {
+	    cache.getInfo(null, slotHandle(i));
+	}
+	// use the first entry, so that the second one is the least recently used
+	assertSame(cache.getInfo(null, slotHandle(0)), first);
+
+	cache.getInfo(null, slotHandle(TokenCache.MAX_ENTRIES));
+	assertSame(cache.getInfo(null, slotHandle(0)), first);
+	assertNotSame(cache.getInfo(null, slotHandle(1)), second);
+    }
+
+    @Test
+    public void testPinChangeReachesCachedDids() throws Exception {
+	PinDispatcher dispatcher = new PinDispatcher();
+	TokenCache cache = new TokenCache(dispatcher);
+	DidInfo did = cache.getInfo("1111".toCharArray(), slotHandle(0)).getDidInfo(PIN_DID);
+	did.enterPin();
+
+	// retry with a corrected PIN
+	assertSame(cache.getInfo("2222".toCharArray(), slotHandle(0)).getDidInfo(PIN_DID), did);
+	did.enterPin();
+
+	// after clearing, no PIN is sent, so that the user is asked again
+	cache.clearPins();
+	did.enterPin();
+	cache.getInfo(null, slotHandle(0)).getDidInfo(PIN_DID).enterPin();
+
+	assertEquals(dispatcher.pins, Arrays.asList("1111", "2222", null, null));
+    }
+
+    private static byte[] slotHandle(int i) {
+	return new byte[] { 0x0A, (byte) i };
+    }
+
+
+    private static final String PIN_DID = "PIN";
+
+    /**
+     * Card with one application containing a PIN DID, which records the PINs sent with DIDAuthenticate.
+     */
+    private static class PinDispatcher extends NoDispatcher {
+
+	private final List<String> pins = new ArrayList<>();
+
+	@Override
+	public Object safeDeliver(Object request) {
+	    if (request instanceof CardApplicationList) {
+		CardApplicationListResponse res = WSHelper.makeResponse(CardApplicationListResponse.class,
+			WSHelper.makeResultOK());
+		CardApplicationListResponse.CardApplicationNameList names;
+		names = new CardApplicationListResponse.CardApplicationNameList();
+		names.getCardApplicationName().add(new byte[] { 0x01 });
+		res.setCardApplicationNameList(names);
+		return res;
+	    } else if (request instanceof DIDList) {
+		DIDListResponse res = WSHelper.makeResponse(DIDListResponse.class, WSHelper.makeResultOK());
+		DIDNameListType names = new DIDNameListType();
+		names.getDIDName().add(PIN_DID);
+		res.setDIDNameList(names);
+		return res;
+	    } else if (request instanceof DIDGet) {
+		DIDGetResponse res = WSHelper.makeResponse(DIDGetResponse.class, WSHelper.makeResultOK());
+		DIDStructureType did = new DIDStructureType();
+		did.setDIDName(PIN_DID);
+		PinCompareMarkerType marker = new PinCompareMarkerType();
+		marker.setProtocol("urn:oid:1.3.162.15480.3.0.9");
+		did.setDIDMarker(marker);
+		res.setDIDStructure(did);
+		return res;
+	    } else if (request instanceof DIDAuthenticate) {
+		try {
+		    DIDAuthenticate req = (DIDAuthenticate) request;
+		    char[] pin = new PINCompareDIDAuthenticateInputType(req.getAuthenticationProtocolData()).getPIN();
+		    pins.add(pin != null && pin.length > 0 ? new String(pin) : null);
+		} catch (Exception ex) {
+		    throw new IllegalStateException(ex);
+		}
+		DIDAuthenticateResponse res = WSHelper.makeResponse(DIDAuthenticateResponse.class,
+			WSHelper.makeResultOK());
+		DIDAuthenticationDataType data = new DIDAuthenticationDataType();
+		data.setProtocol("urn:oid:1.3.162.15480.3.0.9");
+		res.setAuthenticationProtocolData(data);
+		return res;
+	    }
+	    return super.safeDeliver(request);
+	}
+
+    }
+
+    private static class NoDispatcher implements Dispatcher {
+
+	@Override
+	public Object deliver(Object request) {
+	    throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public Object safeDeliver(Object request) {
+	    throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public List<String> getServiceList() {
+	    return Collections.emptyList();
+	}
+
+	@Override
+	public Dispatcher getFilter() {
+	    return this;
+	}
+
+    }
+
+}
@@ -34,6 +34,8 @@ import java.util.Vector;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import org.openecard.bouncycastle.tls.AlertLevel;
+import org.openecard.bouncycastle.tls.Certificate;
+import org.openecard.bouncycastle.tls.CertificateStatus;
 import org.openecard.bouncycastle.tls.CipherSuite;
 import org.openecard.bouncycastle.tls.DefaultTlsClient;
 import org.openecard.bouncycastle.tls.HashAlgorithm;
@@ -42,10 +44,12 @@ import org.openecard.bouncycastle.tls.NamedGroup;
 import org.openecard.bouncycastle.tls.NamedGroupRole;
 import org.openecard.bouncycastle.tls.ProtocolVersion;
 import org.openecard.bouncycastle.tls.ServerName;
+import org.openecard.bouncycastle.tls.SessionParameters;
 import org.openecard.bouncycastle.tls.SignatureAlgorithm;
 import org.openecard.bouncycastle.tls.SignatureAndHashAlgorithm;
 import org.openecard.bouncycastle.tls.TlsAuthentication;
 import org.openecard.bouncycastle.tls.TlsClientContext;
+import org.openecard.bouncycastle.tls.TlsServerCertificate;
 import org.openecard.bouncycastle.tls.TlsSession;
 import org.openecard.bouncycastle.tls.TlsUtils;
 import org.openecard.bouncycastle.tls.crypto.TlsCrypto;
@@ -72,6 +76,12 @@ public class ClientCertDefaultTlsClient extends DefaultTlsClient implements Clie
     private boolean enforceSameSession = false;
     private TlsSession firstSession;
     private TlsSession lastSession;
+    private TlsSessionCache sessionCache;
+    private int sessionCachePort;
+    private String credentialIdentity;
+    private TlsSession offeredSession;
+    private boolean offeredFromCache;
+    private boolean resumedSession;
 
     protected ArrayList<ServerName> serverNames;
     protected ProtocolVersion clientVersion = ProtocolVersion.TLSv12;
@@ -154,6 +164,24 @@ public class ClientCertDefaultTlsClient extends DefaultTlsClient implements Clie
 	this.enforceSameSession = enforceSameSession;
     }
 
+    /**
+     * Lets this client resume sessions from the given cache and save its sessions there.
+     * The entries are bound to the host given in the constructor, the given port and the identity of the client
+     * credential. Sessions in which a client certificate has been sent are only saved when a credential identity is
+     * given, so that they are never resumed on behalf of a different card or key.<br>
+     * When a session from the cache is resumed, the server certificate of that session is passed to the
+     * {@link TlsAuthentication} of this client, as if the server had sent it in the handshake.
+     *
+     * @param sessionCache Cache to use, or {@code null} to disable the cache for this client.
+     * @param port Port of the server this client connects to.
+     * @param credentialIdentity Identity of the client credential, or {@code null} if no client certificate is used.
+     */
+    public void setSessionCache(@Nullable TlsSessionCache sessionCache, int port, @Nullable String credentialIdentity) {
+	this.sessionCache = host != null ? sessionCache : null;
+	this.sessionCachePort = port;
+	this.credentialIdentity = credentialIdentity;
+    }
+
 
     @Override
     public synchronized TlsAuthentication getAuthentication() throws IOException {
@@ -178,6 +206,9 @@ public class ClientCertDefaultTlsClient extends DefaultTlsClient implements Clie
 	if (enforceSameSession && firstSession == null && lastSession != null) {
 	    this.firstSession = lastSession;
 	}
+	offeredSession = null;
+	offeredFromCache = false;
+	resumedSession = false;
 
 	super.init(context);
     }
@@ -302,6 +333,7 @@ public class ClientCertDefaultTlsClient extends DefaultTlsClient implements Clie
 	} else if (alertLevel == AlertLevel.fatal) {
 	    LOG.error("TLS error sent.");
 	    LOG.error(error.toString(), cause);
+	    forgetCachedSession();
 	}
 
 	super.notifyAlertRaised(alertLevel, alertDescription, message, cause);
@@ -316,26 +348,40 @@ public class ClientCertDefaultTlsClient extends DefaultTlsClient implements Clie
 	} else if (alertLevel == AlertLevel.fatal) {
 	    LOG.error("TLS error received.");
 	    LOG.error(error.toString());
+	    forgetCachedSession();
 	}
 
 	super.notifyAlertReceived(alertLevel, alertDescription);
     }
 
 
+    private void forgetCachedSession() {
+	if (offeredFromCache) {
+	    sessionCache.remove(host, sessionCachePort, credentialIdentity);
+	}
+    }
+
     @Override
     public TlsSession getSessionToResume() {
 	if (firstSession != null) {
-	    return firstSession;
+	    offeredSession = firstSession;
+	} else if (sessionCache != null && ! enforceSameSession) {
+	    offeredSession = sessionCache.get(host, sessionCachePort, credentialIdentity);
+	    offeredFromCache = offeredSession != null;
 	} else {
-	    return super.getSessionToResume();
+	    offeredSession = super.getSessionToResume();
 	}
+	return offeredSession;
     }
 
     @Override
     public void notifySessionID(byte[] sessionID) {
+	TlsSession s = offeredSession;
+	resumedSession = s != null && sessionID != null && sessionID.length > 0
+		&& ByteUtils.compare(s.getSessionID(), sessionID);
+
 	if (enforceSameSession) {
 	    // check if someone tries to resume and raise error
-	    TlsSession s = getSessionToResume();
 	    if (s != null) {
 		if (ByteUtils.compare(s.getSessionID(), sessionID)) {
 		    // the session id is the same meaning the protocol implementation will reject the handshake if the
@@ -355,14 +401,46 @@ public class ClientCertDefaultTlsClient extends DefaultTlsClient implements Clie
 
     @Override
     public void notifyHandshakeComplete() throws IOException {
+	if (resumedSession && offeredFromCache) {
+	    // the abbreviated handshake contains no certificate, so verify the one of the cached session
+	    LOG.debug("Resumed cached TLS session with {}.", host);
+	    verifyResumedServerCertificate(offeredSession);
+	}
+
 	lastSession = context != null ? context.getResumableSession() : null;
 	if (lastSession != null) {
 	    lastSession = TlsUtils.importSession(lastSession.getSessionID(), lastSession.exportSessionParameters());
 	}
+	// the entry of a resumed session stays as it is, so that its lifetime is not extended
+	if (sessionCache != null && lastSession != null && ! (resumedSession && offeredFromCache)) {
+	    Certificate localCert = lastSession.exportSessionParameters().getLocalCertificate();
+	    boolean clientAuth = localCert != null && ! localCert.isEmpty();
+	    if (clientAuth && credentialIdentity == null) {
+		sessionCache.remove(host, sessionCachePort, null);
+	    } else {
+		sessionCache.put(host, sessionCachePort, credentialIdentity, lastSession);
+	    }
+	}
 
 	super.notifyHandshakeComplete();
     }
 
+    private void verifyResumedServerCertificate(TlsSession session) throws IOException {
+	SessionParameters params = session.exportSessionParameters();
+	final Certificate serverCert = params != null ? params.getPeerCertificate() : null;
+	getAuthentication().notifyServerCertificate(new TlsServerCertificate() {
+	    @Override
+	    public Certificate getCertificate() {
+		return serverCert;
+	    }
+
+	    @Override
+	    public CertificateStatus getCertificateStatus() {
+		return null;
+	    }
+	});
+    }
+
     @Override
     public void notifySecureRenegotiation(boolean secureRenegotiation) throws IOException {
 	// pretend we accept it
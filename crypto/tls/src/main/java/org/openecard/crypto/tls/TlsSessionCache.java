@@ -0,0 +1,254 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.crypto.tls;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import org.openecard.bouncycastle.tls.SessionParameters;
+import org.openecard.bouncycastle.tls.TlsSession;
+import org.openecard.bouncycastle.tls.TlsUtils;
+import org.openecard.common.OpenecardProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Process wide cache of resumable TLS sessions, so that successive connections to the same server can use abbreviated
+ * handshakes even when they are made by different client instances.
+ * <p>Entries are keyed by host, port and the identity of the client credential, so a session is only offered to the
+ * server it was established with and only on behalf of the same client identity. The number of entries is limited by
+ * the property {@code tls.session_cache.max_entries}, the least recently used entries are evicted first. Entries expire
+ * after the number of seconds configured in {@code tls.session_cache.lifetime}. A value of 0 for either property
+ * disables the cache.</p>
+ * <p>Sessions are resumed by their session ID. The TLS stack does not implement TLS 1.3, so there are no PSK tickets to
+ * keep.</p>
+ *
+ * @see ClientCertDefaultTlsClient#setSessionCache(TlsSessionCache, int, String)
+ */
+public class TlsSessionCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TlsSessionCache.class);
+
+    private static final int DEFAULT_MAX_ENTRIES = 32;
+    private static final int DEFAULT_LIFETIME = 300;
+
+    private static final TlsSessionCache INSTANCE = new TlsSessionCache(
+	    readIntProperty("tls.session_cache.max_entries", DEFAULT_MAX_ENTRIES),
+	    readIntProperty("tls.session_cache.lifetime", DEFAULT_LIFETIME) * 1000L);
+
+    private final int maxEntries;
+    private final long lifetime;
+    private final Clock clock;
+    private final LinkedHashMap<String, Entry> entries;
+    private long hits = 0;
+    private long misses = 0;
+
+    /**
+     * Creates a new cache instance.
+     *
+     * @param maxEntries Maximum number of sessions held by the cache.
+     * @param lifetime Time in milliseconds after which a session is no longer offered for resumption.
+     */
+    public TlsSessionCache(int maxEntries, long lifetime) {
+	this(maxEntries, lifetime, System::currentTimeMillis);
+    }
+
+    /**
+     * Creates a new cache instance measuring the lifetime of the sessions with the given clock.
+     *
+     * @param maxEntries Maximum number of sessions held by the cache.
+     * @param lifetime Time in milliseconds after which a session is no longer offered for resumption.
+     * @param clock Source of the current time.
+     */
+    TlsSessionCache(int maxEntries, long lifetime, Clock clock) {
+	this.maxEntries = maxEntries;
+	this.lifetime = lifetime;
+	this.clock = clock;
+	this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Gets the cache shared by the whole process.
+     *
+     * @return The cache instance.
+     */
+    public static TlsSessionCache getInstance() {
+	return INSTANCE;
+    }
+
+    private static int readIntProperty(String key, int defaultValue) {
+	String value = OpenecardProperties.getProperty(key);
+	if (value != null) {
+	    try {
+		return Integer.parseInt(value.trim());
+	    } catch (NumberFormatException ex) {
+		LOG.warn("Invalid value '{}' configured for property {}.", value, key);
+	    }
+	}
+	return defaultValue;
+    }
+
+    private static String makeKey(String host, int port, @Nullable String credentialIdentity) {
+	String cred = credentialIdentity == null ? "" : credentialIdentity;
+	return host.toLowerCase(Locale.ROOT) + ":" + port + "|" + cred;
+    }
+
+    private boolean isEnabled() {
+	return maxEntries > 0 && lifetime > 0;
+    }
+
+    /**
+     * Gets a session which can be offered to the given server.
+     *
+     * @param host Host name or IP address of the server.
+     * @param port Port of the server.
+     * @param credentialIdentity Identity of the client credential, or {@code null} if the client does not authenticate.
+     * @return A resumable session, or {@code null} if no valid session is cached.
+     */
+    @Nullable
+    public synchronized TlsSession get(@Nonnull String host, int port, @Nullable String credentialIdentity) {
+	if (! isEnabled()) {
+	    return null;
+	}
+
+	String key = makeKey(host, port, credentialIdentity);
+	Entry e = entries.get(key);
+	if (e != null && (clock.currentTimeMillis() - e.created > lifetime || ! e.session.isResumable())) {
+	    entries.remove(key);
+	    e = null;
+	}
+
+	if (e != null) {
+	    hits++;
+	    return e.session;
+	} else {
+	    misses++;
+	    return null;
+	}
+    }
+
+    /**
+     * Saves the given session for the given server.
+     * An existing entry for the same server and credential identity is replaced, unless it holds the same session. In
+     * that case the entry is kept, so that resuming a session does not extend its lifetime. Sessions which are not
+     * resumable are not saved.
+     *
+     * @param host Host name or IP address of the server.
+     * @param port Port of the server.
+     * @param credentialIdentity Identity of the client credential, or {@code null} if the client does not authenticate.
+     * @param session The session established with the server.
+     */
+    public synchronized void put(@Nonnull String host, int port, @Nullable String credentialIdentity,
+	    @Nonnull TlsSession session) {
+	if (! isEnabled() || ! session.isResumable()) {
+	    return;
+	}
+
+	String key = makeKey(host, port, credentialIdentity);
+	Entry existing = entries.get(key);
+	if (existing != null && Arrays.equals(existing.session.getSessionID(), session.getSessionID())) {
+	    // resumed session, the lifetime counts from the full handshake
+	    return;
+	}
+
+	// keep a copy detached from the connection, the TLS stack invalidates it when a resumption attempt fails
+	SessionParameters params = session.exportSessionParameters();
+	if (params == null) {
+	    return;
+	}
+	TlsSession copy = TlsUtils.importSession(session.getSessionID(), params);
+	entries.put(key, new Entry(copy, clock.currentTimeMillis()));
+	evict();
+    }
+
+    /**
+     * Removes the session of the given server, for example after a resumption attempt with this session failed.
+     *
+     * @param host Host name or IP address of the server.
+     * @param port Port of the server.
+     * @param credentialIdentity Identity of the client credential, or {@code null} if the client does not authenticate.
+     */
+    public synchronized void remove(@Nonnull String host, int port, @Nullable String credentialIdentity) {
+	entries.remove(makeKey(host, port, credentialIdentity));
+    }
+
+    /**
+     * Removes all sessions from the cache.
+     */
+    public synchronized void clear() {
+	entries.clear();
+    }
+
+    public synchronized int size() {
+	return entries.size();
+    }
+
+    public synchronized long getHits() {
+	return hits;
+    }
+
+    public synchronized long getMisses() {
+	return misses;
+    }
+
+    @Override
+    public synchronized String toString() {
+	return String.format("TlsSessionCache[entries=%d, hits=%d, misses=%d]", entries.size(), hits, misses);
+    }
+
+    private void evict() {
+	Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+	while (entries.size() > maxEntries && it.hasNext()) {
+	    it.next();
+	    it.remove();
+	}
+    }
+
+
+    /**
+     * Source of the current time in milliseconds.
+     */
+    interface Clock {
+
+	long currentTimeMillis();
+
+    }
+
+    private static class Entry {
+
+	private final TlsSession session;
+	private final long created;
+
+	Entry(TlsSession session, long created) {
+	    this.session = session;
+	    this.created = created;
+	}
+
+    }
+
+}
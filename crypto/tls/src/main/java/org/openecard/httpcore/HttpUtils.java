@@ -124,7 +124,10 @@ public class HttpUtils {
      */
     public static void dumpHttpResponse(@Nonnull Logger logger, @Nonnull HttpResponse res,
 	    @Nullable byte[] entityData) {
-	dumpHttpResponse(logger, res, entityData != null ? new String(entityData) : null);
+	// don't convert the entity if it is not logged anyway
+	if (logger.isDebugEnabled()) {
+	    dumpHttpResponse(logger, res, entityData != null ? new String(entityData) : null);
+	}
     }
 
     public static void dumpHttpResponse(@Nonnull Logger logger, @Nonnull HttpResponse res) {
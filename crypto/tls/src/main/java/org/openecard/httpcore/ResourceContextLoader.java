@@ -39,7 +39,7 @@ import org.openecard.common.util.Pair;
 import org.openecard.common.util.TR03112Utils;
 import org.openecard.crypto.common.ReusableSecureRandom;
 import org.openecard.crypto.tls.ClientCertDefaultTlsClient;
-import org.openecard.crypto.tls.ClientCertTlsClient;
+import org.openecard.crypto.tls.TlsSessionCache;
 import org.openecard.crypto.tls.auth.DynamicAuthentication;
 import org.openecard.crypto.tls.proxy.ProxySettings;
 import org.openecard.crypto.tls.verify.JavaSecVerifier;
@@ -142,7 +142,8 @@ public class ResourceContextLoader {
 	    // FIXME: validate certificate chain as soon as a usable solution exists for the trust problem
 	    // tlsAuth.setCertificateVerifier(new JavaSecVerifier());
 	    TlsCrypto crypto = new BcTlsCrypto(ReusableSecureRandom.getInstance());
-	    ClientCertTlsClient tlsClient = new ClientCertDefaultTlsClient(crypto, hostname, true);
+	    ClientCertDefaultTlsClient tlsClient = new ClientCertDefaultTlsClient(crypto, hostname, true);
+	    tlsClient.setSessionCache(TlsSessionCache.getInstance(), port, null);
 	    tlsClient.setAuthentication(tlsAuth);
 
 	    // connect tls client
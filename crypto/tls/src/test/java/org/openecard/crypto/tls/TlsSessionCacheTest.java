@@ -0,0 +1,372 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.crypto.tls;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.security.KeyFactory;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.SecureRandom;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLServerSocket;
+import javax.net.ssl.SSLSocket;
+import org.openecard.bouncycastle.asn1.ASN1EncodableVector;
+import org.openecard.bouncycastle.asn1.ASN1Encoding;
+import org.openecard.bouncycastle.asn1.ASN1Integer;
+import org.openecard.bouncycastle.asn1.ASN1ObjectIdentifier;
+import org.openecard.bouncycastle.asn1.DERBitString;
+import org.openecard.bouncycastle.asn1.DERSequence;
+import org.openecard.bouncycastle.asn1.x500.X500Name;
+import org.openecard.bouncycastle.asn1.x509.AlgorithmIdentifier;
+import org.openecard.bouncycastle.asn1.x509.TBSCertificate;
+import org.openecard.bouncycastle.asn1.x509.Time;
+import org.openecard.bouncycastle.asn1.x509.V3TBSCertificateGenerator;
+import org.openecard.bouncycastle.asn1.x9.ECNamedCurveTable;
+import org.openecard.bouncycastle.asn1.x9.X9ECParameters;
+import org.openecard.bouncycastle.asn1.x9.X9ObjectIdentifiers;
+import org.openecard.bouncycastle.crypto.AsymmetricCipherKeyPair;
+import org.openecard.bouncycastle.crypto.digests.SHA256Digest;
+import org.openecard.bouncycastle.crypto.generators.ECKeyPairGenerator;
+import org.openecard.bouncycastle.crypto.params.ECKeyGenerationParameters;
+import org.openecard.bouncycastle.crypto.params.ECNamedDomainParameters;
+import org.openecard.bouncycastle.crypto.signers.ECDSASigner;
+import org.openecard.bouncycastle.crypto.util.PrivateKeyInfoFactory;
+import org.openecard.bouncycastle.crypto.util.SubjectPublicKeyInfoFactory;
+import org.openecard.bouncycastle.tls.CipherSuite;
+import org.openecard.bouncycastle.tls.CompressionMethod;
+import org.openecard.bouncycastle.tls.ProtocolVersion;
+import org.openecard.bouncycastle.tls.SessionParameters;
+import org.openecard.bouncycastle.tls.TlsClientProtocol;
+import org.openecard.bouncycastle.tls.TlsSession;
+import org.openecard.bouncycastle.tls.TlsUtils;
+import org.openecard.bouncycastle.tls.crypto.impl.bc.BcTlsCrypto;
+import org.openecard.common.util.ByteUtils;
+import org.openecard.crypto.tls.auth.DynamicAuthentication;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import static org.testng.Assert.*;
+
+
+/**
+ * Tests the TLS session cache on its own and with a local TLS server counting full and abbreviated handshakes.
+ */
+public class TlsSessionCacheTest {
+
+    private static final String HOST = "localhost";
+
+    private SSLContext serverContext;
+    private CountingServer server;
+
+    @BeforeClass
+    public void setUp() throws Exception {
+	serverContext = createServerContext();
+	server = new CountingServer(serverContext);
+    }
+
+    @AfterClass
+    public void tearDown() throws IOException {
+	server.close();
+    }
+
+    @Test
+    public void testLookup() throws Exception {
+	TlsSessionCache cache = new TlsSessionCache(2, 60_000);
+	cache.put("Example.org", 443, null, session(1));
+	cache.put("example.org", 443, "card", session(2));
+
+	assertEquals(cache.get("example.org", 443, null).getSessionID(), new byte[] { 1 });
+	assertEquals(cache.get("example.org", 443, "card").getSessionID(), new byte[] { 2 });
+	assertNull(cache.get("example.org", 8443, null));
+	assertNull(cache.get("example.com", 443, null));
+	assertEquals(cache.getHits(), 2);
+	assertEquals(cache.getMisses(), 2);
+
+	// least recently used entry is evicted
+	cache.get("example.org", 443, null);
+	cache.put("example.com", 443, null, session(3));
+	assertEquals(cache.size(), 2);
+	assertNull(cache.get("example.org", 443, "card"));
+	assertNotNull(cache.get("example.org", 443, null));
+
+	cache.remove("example.org", 443, null);
+	assertNull(cache.get("example.org", 443, null));
+	cache.clear();
+	assertEquals(cache.size(), 0);
+    }
+
+    @Test
+    public void testExpiration() throws Exception {
+	AtomicLong now = new AtomicLong(1000);
+	TlsSessionCache cache = new TlsSessionCache(2, 50, now::get);
+	cache.put(HOST, 443, null, session(1));
+	now.addAndGet(50);
+	assertNotNull(cache.get(HOST, 443, null));
+	now.addAndGet(1);
+	assertNull(cache.get(HOST, 443, null));
+	assertEquals(cache.size(), 0);
+
+	TlsSessionCache disabled = new TlsSessionCache(0, 60_000);
+	disabled.put(HOST, 443, null, session(1));
+	assertNull(disabled.get(HOST, 443, null));
+    }
+
+    @Test
+    public void testSameSessionKeepsLifetime() throws Exception {
+	AtomicLong now = new AtomicLong(1000);
+	TlsSessionCache cache = new TlsSessionCache(2, 300, now::get);
+	cache.put(HOST, 443, null, session(1));
+	TlsSession cached = cache.get(HOST, 443, null);
+	now.addAndGet(200);
+	// saving the resumed session again must not extend its lifetime
+	cache.put(HOST, 443, null, session(1));
+	assertSame(cache.get(HOST, 443, null), cached);
+	now.addAndGet(101);
+	assertNull(cache.get(HOST, 443, null));
+
+	// a new session replaces the entry
+	cache.put(HOST, 443, null, session(1));
+	cache.put(HOST, 443, null, session(2));
+	assertEquals(cache.get(HOST, 443, null).getSessionID(), new byte[] { 2 });
+    }
+
+    @Test
+    public void testInvalidatedSession() throws Exception {
+	TlsSessionCache cache = new TlsSessionCache(2, 60_000);
+	cache.put(HOST, 443, null, session(1));
+	cache.get(HOST, 443, null).invalidate();
+	assertNull(cache.get(HOST, 443, null));
+    }
+
+    @Test
+    public void testResumptionAcrossClients() throws Exception {
+	TlsSessionCache cache = new TlsSessionCache(8, 60_000);
+	int full = server.fullHandshakes.get();
+	int resumed = server.resumedHandshakes.get();
+	AtomicInteger verified = new AtomicInteger();
+
+	// one client per activation, all of them share the cache
+	for (int i = 0; i < 3; i++) {
+	    connect(server.getPort(), cache, null, verified);
+	}
+	assertEquals(server.fullHandshakes.get() - full, 1);
+	assertEquals(server.resumedHandshakes.get() - resumed, 2);
+	// the certificate of the cached session is verified on every connection
+	assertEquals(verified.get(), 3);
+	assertEquals(cache.getHits(), 2);
+
+	// a resumed handshake keeps the cached entry and thereby its creation time
+	TlsSession cached = cache.get(HOST, server.getPort(), null);
+	connect(server.getPort(), cache, null, verified);
+	assertEquals(server.resumedHandshakes.get() - resumed, 3);
+	assertSame(cache.get(HOST, server.getPort(), null), cached);
+
+	// a different credential identity must not get the session
+	connect(server.getPort(), cache, "other-card", verified);
+	assertEquals(server.fullHandshakes.get() - full, 2);
+
+	// a client without cache does a full handshake
+	connect(server.getPort(), null, null, verified);
+	assertEquals(server.fullHandshakes.get() - full, 3);
+	assertEquals(server.resumedHandshakes.get() - resumed, 3);
+    }
+
+    @Test
+    public void testUnknownSession() throws Exception {
+	TlsSessionCache cache = new TlsSessionCache(8, 60_000);
+	AtomicInteger verified = new AtomicInteger();
+	connect(server.getPort(), cache, null, verified);
+
+	try (CountingServer other = new CountingServer(createServerContext())) {
+	    // offer a session the server does not know
+	    cache.put(HOST, other.getPort(), null, cache.get(HOST, server.getPort(), null));
+	    connect(other.getPort(), cache, null, verified);
+	    assertEquals(other.fullHandshakes.get(), 1);
+	    assertEquals(other.resumedHandshakes.get(), 0);
+
+	    // the cache now contains the new session
+	    connect(other.getPort(), cache, null, verified);
+	    assertEquals(other.fullHandshakes.get(), 1);
+	    assertEquals(other.resumedHandshakes.get(), 1);
+	}
+    }
+
+    private static TlsSession session(int id) {
+	SessionParameters params = new SessionParameters.Builder()
+		.setCipherSuite(CipherSuite.TLS_ECDHE_ECDSA_WITH_AES_128_GCM_SHA256)
+		.setCompressionAlgorithm(CompressionMethod._null)
+		.setNegotiatedVersion(ProtocolVersion.TLSv12)
+		.setMasterSecret(new BcTlsCrypto(new SecureRandom()).createSecret(new byte[48]))
+		.setExtendedMasterSecret(true)
+		.build();
+	return TlsUtils.importSession(new byte[] { (byte) id }, params);
+    }
+
+    private static void connect(int port, TlsSessionCache cache, String credentialIdentity, AtomicInteger verified)
+	    throws IOException {
+	DynamicAuthentication tlsAuth = new DynamicAuthentication(HOST, (chain, host) -> {
+	    assertFalse(chain.getCertificate().isEmpty());
+	    verified.incrementAndGet();
+	}, null);
+	ClientCertDefaultTlsClient client = new ClientCertDefaultTlsClient(new BcTlsCrypto(new SecureRandom()), HOST, true);
+	client.setAuthentication(tlsAuth);
+	if (cache != null) {
+	    client.setSessionCache(cache, port, credentialIdentity);
+	}
+
+	try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+	    TlsClientProtocol proto = new TlsClientProtocol(socket.getInputStream(), socket.getOutputStream());
+	    proto.connect(client);
+	    proto.getOutputStream().write(42);
+	    assertEquals(proto.getInputStream().read(), 42);
+	    proto.close();
+	}
+	assertNotNull(tlsAuth.getServerCertificate());
+    }
+
+    private static SSLContext createServerContext() throws Exception {
+	// self signed ECDSA certificate for localhost
+	X9ECParameters curve = ECNamedCurveTable.getByName("secp256r1");
+	ASN1ObjectIdentifier curveOid = ECNamedCurveTable.getOID("secp256r1");
+	ECNamedDomainParameters domain = new ECNamedDomainParameters(curveOid, curve.getCurve(), curve.getG(),
+		curve.getN(), curve.getH());
+	ECKeyPairGenerator gen = new ECKeyPairGenerator();
+	gen.init(new ECKeyGenerationParameters(domain, new SecureRandom()));
+	AsymmetricCipherKeyPair keyPair = gen.generateKeyPair();
+
+	AlgorithmIdentifier sigAlg = new AlgorithmIdentifier(X9ObjectIdentifiers.ecdsa_with_SHA256);
+	long now = System.currentTimeMillis();
+	V3TBSCertificateGenerator tbsGen = new V3TBSCertificateGenerator();
+	tbsGen.setSerialNumber(new ASN1Integer(BigInteger.valueOf(now)));
+	tbsGen.setIssuer(new X500Name("CN=" + HOST));
+	tbsGen.setSubject(new X500Name("CN=" + HOST));
+	tbsGen.setStartDate(new Time(new Date(now - 60_000)));
+	tbsGen.setEndDate(new Time(new Date(now + 3_600_000)));
+	tbsGen.setSignature(sigAlg);
+	tbsGen.setSubjectPublicKeyInfo(SubjectPublicKeyInfoFactory.createSubjectPublicKeyInfo(keyPair.getPublic()));
+	TBSCertificate tbs = tbsGen.generateTBSCertificate();
+
+	SHA256Digest digest = new SHA256Digest();
+	byte[] tbsData = tbs.getEncoded(ASN1Encoding.DER);
+	digest.update(tbsData, 0, tbsData.length);
+	byte[] hash = new byte[digest.getDigestSize()];
+	digest.doFinal(hash, 0);
+	ECDSASigner signer = new ECDSASigner();
+	signer.init(true, keyPair.getPrivate());
+	BigInteger[] rs = signer.generateSignature(hash);
+	ASN1EncodableVector sig = new ASN1EncodableVector();
+	sig.add(new ASN1Integer(rs[0]));
+	sig.add(new ASN1Integer(rs[1]));
+
+	ASN1EncodableVector cert = new ASN1EncodableVector();
+	cert.add(tbs);
+	cert.add(sigAlg);
+	cert.add(new DERBitString(new DERSequence(sig).getEncoded(ASN1Encoding.DER)));
+	byte[] certData = new DERSequence(cert).getEncoded(ASN1Encoding.DER);
+
+	CertificateFactory cf = CertificateFactory.getInstance("X.509");
+	X509Certificate x509 = (X509Certificate) cf.generateCertificate(new ByteArrayInputStream(certData));
+	byte[] keyData = PrivateKeyInfoFactory.createPrivateKeyInfo(keyPair.getPrivate()).getEncoded();
+	PrivateKey key = KeyFactory.getInstance("EC").generatePrivate(new PKCS8EncodedKeySpec(keyData));
+
+	char[] pass = "secret".toCharArray();
+	KeyStore ks = KeyStore.getInstance("PKCS12");
+	ks.load(null, null);
+	ks.setKeyEntry("server", key, pass, new X509Certificate[] { x509 });
+	KeyManagerFactory kmf = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+	kmf.init(ks, pass);
+
+	SSLContext ctx = SSLContext.getInstance("TLSv1.2");
+	ctx.init(kmf.getKeyManagers(), null, new SecureRandom());
+	return ctx;
+    }
+
+
+    /**
+     * TLS 1.2 echo server which counts the handshakes by their session IDs.
+     */
+    private static class CountingServer implements AutoCloseable {
+
+	private final SSLServerSocket serverSocket;
+	private final Set<String> sessions = Collections.synchronizedSet(new HashSet<String>());
+	private final AtomicInteger fullHandshakes = new AtomicInteger();
+	private final AtomicInteger resumedHandshakes = new AtomicInteger();
+
+	CountingServer(SSLContext ctx) throws IOException {
+	    serverSocket = (SSLServerSocket) ctx.getServerSocketFactory().createServerSocket(0, 10,
+		    InetAddress.getLoopbackAddress());
+	    serverSocket.setEnabledProtocols(new String[] { "TLSv1.2" });
+	    Thread t = new Thread(this::serve, "TLS-Test-Server");
+	    t.setDaemon(true);
+	    t.start();
+	}
+
+	int getPort() {
+	    return serverSocket.getLocalPort();
+	}
+
+	private void serve() {
+	    while (! serverSocket.isClosed()) {
+		try (SSLSocket s = (SSLSocket) serverSocket.accept()) {
+		    s.startHandshake();
+		    String id = ByteUtils.toHexString(s.getSession().getId());
+		    if (sessions.add(id)) {
+			fullHandshakes.incrementAndGet();
+		    } else {
+			resumedHandshakes.incrementAndGet();
+		    }
+		    InputStream in = s.getInputStream();
+		    int b = in.read();
+		    s.getOutputStream().write(b);
+		    s.getOutputStream().flush();
+		    // wait for the close notification of the client
+		    in.read();
+		} catch (IOException ex) {
+		    // next connection
+		}
+	    }
+	}
+
+	@Override
+	public void close() throws IOException {
+	    serverSocket.close();
+	}
+
+    }
+
+}
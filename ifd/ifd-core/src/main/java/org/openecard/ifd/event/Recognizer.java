@@ -70,7 +70,8 @@ public class Recognizer implements Runnable {
 	} else if (env.getCIFProvider().needsRecognition(handle.getRecognitionInfo().getCardIdentifier())) {
 	    try {
 		CardRecognition cr = env.getRecognition();
-		rInfo = cr.recognizeCard(handle.getContextHandle(), handle.getIFDName(), handle.getSlotIndex());
+		rInfo = cr.recognizeCard(handle.getContextHandle(), handle.getIFDName(), handle.getSlotIndex(),
+			currentInfo.getCardIdentifier());
 	    } catch (RecognitionException ex) {
 		// ignore, card is just unknown
 	    }
@@ -963,13 +963,10 @@ public class IFD implements org.openecard.ws.IFD {
 		Result result;
 		List<byte[]> rapdus = response.getOutputAPDU();
 		try {
-		    for (InputAPDUInfoType capdu : apdus) {
-			byte[] rapdu = ch.transmit(capdu.getInputAPDU(), capdu.getAcceptableStatusCode());
-			rapdus.add(rapdu);
-		    }
+		    ch.transmit(apdus, rapdus);
 		    result = WSHelper.makeResultOK();
 		} catch (TransmitException ex) {
-		    rapdus.add(ex.getResponseAPDU());
+		    // the unexpected response is already contained in the list
 		    result = ex.getResult();
 		} catch (SCIOException ex) {
 		    String msg = "Error during transmit.";
@@ -22,6 +22,7 @@
 
 package org.openecard.ifd.scio.wrapper;
 
+import iso.std.iso_iec._24727.tech.schema.InputAPDUInfoType;
 import java.util.List;
 import javax.annotation.Nonnull;
 import org.openecard.common.ifd.Protocol;
@@ -87,6 +88,26 @@ public interface IfdChannel {
     byte[] transmit(@Nonnull byte[] input, @Nonnull List<byte[]> responses) throws TransmitException,
 	    SCIOException, IllegalStateException, InterruptedException;
 
+    /**
+     * Transmits the given command APDUs to the card as one unit of work.
+     * The commands are processed in the given order as described in {@link #transmit(byte[], List)}. Processing stops
+     * at the first response whose status code is not in the list of acceptable codes of the respective command.
+     * <p>All responses received so far, including the unexpected one, are added to the given result list, even when
+     * an exception is thrown. The list is only modified after the processing has finished, so it stays untouched when
+     * the caller is interrupted.</p>
+     *
+     * @param commands Command APDUs with their acceptable status codes.
+     * @param results List receiving the response APDUs.
+     * @throws TransmitException Thrown in case a result contained unexpected response codes.
+     * @throws SCIOException Thrown if the operation failed.
+     * @throws IllegalStateException Thrown if the card is not connected anymore or the channel has been closed.
+     * @throws IllegalArgumentException Thrown if an APDU encodes a {@code MANAGE CHANNEL}.
+     * @throws NullPointerException Thrown in case an argument is {@code null}.
+     * @throws InterruptedException if the user cancels the process
+     */
+    void transmit(@Nonnull List<InputAPDUInfoType> commands, @Nonnull List<byte[]> results)
+	    throws TransmitException, SCIOException, IllegalStateException, InterruptedException;
+
     /**
      * Sends a control command to the terminal.
      *
@@ -0,0 +1,124 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.ifd.scio.wrapper;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+/**
+ * Lock free histogram of operation latencies.
+ * The buckets have exponentially growing bounds in microseconds, bucket {@code i} counts all values below
+ * {@code 2^i} microseconds which are not counted in a lower bucket. The last bucket contains all larger values.
+ */
+public class LatencyHistogram {
+
+    private static final int NUM_BUCKETS = 26;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(NUM_BUCKETS);
+
+    /**
+     * Adds a measured value to the histogram.
+     *
+     * @param nanos Latency in nanoseconds.
+     */
+    public void record(long nanos) {
+	long micros = TimeUnit.NANOSECONDS.toMicros(Math.max(0, nanos));
+	int idx = 64 - Long.numberOfLeadingZeros(micros);
+	buckets.incrementAndGet(Math.min(idx, NUM_BUCKETS - 1));
+    }
+
+    /**
+     * Gets the number of values recorded in the histogram.
+     *
+     * @return The total number of values.
+     */
+    public long getCount() {
+	long sum = 0;
+	for (int i = 0; i < NUM_BUCKETS; i++) {
+	    sum += buckets.get(i);
+	}
+	return sum;
+    }
+
+    /**
+     * Gets a snapshot of the bucket counters.
+     *
+     * @return Array containing the counter of each bucket.
+     * @see #getUpperBound(int)
+     */
+    public long[] getBuckets() {
+	long[] result = new long[NUM_BUCKETS];
+	for (int i = 0; i < NUM_BUCKETS; i++) {
+	    result[i] = buckets.get(i);
+	}
+	return result;
+    }
+
+    /**
+     * Gets the exclusive upper bound of the given bucket.
+     *
+     * @param bucket Index of the bucket.
+     * @return The upper bound in microseconds, or {@link Long#MAX_VALUE} for the last bucket.
+     */
+    public static long getUpperBound(int bucket) {
+	if (bucket >= NUM_BUCKETS - 1) {
+	    return Long.MAX_VALUE;
+	}
+	return 1L << bucket;
+    }
+
+    /**
+     * Gets an estimate of the given percentile.
+     * The estimate is the upper bound of the bucket containing the percentile.
+     *
+     * @param percentile Percentile in the range from 0 to 100.
+     * @return The upper bound of the percentile in microseconds, or 0 if the histogram is empty.
+     */
+    public long getPercentile(double percentile) {
+	long[] snapshot = getBuckets();
+	long total = 0;
+	for (long next : snapshot) {
+	    total += next;
+	}
+	if (total == 0) {
+	    return 0;
+	}
+
+	long threshold = (long) Math.ceil(total * Math.min(100, Math.max(0, percentile)) / 100);
+	long sum = 0;
+	for (int i = 0; i < NUM_BUCKETS; i++) {
+	    sum += snapshot[i];
+	    if (sum >= threshold && sum > 0) {
+		return getUpperBound(i);
+	    }
+	}
+	return getUpperBound(NUM_BUCKETS - 1);
+    }
+
+    @Override
+    public String toString() {
+	return String.format("count=%d p50<%dus p99<%dus", getCount(), getPercentile(50), getPercentile(99));
+    }
+
+}
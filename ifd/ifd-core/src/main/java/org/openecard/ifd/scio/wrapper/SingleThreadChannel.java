@@ -22,12 +22,9 @@
 
 package org.openecard.ifd.scio.wrapper;
 
+import iso.std.iso_iec._24727.tech.schema.InputAPDUInfoType;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
-import java.util.concurrent.atomic.AtomicInteger;
 import javax.annotation.Nonnull;
 import org.openecard.common.apdu.common.CardCommandAPDU;
 import org.openecard.common.apdu.common.CardCommandStatus;
@@ -35,7 +32,6 @@ import org.openecard.common.apdu.common.CardResponseAPDU;
 import org.openecard.common.ifd.Protocol;
 import org.openecard.common.ifd.scio.SCIOCard;
 import org.openecard.common.ifd.scio.SCIOChannel;
-import org.openecard.common.ifd.scio.SCIOErrorCode;
 import org.openecard.common.ifd.scio.SCIOException;
 import org.openecard.common.ifd.scio.SCIOProtocol;
 import org.openecard.common.ifd.scio.SCIOTerminal;
@@ -49,6 +45,7 @@ import org.slf4j.LoggerFactory;
  * Implementation of a channel executing all commands in the same thread.
  * Executing commands in the same thread has the effect, that transactions are not broken when the IFD is called from
  * different threads which is the case almost every time.
+ * <p>All channels of one terminal share the same {@link TerminalLane}, so there is only one thread per terminal.</p>
  *
  * @author Tobias Wich
  */
@@ -56,31 +53,34 @@ public class SingleThreadChannel implements IfdChannel {
 
     private static final Logger LOG = LoggerFactory.getLogger(SingleThreadChannel.class);
 
-    private static final AtomicInteger THREAD_NUM = new AtomicInteger(1);
-
-    private final ExecutorService exec;
+    private final TerminalLane lane;
     private SCIOChannel channel;
     /**
      * Currently active secure messaging protocol.
      */
-    private Protocol smProtocol = null;
+    private volatile Protocol smProtocol = null;
 
     /**
-     * Creates a master instance and launches a command submission thread.
+     * Creates a master instance and launches the command submission thread of the terminal.
      * This function connects the terminal with whatever protocol that works.
      *
      * @param term Terminal whose channel is to be bound to the thread.
      * @throws SCIOException Thrown in case the channel could not be established.
      */
     public SingleThreadChannel(SCIOTerminal term) throws SCIOException {
-	this.exec = createExecutor();
+	this.lane = new TerminalLane(term.getName());
 
-	SCIOCard card = connectCard(term);
-	this.channel = card.getBasicChannel();
+	try {
+	    SCIOCard card = connectCard(term);
+	    this.channel = card.getBasicChannel();
+	} catch (SCIOException | RuntimeException ex) {
+	    lane.release(this);
+	    throw ex;
+	}
     }
 
     /**
-     * Creates a slave instance and launches a command submission thread.
+     * Creates a slave instance using the command submission thread of the master.
      *
      * @param master Master (basic) channel from which the other channel instance is to be derived.
      * @param isBasic {@code true} if a basic channel shall be opened, {@code false} if a logical channel shall be opened.
@@ -88,35 +88,39 @@ public class SingleThreadChannel implements IfdChannel {
      */
     public SingleThreadChannel(SingleThreadChannel master, boolean isBasic)
 	    throws SCIOException {
-	this.exec = createExecutor();
+	this.lane = master.lane.retain();
 
-	SCIOCard baseCard = master.channel.getCard();
-	// connect with protocol that worked for the base card
-	SCIOCard card = baseCard.getTerminal().connect(baseCard.getProtocol());
-	if (isBasic) {
-	    this.channel = card.getBasicChannel();
-	} else {
-	    this.channel = card.openLogicalChannel();
+	try {
+	    SCIOCard baseCard = master.channel.getCard();
+	    // connect with protocol that worked for the base card
+	    SCIOCard card = baseCard.getTerminal().connect(baseCard.getProtocol());
+	    if (isBasic) {
+		this.channel = card.getBasicChannel();
+	    } else {
+		this.channel = card.openLogicalChannel();
+	    }
+	} catch (SCIOException | RuntimeException ex) {
+	    lane.release(this);
+	    throw ex;
 	}
     }
 
-    private ExecutorService createExecutor() {
-	return Executors.newSingleThreadExecutor((Runnable r) -> {
-	    int num = SingleThreadChannel.this.channel.getChannelNumber();
-	    String termName = SingleThreadChannel.this.channel.getCard().getTerminal().getName();
-	    String name = String.format("Channel-%d %d '%s'", THREAD_NUM.getAndIncrement(), num, termName);
-	    Thread t = new Thread(r, name);
-	    t.setDaemon(true);
-	    return t;
-	});
-    }
-
     @Override
     public void shutdown() throws SCIOException {
-	exec.shutdown();
+	lane.release(this);
 	channel.close();
     }
 
+    /**
+     * Gets the histogram of the APDU transmission times of the terminal this channel belongs to.
+     * The histogram is shared by all channels of the terminal.
+     *
+     * @return The latency histogram of the terminal.
+     */
+    public LatencyHistogram getTransmitLatency() {
+	return lane.getTransmitLatency();
+    }
+
     private static SCIOCard connectCard(SCIOTerminal term) throws SCIOException {
 	SCIOCard card;
 	try {
@@ -184,31 +188,17 @@ public class SingleThreadChannel implements IfdChannel {
      * @throws NullPointerException Thrown in case the argument is {@code null}.
      */
     @Nonnull
-    private CardResponseAPDU transmit(final @Nonnull byte[] command) throws SCIOException, IllegalStateException, InterruptedException {
-	// send command
-	Future<CardResponseAPDU> result = exec.submit(() -> channel.transmit(command));
-	// return result or evaluate errors
-	try {
-	    return result.get();
-	} catch (ExecutionException ex) {
-	    // check out the real cause of the error
-	    Throwable cause = ex.getCause();
-	    if (cause instanceof SCIOException) {
-		throw (SCIOException) cause;
-	    } else if (cause instanceof IllegalStateException) {
-		throw (IllegalStateException) cause;
-	    } else if (cause instanceof IllegalArgumentException) {
-		throw (IllegalArgumentException) cause;
-	    } else if (cause instanceof NullPointerException) {
-		throw (NullPointerException) cause;
-	    } else {
-		String msg = "Unknown error during APDU submission.";
-		throw new SCIOException(msg, SCIOErrorCode.SCARD_F_UNKNOWN_ERROR, cause);
-	    }
-	} catch (InterruptedException ex) {
-	    result.cancel(true);
-	    throw new InterruptedException("Interruption during transmit.");
-	}
+    private CardResponseAPDU transmit(final @Nonnull byte[] command) throws SCIOException, IllegalStateException,
+	    InterruptedException {
+	return lane.execute(this, () -> transmitInLane(command));
+    }
+
+    @Nonnull
+    private CardResponseAPDU transmitInLane(@Nonnull byte[] command) throws SCIOException {
+	long start = System.nanoTime();
+	CardResponseAPDU rapdu = channel.transmit(command);
+	lane.getTransmitLatency().record(System.nanoTime() - start);
+	return rapdu;
     }
 
     /**
@@ -243,41 +233,117 @@ public class SingleThreadChannel implements IfdChannel {
     @Override
     public byte[] transmit(@Nonnull byte[] input, @Nonnull List<byte[]> responses) throws TransmitException,
 	    SCIOException, IllegalStateException, InterruptedException {
+	byte[] result = lane.execute(this, () -> exchange(input));
+	if (! isExpected(result, responses)) {
+	    throw unexpectedResult(result);
+	}
+	return result;
+    }
+
+    @Override
+    public void transmit(@Nonnull List<InputAPDUInfoType> commands, @Nonnull List<byte[]> results)
+	    throws TransmitException, SCIOException, IllegalStateException, InterruptedException {
+	// the whole batch is one task in the lane, so the commands are not interleaved with other channels
+	// the task collects into its own list, because it may still run after an interrupted caller has returned
+	Batch batch = lane.execute(this, () -> {
+	    Batch b = new Batch();
+	    try {
+		for (InputAPDUInfoType command : commands) {
+		    byte[] result = exchange(command.getInputAPDU());
+		    b.responses.add(result);
+		    if (! isExpected(result, command.getAcceptableStatusCode())) {
+			b.unexpected = result;
+			break;
+		    }
+		}
+	    } catch (SCIOException | RuntimeException ex) {
+		b.error = ex;
+	    }
+	    return b;
+	});
+
+	// the task is finished at this point, so the responses can be handed over safely
+	results.addAll(batch.responses);
+	if (batch.error instanceof SCIOException) {
+	    throw (SCIOException) batch.error;
+	} else if (batch.error != null) {
+	    throw (RuntimeException) batch.error;
+	} else if (batch.unexpected != null) {
+	    throw unexpectedResult(batch.unexpected);
+	}
+    }
+
+    /**
+     * Outcome of a batch of commands processed in the lane.
+     */
+    private static class Batch {
+	final List<byte[]> responses = new ArrayList<>();
+	byte[] unexpected;
+	Exception error;
+    }
+
+    /**
+     * Sends one command APDU to the card and takes care of secure messaging.
+     * This method must be called from inside the lane.
+     *
+     * @param input Command APDU without secure messaging.
+     * @return Response APDU without secure messaging.
+     * @throws SCIOException Thrown if the operation failed.
+     */
+    @Nonnull
+    private byte[] exchange(@Nonnull byte[] input) throws SCIOException {
+	Protocol sm = smProtocol;
 	byte[] inputAPDU = input;
-	if (isSM()) {
-	    LOG.debug("Apply secure messaging to APDU: {}", ByteUtils.toHexString(inputAPDU, false));
-	    inputAPDU = smProtocol.applySM(inputAPDU);
+	if (sm != null) {
+	    if (LOG.isDebugEnabled()) {
+		LOG.debug("Apply secure messaging to APDU: {}", ByteUtils.toHexString(inputAPDU, false));
+	    }
+	    inputAPDU = sm.applySM(inputAPDU);
 	}
-	LOG.debug("Send APDU: {}", ByteUtils.toHexString(inputAPDU, false));
-	CardResponseAPDU rapdu = transmit(inputAPDU);
+	if (LOG.isDebugEnabled()) {
+	    LOG.debug("Send APDU: {}", ByteUtils.toHexString(inputAPDU, false));
+	}
+	CardResponseAPDU rapdu = transmitInLane(inputAPDU);
 	byte[] result = rapdu.toByteArray();
-	LOG.debug("Receive APDU: {}", ByteUtils.toHexString(result, false));
-	if (isSM()) {
-	    result = smProtocol.removeSM(result);
-	    LOG.debug("Remove secure messaging from APDU: {}", ByteUtils.toHexString(result, false));
+	if (LOG.isDebugEnabled()) {
+	    LOG.debug("Receive APDU: {}", ByteUtils.toHexString(result, false));
+	}
+	if (sm != null) {
+	    result = sm.removeSM(result);
+	    if (LOG.isDebugEnabled()) {
+		LOG.debug("Remove secure messaging from APDU: {}", ByteUtils.toHexString(result, false));
+	    }
+	}
+	return result;
+    }
+
+    private static boolean isExpected(@Nonnull byte[] result, @Nonnull List<byte[]> responses) {
+	// return without validation when no expected results given
+	if (responses.isEmpty()) {
+	    return true;
 	}
 	// get status word
 	byte[] sw = new byte[2];
 	sw[0] = result[result.length - 2];
 	sw[1] = result[result.length - 1];
 
-	// return without validation when no expected results given
-	if (responses.isEmpty()) {
-	    return result;
-	}
 	// verify result
 	for (byte[] expected : responses) {
 	    // one byte codes are used like mask values
 	    // AcceptableStatusCode-elements containing only one byte match all status codes starting with this byte
 	    if (ByteUtils.isPrefix(expected, sw)) {
-		return result;
+		return true;
 	    }
 	}
+	return false;
+    }
 
-	// not an expected result
+    private static TransmitException unexpectedResult(@Nonnull byte[] result) {
+	byte[] sw = new byte[2];
+	sw[0] = result[result.length - 2];
+	sw[1] = result[result.length - 1];
 	String msg = "The returned status code is not in the list of expected status codes. The returned code is:\n";
-	TransmitException tex = new TransmitException(result, msg + CardCommandStatus.getMessage(sw));
-	throw tex;
+	return new TransmitException(result, msg + CardCommandStatus.getMessage(sw));
     }
 
     @Nonnull
@@ -285,68 +351,23 @@ public class SingleThreadChannel implements IfdChannel {
     public byte[] transmitControlCommand(final int controlCode, final @Nonnull byte[] command) throws SCIOException,
 	    IllegalStateException, NullPointerException, InterruptedException {
 	// send command
-	Future<byte[]> result = exec.submit(() -> channel.getCard().transmitControlCommand(controlCode, command));
-	// return result or evaluate errors
-	try {
-	    return result.get();
-	} catch (ExecutionException ex) {
-	    // check out the real cause of the error
-	    Throwable cause = ex.getCause();
-	    if (cause instanceof SCIOException) {
-		throw (SCIOException) cause;
-	    } else if (cause instanceof IllegalStateException) {
-		throw (IllegalStateException) cause;
-	    } else if (cause instanceof NullPointerException) {
-		throw (NullPointerException) cause;
-	    } else {
-		String msg = "Unknown error during control command submission.";
-		throw new SCIOException(msg, SCIOErrorCode.SCARD_F_UNKNOWN_ERROR, cause);
-	    }
-	} catch (InterruptedException ex) {
-	    result.cancel(true);
-	    throw new InterruptedException("Interruption during transmit control command.");
-	}
+	return lane.execute(this, () -> channel.getCard().transmitControlCommand(controlCode, command));
     }
 
     @Override
     public void beginExclusive() throws SCIOException, IllegalStateException, InterruptedException {
-	submitTransaction(true);
+	lane.beginExclusive(this, () -> {
+	    channel.getCard().beginExclusive();
+	    return null;
+	});
     }
 
     @Override
     public void endExclusive() throws SCIOException, IllegalStateException, InterruptedException {
-	submitTransaction(false);
-    }
-
-    private void submitTransaction(final boolean start) throws SCIOException, IllegalStateException, InterruptedException {
-	// send command
-	Future<Void> result = exec.submit(() -> {
-	    SCIOCard card = channel.getCard();
-	    if (start) {
-		card.beginExclusive();
-	    } else {
-		card.endExclusive();
-	    }
+	lane.endExclusive(this, () -> {
+	    channel.getCard().endExclusive();
 	    return null;
 	});
-	// return result or evaluate errors
-	try {
-	    result.get();
-	} catch (ExecutionException ex) {
-	    // check out the real cause of the error
-	    Throwable cause = ex.getCause();
-	    if (cause instanceof SCIOException) {
-		throw (SCIOException) cause;
-	    } else if (cause instanceof IllegalStateException) {
-		throw (IllegalStateException) cause;
-	    } else {
-		String msg = String.format("Unknown error during transaction submission (start=%b).", start);
-		throw new SCIOException(msg, SCIOErrorCode.SCARD_F_UNKNOWN_ERROR, cause);
-	    }
-	} catch (InterruptedException ex) {
-	    result.cancel(true);
-	    throw new InterruptedException("Interruption during transaction submit.");
-	}
     }
 
     @Override
@@ -0,0 +1,232 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.ifd.scio.wrapper;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nonnull;
+import org.openecard.common.ifd.scio.SCIOErrorCode;
+import org.openecard.common.ifd.scio.SCIOException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Serial execution lane for all channels of one terminal.
+ * PC/SC requires that the operations on a card are performed in the same thread, otherwise transactions are broken.
+ * Instead of one thread per channel, all channels of a terminal share the thread of this lane.
+ * <p>
+ * While a channel holds an exclusive transaction, other channels of the same terminal can not start a transaction until
+ * it is finished. Their request is held back outside of the lane, because starting the transaction would otherwise
+ * block the lane inside PC/SC and the running transaction could never be finished. Other commands are submitted
+ * directly, PC/SC rejects them as before if they conflict with the transaction.
+ * </p>
+ * <p>
+ * The lane is reference counted by the channels using it. The thread is stopped when the last channel releases it.
+ * </p>
+ */
+class TerminalLane {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TerminalLane.class);
+
+    private static final AtomicInteger THREAD_NUM = new AtomicInteger(1);
+
+    private final String termName;
+    private final ExecutorService exec;
+    private final LatencyHistogram transmitLatency;
+    private volatile Thread laneThread;
+
+    // guarded by this
+    private int refCount;
+    private Object exclusiveOwner;
+
+    /**
+     * Task executed in the lane.
+     *
+     * @param <T> Type of the task's result.
+     */
+    @FunctionalInterface
+    interface LaneTask <T> {
+	T run() throws SCIOException, InterruptedException;
+    }
+
+    TerminalLane(@Nonnull String termName) {
+	this.termName = termName;
+	this.transmitLatency = new LatencyHistogram();
+	this.refCount = 1;
+	this.exec = Executors.newSingleThreadExecutor((Runnable r) -> {
+	    String name = String.format("Terminal-%d '%s'", THREAD_NUM.getAndIncrement(), termName);
+	    Thread t = new Thread(r, name);
+	    t.setDaemon(true);
+	    laneThread = t;
+	    return t;
+	});
+    }
+
+    /**
+     * Gets the histogram of the APDU transmission times of this terminal.
+     *
+     * @return The latency histogram.
+     */
+    LatencyHistogram getTransmitLatency() {
+	return transmitLatency;
+    }
+
+    /**
+     * Registers another user of this lane.
+     *
+     * @return This instance.
+     * @throws IllegalStateException Thrown in case the lane is already released by all users.
+     */
+    synchronized TerminalLane retain() {
+	if (refCount <= 0) {
+	    throw new IllegalStateException("Lane of terminal '" + termName + "' is already shut down.");
+	}
+	refCount++;
+	return this;
+    }
+
+    /**
+     * Deregisters a user of this lane.
+     * An exclusive transaction held by the user is abandoned. The thread is stopped when no user is left.
+     *
+     * @param user The user of the lane.
+     */
+    synchronized void release(@Nonnull Object user) {
+	if (exclusiveOwner == user) {
+	    exclusiveOwner = null;
+	    notifyAll();
+	}
+	refCount--;
+	if (refCount == 0) {
+	    LOG.debug("Shutting down lane of terminal '{}', transmit latency: {}", termName, transmitLatency);
+	    exec.shutdown();
+	}
+    }
+
+    /**
+     * Executes the given task in the lane and waits for its result.
+     * If the caller is already running in the lane, the task is executed directly.
+     *
+     * @param <T> Type of the task's result.
+     * @param user The channel which executes the task.
+     * @param task The task to execute.
+     * @return The result of the task.
+     * @throws SCIOException Thrown in case the task failed.
+     * @throws InterruptedException Thrown in case the caller is interrupted while waiting for the task.
+     */
+    <T> T execute(@Nonnull Object user, @Nonnull LaneTask<T> task) throws SCIOException, InterruptedException {
+	if (Thread.currentThread() == laneThread) {
+	    return task.run();
+	}
+
+	Future<T> result = exec.submit((Callable<T>) task::run);
+	return await(result);
+    }
+
+    /**
+     * Starts an exclusive transaction of the given channel.
+     * Transactions of other channels are held back until {@link #endExclusive(Object, LaneTask)} is called.
+     *
+     * @param user The channel which starts the transaction.
+     * @param task The task starting the transaction.
+     * @throws SCIOException Thrown in case the transaction could not be started.
+     * @throws InterruptedException Thrown in case the caller is interrupted while waiting.
+     */
+    void beginExclusive(@Nonnull Object user, @Nonnull LaneTask<Void> task) throws SCIOException,
+	    InterruptedException {
+	Future<Void> result;
+	synchronized (this) {
+	    awaitAccess(user);
+	    exclusiveOwner = user;
+	    result = exec.submit((Callable<Void>) task::run);
+	}
+	try {
+	    await(result);
+	} catch (SCIOException | InterruptedException | RuntimeException ex) {
+	    releaseExclusive(user);
+	    throw ex;
+	}
+    }
+
+    /**
+     * Ends the exclusive transaction of the given channel.
+     *
+     * @param user The channel which ends the transaction.
+     * @param task The task ending the transaction.
+     * @throws SCIOException Thrown in case the transaction could not be ended.
+     * @throws InterruptedException Thrown in case the caller is interrupted while waiting.
+     */
+    void endExclusive(@Nonnull Object user, @Nonnull LaneTask<Void> task) throws SCIOException,
+	    InterruptedException {
+	try {
+	    execute(user, task);
+	} finally {
+	    releaseExclusive(user);
+	}
+    }
+
+    private synchronized void releaseExclusive(Object user) {
+	if (exclusiveOwner == user) {
+	    exclusiveOwner = null;
+	    notifyAll();
+	}
+    }
+
+    private void awaitAccess(Object user) throws InterruptedException {
+	// must be called with the lock held, the wait releases the lock for the owner of the transaction
+	while (exclusiveOwner != null && exclusiveOwner != user) {
+	    LOG.debug("Waiting for exclusive transaction on terminal '{}' to finish.", termName);
+	    wait();
+	}
+    }
+
+    private static <T> T await(Future<T> result) throws SCIOException, InterruptedException {
+	try {
+	    return result.get();
+	} catch (ExecutionException ex) {
+	    // check out the real cause of the error
+	    Throwable cause = ex.getCause();
+	    if (cause instanceof SCIOException) {
+		throw (SCIOException) cause;
+	    } else if (cause instanceof IllegalStateException) {
+		throw (IllegalStateException) cause;
+	    } else if (cause instanceof IllegalArgumentException) {
+		throw (IllegalArgumentException) cause;
+	    } else if (cause instanceof NullPointerException) {
+		throw (NullPointerException) cause;
+	    } else {
+		String msg = "Unknown error during command submission.";
+		throw new SCIOException(msg, SCIOErrorCode.SCARD_F_UNKNOWN_ERROR, cause);
+	    }
+	} catch (InterruptedException ex) {
+	    result.cancel(true);
+	    throw new InterruptedException("Interruption during command submission.");
+	}
+    }
+
+}
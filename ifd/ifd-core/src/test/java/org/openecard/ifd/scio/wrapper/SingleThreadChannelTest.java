@@ -0,0 +1,157 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.ifd.scio.wrapper;
+
+import iso.std.iso_iec._24727.tech.schema.InputAPDUInfoType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+import mockit.Delegate;
+import mockit.Expectations;
+import mockit.Mocked;
+import mockit.Verifications;
+import org.openecard.common.apdu.common.CardResponseAPDU;
+import org.openecard.common.ifd.scio.SCIOChannel;
+import org.openecard.common.ifd.scio.SCIOTerminal;
+import org.openecard.ifd.scio.TransmitException;
+import org.testng.annotations.Test;
+import static org.testng.Assert.*;
+
+
+/**
+ * Tests for the batched transmit of the {@link SingleThreadChannel}.
+ */
+public class SingleThreadChannelTest {
+
+    private static final byte[] OK = new byte[] { (byte) 0x90, 0x00 };
+    private static final byte[] NOT_FOUND = new byte[] { 0x6A, (byte) 0x82 };
+
+    @Mocked
+    private SCIOTerminal term;
+    @Mocked
+    private SCIOChannel scioChannel;
+
+    @Test(timeOut = 10000)
+    public void testBatchStopsAtUnexpectedStatus() throws Exception {
+	new Expectations() {{
+	    scioChannel.transmit((byte[]) any);
+	    returns(new CardResponseAPDU(OK), new CardResponseAPDU(NOT_FOUND), new CardResponseAPDU(OK));
+	}};
+
+	SingleThreadChannel ch = new SingleThreadChannel(term);
+	List<InputAPDUInfoType> cmds = Arrays.asList(command(1), command(2), command(3));
+	List<byte[]> results = new ArrayList<>();
+	try {
+	    ch.transmit(cmds, results);
+	    fail("Unexpected status code not detected.");
+	} catch (TransmitException ex) {
+	    assertEquals(ex.getResponseAPDU(), NOT_FOUND);
+	}
+	ch.shutdown();
+
+	assertEquals(results.size(), 2);
+	assertEquals(results.get(0), OK);
+	assertEquals(results.get(1), NOT_FOUND);
+	new Verifications() {{
+	    scioChannel.transmit((byte[]) any); times = 2;
+	}};
+	assertEquals(ch.getTransmitLatency().getCount(), 2);
+    }
+
+    @Test(timeOut = 10000)
+    public void testBatchWithoutAcceptableCodes() throws Exception {
+	new Expectations() {{
+	    scioChannel.transmit((byte[]) any);
+	    returns(new CardResponseAPDU(NOT_FOUND), new CardResponseAPDU(OK));
+	}};
+
+	SingleThreadChannel ch = new SingleThreadChannel(term);
+	InputAPDUInfoType first = command(1);
+	first.getAcceptableStatusCode().clear();
+	List<byte[]> results = new ArrayList<>();
+	ch.transmit(Arrays.asList(first, command(2)), results);
+	ch.shutdown();
+
+	assertEquals(results.size(), 2);
+	assertEquals(results.get(0), NOT_FOUND);
+	assertEquals(results.get(1), OK);
+    }
+
+    @Test(timeOut = 10000)
+    public void testInterruptedBatchLeavesResultsUntouched() throws Exception {
+	final CountDownLatch sent = new CountDownLatch(1);
+	final CountDownLatch release = new CountDownLatch(1);
+	final CountDownLatch done = new CountDownLatch(1);
+	new Expectations() {{
+	    scioChannel.transmit((byte[]) any);
+	    result = new Delegate<CardResponseAPDU>() {
+		CardResponseAPDU transmit(byte[] cmd) throws InterruptedException {
+		    sent.countDown();
+		    // a reader does not react to the interrupt of the lane thread
+		    while (true) {
+			try {
+			    release.await();
+			    break;
+			} catch (InterruptedException ex) {
+			    // continue waiting for the card
+			}
+		    }
+		    done.countDown();
+		    return new CardResponseAPDU(OK);
+		}
+	    };
+	}};
+
+	SingleThreadChannel ch = new SingleThreadChannel(term);
+	final List<byte[]> results = new ArrayList<>();
+	final AtomicReference<Throwable> failure = new AtomicReference<>();
+	Thread caller = new Thread(() -> {
+	    try {
+		ch.transmit(Arrays.asList(command(1), command(2)), results);
+	    } catch (Throwable ex) {
+		failure.set(ex);
+	    }
+	});
+	caller.start();
+	sent.await();
+	caller.interrupt();
+	caller.join();
+	assertTrue(failure.get() instanceof InterruptedException);
+
+	// let the lane finish the task, the caller's list must not be touched anymore
+	release.countDown();
+	done.await();
+	ch.shutdown();
+	assertTrue(results.isEmpty());
+    }
+
+    private static InputAPDUInfoType command(int p1) {
+	InputAPDUInfoType cmd = new InputAPDUInfoType();
+	cmd.setInputAPDU(new byte[] { 0x00, (byte) 0xB0, (byte) p1, 0x00, 0x00 });
+	cmd.getAcceptableStatusCode().add(OK);
+	return cmd;
+    }
+
+}
@@ -0,0 +1,99 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.ifd.scio.wrapper;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.testng.annotations.Test;
+import static org.testng.Assert.*;
+
+
+/**
+ * Tests for the {@link TerminalLane} and its {@link LatencyHistogram}.
+ */
+public class TerminalLaneTest {
+
+    @Test(timeOut = 10000)
+    public void testNestedExecution() throws Exception {
+	TerminalLane lane = new TerminalLane("test");
+	Object user = new Object();
+	Thread laneThread = lane.execute(user, () -> lane.execute(user, Thread::currentThread));
+
+	assertNotSame(laneThread, Thread.currentThread());
+	assertSame(lane.execute(user, Thread::currentThread), laneThread);
+	lane.release(user);
+    }
+
+    @Test(timeOut = 10000)
+    public void testExclusiveHoldsBackOtherTransactions() throws Exception {
+	TerminalLane lane = new TerminalLane("test").retain();
+	Object userA = new Object();
+	Object userB = new Object();
+	lane.beginExclusive(userA, () -> null);
+
+	AtomicBoolean bStarted = new AtomicBoolean(false);
+	CountDownLatch bDone = new CountDownLatch(1);
+	Thread t = new Thread(() -> {
+	    try {
+		lane.beginExclusive(userB, () -> {
+		    bStarted.set(true);
+		    return null;
+		});
+		bDone.countDown();
+	    } catch (Exception ex) {
+		throw new RuntimeException(ex);
+	    }
+	});
+	t.start();
+
+	// commands of other channels are not blocked by the transaction
+	assertEquals((int) lane.execute(userB, () -> 1), 1);
+	assertFalse(bDone.await(200, TimeUnit.MILLISECONDS));
+	assertFalse(bStarted.get());
+
+	lane.endExclusive(userA, () -> null);
+	assertTrue(bDone.await(5, TimeUnit.SECONDS));
+	assertTrue(bStarted.get());
+
+	lane.release(userA);
+	lane.release(userB);
+    }
+
+    @Test
+    public void testHistogram() {
+	LatencyHistogram h = new LatencyHistogram();
+	assertEquals(h.getPercentile(50), 0);
+
+	for (int i = 0; i < 99; i++) {
+	    h.record(TimeUnit.MICROSECONDS.toNanos(100));
+	}
+	h.record(TimeUnit.MILLISECONDS.toNanos(50));
+
+	assertEquals(h.getCount(), 100);
+	assertEquals(h.getPercentile(50), 128);
+	assertEquals(h.getPercentile(99), 128);
+	assertEquals(h.getPercentile(100), 65536);
+    }
+
+}
@@ -44,6 +44,7 @@ import org.openecard.ifd.protocol.pace.crypto.PACECryptoSuite;
 import org.openecard.ifd.protocol.pace.crypto.PACEGenericMapping;
 import org.openecard.ifd.protocol.pace.crypto.PACEIntegratedMapping;
 import org.openecard.ifd.protocol.pace.crypto.PACEKey;
+import org.openecard.ifd.protocol.pace.crypto.PACEKeyPool;
 import org.openecard.ifd.protocol.pace.crypto.PACEMapping;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -103,6 +104,17 @@ public class PACEImplementation {
 	kdf = new KDF();
     }
 
+    /**
+     * Starts generating the ephemeral keys which do not depend on the password.
+     * Calling this method before the password is requested from the user removes the key generation from the
+     * critical path of {@link #execute(byte[], byte, byte[])}.
+     */
+    public void prepareKeys() {
+	if (psip.getPACEInfo().isGM()) {
+	    PACEKeyPool.getInstance().prepare(domainParameter.getParameter());
+	}
+    }
+
     /**
      * Start PACE.
      *
@@ -65,6 +65,22 @@ public class PACEProtocol implements Protocol {
 	    // Get parameters for the PACE protocol
 	    PACEInputType paceInput = new PACEInputType(req.getAuthenticationProtocolData());
 
+	    // Read EF.CardAccess from card
+	    byte[] slotHandle = req.getSlotHandle();
+	    CardResponseAPDU resp = CardUtils.selectFileWithOptions(dispatcher, slotHandle,
+		    ShortUtils.toByteArray(PACEConstants.EF_CARDACCESS_FID), null, CardUtils.FCP_RESPONSE_DATA);
+	    FCP efCardAccessFCP = new FCP(TLV.fromBER(resp.getData()));
+	    byte[] efcadata = CardUtils.readFile(efCardAccessFCP, dispatcher, slotHandle);
+
+	    // Parse SecurityInfos and get PACESecurityInfos
+	    SecurityInfos sis = SecurityInfos.getInstance(efcadata);
+	    EFCardAccess efca = new EFCardAccess(sis);
+	    PACESecurityInfos psi = efca.getPACESecurityInfos();
+
+	    // Keys which do not depend on the password are generated while the user enters it
+	    PACEImplementation pace = new PACEImplementation(dispatcher, slotHandle, psi);
+	    pace.prepareKeys();
+
 	    byte[] pin;
 	    byte pinID = paceInput.getPINID();
 	    byte[] chat = paceInput.getCHAT();
@@ -87,20 +103,7 @@ public class PACEProtocol implements Protocol {
 		return response;
 	    }
 
-	    // Read EF.CardAccess from card
-	    byte[] slotHandle = req.getSlotHandle();
-	    CardResponseAPDU resp = CardUtils.selectFileWithOptions(dispatcher, slotHandle,
-		    ShortUtils.toByteArray(PACEConstants.EF_CARDACCESS_FID), null, CardUtils.FCP_RESPONSE_DATA);
-	    FCP efCardAccessFCP = new FCP(TLV.fromBER(resp.getData()));
-	    byte[] efcadata = CardUtils.readFile(efCardAccessFCP, dispatcher, slotHandle);
-
-	    // Parse SecurityInfos and get PACESecurityInfos
-	    SecurityInfos sis = SecurityInfos.getInstance(efcadata);
-	    EFCardAccess efca = new EFCardAccess(sis);
-	    PACESecurityInfos psi = efca.getPACESecurityInfos();
-
 	    // Start PACE
-	    PACEImplementation pace = new PACEImplementation(dispatcher, slotHandle, psi);
 	    pace.execute(pin, pinID, chat);
 
 	    // Establish Secure Messaging channel
@@ -22,38 +22,47 @@
 
 package org.openecard.ifd.protocol.pace;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.math.BigInteger;
 import java.security.GeneralSecurityException;
-import java.security.Key;
-import java.security.spec.AlgorithmParameterSpec;
-import javax.crypto.Cipher;
-import javax.crypto.spec.IvParameterSpec;
-import javax.crypto.spec.SecretKeySpec;
+import java.util.Arrays;
+import org.openecard.bouncycastle.crypto.BlockCipher;
 import org.openecard.bouncycastle.crypto.engines.AESEngine;
 import org.openecard.bouncycastle.crypto.macs.CMac;
 import org.openecard.bouncycastle.crypto.params.KeyParameter;
-import org.openecard.common.apdu.common.CardCommandAPDU;
-import org.openecard.common.tlv.TLV;
-import org.openecard.common.util.ByteUtils;
 
 
 /**
  * Implements Secure Messaging according to ISO/IEC 7816-4.
+ * <p>The cipher and MAC contexts are keyed once when the instance is created and are reused for all APDUs of the
+ * session. Protected APDUs are assembled directly in the result array, so apart from the result no intermediate
+ * objects are created per APDU.</p>
  *
  * @author Moritz Horsch
  */
 public class SecureMessaging {
 
-    private static final byte[] NULL = new byte[]{0x00};
     // ISO/IEC 7816-4 padding tag
     private static final byte PAD = (byte) 0x80;
+    private static final int BLOCK_SIZE = 16;
+    private static final int MAC_SIZE = 8;
+    // padding bytes for the MAC calculation, a prefix of this array is appended to the data
+    private static final byte[] PADDING = new byte[BLOCK_SIZE];
+    static {
+	PADDING[0] = PAD;
+    }
+
     // Send Sequence Counter. See BSI-TR-03110 section F.3.
     private final byte[] secureMessagingSSC;
-    // Keys for encryption and message authentication.
-    private final byte[] keyMAC, keyENC;
+    // Cipher contexts for encryption and decryption, both keyed with the encryption key.
+    private final BlockCipher encCipher, decCipher;
+    // MAC context keyed with the MAC key.
+    private final CMac cmac;
+
+    // buffers reused for every APDU
+    private final byte[] iv = new byte[BLOCK_SIZE];
+    private final byte[] chainBlock = new byte[BLOCK_SIZE];
+    private final byte[] mac = new byte[BLOCK_SIZE];
+    private byte[] plainBuffer = new byte[256];
 
     /**
      * Instantiates a new secure messaging.
@@ -62,8 +71,14 @@ public class SecureMessaging {
      * @param keyENC Key for encryption
      */
     public SecureMessaging(byte[] keyMAC, byte[] keyENC) {
-	this.keyENC = keyENC;
-	this.keyMAC = keyMAC;
+	KeyParameter encKey = new KeyParameter(keyENC);
+	encCipher = new AESEngine();
+	encCipher.init(true, encKey);
+	decCipher = new AESEngine();
+	decCipher.init(false, encKey);
+
+	cmac = new CMac(new AESEngine());
+	cmac.init(new KeyParameter(keyMAC));
 
 	secureMessagingSSC = new byte[16];
     }
@@ -73,104 +88,181 @@ public class SecureMessaging {
      *
      * @param apdu APDU
      * @return Encrypted APDU
-     * @throws Exception
+     * @throws IllegalArgumentException Thrown in case the APDU is malformed or already protected.
      */
-    public byte[] encrypt(byte[] apdu) throws Exception {
-	incrementSSC(secureMessagingSSC);
-	byte[] commandAPDU = encrypt(apdu, secureMessagingSSC);
-	incrementSSC(secureMessagingSSC);
-
-	return commandAPDU;
+    public byte[] encrypt(byte[] apdu) {
+	return encrypt(apdu, 0, apdu.length);
     }
 
     /**
-     * Encrypt the APDU.
+     * Encrypt the APDU contained in the given range of the array.
      *
-     * @param apdu APDU
-     * @param secureMessagingSSC Secure Messaging Send Sequence Counter
+     * @param apdu Array containing the APDU
+     * @param offset Offset of the APDU in the array
+     * @param length Length of the APDU
      * @return Encrypted APDU
-     * @throws Exception
+     * @throws IllegalArgumentException Thrown in case the APDU is malformed or already protected.
      */
-    private byte[] encrypt(byte[] apdu, byte[] secureMessagingSSC) throws Exception {
-	ByteArrayOutputStream baos = new ByteArrayOutputStream();
-	CardCommandAPDU cAPDU = new CardCommandAPDU(apdu);
+    public synchronized byte[] encrypt(byte[] apdu, int offset, int length) {
+	incrementSSC(secureMessagingSSC);
+	byte[] commandAPDU = encryptInternal(apdu, offset, length);
+	incrementSSC(secureMessagingSSC);
 
-	if (cAPDU.isSecureMessaging()) {
+	return commandAPDU;
+    }
+
+    private byte[] encryptInternal(byte[] apdu, int offset, int length) {
+	if (length < 4) {
+	    throw new IllegalArgumentException("Malformed APDU.");
+	}
+	if ((apdu[offset] & 0x0F) == 0x0C) {
 	    throw new IllegalArgumentException("Malformed APDU.");
 	}
 
-	byte[] data = cAPDU.getData();
-	byte[] header = cAPDU.getHeader();
-	int lc = cAPDU.getLC();
-	int le = cAPDU.getLE();
+	/*
+	 * Parse the body of the APDU. The LE values follow the interpretation of CardCommandAPDU.
+	 *
+	 * Case 1. : |CLA|INS|P1|P2|
+	 * Case 2. : |CLA|INS|P1|P2|LE|
+	 * Case 2.1: |CLA|INS|P1|P2|EXTLE|
+	 * Case 3. : |CLA|INS|P1|P2|LC|DATA|
+	 * Case 3.1: |CLA|INS|P1|P2|EXTLC|DATA|
+	 * Case 4. : |CLA|INS|P1|P2|LC|DATA|LE|
+	 * Case 4.1: |CLA|INS|P1|P2|EXTLC|DATA|LE|
+	 * Case 4.2: |CLA|INS|P1|P2|LC|DATA|EXTLE|
+	 * Case 4.3: |CLA|INS|P1|P2|EXTLC|DATA|EXTLE|
+	 */
+	int bodyOff = offset + 4;
+	int bodyLen = length - 4;
+	int lc = -1;
+	int le = -1;
+	int dataOff = bodyOff;
+	int dataLen = 0;
+
+	if (bodyLen == 1) {
+	    le = apdu[bodyOff] & 0xFF;
+	} else if (bodyLen >= 65536) {
+	    throw new IllegalArgumentException("Malformed APDU.");
+	} else if (bodyLen > 1) {
+	    int first = apdu[bodyOff] & 0xFF;
+	    if (first == 0) {
+		if (bodyLen == 3) {
+		    le = readShort(apdu, bodyOff + 1);
+		} else if (bodyLen < 3) {
+		    throw new IllegalArgumentException("Malformed APDU.");
+		} else {
+		    lc = readShort(apdu, bodyOff + 1);
+		    dataOff = bodyOff + 3;
+		    dataLen = lc;
+		    int remaining = bodyLen - 3 - lc;
+		    if (remaining == 1) {
+			le = apdu[dataOff + lc] & 0xFF;
+		    } else if (remaining == 2) {
+			le = readShort(apdu, dataOff + lc);
+		    } else if (remaining == 3 && apdu[dataOff + lc] == 0) {
+			le = readShort(apdu, dataOff + lc + 1);
+		    } else if (remaining != 0) {
+			throw new IllegalArgumentException("Malformed APDU.");
+		    }
+		}
+	    } else {
+		lc = first;
+		dataOff = bodyOff + 1;
+		dataLen = lc;
+		int remaining = bodyLen - 1 - lc;
+		if (remaining == 1) {
+		    le = apdu[dataOff + lc] & 0xFF;
+		    le = le == 0 ? 256 : le;
+		} else if (remaining == 3) {
+		    le = readShort(apdu, dataOff + lc + 1);
+		    le = le == 0 ? 65536 : le;
+		} else if (remaining != 0) {
+		    throw new IllegalArgumentException("Malformed APDU.");
+		}
+	    }
+	}
 
-	if (data.length > 0) {
-	    data = pad(data, 16);
+	/*
+	 * Calculate the layout of the protected APDU
+	 * |CLA|INS|P1|P2|(EXT)LC|DO87|DO97|DO8E|(EXT)LE|
+	 */
+	int paddedLen = dataLen > 0 ? (dataLen / BLOCK_SIZE + 1) * BLOCK_SIZE : 0;
+	int do87Len = dataLen > 0 ? 1 + berLengthSize(paddedLen + 1) + 1 + paddedLen : 0;
+	int leValueLen = le > 0x100 ? 2 : 1;
+	int do97Len = le >= 0 ? 2 + leValueLen : 0;
+	int secureDataLen = do87Len + do97Len + 2 + MAC_SIZE;
+	// LE is set explicitely to 0x00 or in case of extended length 0x00 0x00
+	boolean extendedLe = lc > 0xFF || le > 0x100;
+	boolean extendedLc = secureDataLen > 0xFF || extendedLe;
+	int lcFieldLen = extendedLc ? 3 : 1;
+	int leFieldLen = extendedLc ? 2 : 1;
+
+	byte[] result = new byte[4 + lcFieldLen + secureDataLen + leFieldLen];
+	System.arraycopy(apdu, offset, result, 0, 4);
+	// Indicate Secure Messaging
+	// note: must be done before mac calculation
+	result[0] |= 0x0C;
 
-	    // Encrypt data
-	    Cipher c = getCipher(secureMessagingSSC, Cipher.ENCRYPT_MODE);
-	    byte[] dataEncrypted = c.doFinal(data);
+	int pos = 4;
+	if (extendedLc) {
+	    result[pos++] = 0x00;
+	    result[pos++] = (byte) (secureDataLen >> 8);
+	}
+	result[pos++] = (byte) secureDataLen;
+	int secureDataOff = pos;
 
+	if (dataLen > 0) {
+	    result[pos++] = (byte) 0x87;
+	    pos = writeBerLength(result, pos, paddedLen + 1);
 	    // Add padding indicator 0x01
-	    dataEncrypted = ByteUtils.concatenate((byte) 0x01, dataEncrypted);
+	    result[pos++] = 0x01;
+	    System.arraycopy(apdu, dataOff, result, pos, dataLen);
+	    result[pos + dataLen] = PAD;
 
-	    TLV dataObject = new TLV();
-	    dataObject.setTagNumWithClass((byte) 0x87);
-	    dataObject.setValue(dataEncrypted);
-	    baos.write(dataObject.toBER());
+	    // Encrypt data
+	    encryptCBC(result, pos, paddedLen);
+	    pos += paddedLen;
 	}
 
 	// Write protected LE
 	if (le >= 0) {
-	    TLV leObject = new TLV();
-	    leObject.setTagNumWithClass((byte) 0x97);
-	    if (le == 0x100) {
-		leObject.setValue(NULL);
-	    } else if (le > 0x100) {
-		leObject.setValue(new byte[]{(byte) ((le >> 8) & 0xFF), (byte) (le & 0xFF)});
-	    } else {
-		leObject.setValue(new byte[]{(byte) le});
+	    result[pos++] = (byte) 0x97;
+	    result[pos++] = (byte) leValueLen;
+	    if (leValueLen == 2) {
+		result[pos++] = (byte) (le >> 8);
 	    }
-	    baos.write(leObject.toBER());
+	    result[pos++] = (byte) (le == 0x100 ? 0 : le);
 	}
 
-	// Indicate Secure Messaging
-	// note: must be done before mac calculation
-	header[0] |= 0x0C;
-
 	/*
 	 * Calculate MAC
 	 */
-	byte[] mac = new byte[16];
-	CMac cmac = getCMAC(secureMessagingSSC);
-
-	byte[] paddedHeader = pad(header, 16);
-	cmac.update(paddedHeader, 0, paddedHeader.length);
-
-	if (baos.size() > 0) {
-	    byte[] paddedData = pad(baos.toByteArray(), 16);
-	    cmac.update(paddedData, 0, paddedData.length);
+	cmac.reset();
+	cmac.update(secureMessagingSSC, 0, secureMessagingSSC.length);
+	cmac.update(result, 0, 4);
+	cmac.update(PADDING, 0, BLOCK_SIZE - 4);
+	if (pos > secureDataOff) {
+	    updatePadded(result, secureDataOff, pos - secureDataOff);
 	}
-
 	cmac.doFinal(mac, 0);
-	mac = ByteUtils.copy(mac, 0, 8);
-
-	//
-	// Build APDU
-	TLV macStructure = new TLV();
-	macStructure.setTagNumWithClass((byte) 0x8E);
-	macStructure.setValue(mac);
-	byte[] secureData = ByteUtils.concatenate(baos.toByteArray(), macStructure.toBER());
-
-	CardCommandAPDU secureCommand = new CardCommandAPDU(header[0], header[1], header[2], header[3], secureData);
-	// set LE explicitely to 0x00 or in case of extended length 0x00 0x00
-	if ((lc > 0xFF) || (le > 0x100)) {
-	    secureCommand.setLE(65536);
+
+	result[pos++] = (byte) 0x8E;
+	result[pos++] = MAC_SIZE;
+	System.arraycopy(mac, 0, result, pos, MAC_SIZE);
+	pos += MAC_SIZE;
+
+	// LE of the protected APDU, 0x01 0x00 equals 0x00 when a short LE follows an extended LC
+	if (extendedLe) {
+	    result[pos++] = 0x00;
+	    result[pos] = 0x00;
+	} else if (extendedLc) {
+	    result[pos++] = 0x01;
+	    result[pos] = 0x00;
 	} else {
-	    secureCommand.setLE(256);
+	    result[pos] = 0x00;
 	}
 
-	return secureCommand.toByteArray();
+	return result;
     }
 
     /**
@@ -178,33 +270,34 @@ public class SecureMessaging {
      *
      * @param response the response
      * @return the byte[]
-     * @throws Exception the exception
+     * @throws IOException Thrown in case the response is no valid Secure Messaging APDU.
+     * @throws GeneralSecurityException Thrown in case the MAC of the response is invalid.
      */
-    public byte[] decrypt(byte[] response) throws Exception {
-	if (response.length < 12) {
-	    throw new IllegalArgumentException("Malformed Secure Messaging APDU.");
-	}
-	return decrypt(response, secureMessagingSSC);
+    public byte[] decrypt(byte[] response) throws IOException, GeneralSecurityException {
+	return decrypt(response, 0, response.length);
     }
 
     /**
-     * Decrypt the APDU.
+     * Decrypt the APDU contained in the given range of the array.
      *
-     * @param response the response
-     * @param secureMessagingSSC the secure messaging ssc
+     * @param response Array containing the response
+     * @param offset Offset of the response in the array
+     * @param length Length of the response
      * @return the byte[]
-     * @throws Exception the exception
+     * @throws IOException Thrown in case the response is no valid Secure Messaging APDU.
+     * @throws GeneralSecurityException Thrown in case the MAC of the response is invalid.
      */
-    private byte[] decrypt(byte[] response, byte[] secureMessagingSSC) throws Exception {
-	ByteArrayInputStream bais = new ByteArrayInputStream(response);
-	ByteArrayOutputStream baos = new ByteArrayOutputStream(response.length - 10);
+    public synchronized byte[] decrypt(byte[] response, int offset, int length) throws IOException,
+	    GeneralSecurityException {
+	if (length < 12) {
+	    throw new IllegalArgumentException("Malformed Secure Messaging APDU.");
+	}
 
-	// Status bytes of the response APDU. MUST be 2 bytes.
-	byte[] statusBytes = new byte[2];
+	int end = offset + length;
+	int pos = offset;
 	// Padding-content indicator followed by cryptogram 0x87.
-	byte[] dataObject = null;
-	// Cryptographic checksum 0x8E. MUST be 8 bytes.
-	byte[] macObject = new byte[8];
+	int dataOff = pos;
+	int dataLen = 0;
 
 	/*
 	 * Read APDU structure
@@ -213,90 +306,107 @@ public class SecureMessaging {
 	 * Case 3: DO99|DO8E|SW1SW2
 	 * Case 4: DO87|DO99|DO8E|SW1SW2
 	 */
-	byte tag = (byte) bais.read();
+	byte tag = response[pos++];
 
 	// Read data object (OPTIONAL)
 	if (tag == (byte) 0x87) {
-	    int size = bais.read();
+	    int size = response[pos++] & 0xFF;
 	    if (size > 0x80) {
-		byte[] sizeBytes = new byte[size & 0x0F];
-		bais.read(sizeBytes, 0, sizeBytes.length);
-		size = new BigInteger(1, sizeBytes).intValue();
+		int numBytes = size & 0x0F;
+		checkAvailable(pos, numBytes, end);
+		size = 0;
+		for (int i = 0; i < numBytes; i++) {
+		    size = (size << 8) | (response[pos++] & 0xFF);
+		}
+	    }
+	    if (size < 1) {
+		throw new IOException("Malformed Secure Messaging APDU");
 	    }
-	    bais.skip(1); // Skip encryption header
-	    dataObject = new byte[size - 1];
-	    bais.read(dataObject, 0, dataObject.length);
+	    checkAvailable(pos, size + 1, end);
+	    pos++; // Skip encryption header
+	    dataOff = pos;
+	    dataLen = size - 1;
+	    pos += dataLen;
 
-	    tag = (byte) bais.read();
+	    tag = response[pos++];
 	}
 
 	// Read processing status (REQUIRED)
-	if (tag == (byte) 0x99) {
-	    if (bais.read() == (byte) 0x02) {
-		bais.read(statusBytes, 0, 2);
-		tag = (byte) bais.read();
-	    }
-	} else {
+	if (tag != (byte) 0x99) {
+	    throw new IOException("Malformed Secure Messaging APDU");
+	}
+	checkAvailable(pos, 4, end);
+	if (response[pos++] != 0x02) {
 	    throw new IOException("Malformed Secure Messaging APDU");
 	}
+	// Status bytes of the response APDU. MUST be 2 bytes.
+	int statusOff = pos;
+	pos += 2;
+	int macDataLen = pos - offset;
 
 	// Read MAC (REQUIRED)
-	if (tag == (byte) 0x8E) {
-	    if (bais.read() == (byte) 0x08) {
-		bais.read(macObject, 0, 8);
-	    }
-	} else {
+	checkAvailable(pos, 2 + MAC_SIZE, end);
+	tag = response[pos++];
+	if (tag != (byte) 0x8E || response[pos++] != MAC_SIZE) {
 	    throw new IOException("Malformed Secure Messaging APDU");
 	}
+	int macOff = pos;
+	pos += MAC_SIZE;
 
 	// Only 2 bytes status should remain
-	if (bais.available() != 2) {
+	if (end - pos != 2) {
 	    throw new IOException("Malformed Secure Messaging APDU");
 	}
 
 	// Calculate MAC for verification
-	CMac cmac = getCMAC(secureMessagingSSC);
-	byte[] mac = new byte[16];
-
-	synchronized (cmac) {
-	    ByteArrayOutputStream macData = new ByteArrayOutputStream();
-
-	    // Write padding-content
-	    if (dataObject != null) {
-		TLV paddedDataObject = new TLV();
-		paddedDataObject.setTagNumWithClass((byte) 0x87);
-		paddedDataObject.setValue(ByteUtils.concatenate((byte) 0x01, dataObject));
-		macData.write(paddedDataObject.toBER());
-	    }
-	    // Write status bytes
-	    TLV statusBytesObject = new TLV();
-	    statusBytesObject.setTagNumWithClass((byte) 0x99);
-	    statusBytesObject.setValue(statusBytes);
-	    macData.write(statusBytesObject.toBER());
-
-	    byte[] paddedData = pad(macData.toByteArray(), 16);
-	    cmac.update(paddedData, 0, paddedData.length);
-
-	    cmac.doFinal(mac, 0);
-	    mac = ByteUtils.copy(mac, 0, 8);
-	}
+	cmac.reset();
+	cmac.update(secureMessagingSSC, 0, secureMessagingSSC.length);
+	updatePadded(response, offset, macDataLen);
+	cmac.doFinal(mac, 0);
 
 	// Verify MAC
-	if (!ByteUtils.compare(mac, macObject)) {
+	int diff = 0;
+	for (int i = 0; i < MAC_SIZE; i++) {
+	    diff |= mac[i] ^ response[macOff + i];
+	}
+	if (diff != 0) {
 	    throw new GeneralSecurityException("Secure Messaging MAC verification failed");
 	}
 
 	// Decrypt data
-	if (dataObject != null) {
-	    Cipher c = getCipher(secureMessagingSSC, Cipher.DECRYPT_MODE);
-	    byte[] data_decrypted = c.doFinal(dataObject);
-	    baos.write(unpad(data_decrypted));
+	int plainLen = 0;
+	byte[] result;
+	if (dataLen > 0) {
+	    if (dataLen % BLOCK_SIZE != 0) {
+		throw new GeneralSecurityException("Secure Messaging cryptogram is not a multiple of the block size.");
+	    }
+	    if (plainBuffer.length < dataLen) {
+		plainBuffer = new byte[dataLen];
+	    }
+	    try {
+		decryptCBC(response, dataOff, dataLen, plainBuffer);
+		plainLen = unpaddedLength(plainBuffer, dataLen);
+		result = new byte[plainLen + 2];
+		System.arraycopy(plainBuffer, 0, result, 0, plainLen);
+	    } finally {
+		// do not keep the plaintext of the card in the buffer
+		Arrays.fill(plainBuffer, 0, dataLen, (byte) 0);
+	    }
+	} else {
+	    result = new byte[2];
 	}
 
 	// Add status code
-	baos.write(statusBytes);
+	result[plainLen] = response[statusOff];
+	result[plainLen + 1] = response[statusOff + 1];
+
+	return result;
+    }
 
-	return baos.toByteArray();
+    private static void checkAvailable(int pos, int num, int end) throws IOException {
+	if (pos + num > end) {
+	    throw new IOException("Malformed Secure Messaging APDU");
+	}
     }
 
     /**
@@ -317,86 +427,107 @@ public class SecureMessaging {
      * Cipher functions
      */
     /**
-     * Gets the cipher for de/encryption.
-     *
-     * @param smssc the Secure Messaging Send Sequence Counter
-     * @param mode the mode indicating de/encryption
-     * @return the cipher
-     * @throws Exception the exception
+     * Calculates the Initialization Vector (IV) for the cipher from the Send Sequence Counter.
      */
-    private Cipher getCipher(byte[] smssc, int mode) throws Exception {
-	Cipher c = Cipher.getInstance("AES/CBC/NoPadding");
-	Key key = new SecretKeySpec(keyENC, "AES");
-	byte[] iv = getCipherIV(smssc);
-	AlgorithmParameterSpec algoPara = new IvParameterSpec(iv);
-
-	c.init(mode, key, algoPara);
-
-	return c;
+    private void updateIV() {
+	encCipher.processBlock(secureMessagingSSC, 0, iv, 0);
     }
 
     /**
-     * Gets the Initialization Vector (IV) for the cipher.
+     * Encrypts the padded data in place in CBC mode.
      *
-     * @param smssc Secure Messaging Send Sequence Counter
-     * @return Initialization Vector
-     * @throws Exception
+     * @param data Array containing the data
+     * @param offset Offset of the data
+     * @param length Length of the data, must be a multiple of the block size
      */
-    private byte[] getCipherIV(byte[] smssc) throws Exception {
-	Cipher c = Cipher.getInstance("AES/ECB/NoPadding");
-	Key key = new SecretKeySpec(keyENC, "AES");
-
-	c.init(Cipher.ENCRYPT_MODE, key);
-
-	return c.doFinal(smssc);
+    private void encryptCBC(byte[] data, int offset, int length) {
+	updateIV();
+	byte[] prev = iv;
+	int prevOff = 0;
+	for (int i = offset; i < offset + length; i += BLOCK_SIZE) {
+	    for (int j = 0; j < BLOCK_SIZE; j++) {
+		data[i + j] ^= prev[prevOff + j];
+	    }
+	    encCipher.processBlock(data, i, data, i);
+	    prev = data;
+	    prevOff = i;
+	}
     }
 
     /**
-     * Gets the CMAC.
+     * Decrypts the cryptogram in CBC mode.
      *
-     * @param smssc Secure Messaging Send Sequence Counter
-     * @return CMAC
+     * @param data Array containing the cryptogram
+     * @param offset Offset of the cryptogram
+     * @param length Length of the cryptogram, must be a multiple of the block size
+     * @param out Array receiving the plain data starting at index 0
      */
-    private CMac getCMAC(byte[] smssc) {
-	CMac cmac = new CMac(new AESEngine());
-	cmac.init(new KeyParameter(keyMAC));
-	cmac.update(smssc, 0, smssc.length);
-
-	return cmac;
+    private void decryptCBC(byte[] data, int offset, int length, byte[] out) {
+	updateIV();
+	System.arraycopy(iv, 0, chainBlock, 0, BLOCK_SIZE);
+	for (int i = 0; i < length; i += BLOCK_SIZE) {
+	    decCipher.processBlock(data, offset + i, out, i);
+	    for (int j = 0; j < BLOCK_SIZE; j++) {
+		out[i + j] ^= chainBlock[j];
+	    }
+	    System.arraycopy(data, offset + i, chainBlock, 0, BLOCK_SIZE);
+	}
     }
 
-    /*
-     * ISO/IEC 7816-4 padding functions
-     */
     /**
-     * Padding the data.
-     *
-     * @param data Unpadded data
-     * @param blockSize Block size
-     * @return Padded data
+     * Feeds the data and its ISO/IEC 7816-4 padding into the MAC.
      */
-    private byte[] pad(byte[] data, int blockSize) {
-	byte[] result = new byte[data.length + (blockSize - data.length % blockSize)];
-	System.arraycopy(data, 0, result, 0, data.length);
-	result[data.length] = PAD;
-
-	return result;
+    private void updatePadded(byte[] data, int offset, int length) {
+	cmac.update(data, offset, length);
+	cmac.update(PADDING, 0, BLOCK_SIZE - length % BLOCK_SIZE);
     }
 
+    /*
+     * ISO/IEC 7816-4 padding and length functions
+     */
     /**
-     * Unpadding the data.
+     * Gets the length of the data without padding.
      *
      * @param data Padded data
-     * @return Unpadded data
+     * @param length Length of the padded data
+     * @return Length of the unpadded data
      */
-    private byte[] unpad(byte[] data) {
-	for (int i = data.length - 1; i >= 0; i--) {
+    private static int unpaddedLength(byte[] data, int length) {
+	for (int i = length - 1; i >= 0; i--) {
 	    if (data[i] == PAD) {
-		return ByteUtils.copy(data, 0, i);
+		return i;
 	    }
 	}
 
-	return data;
+	return length;
+    }
+
+    private static int readShort(byte[] data, int offset) {
+	return ((data[offset] & 0xFF) << 8) | (data[offset + 1] & 0xFF);
+    }
+
+    private static int berLengthSize(int length) {
+	if (length <= 0x7F) {
+	    return 1;
+	} else if (length <= 0xFF) {
+	    return 2;
+	} else {
+	    return 3;
+	}
+    }
+
+    private static int writeBerLength(byte[] out, int pos, int length) {
+	if (length <= 0x7F) {
+	    out[pos++] = (byte) length;
+	} else if (length <= 0xFF) {
+	    out[pos++] = (byte) 0x81;
+	    out[pos++] = (byte) length;
+	} else {
+	    out[pos++] = (byte) 0x82;
+	    out[pos++] = (byte) (length >> 8);
+	    out[pos++] = (byte) length;
+	}
+	return pos;
     }
 
 }
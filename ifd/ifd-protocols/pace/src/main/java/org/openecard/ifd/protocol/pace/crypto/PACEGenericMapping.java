@@ -23,10 +23,12 @@
 package org.openecard.ifd.protocol.pace.crypto;
 
 import java.math.BigInteger;
+import org.openecard.bouncycastle.crypto.AsymmetricCipherKeyPair;
 import org.openecard.bouncycastle.crypto.params.ECPrivateKeyParameters;
 import org.openecard.bouncycastle.jce.spec.ECParameterSpec;
 import org.openecard.bouncycastle.math.ec.ECPoint;
 import org.openecard.crypto.common.asn1.eac.PACEDomainParameter;
+import org.openecard.crypto.common.asn1.eac.StandardizedCurves;
 
 
 /**
@@ -48,8 +50,14 @@ public final class PACEGenericMapping extends PACEMapping {
     public PACEGenericMapping(PACEDomainParameter pdp) {
 	super(pdp);
 
-	mapKey = new PACEKey(pdp);
-	mapKey.generateKeyPair();
+	// use a key prepared while the user entered the password if there is one
+	AsymmetricCipherKeyPair keyPair = PACEKeyPool.getInstance().take(pdp.getParameter());
+	if (keyPair != null) {
+	    mapKey = new PACEKey(pdp, keyPair);
+	} else {
+	    mapKey = new PACEKey(pdp);
+	    mapKey.generateKeyPair();
+	}
     }
 
     @Override
@@ -63,7 +71,7 @@ public final class PACEGenericMapping extends PACEMapping {
 	    BigInteger s = new BigInteger(1, keyPCD);
 
 	    ECPoint h = pkMapPICC.multiply(p.getH().multiply(d));
-	    ECPoint newG = p.getG().multiply(s).add(h);
+	    ECPoint newG = StandardizedCurves.multiplyGenerator(p, s).add(h);
 
 	    ECParameterSpec parameter = new ECParameterSpec(p.getCurve(), newG, p.getN(), p.getH());
 	    pdp.setParameter(parameter);
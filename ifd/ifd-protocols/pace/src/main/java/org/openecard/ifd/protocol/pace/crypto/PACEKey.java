@@ -26,6 +26,8 @@ import java.math.BigInteger;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
+import java.security.spec.AlgorithmParameterSpec;
+import org.openecard.bouncycastle.crypto.AsymmetricCipherKeyPair;
 import org.openecard.bouncycastle.crypto.params.AsymmetricKeyParameter;
 import org.openecard.bouncycastle.crypto.params.ECDomainParameters;
 import org.openecard.bouncycastle.crypto.params.ECPrivateKeyParameters;
@@ -40,6 +42,7 @@ import org.openecard.common.tlv.TLV;
 import org.openecard.common.util.ByteUtils;
 import org.openecard.common.util.SecureRandomFactory;
 import org.openecard.crypto.common.asn1.eac.PACEDomainParameter;
+import org.openecard.crypto.common.asn1.eac.StandardizedCurves;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -51,19 +54,12 @@ import org.slf4j.LoggerFactory;
 public final class PACEKey {
 
     private static final Logger logger;
+    // seeded from the entropy source of the system, the instance is safe to be shared between threads
     private static final SecureRandom rand;
-    private static long counter;
 
     static {
 	logger = LoggerFactory.getLogger(PACEKey.class);
 	rand = SecureRandomFactory.create(32);
-	counter = 0;
-    }
-
-    private static void reseed() {
-	counter++;
-	rand.setSeed(counter);
-	rand.setSeed(System.nanoTime());
     }
 
     private AsymmetricKeyParameter sk;
@@ -79,6 +75,18 @@ public final class PACEKey {
 	this.pdp = pdp;
     }
 
+    /**
+     * Creates a new key for PACE from an already generated key pair.
+     *
+     * @param pdp PACEDomainParameter
+     * @param keyPair Key pair generated for the domain parameters
+     */
+    PACEKey(PACEDomainParameter pdp, AsymmetricCipherKeyPair keyPair) {
+	this.pdp = pdp;
+	this.sk = keyPair.getPrivate();
+	this.pk = keyPair.getPublic();
+    }
+
     /**
      * Decodes a public key from a byte array.
      *
@@ -117,29 +125,54 @@ public final class PACEKey {
      * Generate a key pair.
      */
     public void generateKeyPair() {
-	reseed();
+	AsymmetricCipherKeyPair keyPair;
 	if (pdp.isDH()) {
-	    ElGamalParameterSpec p = (ElGamalParameterSpec) pdp.getParameter();
-	    int numBits = p.getG().bitLength();
-	    BigInteger d = new BigInteger(numBits, rand);
-	    ElGamalParameters egp = new ElGamalParameters(p.getP(), p.getG());
-
-	    sk = new ElGamalPrivateKeyParameters(d, egp);
-	    pk = new ElGamalPublicKeyParameters(egp.getG().multiply(d), egp);
-
+	    keyPair = generateKeyPair((ElGamalParameterSpec) pdp.getParameter());
 	} else if (pdp.isECDH()) {
-	    ECParameterSpec p = (ECParameterSpec) pdp.getParameter();
-	    int numBits = p.getN().bitLength();
-	    BigInteger d = new BigInteger(numBits, rand);
-	    ECDomainParameters ecp = new ECDomainParameters(p.getCurve(), p.getG(), p.getN(), p.getH());
+	    keyPair = generateKeyPair((ECParameterSpec) pdp.getParameter());
+	} else {
+	    throw new IllegalArgumentException();
+	}
+	sk = keyPair.getPrivate();
+	pk = keyPair.getPublic();
+    }
 
-	    sk = new ECPrivateKeyParameters(d, ecp);
-	    pk = new ECPublicKeyParameters(ecp.getG().multiply(d), ecp);
+    /**
+     * Generate a key pair for the given domain parameters.
+     *
+     * @param params Domain parameters, either {@link ElGamalParameterSpec} or {@link ECParameterSpec}
+     * @return The generated key pair.
+     */
+    static AsymmetricCipherKeyPair generateKeyPair(AlgorithmParameterSpec params) {
+	if (params instanceof ElGamalParameterSpec) {
+	    return generateKeyPair((ElGamalParameterSpec) params);
+	} else if (params instanceof ECParameterSpec) {
+	    return generateKeyPair((ECParameterSpec) params);
 	} else {
 	    throw new IllegalArgumentException();
 	}
     }
 
+    private static AsymmetricCipherKeyPair generateKeyPair(ElGamalParameterSpec p) {
+	int numBits = p.getG().bitLength();
+	BigInteger d = new BigInteger(numBits, rand);
+	ElGamalParameters egp = new ElGamalParameters(p.getP(), p.getG());
+
+	return new AsymmetricCipherKeyPair(new ElGamalPublicKeyParameters(egp.getG().multiply(d), egp),
+		new ElGamalPrivateKeyParameters(d, egp));
+    }
+
+    private static AsymmetricCipherKeyPair generateKeyPair(ECParameterSpec p) {
+	int numBits = p.getN().bitLength();
+	BigInteger d = new BigInteger(numBits, rand);
+	ECDomainParameters ecp = new ECDomainParameters(p.getCurve(), p.getG(), p.getN(), p.getH());
+
+	ECPoint q = StandardizedCurves.multiplyGenerator(p, d);
+
+	return new AsymmetricCipherKeyPair(new ECPublicKeyParameters(q, ecp),
+		new ECPrivateKeyParameters(d, ecp));
+    }
+
     /**
      * Returns the public key.
      *
@@ -0,0 +1,293 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.ifd.protocol.pace.crypto;
+
+import java.security.spec.AlgorithmParameterSpec;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import org.openecard.bouncycastle.crypto.AsymmetricCipherKeyPair;
+import org.openecard.bouncycastle.jce.spec.ECParameterSpec;
+import org.openecard.bouncycastle.jce.spec.ElGamalParameterSpec;
+import org.openecard.common.util.ByteUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Pool of ephemeral PACE key pairs which are generated in the background.
+ * <p>Generating the mapping key pair is one of the expensive steps of PACE. The domain parameters for this key are
+ * known as soon as EF.CardAccess is read, so the key can be generated while the user enters the PIN. The key for the
+ * key agreement depends on the mapped domain parameters and can not be prepared in advance.</p>
+ * <p>Each key pair is handed out exactly once and removed from the pool when it is taken. The pool is not refilled
+ * when a key is taken, every PACE run prepares its own key, so that no private key is kept without a PACE run asking
+ * for it. Prepared keys which are not used within {@link #MAX_AGE} are discarded.</p>
+ */
+public final class PACEKeyPool {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PACEKeyPool.class);
+
+    /**
+     * Maximum time in milliseconds a prepared key is kept in the pool.
+     */
+    public static final long MAX_AGE = TimeUnit.MINUTES.toMillis(10);
+
+    private static final PACEKeyPool INSTANCE = new PACEKeyPool();
+
+    private final Map<String, PreparedKey> keys = new HashMap<>();
+    private ScheduledExecutorService executor;
+
+    private final AtomicLong numGenerated = new AtomicLong();
+    private final AtomicLong numHits = new AtomicLong();
+    private final AtomicLong numMisses = new AtomicLong();
+    private final AtomicLong numDiscarded = new AtomicLong();
+    private final AtomicLong savedNanos = new AtomicLong();
+
+    private PACEKeyPool() {
+    }
+
+    /**
+     * Gets the pool instance shared by all PACE runs.
+     *
+     * @return The pool instance.
+     */
+    public static PACEKeyPool getInstance() {
+	return INSTANCE;
+    }
+
+    /**
+     * Starts generating a key pair for the given domain parameters, unless one is already prepared.
+     * The parameter object is captured when this method is called, so later changes to a
+     * {@link org.openecard.crypto.common.asn1.eac.PACEDomainParameter} instance do not affect the prepared key.
+     *
+     * @param params Domain parameters, either {@link ElGamalParameterSpec} or {@link ECParameterSpec}.
+     */
+    public void prepare(@Nonnull final AlgorithmParameterSpec params) {
+	String id = parameterId(params);
+	if (id == null) {
+	    return;
+	}
+
+	synchronized (this) {
+	    discardExpired();
+	    if (keys.containsKey(id)) {
+		return;
+	    }
+
+	    final PreparedKey key = new PreparedKey();
+	    key.future = getExecutor().submit(() -> {
+		long start = System.nanoTime();
+		AsymmetricCipherKeyPair keyPair = PACEKey.generateKeyPair(params);
+		key.generationTime = System.nanoTime() - start;
+		numGenerated.incrementAndGet();
+		return keyPair;
+	    });
+	    keys.put(id, key);
+	    // do not keep the private key when it is never taken
+	    getExecutor().schedule(() -> expire(id, key), MAX_AGE, TimeUnit.MILLISECONDS);
+	}
+    }
+
+    /**
+     * Takes the prepared key pair for the given domain parameters out of the pool.
+     * If the key is still being generated, this method waits for it.
+     *
+     * @param params Domain parameters, either {@link ElGamalParameterSpec} or {@link ECParameterSpec}.
+     * @return The prepared key pair, or {@code null} if none is available and the caller must generate the key itself.
+     */
+    @Nullable
+    public AsymmetricCipherKeyPair take(@Nonnull AlgorithmParameterSpec params) {
+	String id = parameterId(params);
+	if (id == null) {
+	    return null;
+	}
+
+	PreparedKey key;
+	synchronized (this) {
+	    key = keys.remove(id);
+	}
+
+	AsymmetricCipherKeyPair result = null;
+	if (key != null && ! key.isExpired()) {
+	    try {
+		long start = System.nanoTime();
+		result = key.future.get();
+		long waited = System.nanoTime() - start;
+		long saved = Math.max(0, key.generationTime - waited);
+		savedNanos.addAndGet(saved);
+		numHits.incrementAndGet();
+		LOG.debug("Using prepared PACE key, saved {} ms.", TimeUnit.NANOSECONDS.toMillis(saved));
+	    } catch (ExecutionException ex) {
+		LOG.warn("Failed to prepare PACE key.", ex.getCause());
+	    } catch (InterruptedException ex) {
+		Thread.currentThread().interrupt();
+		return null;
+	    }
+	} else if (key != null) {
+	    numDiscarded.incrementAndGet();
+	}
+
+	if (result == null) {
+	    numMisses.incrementAndGet();
+	}
+
+	return result;
+    }
+
+    /**
+     * Removes all prepared keys from the pool.
+     */
+    public synchronized void clear() {
+	for (PreparedKey key : keys.values()) {
+	    key.future.cancel(false);
+	    numDiscarded.incrementAndGet();
+	}
+	keys.clear();
+    }
+
+    private synchronized void expire(String id, PreparedKey key) {
+	// the key may already be taken or replaced by a newer one
+	if (keys.get(id) == key) {
+	    keys.remove(id);
+	    key.future.cancel(false);
+	    numDiscarded.incrementAndGet();
+	}
+    }
+
+    private void discardExpired() {
+	Iterator<PreparedKey> it = keys.values().iterator();
+	while (it.hasNext()) {
+	    PreparedKey key = it.next();
+	    if (key.isExpired()) {
+		key.future.cancel(false);
+		it.remove();
+		numDiscarded.incrementAndGet();
+	    }
+	}
+    }
+
+    private synchronized ScheduledExecutorService getExecutor() {
+	if (executor == null) {
+	    executor = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread t = new Thread(r, "PACE-Key-Pool");
+		t.setDaemon(true);
+		t.setPriority(Thread.MIN_PRIORITY);
+		return t;
+	    });
+	}
+	return executor;
+    }
+
+    /**
+     * Creates an identifier for the given domain parameters.
+     *
+     * @param params Domain parameters.
+     * @return The identifier, or {@code null} if the parameter type is not supported.
+     */
+    @Nullable
+    private static String parameterId(AlgorithmParameterSpec params) {
+	if (params instanceof ECParameterSpec) {
+	    ECParameterSpec p = (ECParameterSpec) params;
+	    return "EC:" + p.getCurve().getField().getCharacteristic().toString(16)
+		    + ":" + p.getCurve().getA().toBigInteger().toString(16)
+		    + ":" + p.getCurve().getB().toBigInteger().toString(16)
+		    + ":" + ByteUtils.toHexString(p.getG().getEncoded(false))
+		    + ":" + p.getN().toString(16);
+	} else if (params instanceof ElGamalParameterSpec) {
+	    ElGamalParameterSpec p = (ElGamalParameterSpec) params;
+	    return "DH:" + p.getP().toString(16) + ":" + p.getG().toString(16);
+	} else {
+	    return null;
+	}
+    }
+
+
+    ///
+    /// Metrics
+    ///
+
+    /**
+     * Gets the number of key pairs generated in the background.
+     *
+     * @return Number of generated key pairs.
+     */
+    public long getGeneratedCount() {
+	return numGenerated.get();
+    }
+
+    /**
+     * Gets the number of requests which have been served with a prepared key pair.
+     *
+     * @return Number of requests served from the pool.
+     */
+    public long getHitCount() {
+	return numHits.get();
+    }
+
+    /**
+     * Gets the number of requests for which no prepared key pair was available.
+     *
+     * @return Number of requests not served from the pool.
+     */
+    public long getMissCount() {
+	return numMisses.get();
+    }
+
+    /**
+     * Gets the number of prepared key pairs which have been discarded without being used.
+     *
+     * @return Number of discarded key pairs.
+     */
+    public long getDiscardedCount() {
+	return numDiscarded.get();
+    }
+
+    /**
+     * Gets the time which has been removed from the PACE critical path by using prepared key pairs.
+     *
+     * @return Saved time in milliseconds.
+     */
+    public long getSavedMillis() {
+	return TimeUnit.NANOSECONDS.toMillis(savedNanos.get());
+    }
+
+
+    private static class PreparedKey {
+	private final long created = System.currentTimeMillis();
+	private Future<AsymmetricCipherKeyPair> future;
+	private volatile long generationTime;
+
+	boolean isExpired() {
+	    return System.currentTimeMillis() - created > MAX_AGE;
+	}
+    }
+
+}
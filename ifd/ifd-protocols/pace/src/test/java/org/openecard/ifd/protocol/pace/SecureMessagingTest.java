@@ -22,6 +22,21 @@
 
 package org.openecard.ifd.protocol.pace;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import org.openecard.bouncycastle.crypto.engines.AESEngine;
+import org.openecard.bouncycastle.crypto.macs.CMac;
+import org.openecard.bouncycastle.crypto.params.KeyParameter;
+import org.openecard.common.tlv.TLV;
+import org.openecard.common.util.ByteUtils;
 import org.openecard.common.util.StringUtils;
 import org.testng.Assert;
 import org.testng.annotations.Test;
@@ -207,4 +222,167 @@ public class SecureMessagingTest {
 	}
     }
 
+    @Test
+    public void testEncryptionVectors() throws Exception {
+	byte[] keyEnc = StringUtils.toByteArray("68 40 6B 41 62 10 05 63 D9 C9 01 A6 15 4D 29 01", true);
+	byte[] keyMac = StringUtils.toByteArray("73 FF 26 87 84 F7 2A F8 33 FD C9 46 40 49 AF C9", true);
+	SecureMessaging sm = new SecureMessaging(keyMac, keyEnc);
+
+	// all APDU cases with data lengths around the padding and length encoding boundaries
+	MessageDigest md = MessageDigest.getInstance("SHA-256");
+	int num = 0;
+	for (byte cla : new byte[] { 0x00, 0x10 }) {
+	    for (int dataLen : DATA_LENGTHS) {
+		for (byte[] apdu : plainAPDUs(cla, dataLen)) {
+		    byte[] encrypted = sm.encrypt(apdu);
+		    md.update(encrypted);
+		    // the same APDU embedded in a larger array
+		    byte[] embedded = new byte[apdu.length + 7];
+		    System.arraycopy(apdu, 0, embedded, 3, apdu.length);
+		    encrypted = sm.encrypt(embedded, 3, apdu.length);
+		    md.update(encrypted);
+		    num++;
+		}
+	    }
+	}
+
+	Assert.assertEquals(num, 326);
+	// digest of the output created by the original implementation
+	Assert.assertEquals(ByteUtils.toHexString(md.digest()),
+		"58B31ACD1955A8EB25B285AE044DB60066F50AFCB404359ACF0783A2A418C1D0");
+    }
+
+    @Test
+    public void testDecryptionVectors() throws Exception {
+	byte[] keyEnc = StringUtils.toByteArray("68 40 6B 41 62 10 05 63 D9 C9 01 A6 15 4D 29 01", true);
+	byte[] keyMac = StringUtils.toByteArray("73 FF 26 87 84 F7 2A F8 33 FD C9 46 40 49 AF C9", true);
+	byte[] ssc = new byte[16];
+
+	for (int dataLen : DATA_LENGTHS) {
+	    SecureMessaging sm = new SecureMessaging(keyMac, keyEnc);
+	    byte[] data = data(dataLen);
+	    byte[] response = protectResponse(keyMac, keyEnc, ssc, data, 0x9000);
+	    byte[] expected = ByteUtils.concatenate(data, new byte[] { (byte) 0x90, 0x00 });
+	    Assert.assertEquals(sm.decrypt(response), expected, "Response with " + dataLen + " bytes.");
+
+	    // the same response embedded in a larger array
+	    byte[] embedded = new byte[response.length + 5];
+	    System.arraycopy(response, 0, embedded, 2, response.length);
+	    Assert.assertEquals(sm.decrypt(embedded, 2, response.length), expected);
+
+	    // modified cryptogram must be detected
+	    if (dataLen > 0) {
+		response[response.length - 17] ^= 0x01;
+		try {
+		    sm.decrypt(response);
+		    Assert.fail("Decrypting a modified APDU should give an error.");
+		} catch (GeneralSecurityException ex) {
+		    // expected
+		}
+	    }
+	}
+    }
+
+    @Test
+    public void testTruncatedMac() throws Exception {
+	byte[] keyEnc = StringUtils.toByteArray("68 40 6B 41 62 10 05 63 D9 C9 01 A6 15 4D 29 01", true);
+	byte[] keyMac = StringUtils.toByteArray("73 FF 26 87 84 F7 2A F8 33 FD C9 46 40 49 AF C9", true);
+	SecureMessaging sm = new SecureMessaging(keyMac, keyEnc);
+	byte[] response = protectResponse(keyMac, keyEnc, new byte[16], data(16), 0x9000);
+
+	// cut the response directly after the tag of the MAC object
+	byte[] truncated = Arrays.copyOf(response, response.length - 2 - 8 - 1);
+	try {
+	    sm.decrypt(truncated);
+	    Assert.fail("Decrypting a truncated APDU should give an error.");
+	} catch (IOException ex) {
+	    // expected
+	}
+    }
+
+    private static final int[] DATA_LENGTHS = { 0, 1, 15, 16, 17, 110, 111, 112, 126, 127, 128, 239, 240, 254, 255, 256,
+	1000, 4096 };
+
+    private static List<byte[]> plainAPDUs(byte cla, int dataLen) {
+	byte[] header = new byte[] { cla, (byte) 0xB0, 0x01, 0x02 };
+	byte[] data = data(dataLen);
+	List<byte[]> result = new ArrayList<>();
+	if (dataLen == 0) {
+	    // Case 1 and 2
+	    result.add(header);
+	    for (byte[] le : new byte[][] { { 0x00 }, { 0x01 }, { (byte) 0xFF }, { 0x00, 0x00, 0x00 }, { 0x00, 0x01, 0x00 },
+		{ 0x00, 0x11, 0x11 }, { 0x00, (byte) 0xFF, (byte) 0xFF } }) {
+		result.add(ByteUtils.concatenate(header, le));
+	    }
+	} else {
+	    // Case 3 and 4 with short LC
+	    if (dataLen <= 255) {
+		byte[] lc = new byte[] { (byte) dataLen };
+		byte[] apdu = ByteUtils.concatenate(ByteUtils.concatenate(header, lc), data);
+		result.add(apdu);
+		result.add(ByteUtils.concatenate(apdu, (byte) 0x00));
+		result.add(ByteUtils.concatenate(apdu, (byte) 0x08));
+		result.add(ByteUtils.concatenate(apdu, new byte[] { 0x00, 0x11, 0x11 }));
+		result.add(ByteUtils.concatenate(apdu, new byte[] { 0x00, 0x00, 0x00 }));
+	    }
+	    // Case 3 and 4 with extended LC
+	    byte[] lc = new byte[] { 0x00, (byte) (dataLen >> 8), (byte) dataLen };
+	    byte[] apdu = ByteUtils.concatenate(ByteUtils.concatenate(header, lc), data);
+	    result.add(apdu);
+	    result.add(ByteUtils.concatenate(apdu, (byte) 0x08));
+	    result.add(ByteUtils.concatenate(apdu, new byte[] { 0x11, 0x11 }));
+	    result.add(ByteUtils.concatenate(apdu, new byte[] { 0x00, 0x00 }));
+	    result.add(ByteUtils.concatenate(apdu, new byte[] { 0x00, 0x01, 0x00 }));
+	}
+	return result;
+    }
+
+    private static byte[] data(int dataLen) {
+	byte[] data = new byte[dataLen];
+	for (int i = 0; i < dataLen; i++) {
+	    data[i] = (byte) (i * 7 + 3);
+	}
+	return data;
+    }
+
+    /**
+     * Creates a protected response APDU with the JCE and CMAC implementations directly.
+     */
+    private static byte[] protectResponse(byte[] keyMac, byte[] keyEnc, byte[] ssc, byte[] data, int sw)
+	    throws Exception {
+	ByteArrayOutputStream macData = new ByteArrayOutputStream();
+	if (data.length > 0) {
+	    SecretKeySpec key = new SecretKeySpec(keyEnc, "AES");
+	    Cipher ecb = Cipher.getInstance("AES/ECB/NoPadding");
+	    ecb.init(Cipher.ENCRYPT_MODE, key);
+	    byte[] iv = ecb.doFinal(ssc);
+	    Cipher cbc = Cipher.getInstance("AES/CBC/NoPadding");
+	    cbc.init(Cipher.ENCRYPT_MODE, key, new IvParameterSpec(iv));
+	    byte[] padded = Arrays.copyOf(data, (data.length / 16 + 1) * 16);
+	    padded[data.length] = (byte) 0x80;
+	    byte[] cryptogram = ByteUtils.concatenate((byte) 0x01, cbc.doFinal(padded));
+
+	    TLV do87 = new TLV();
+	    do87.setTagNumWithClass((byte) 0x87);
+	    do87.setValue(cryptogram);
+	    macData.write(do87.toBER());
+	}
+	macData.write(new byte[] { (byte) 0x99, 0x02, (byte) (sw >> 8), (byte) sw });
+
+	byte[] macInput = macData.toByteArray();
+	byte[] paddedMacInput = Arrays.copyOf(macInput, (macInput.length / 16 + 1) * 16);
+	paddedMacInput[macInput.length] = (byte) 0x80;
+	CMac cmac = new CMac(new AESEngine());
+	cmac.init(new KeyParameter(keyMac));
+	cmac.update(ssc, 0, ssc.length);
+	cmac.update(paddedMacInput, 0, paddedMacInput.length);
+	byte[] mac = new byte[16];
+	cmac.doFinal(mac, 0);
+
+	macData.write(new byte[] { (byte) 0x8E, 0x08 });
+	macData.write(mac, 0, 8);
+	macData.write(new byte[] { (byte) (sw >> 8), (byte) sw });
+	return macData.toByteArray();
+    }
+
 }
@@ -0,0 +1,85 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.ifd.protocol.pace.crypto;
+
+import java.security.spec.AlgorithmParameterSpec;
+import org.openecard.bouncycastle.crypto.AsymmetricCipherKeyPair;
+import org.openecard.bouncycastle.crypto.params.ECPrivateKeyParameters;
+import org.openecard.bouncycastle.crypto.params.ECPublicKeyParameters;
+import org.openecard.bouncycastle.jce.spec.ECParameterSpec;
+import org.openecard.crypto.common.asn1.eac.StandardizedDomainParameters;
+import org.testng.annotations.Test;
+import static org.testng.Assert.*;
+
+
+/**
+ * Tests for the pool of prepared PACE keys.
+ */
+public class PACEKeyPoolTest {
+
+    @Test
+    public void testPrepareAndTake() {
+	PACEKeyPool pool = PACEKeyPool.getInstance();
+	pool.clear();
+	// brainpoolP256r1
+	AlgorithmParameterSpec params = new StandardizedDomainParameters(13).getParameter();
+	long hits = pool.getHitCount();
+
+	pool.prepare(params);
+	AsymmetricCipherKeyPair first = pool.take(params);
+	assertNotNull(first);
+	assertEquals(pool.getHitCount(), hits + 1);
+
+	// the key pair must belong to the domain parameters
+	ECParameterSpec p = (ECParameterSpec) params;
+	ECPrivateKeyParameters sk = (ECPrivateKeyParameters) first.getPrivate();
+	ECPublicKeyParameters pk = (ECPublicKeyParameters) first.getPublic();
+	assertEquals(p.getG().multiply(sk.getD()).normalize(), pk.getQ().normalize());
+
+	// taking the key does not refill the pool
+	assertNull(pool.take(params));
+
+	// the next run prepares a new key, which must not be the same
+	pool.prepare(params);
+	AsymmetricCipherKeyPair second = pool.take(params);
+	assertNotNull(second);
+	assertNotEquals(((ECPrivateKeyParameters) second.getPrivate()).getD(), sk.getD());
+	assertEquals(pool.getHitCount(), hits + 2);
+
+	pool.clear();
+    }
+
+    @Test
+    public void testMiss() {
+	PACEKeyPool pool = PACEKeyPool.getInstance();
+	pool.clear();
+	AlgorithmParameterSpec params = new StandardizedDomainParameters(12).getParameter();
+	long misses = pool.getMissCount();
+
+	assertNull(pool.take(params));
+	assertEquals(pool.getMissCount(), misses + 1);
+
+	pool.clear();
+    }
+
+}
@@ -0,0 +1,50 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.recognition;
+
+import iso.std.iso_iec._24727.tech.schema.ResponseAPDUType;
+import java.util.List;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import org.openecard.common.interfaces.RecognitionException;
+
+
+/**
+ * Channel used by the recognition engines to send APDUs to the card.
+ */
+@FunctionalInterface
+interface ApduChannel {
+
+    /**
+     * Sends a command APDU to the card.
+     *
+     * @param command The command APDU.
+     * @param expected Responses defined in the recognition tree for the command, their trailers are the acceptable
+     *   status codes. An empty list accepts every status code.
+     * @return The response APDU including its trailer, or {@code null} if the card returned no valid response.
+     * @throws RecognitionException Thrown in case the card is not accessible anymore.
+     */
+    @Nullable
+    byte[] transmit(@Nonnull byte[] command, @Nonnull List<ResponseAPDUType> expected) throws RecognitionException;
+
+}
@@ -30,7 +30,6 @@ import iso.std.iso_iec._24727.tech.schema.CardInfoType;
 import iso.std.iso_iec._24727.tech.schema.Connect;
 import iso.std.iso_iec._24727.tech.schema.ConnectResponse;
 import iso.std.iso_iec._24727.tech.schema.ConnectionHandleType.RecognitionInfo;
-import iso.std.iso_iec._24727.tech.schema.DataMaskType;
 import iso.std.iso_iec._24727.tech.schema.Disconnect;
 import iso.std.iso_iec._24727.tech.schema.DisconnectResponse;
 import iso.std.iso_iec._24727.tech.schema.EndTransaction;
@@ -39,20 +38,22 @@ import iso.std.iso_iec._24727.tech.schema.GetCardInfoOrACD;
 import iso.std.iso_iec._24727.tech.schema.GetCardInfoOrACDResponse;
 import iso.std.iso_iec._24727.tech.schema.GetRecognitionTreeResponse;
 import iso.std.iso_iec._24727.tech.schema.InputAPDUInfoType;
-import iso.std.iso_iec._24727.tech.schema.MatchingDataType;
 import iso.std.iso_iec._24727.tech.schema.RecognitionTree;
 import iso.std.iso_iec._24727.tech.schema.ResponseAPDUType;
 import iso.std.iso_iec._24727.tech.schema.Transmit;
 import iso.std.iso_iec._24727.tech.schema.TransmitResponse;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Serializable;
 import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Properties;
@@ -60,26 +61,26 @@ import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.FutureTask;
 import javax.annotation.Nullable;
+import javax.xml.transform.TransformerException;
 import oasis.names.tc.dss._1_0.core.schema.InternationalStringType;
 import oasis.names.tc.dss._1_0.core.schema.Result;
 import org.openecard.common.AppVersion;
 import org.openecard.common.ECardConstants;
 import org.openecard.common.I18n;
+import org.openecard.common.OpenecardProperties;
 import org.openecard.common.WSHelper;
 import org.openecard.common.apdu.common.CardResponseAPDU;
 import org.openecard.common.interfaces.CardRecognition;
 import org.openecard.common.interfaces.Environment;
-import org.openecard.common.tlv.TLV;
-import org.openecard.common.tlv.TLVException;
 import org.openecard.common.util.ByteUtils;
 import org.openecard.common.util.FileUtils;
-import org.openecard.common.util.IntegerUtils;
 import org.openecard.gui.MessageDialog;
 import org.openecard.gui.UserConsent;
 import org.openecard.gui.message.DialogType;
 import org.openecard.recognition.staticrepo.LocalCifRepo;
 import org.openecard.recognition.statictree.LocalFileTree;
 import org.openecard.ws.GetRecognitionTree;
+import org.openecard.ws.marshal.MarshallingTypeException;
 import org.openecard.ws.marshal.WSMarshaller;
 import org.openecard.ws.marshal.WSMarshallerFactory;
 import org.slf4j.Logger;
@@ -99,6 +100,8 @@ public class CardRecognitionImpl implements CardRecognition {
     private static final String IMAGE_PROPERTIES = "/card-images/card-images.properties";
 
     private final FutureTask<RecognitionTree> tree;
+    private volatile RecognitionCache recognitionCache;
+    private volatile RecognitionProgram program;
     private final FutureTask<org.openecard.ws.GetCardInfoOrACD> cifRepo;
 
     private Set<String> supportedCards;
@@ -155,6 +158,12 @@ public class CardRecognitionImpl implements CardRecognition {
 	    req.setAction(RecognitionProperties.getAction());
 	    GetRecognitionTreeResponse resp = treeRepoTmp.getRecognitionTree(req);
 	    checkResult(resp.getResult());
+	    recognitionCache = createCache(treeMarshaller, treeRepoTmp, resp);
+	    try {
+		program = RecognitionProgram.compile(resp.getRecognitionTree().getCardCall());
+	    } catch (IllegalArgumentException ex) {
+		LOG.error("Failed to compile the recognition tree, falling back to the tree interpreter.", ex);
+	    }
 
 	    LOG.info("Finished initializing RecognitionTree Repo.");
 	    return resp.getRecognitionTree();
@@ -162,6 +171,37 @@ public class CardRecognitionImpl implements CardRecognition {
 	new Thread(this.tree, "Init-RecognitionTree-Repo").start();
     }
 
+    @Nullable
+    private static RecognitionCache createCache(WSMarshaller m, GetRecognitionTree repo,
+	    GetRecognitionTreeResponse tree) {
+	if (! Boolean.valueOf(OpenecardProperties.getProperty("recognition.cache"))) {
+	    LOG.info("Recognition cache is disabled.");
+	    return null;
+	}
+
+	// the local tree knows the hash of its file, other trees are versioned by the hash of their serialized form
+	String version = repo instanceof LocalFileTree ? ((LocalFileTree) repo).getVersion() : null;
+	if (version == null) {
+	    try {
+		String treeStr = m.doc2str(m.marshal(tree));
+		MessageDigest md = MessageDigest.getInstance("SHA-256");
+		version = ByteUtils.toHexString(md.digest(treeStr.getBytes(StandardCharsets.UTF_8)));
+	    } catch (MarshallingTypeException | TransformerException | NoSuchAlgorithmException ex) {
+		LOG.error("Failed to determine version of the recognition tree, disabling recognition cache.", ex);
+		return null;
+	    }
+	}
+
+	File store;
+	try {
+	    store = new File(FileUtils.getHomeConfigDir(), "recognition-cache.properties");
+	} catch (IOException | SecurityException ex) {
+	    LOG.error("Failed to obtain config directory, recognition cache is not persisted.");
+	    store = null;
+	}
+	return new RecognitionCache(version, store);
+    }
+
     private void prepareSupportedCards(org.openecard.ws.GetCardInfoOrACD repo) {
 	if (repo instanceof LocalCifRepo) {
 	    this.supportedCards = ((LocalCifRepo) repo).getSupportedCardTypes();
@@ -228,6 +268,18 @@ public class CardRecognitionImpl implements CardRecognition {
 	}
     }
 
+    /**
+     * Gets the cache of the recognition results.
+     * The cache is available after the recognition tree has been loaded.
+     *
+     * @return The recognition cache, or {@code null} if the cache is disabled.
+     */
+    @Nullable
+    public RecognitionCache getRecognitionCache() {
+	getTree();
+	return recognitionCache;
+    }
+
     private org.openecard.ws.GetCardInfoOrACD getCifRepo() {
 	try {
 	    return cifRepo.get();
@@ -397,10 +449,61 @@ public class CardRecognitionImpl implements CardRecognition {
     @Nullable
     @Override
     public RecognitionInfo recognizeCard(byte[] ctx, String ifdName, BigInteger slot) throws RecognitionException {
+	return recognizeCard(ctx, ifdName, slot, null);
+    }
+
+    /**
+     * Recognizes the card in the defined reader.
+     * If the card identifier is given, the recognition cache is consulted first. A cached result is confirmed by sending
+     * the commands of the cached recognition run in one transmit call instead of one call per command.
+     *
+     * @param ctx Context handle of the IFD.
+     * @param ifdName Name of the card reader.
+     * @param slot Index of the slot in the reader.
+     * @param cardIdentifier ATR or ATS of the card, or {@code null} if it is not known.
+     * @return RecognitionInfo structure containing the card type of the detected card or {@code null} if no card could
+     *   be detected.
+     * @throws RecognitionException Thrown in case there was an error in the recognition.
+     */
+    @Nullable
+    @Override
+    public RecognitionInfo recognizeCard(byte[] ctx, String ifdName, BigInteger slot, @Nullable byte[] cardIdentifier)
+	    throws RecognitionException {
 	// connect card
 	byte[] slotHandle = connect(ctx, ifdName, slot);
-	// recognise card
-	String type = treeCalls(slotHandle, getTree().getCardCall());
+	List<CardCall> rootCalls = getTree().getCardCall();
+	RecognitionCache cache = cardIdentifier != null ? recognitionCache : null;
+
+	String type = null;
+	if (cache != null) {
+	    RecognitionCache.Entry entry = cache.get(cardIdentifier);
+	    if (entry != null) {
+		if (confirmCachedType(slotHandle, rootCalls, entry)) {
+		    LOG.debug("Recognized card type {} from cache.", entry.getCardType());
+		    type = entry.getCardType();
+		    cache.confirm(cardIdentifier);
+		} else {
+		    LOG.debug("Cached card type {} not confirmed by the card.", entry.getCardType());
+		    cache.reject(cardIdentifier);
+		}
+	    }
+	}
+	if (type == null) {
+	    // recognise card and record the commands for the cache
+	    List<byte[]> commands = new ArrayList<>();
+	    List<byte[]> trailers = new ArrayList<>();
+	    ApduChannel channel = (command, expected) -> {
+		byte[] response = transmit(slotHandle, command, expected);
+		commands.add(command);
+		trailers.add(response != null ? CardResponseAPDU.getTrailer(response) : null);
+		return response;
+	    };
+	    type = recognize(channel, program, rootCalls);
+	    // a run with missing responses can not be repeated reliably
+	    if (type != null && cache != null && ! trailers.contains(null)) {
+		cache.put(cardIdentifier, type, commands, trailers);
+	    }
+	}
 	// disconnect and return
 	disconnect(slotHandle);
 	// build result or throw exception if it is null or unsupported
@@ -542,173 +645,116 @@ public class CardRecognitionImpl implements CardRecognition {
     }
 
 
-    private List<CardCall> branch2list(CardCall first) {
-	LinkedList<CardCall> calls = new LinkedList<>();
-	calls.add(first);
-
-	CardCall next = first;
-	// while next is a select call
-	while (next.getResponseAPDU().get(0).getBody() == null) {
-	    // a select only has one call in its conclusion
-	    next = next.getResponseAPDU().get(0).getConclusion().getCardCall().get(0);
-	    calls.add(next);
+    /**
+     * Runs the recognition with the compiled program if available and with the tree interpreter otherwise.
+     *
+     * @param channel Channel to the card.
+     * @param p Compiled recognition tree, or {@code null} if the tree is interpreted.
+     * @param rootCalls Root calls of the recognition tree.
+     * @return The recognized card type, or {@code null} if the card is unknown.
+     * @throws RecognitionException Thrown in case the card is not accessible anymore.
+     */
+    @Nullable
+    static String recognize(ApduChannel channel, @Nullable RecognitionProgram p, List<CardCall> rootCalls)
+	    throws RecognitionException {
+	List<Integer> path = new ArrayList<>();
+	if (p != null) {
+	    return p.run(channel, path);
+	} else {
+	    return TreeInterpreter.treeCalls(channel, rootCalls, path);
 	}
-
-	return calls;
     }
 
-
-    private String treeCalls(byte[] slotHandle, List<CardCall> calls) throws RecognitionException {
-	for (CardCall c : calls) {
-	    // make list of next feature (aka branch)
-	    List<CardCall> branch = branch2list(c);
-	    // execute selects and then matcher, matcher decides over success
-	    for (CardCall next : branch) {
-		boolean matcher = (next.getResponseAPDU().get(0).getBody() != null) ? true : false;
-		byte[] resultBytes = transmit(slotHandle, next.getCommandAPDU(), next.getResponseAPDU());
-		// break when outcome is wrong
-		if (resultBytes == null) {
-		    break;
-		}
-		// get command bytes and trailer
-		byte[] result = CardResponseAPDU.getData(resultBytes);
-		byte[] trailer = CardResponseAPDU.getTrailer(resultBytes);
-		// if select, only one response exists
-		if (! matcher && ! Arrays.equals(next.getResponseAPDU().get(0).getTrailer(), trailer)) {
-		    // break when outcome is wrong
-		    break;
-		} else if (! matcher) {
-		    // trailer matches expected response from select, continue
-		    continue;
-		} else {
-		    // matcher command, loop through responses
-		    for (ResponseAPDUType r : next.getResponseAPDU()) {
-			// next response, when outcome is wrong
-			if (! Arrays.equals(r.getTrailer(), trailer)) {
-			    continue;
-			}
-			// check internals for match
-			if (checkBody(r.getBody(), result)) {
-			    if (r.getConclusion().getRecognizedCardType() != null) {
-				// type recognised
-				return r.getConclusion().getRecognizedCardType();
-			    } else {
-				// type dependent on subtree
-				return treeCalls(slotHandle, r.getConclusion().getCardCall());
-			    }
-			}
-		    }
-		}
-	    }
+    /**
+     * Confirms a cached recognition result.
+     * The commands of the cached recognition run are sent to the card in one transmit call. The recognition is then run
+     * on the responses of the card. The result is confirmed only if this run issues exactly the cached commands and
+     * yields the cached card type, so it is the same result as a complete recognition run on the card.
+     *
+     * @param slotHandle Handle of the card.
+     * @param rootCalls Root calls of the recognition tree.
+     * @param entry The cached recognition result.
+     * @return {@code true} if the card responded as expected, {@code false} otherwise.
+     * @throws RecognitionException Thrown in case the card is not accessible anymore.
+     */
+    private boolean confirmCachedType(byte[] slotHandle, List<CardCall> rootCalls, RecognitionCache.Entry entry)
+	    throws RecognitionException {
+	List<byte[]> commands = entry.getCommands();
+	List<byte[]> trailers = entry.getTrailers();
+	Transmit t = new Transmit();
+	t.setSlotHandle(slotHandle);
+	for (int i = 0; i < commands.size(); i++) {
+	    InputAPDUInfoType apdu = new InputAPDUInfoType();
+	    apdu.setInputAPDU(commands.get(i));
+	    // the IFD stops at the first status word differing from the cached run
+	    apdu.getAcceptableStatusCode().add(trailers.get(i));
+	    t.getInputAPDUInfo().add(apdu);
 	}
 
-	return null;
+	TransmitResponse res = (TransmitResponse) env.getDispatcher().safeDeliver(t);
+	checkTransmitResult(res);
+	return isConfirmed(entry, res.getOutputAPDU(), program, rootCalls);
     }
 
-    private boolean checkBody(DataMaskType body, byte[] result) {
-	// tag in body has a special meaning
-	if (body.getTag() != null && body.getDataObject() != null) {
-	    byte[] tag = body.getTag();
-	    if (ByteUtils.isPrefix(tag, result)) {
-		result = ByteUtils.copy(result, tag.length, result.length - tag.length);
-		return checkDataObject(body.getDataObject(), result);
-	    } else {
-		return false;
-	    }
-	} else if (body.getDataObject() != null) {
-	    return checkDataObject(body.getDataObject(), result);
-	} else {
-	    return checkMatchingData(body.getMatchingData(), result);
-	}
-    }
-
-
-    private boolean checkDataObject(DataMaskType matcher, byte[] result) {
-	// check if we have a tag and data object
-	if (matcher.getTag() != null && matcher.getDataObject() != null) {
-	    try {
-		TLV tlv = TLV.fromBER(result);
-		return checkDataObject(matcher, tlv);
-	    } catch (TLVException ex) {
-	    }
-	    // no TLV structure or fallthrough after tag not found
+    /**
+     * Runs the recognition on the responses of the card to the commands of a cached recognition run.
+     *
+     * @param entry The cached recognition result.
+     * @param responses Responses of the card to the cached commands.
+     * @param p Compiled recognition tree, or {@code null} if the tree is interpreted.
+     * @param rootCalls Root calls of the recognition tree.
+     * @return {@code true} if the recognition issues exactly the cached commands and yields the cached card type,
+     *   {@code false} otherwise.
+     * @throws RecognitionException Thrown in case the recognition fails.
+     */
+    static boolean isConfirmed(RecognitionCache.Entry entry, List<byte[]> responses, @Nullable RecognitionProgram p,
+	    List<CardCall> rootCalls) throws RecognitionException {
+	List<byte[]> commands = entry.getCommands();
+	if (responses.size() != commands.size()) {
+	    // the card answered differently than in the cached run
 	    return false;
 	}
-
-	// we have a matcher
-	return checkMatchingData(matcher.getMatchingData(), result);
+	ReplayChannel channel = new ReplayChannel(commands, responses);
+	String type = recognize(channel, p, rootCalls);
+	return channel.isComplete() && entry.getCardType().equals(type);
     }
 
-    private boolean checkDataObject(DataMaskType matcher, TLV result) {
-	byte[] tag = matcher.getTag();
-	DataMaskType nextMatcher = matcher.getDataObject();
 
-	// this function only works with tag and dataobject
-	if (tag == null || nextMatcher == null) {
-	    return false;
-	}
+    /**
+     * Channel answering the commands of a recognition run with previously received responses.
+     */
+    private static class ReplayChannel implements ApduChannel {
 
-	long tagNum = ByteUtils.toLong(tag);
+	private final List<byte[]> commands;
+	private final List<byte[]> responses;
+	private int next = 0;
+	private boolean diverged = false;
 
-	List<TLV> chunks = result.findNextTags(tagNum);
-	for (TLV next : chunks) {
-	    boolean outcome;
-	    if (nextMatcher.getMatchingData() != null) {
-		outcome = checkMatchingData(nextMatcher.getMatchingData(), next.getValue());
-	    } else {
-		outcome = checkDataObject(nextMatcher, next.getChild());
-	    }
-	    // evaluate outcome
-	    if (outcome == true) {
-		return true;
-	    }
+	ReplayChannel(List<byte[]> commands, List<byte[]> responses) {
+	    this.commands = commands;
+	    this.responses = responses;
 	}
-	// no match
-	return false;
-    }
 
-    private boolean checkMatchingData(MatchingDataType matcher, byte[] result) {
-	// get values
-	byte[] offsetBytes = matcher.getOffset();
-	byte[] lengthBytes = matcher.getLength();
-	byte[] valueBytes  = matcher.getMatchingValue();
-	byte[] maskBytes   = matcher.getMask();
-
-	// convert values for convenience
-	if (offsetBytes == null) {
-	    offsetBytes = new byte[] {(byte) 0x00, (byte) 0x00};
-	}
-	int offset = ByteUtils.toInteger(offsetBytes);
-	if (lengthBytes == null) {
-	    lengthBytes = IntegerUtils.toByteArray(valueBytes.length);
-	}
-	int length = ByteUtils.toInteger(lengthBytes);
-	if (maskBytes == null) {
-	    maskBytes = new byte[valueBytes.length];
-	    for (int i = 0; i < maskBytes.length; i++) {
-		maskBytes[i] = (byte) 0xFF;
+	@Override
+	public byte[] transmit(byte[] command, List<ResponseAPDUType> expected) {
+	    if (diverged || next >= commands.size() || ! Arrays.equals(command, commands.get(next))) {
+		// the command has not been sent to the card
+		diverged = true;
+		return null;
 	    }
+	    byte[] response = responses.get(next++);
+	    return response.length >= 2 ? response : null;
 	}
 
-	// some basic integrity checks
-	if (maskBytes.length != valueBytes.length) {
-	    return false;
-	}
-	if (valueBytes.length != length) {
-	    return false;
-	}
-	if (result.length < length + offset) {
-	    return false;
-	}
-
-	// check
-	for (int i = offset; i < length + offset; i++) {
-	    if ((maskBytes[i - offset] & result[i]) != valueBytes[i - offset]) {
-		return false;
-	    }
+	/**
+	 * Checks whether the recognition run issued exactly the recorded commands.
+	 *
+	 * @return {@code true} if all responses have been used in the recorded order, {@code false} otherwise.
+	 */
+	boolean isComplete() {
+	    return ! diverged && next == commands.size();
 	}
 
-	return true;
     }
 
 }
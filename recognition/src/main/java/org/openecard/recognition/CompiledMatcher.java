@@ -0,0 +1,378 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.recognition;
+
+import iso.std.iso_iec._24727.tech.schema.DataMaskType;
+import iso.std.iso_iec._24727.tech.schema.MatchingDataType;
+import java.util.Arrays;
+import javax.annotation.Nullable;
+import org.openecard.common.util.ByteUtils;
+
+
+/**
+ * Precompiled form of a {@link DataMaskType} matcher of the recognition tree.
+ * Matching data is compiled to offset, mask and value arrays. Data objects are evaluated directly on the response
+ * bytes without building {@code TLV} objects.
+ * <p>
+ * The compiled form only handles well formed BER data with definite lengths. Everything else, e.g. indefinite lengths
+ * or non minimal tags, as well as defective matchers are delegated to the {@link TreeInterpreter}, so that the result
+ * is always the same as the one of the interpreter.
+ * </p>
+ */
+final class CompiledMatcher {
+
+    private static final int NO_MATCH = 0;
+    private static final int MATCH = 1;
+    private static final int FALLBACK = 2;
+
+    private final DataMaskType body;
+    private final Node root;
+
+    private CompiledMatcher(DataMaskType body, @Nullable Node root) {
+	this.body = body;
+	this.root = root;
+    }
+
+    /**
+     * Compiles the body of a response of the recognition tree.
+     *
+     * @param body The body to compile, may be {@code null}.
+     * @return The compiled matcher.
+     */
+    static CompiledMatcher compile(@Nullable DataMaskType body) {
+	Node root;
+	try {
+	    root = compileBody(body);
+	} catch (IllegalArgumentException | NullPointerException ex) {
+	    // let the interpreter deal with the defective matcher
+	    root = null;
+	}
+	return new CompiledMatcher(body, root);
+    }
+
+    /**
+     * Checks whether the data of the given response APDU matches.
+     *
+     * @param rapdu Response APDU including the trailer.
+     * @return {@code true} if the data matches, {@code false} otherwise.
+     */
+    boolean matches(byte[] rapdu) {
+	int dataLen = rapdu.length - 2;
+	int result = root != null ? root.eval(rapdu, 0, dataLen) : FALLBACK;
+	if (result == FALLBACK) {
+	    return TreeInterpreter.checkBody(body, Arrays.copyOf(rapdu, dataLen));
+	}
+	return result == MATCH;
+    }
+
+    @Nullable
+    private static Node compileBody(@Nullable DataMaskType body) {
+	if (body == null) {
+	    return null;
+	} else if (body.getTag() != null && body.getDataObject() != null) {
+	    Node inner = compileDataObject(body.getDataObject());
+	    return inner != null ? new PrefixNode(body.getTag(), inner) : null;
+	} else if (body.getDataObject() != null) {
+	    return compileDataObject(body.getDataObject());
+	} else {
+	    return compileMatchingData(body.getMatchingData());
+	}
+    }
+
+    @Nullable
+    private static Node compileDataObject(DataMaskType matcher) {
+	if (matcher.getTag() != null && matcher.getDataObject() != null) {
+	    TlvLevel level = compileLevel(matcher);
+	    return level != null ? new TlvNode(level) : null;
+	} else {
+	    return compileMatchingData(matcher.getMatchingData());
+	}
+    }
+
+    @Nullable
+    private static TlvLevel compileLevel(DataMaskType matcher) {
+	byte[] tag = matcher.getTag();
+	if (tag.length < 1 || tag.length > 8) {
+	    return null;
+	}
+	long tagNum = ByteUtils.toLong(tag);
+	if (tagNum == 0) {
+	    return null;
+	}
+
+	DataMaskType next = matcher.getDataObject();
+	if (next.getMatchingData() != null) {
+	    MaskNode leaf = compileMatchingData(next.getMatchingData());
+	    return leaf != null ? new TlvLevel(tagNum, leaf, null, false) : null;
+	} else if (next.getTag() != null && next.getDataObject() != null) {
+	    TlvLevel nested = compileLevel(next);
+	    return nested != null ? new TlvLevel(tagNum, null, nested, false) : null;
+	} else {
+	    return new TlvLevel(tagNum, null, null, true);
+	}
+    }
+
+    @Nullable
+    private static MaskNode compileMatchingData(@Nullable MatchingDataType matcher) {
+	if (matcher == null || matcher.getMatchingValue() == null) {
+	    return null;
+	}
+	byte[] value = matcher.getMatchingValue();
+	int offset = matcher.getOffset() != null ? ByteUtils.toInteger(matcher.getOffset()) : 0;
+	int length = matcher.getLength() != null ? ByteUtils.toInteger(matcher.getLength()) : value.length;
+	byte[] mask = matcher.getMask();
+	if (mask == null) {
+	    mask = new byte[value.length];
+	    Arrays.fill(mask, (byte) 0xFF);
+	}
+	if (offset < 0) {
+	    return null;
+	}
+	boolean valid = mask.length == value.length && value.length == length;
+	return new MaskNode(offset, value.clone(), mask.clone(), valid);
+    }
+
+
+    ///
+    /// BER scanner working on the raw bytes
+    ///
+
+    /**
+     * Checks that the region contains a sequence of well formed TLV structures the compiled matchers can handle.
+     * The interpreter parses the complete structure, so every nested structure must be checked as well.
+     */
+    private static boolean isSimple(byte[] d, int pos, int end) {
+	if (pos >= end || d[pos] == 0) {
+	    // the interpreter produces an empty TLV object in these cases
+	    return false;
+	}
+	while (pos < end) {
+	    if (d[pos] == 0) {
+		// zero tag terminates the sequence
+		return true;
+	    }
+	    int lenPos = tagEnd(d, pos, end);
+	    if (lenPos < 0) {
+		return false;
+	    }
+	    int valPos = headerEnd(d, lenPos, end);
+	    if (valPos < 0) {
+		return false;
+	    }
+	    int valEnd = valPos + valueLength(d, lenPos);
+	    if (valEnd > end) {
+		return false;
+	    }
+	    if (isConstructed(d, pos) && valEnd > valPos && ! isSimple(d, valPos, valEnd)) {
+		return false;
+	    }
+	    pos = valEnd;
+	}
+	return true;
+    }
+
+    private static boolean isConstructed(byte[] d, int pos) {
+	return (d[pos] & 0x20) != 0;
+    }
+
+    /**
+     * Gets the position after the tag, or -1 if the tag is not minimal or longer than four bytes.
+     */
+    private static int tagEnd(byte[] d, int pos, int end) {
+	if ((d[pos] & 0x1F) != 0x1F) {
+	    return pos + 1;
+	}
+	int p = pos + 1;
+	long num = 0;
+	do {
+	    if (p >= end || p - pos >= 4 || (p == pos + 1 && d[p] == (byte) 0x80)) {
+		return -1;
+	    }
+	    num = (num << 7) | (d[p] & 0x7F);
+	} while ((d[p++] & 0x80) != 0);
+	// low tag numbers in long form are not minimal
+	return num >= 31 ? p : -1;
+    }
+
+    private static long tagValue(byte[] d, int pos, int tagEnd) {
+	long result = 0;
+	for (int i = pos; i < tagEnd; i++) {
+	    result = (result << 8) | (d[i] & 0xFF);
+	}
+	return result;
+    }
+
+    /**
+     * Gets the position after the length field, or -1 if the length is indefinite or longer than three bytes.
+     */
+    private static int headerEnd(byte[] d, int lenPos, int end) {
+	if (lenPos >= end) {
+	    return -1;
+	}
+	int b = d[lenPos];
+	if ((b & 0x80) == 0) {
+	    return lenPos + 1;
+	}
+	int numBytes = b & 0x7F;
+	if (numBytes == 0 || numBytes > 3 || lenPos + 1 + numBytes > end) {
+	    return -1;
+	}
+	return lenPos + 1 + numBytes;
+    }
+
+    private static int valueLength(byte[] d, int lenPos) {
+	int b = d[lenPos];
+	if ((b & 0x80) == 0) {
+	    return b;
+	}
+	int result = 0;
+	for (int i = 1; i <= (b & 0x7F); i++) {
+	    result = (result << 8) | (d[lenPos + i] & 0xFF);
+	}
+	return result;
+    }
+
+
+    ///
+    /// Compiled matcher nodes
+    ///
+
+    private abstract static class Node {
+	abstract int eval(byte[] d, int off, int len);
+    }
+
+    private static final class MaskNode extends Node {
+	private final int offset;
+	private final byte[] value;
+	private final byte[] mask;
+	private final boolean valid;
+
+	MaskNode(int offset, byte[] value, byte[] mask, boolean valid) {
+	    this.offset = offset;
+	    this.value = value;
+	    this.mask = mask;
+	    this.valid = valid;
+	}
+
+	@Override
+	int eval(byte[] d, int off, int len) {
+	    if (! valid || len < value.length + offset) {
+		return NO_MATCH;
+	    }
+	    int start = off + offset;
+	    for (int i = 0; i < value.length; i++) {
+		if ((mask[i] & d[start + i]) != value[i]) {
+		    return NO_MATCH;
+		}
+	    }
+	    return MATCH;
+	}
+    }
+
+    private static final class PrefixNode extends Node {
+	private final byte[] prefix;
+	private final Node inner;
+
+	PrefixNode(byte[] prefix, Node inner) {
+	    this.prefix = prefix.clone();
+	    this.inner = inner;
+	}
+
+	@Override
+	int eval(byte[] d, int off, int len) {
+	    if (prefix.length == 0 || prefix.length > len) {
+		return NO_MATCH;
+	    }
+	    for (int i = 0; i < prefix.length; i++) {
+		if (prefix[i] != d[off + i]) {
+		    return NO_MATCH;
+		}
+	    }
+	    return inner.eval(d, off + prefix.length, len - prefix.length);
+	}
+    }
+
+    private static final class TlvNode extends Node {
+	private final TlvLevel level;
+
+	TlvNode(TlvLevel level) {
+	    this.level = level;
+	}
+
+	@Override
+	int eval(byte[] d, int off, int len) {
+	    int end = off + len;
+	    if (! isSimple(d, off, end)) {
+		return FALLBACK;
+	    }
+	    return level.eval(d, off, end);
+	}
+    }
+
+    /**
+     * Matcher for a sequence of TLV structures.
+     * Each structure with the given tag is either checked with the leaf matcher, or its children are checked with the
+     * nested level.
+     */
+    private static final class TlvLevel {
+	private final long tag;
+	private final MaskNode leaf;
+	private final TlvLevel nested;
+	private final boolean empty;
+
+	TlvLevel(long tag, @Nullable MaskNode leaf, @Nullable TlvLevel nested, boolean empty) {
+	    this.tag = tag;
+	    this.leaf = leaf;
+	    this.nested = nested;
+	    this.empty = empty;
+	}
+
+	int eval(byte[] d, int pos, int end) {
+	    while (pos < end && d[pos] != 0) {
+		int lenPos = tagEnd(d, pos, end);
+		int valPos = headerEnd(d, lenPos, end);
+		int valLen = valueLength(d, lenPos);
+
+		if (tagValue(d, pos, lenPos) == tag) {
+		    int result;
+		    if (leaf != null) {
+			result = leaf.eval(d, valPos, valLen);
+		    } else if (empty) {
+			result = NO_MATCH;
+		    } else if (! isConstructed(d, pos) || valLen == 0 || d[valPos] == 0) {
+			// the interpreter has no proper child object in this case
+			result = FALLBACK;
+		    } else {
+			result = nested.eval(d, valPos, valPos + valLen);
+		    }
+		    if (result != NO_MATCH) {
+			return result;
+		    }
+		}
+		pos = valPos + valLen;
+	    }
+	    return NO_MATCH;
+	}
+    }
+
+}
@@ -0,0 +1,401 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.recognition;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import org.openecard.common.util.ByteUtils;
+import org.openecard.common.util.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Cache of recognition results indexed by the card identifier (ATR/ATS) of the card.
+ * Each entry contains the recognized card type and the command APDUs the recognition sent to the card, together with
+ * the status words the card answered. The commands are used to confirm the type with a single transmit call instead
+ * of walking the tree with one call per command.
+ * <p>
+ * The confidence of an entry is the number of times the result has been confirmed. When the cache is full, the entry
+ * with the lowest confidence is removed. Entries which can not be confirmed are removed immediately.
+ * </p>
+ * <p>
+ * If a store file is given, the cache is persisted in this file. The file contains the version of the recognition tree
+ * the entries belong to, so that the entries are discarded when the tree changes. The file is written in the background
+ * when entries are added or removed. Confirmations only change the confidence in memory, it is written together with
+ * the next change or by {@link #flush()}.
+ * </p>
+ */
+public class RecognitionCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RecognitionCache.class);
+
+    private static final String VERSION_KEY = "tree.version";
+    private static final int MAX_CONFIDENCE = 1000;
+    static final int MAX_ENTRIES = 32;
+
+    private final String treeVersion;
+    private final File store;
+    // guarded by this
+    private final LinkedHashMap<String, Entry> entries;
+    // guarded by this
+    private boolean dirty;
+    // guarded by this
+    private boolean writeScheduled;
+    private final ThreadPoolExecutor writer;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong rejections = new AtomicLong();
+
+    /**
+     * Creates a cache for the given tree version and loads the entries from the store if present.
+     *
+     * @param treeVersion Version of the recognition tree the entries belong to.
+     * @param store File the cache is persisted in, or {@code null} for an in memory cache.
+     */
+    public RecognitionCache(@Nonnull String treeVersion, @Nullable File store) {
+	this.treeVersion = treeVersion;
+	this.store = store;
+	this.entries = new LinkedHashMap<>();
+	if (store != null) {
+	    this.writer = new ThreadPoolExecutor(1, 1, 10, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+		Thread t = new Thread(r, "RecognitionCache-Writer");
+		t.setDaemon(true);
+		return t;
+	    });
+	    this.writer.allowCoreThreadTimeOut(true);
+	} else {
+	    this.writer = null;
+	}
+	load();
+    }
+
+    /**
+     * Gets the entry for the given card identifier.
+     * Calling this method counts as hit or miss in the metrics of the cache.
+     *
+     * @param cardIdentifier ATR or ATS of the card.
+     * @return The cache entry, or {@code null} if the card is not in the cache.
+     */
+    @Nullable
+    public synchronized Entry get(@Nonnull byte[] cardIdentifier) {
+	Entry e = entries.get(ByteUtils.toHexString(cardIdentifier));
+	if (e != null) {
+	    hits.incrementAndGet();
+	} else {
+	    misses.incrementAndGet();
+	}
+	return e;
+    }
+
+    /**
+     * Saves the result of a complete recognition run in the cache.
+     * An existing entry for the card identifier is replaced.
+     *
+     * @param cardIdentifier ATR or ATS of the card.
+     * @param cardType The recognized card type.
+     * @param commands Command APDUs sent to the card in the recognition run.
+     * @param trailers Status words of the responses to the commands.
+     */
+    public synchronized void put(@Nonnull byte[] cardIdentifier, @Nonnull String cardType,
+	    @Nonnull List<byte[]> commands, @Nonnull List<byte[]> trailers) {
+	if (commands.size() != trailers.size()) {
+	    throw new IllegalArgumentException("Number of commands and status words differ.");
+	}
+	String key = ByteUtils.toHexString(cardIdentifier);
+	entries.remove(key);
+	entries.put(key, new Entry(cardType, new ArrayList<>(commands), new ArrayList<>(trailers), 1));
+	evict();
+	scheduleSave();
+    }
+
+    /**
+     * Records that the entry of the given card identifier has been confirmed by the card.
+     * The store is not written for a confirmation.
+     *
+     * @param cardIdentifier ATR or ATS of the card.
+     */
+    public synchronized void confirm(@Nonnull byte[] cardIdentifier) {
+	Entry e = entries.get(ByteUtils.toHexString(cardIdentifier));
+	if (e != null && e.confidence < MAX_CONFIDENCE) {
+	    e.confidence++;
+	    dirty = true;
+	}
+    }
+
+    /**
+     * Removes the entry of the given card identifier because the card did not confirm it.
+     *
+     * @param cardIdentifier ATR or ATS of the card.
+     */
+    public synchronized void reject(@Nonnull byte[] cardIdentifier) {
+	rejections.incrementAndGet();
+	if (entries.remove(ByteUtils.toHexString(cardIdentifier)) != null) {
+	    scheduleSave();
+	}
+    }
+
+    /**
+     * Writes all changes of the cache including the confidence values to the store and waits until they are written.
+     *
+     * @throws InterruptedException Thrown in case the thread is interrupted while waiting for the write.
+     */
+    public void flush() throws InterruptedException {
+	if (writer == null) {
+	    return;
+	}
+	Future<?> f = writer.submit(this::save);
+	try {
+	    f.get();
+	} catch (ExecutionException ex) {
+	    LOG.warn("Failed to write recognition cache.", ex.getCause());
+	}
+    }
+
+    public synchronized int size() {
+	return entries.size();
+    }
+
+    public long getHits() {
+	return hits.get();
+    }
+
+    public long getMisses() {
+	return misses.get();
+    }
+
+    /**
+     * Gets the number of cache entries which could not be confirmed by the card.
+     *
+     * @return The number of rejected entries.
+     */
+    public long getRejections() {
+	return rejections.get();
+    }
+
+    @Override
+    public String toString() {
+	return String.format("RecognitionCache[entries=%d, hits=%d, misses=%d, rejections=%d]",
+		size(), getHits(), getMisses(), getRejections());
+    }
+
+    private void evict() {
+	while (entries.size() > MAX_ENTRIES) {
+	    // remove the oldest entry with the lowest confidence
+	    Map.Entry<String, Entry> victim = null;
+	    for (Map.Entry<String, Entry> next : entries.entrySet()) {
+		if (victim == null || next.getValue().confidence < victim.getValue().confidence) {
+		    victim = next;
+		}
+	    }
+	    entries.remove(victim.getKey());
+	}
+    }
+
+    private void load() {
+	if (store == null || ! store.isFile()) {
+	    return;
+	}
+
+	Properties p = new Properties();
+	try (InputStream in = new FileInputStream(store)) {
+	    p.load(in);
+	} catch (IOException ex) {
+	    LOG.warn("Failed to read recognition cache, starting with an empty cache.", ex);
+	    return;
+	}
+
+	if (! treeVersion.equals(p.getProperty(VERSION_KEY))) {
+	    LOG.info("Recognition tree has changed, discarding cached recognition results.");
+	    return;
+	}
+	for (String key : p.stringPropertyNames()) {
+	    if (VERSION_KEY.equals(key)) {
+		continue;
+	    }
+	    Entry e = Entry.parse(p.getProperty(key));
+	    if (e != null) {
+		entries.put(key, e);
+	    } else {
+		LOG.debug("Skipping invalid recognition cache entry for card identifier {}.", key);
+	    }
+	}
+	evict();
+	LOG.debug("Loaded {} recognition results from the cache.", entries.size());
+    }
+
+    private void scheduleSave() {
+	// must be called with the lock held
+	dirty = true;
+	if (writer != null && ! writeScheduled) {
+	    // changes made until the writer runs are written at once
+	    writeScheduled = true;
+	    writer.execute(this::save);
+	}
+    }
+
+    private void save() {
+	// only called by the writer thread, so there are no concurrent writes to the store
+	Properties p = new Properties();
+	synchronized (this) {
+	    writeScheduled = false;
+	    if (! dirty) {
+		return;
+	    }
+	    dirty = false;
+	    p.setProperty(VERSION_KEY, treeVersion);
+	    for (Map.Entry<String, Entry> next : entries.entrySet()) {
+		p.setProperty(next.getKey(), next.getValue().toString());
+	    }
+	}
+
+	// write to a temporary file first, so that a crash does not leave a corrupt store behind
+	File tmp = new File(store.getPath() + ".tmp");
+	try {
+	    try (OutputStream out = new FileOutputStream(tmp, false)) {
+		p.store(out, "Open eCard recognition cache");
+	    }
+	    if (! tmp.renameTo(store)) {
+		// rename does not replace existing files on all platforms
+		store.delete();
+		if (! tmp.renameTo(store)) {
+		    throw new IOException("Failed to replace " + store + ".");
+		}
+	    }
+	} catch (IOException | SecurityException ex) {
+	    LOG.warn("Failed to write recognition cache.", ex);
+	}
+    }
+
+
+    /**
+     * Recognition result stored in the cache.
+     */
+    public static class Entry {
+
+	private final String cardType;
+	private final List<byte[]> commands;
+	private final List<byte[]> trailers;
+	private int confidence;
+
+	private Entry(String cardType, List<byte[]> commands, List<byte[]> trailers, int confidence) {
+	    this.cardType = cardType;
+	    this.commands = commands;
+	    this.trailers = trailers;
+	    this.confidence = confidence;
+	}
+
+	public String getCardType() {
+	    return cardType;
+	}
+
+	/**
+	 * Gets the command APDUs of the recognition run in the order they were sent to the card.
+	 *
+	 * @return Unmodifiable list of the commands.
+	 */
+	public List<byte[]> getCommands() {
+	    return Collections.unmodifiableList(commands);
+	}
+
+	/**
+	 * Gets the status words the card answered to the commands of the recognition run.
+	 *
+	 * @return Unmodifiable list of the status words, in the same order as the commands.
+	 */
+	public List<byte[]> getTrailers() {
+	    return Collections.unmodifiableList(trailers);
+	}
+
+	public int getConfidence() {
+	    return confidence;
+	}
+
+	@Override
+	public String toString() {
+	    StringBuilder sb = new StringBuilder();
+	    sb.append(cardType).append(' ').append(confidence).append(' ');
+	    for (int i = 0; i < commands.size(); i++) {
+		if (i > 0) {
+		    sb.append(',');
+		}
+		sb.append(ByteUtils.toHexString(commands.get(i))).append(':');
+		sb.append(ByteUtils.toHexString(trailers.get(i)));
+	    }
+	    return sb.toString();
+	}
+
+	@Nullable
+	private static Entry parse(String value) {
+	    String[] parts = value.trim().split(" ");
+	    if (parts.length != 3) {
+		return null;
+	    }
+	    try {
+		int confidence = Integer.parseInt(parts[1]);
+		if (confidence < 1) {
+		    return null;
+		}
+		List<byte[]> commands = new ArrayList<>();
+		List<byte[]> trailers = new ArrayList<>();
+		for (String next : parts[2].split(",")) {
+		    String[] apdu = next.split(":");
+		    if (apdu.length != 2) {
+			return null;
+		    }
+		    byte[] command = StringUtils.toByteArray(apdu[0]);
+		    byte[] trailer = StringUtils.toByteArray(apdu[1]);
+		    if (command.length < 4 || trailer.length != 2) {
+			return null;
+		    }
+		    commands.add(command);
+		    trailers.add(trailer);
+		}
+		return new Entry(parts[0], commands, trailers, Math.min(confidence, MAX_CONFIDENCE));
+	    } catch (NumberFormatException ex) {
+		return null;
+	    }
+	}
+
+    }
+
+}
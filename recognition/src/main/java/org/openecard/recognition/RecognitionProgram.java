@@ -0,0 +1,344 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.recognition;
+
+import iso.std.iso_iec._24727.tech.schema.CardCall;
+import iso.std.iso_iec._24727.tech.schema.ResponseAPDUType;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import org.openecard.common.interfaces.RecognitionException;
+import org.openecard.common.util.ByteUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Recognition tree compiled into a flat decision program.
+ * <p>
+ * Each level of the tree is a list of branches, consisting of the selects and the matcher command of a feature and the
+ * possible outcomes of the matcher. Identical command APDUs are stored only once and the matchers are precompiled, see
+ * {@link CompiledMatcher}. The program produces the same results as the {@link TreeInterpreter}.
+ * </p>
+ * <p>
+ * During a run the responses are memorized per card state. The state is the sequence of commands sent since the last
+ * successful absolute select (select MF or select by DF name or path). When the same command is issued in the same
+ * state again, e.g. the same select sequence in several branches, the memorized response is used instead of sending
+ * the command again. If a command must actually be sent and the card is not in the required state, because commands
+ * have been answered from the memo, the commands leading to the state are sent again first.
+ * </p>
+ */
+final class RecognitionProgram {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RecognitionProgram.class);
+
+    private final byte[][] commands;
+    private final boolean[] absolute;
+    private final Level root;
+
+    private RecognitionProgram(byte[][] commands, boolean[] absolute, Level root) {
+	this.commands = commands;
+	this.absolute = absolute;
+	this.root = root;
+    }
+
+    /**
+     * Compiles the given recognition tree.
+     *
+     * @param rootCalls Root calls of the recognition tree.
+     * @return The compiled program.
+     * @throws IllegalArgumentException Thrown in case the tree is malformed.
+     */
+    static RecognitionProgram compile(@Nonnull List<CardCall> rootCalls) throws IllegalArgumentException {
+	Compiler c = new Compiler();
+	try {
+	    Level root = c.compileLevel(rootCalls);
+	    byte[][] commands = c.commands.toArray(new byte[c.commands.size()][]);
+	    boolean[] absolute = new boolean[commands.length];
+	    for (int i = 0; i < commands.length; i++) {
+		absolute[i] = isAbsoluteSelect(commands[i]);
+	    }
+	    LOG.debug("Compiled recognition tree with {} distinct commands.", commands.length);
+	    return new RecognitionProgram(commands, absolute, root);
+	} catch (NullPointerException | IndexOutOfBoundsException ex) {
+	    throw new IllegalArgumentException("Recognition tree is malformed.", ex);
+	}
+    }
+
+    int getNumCommands() {
+	return commands.length;
+    }
+
+    /**
+     * Runs the program against a card.
+     *
+     * @param channel Channel to the card.
+     * @param path Receives the indices of the calls and responses in the tree which led to the card type.
+     * @return The recognized card type, or {@code null} if the card is unknown.
+     * @throws RecognitionException Thrown in case the card is not accessible anymore.
+     */
+    @Nullable
+    String run(@Nonnull ApduChannel channel, @Nonnull List<Integer> path) throws RecognitionException {
+	Execution e = new Execution(channel);
+	String type = e.run(root, path);
+	LOG.debug("Recognition sent {} APDUs, {} answered from memo.", e.numSent, e.numMemo);
+	return type;
+    }
+
+    /**
+     * Determines whether the command is a select which results in the same selection regardless of the current state.
+     */
+    static boolean isAbsoluteSelect(byte[] cmd) {
+	if (cmd.length < 4 || cmd[0] != 0x00 || cmd[1] != (byte) 0xA4 || (cmd[3] & 0x03) != 0) {
+	    return false;
+	}
+	switch (cmd[2]) {
+	    case 0x04: // DF name
+	    case 0x08: // path from MF
+		return true;
+	    case 0x00:
+		// select MF without data or with its FID
+		return cmd.length <= 5 || (cmd.length >= 7 && cmd[4] == 0x02 && cmd[5] == 0x3F && cmd[6] == 0x00);
+	    default:
+		return false;
+	}
+    }
+
+    private static boolean isSuccess(@Nullable byte[] rapdu) {
+	if (rapdu == null) {
+	    return false;
+	}
+	byte sw1 = rapdu[rapdu.length - 2];
+	return sw1 == (byte) 0x90 || sw1 == 0x61 || sw1 == 0x62 || sw1 == 0x63;
+    }
+
+    private static boolean trailerEquals(@Nullable byte[] trailer, byte[] rapdu) {
+	return trailer != null && trailer.length == 2
+		&& trailer[0] == rapdu[rapdu.length - 2] && trailer[1] == rapdu[rapdu.length - 1];
+    }
+
+
+    private static final class Level {
+	private final Branch[] branches;
+
+	Level(Branch[] branches) {
+	    this.branches = branches;
+	}
+    }
+
+    private static final class Branch {
+	private final int callIndex;
+	// selects followed by the matcher command
+	private final int[] commands;
+	private final byte[][] selectTrailers;
+	private final Outcome[] outcomes;
+
+	Branch(int callIndex, int[] commands, byte[][] selectTrailers, Outcome[] outcomes) {
+	    this.callIndex = callIndex;
+	    this.commands = commands;
+	    this.selectTrailers = selectTrailers;
+	    this.outcomes = outcomes;
+	}
+    }
+
+    private static final class Outcome {
+	private final int responseIndex;
+	private final byte[] trailer;
+	private final CompiledMatcher matcher;
+	private final String cardType;
+	private final Level next;
+
+	Outcome(int responseIndex, byte[] trailer, CompiledMatcher matcher, String cardType, Level next) {
+	    this.responseIndex = responseIndex;
+	    this.trailer = trailer;
+	    this.matcher = matcher;
+	    this.cardType = cardType;
+	    this.next = next;
+	}
+    }
+
+    private static final class Compiler {
+	private final List<byte[]> commands = new ArrayList<>();
+	private final Map<String, Integer> commandIds = new HashMap<>();
+
+	Level compileLevel(List<CardCall> calls) {
+	    Branch[] branches = new Branch[calls.size()];
+	    for (int i = 0; i < branches.length; i++) {
+		List<CardCall> chain = TreeInterpreter.branch2list(calls.get(i));
+		int[] cmds = new int[chain.size()];
+		byte[][] selectTrailers = new byte[chain.size() - 1][];
+		for (int j = 0; j < cmds.length; j++) {
+		    CardCall next = chain.get(j);
+		    cmds[j] = intern(next.getCommandAPDU());
+		    if (j < selectTrailers.length) {
+			selectTrailers[j] = next.getResponseAPDU().get(0).getTrailer();
+		    }
+		}
+
+		List<ResponseAPDUType> responses = chain.get(chain.size() - 1).getResponseAPDU();
+		Outcome[] outcomes = new Outcome[responses.size()];
+		for (int j = 0; j < outcomes.length; j++) {
+		    ResponseAPDUType r = responses.get(j);
+		    String type = r.getConclusion().getRecognizedCardType();
+		    Level next = type == null ? compileLevel(r.getConclusion().getCardCall()) : null;
+		    outcomes[j] = new Outcome(j, r.getTrailer(), CompiledMatcher.compile(r.getBody()), type, next);
+		}
+		branches[i] = new Branch(i, cmds, selectTrailers, outcomes);
+	    }
+	    return new Level(branches);
+	}
+
+	private int intern(byte[] cmd) {
+	    String key = ByteUtils.toHexString(cmd);
+	    Integer id = commandIds.get(key);
+	    if (id == null) {
+		id = commands.size();
+		commands.add(cmd.clone());
+		commandIds.put(key, id);
+	    }
+	    return id;
+	}
+    }
+
+
+    /**
+     * Node in the tree of card states of one run.
+     */
+    private static final class State {
+	private final State parent;
+	private final int command;
+	private final boolean anchored;
+	private Map<Integer, State> children;
+	private boolean executed;
+	private byte[] response;
+
+	State(@Nullable State parent, int command, boolean anchored) {
+	    this.parent = parent;
+	    this.command = command;
+	    this.anchored = anchored;
+	}
+
+	State child(int cmd, boolean anchoredChild) {
+	    if (children == null) {
+		children = new HashMap<>();
+	    }
+	    State s = children.get(cmd);
+	    if (s == null) {
+		s = new State(this, cmd, anchoredChild);
+		children.put(cmd, s);
+	    }
+	    return s;
+	}
+    }
+
+    private final class Execution {
+	private final ApduChannel channel;
+	// root of all states starting with a successful absolute select
+	private final State anchor = new State(null, -1, true);
+	// state the interpreter would have reached, and the state the card actually has
+	private State logical = new State(null, -1, false);
+	private State physical = logical;
+	private int numSent;
+	private int numMemo;
+
+	Execution(ApduChannel channel) {
+	    this.channel = channel;
+	}
+
+	String run(Level level, List<Integer> path) throws RecognitionException {
+	    for (Branch b : level.branches) {
+		int last = b.commands.length - 1;
+		for (int i = 0; i <= last; i++) {
+		    byte[] rapdu = execute(b.commands[i]);
+		    // break when outcome is wrong
+		    if (rapdu == null) {
+			break;
+		    }
+		    if (i < last) {
+			if (! trailerEquals(b.selectTrailers[i], rapdu)) {
+			    break;
+			}
+		    } else {
+			for (Outcome o : b.outcomes) {
+			    if (trailerEquals(o.trailer, rapdu) && o.matcher.matches(rapdu)) {
+				path.add(b.callIndex);
+				path.add(o.responseIndex);
+				return o.cardType != null ? o.cardType : run(o.next, path);
+			    }
+			}
+		    }
+		}
+	    }
+	    return null;
+	}
+
+	@Nullable
+	private byte[] execute(int cmd) throws RecognitionException {
+	    boolean isAbsolute = absolute[cmd];
+	    State target = isAbsolute ? anchor.child(cmd, true) : logical.child(cmd, logical.anchored);
+
+	    byte[] rapdu;
+	    if (target.anchored && target.executed) {
+		numMemo++;
+		rapdu = target.response;
+	    } else {
+		if (target.anchored && ! isAbsolute && physical != logical) {
+		    restore(logical);
+		}
+		rapdu = send(target);
+		physical = isAbsolute && ! isSuccess(rapdu) ? physical : target;
+	    }
+
+	    // an unsuccessful absolute select does not change the selection
+	    if (! isAbsolute || isSuccess(rapdu)) {
+		logical = target;
+	    }
+	    return rapdu;
+	}
+
+	private void restore(State s) throws RecognitionException {
+	    ArrayList<State> chain = new ArrayList<>();
+	    for (State next = s; next != anchor; next = next.parent) {
+		chain.add(next);
+	    }
+	    Collections.reverse(chain);
+	    for (State next : chain) {
+		send(next);
+	    }
+	    physical = s;
+	}
+
+	private byte[] send(State s) throws RecognitionException {
+	    numSent++;
+	    byte[] rapdu = channel.transmit(commands[s.command], Collections.emptyList());
+	    s.executed = true;
+	    s.response = rapdu;
+	    return rapdu;
+	}
+    }
+
+}
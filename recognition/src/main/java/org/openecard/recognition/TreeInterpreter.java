@@ -0,0 +1,235 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.recognition;
+
+import iso.std.iso_iec._24727.tech.schema.CardCall;
+import iso.std.iso_iec._24727.tech.schema.DataMaskType;
+import iso.std.iso_iec._24727.tech.schema.MatchingDataType;
+import iso.std.iso_iec._24727.tech.schema.ResponseAPDUType;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import org.openecard.common.apdu.common.CardResponseAPDU;
+import org.openecard.common.interfaces.RecognitionException;
+import org.openecard.common.tlv.TLV;
+import org.openecard.common.tlv.TLVException;
+import org.openecard.common.util.ByteUtils;
+import org.openecard.common.util.IntegerUtils;
+
+
+/**
+ * Interpreter walking the JAXB representation of the recognition tree.
+ * The interpreter is the reference for the {@link RecognitionProgram} and is used when the tree can not be compiled.
+ */
+final class TreeInterpreter {
+
+    private TreeInterpreter() {
+    }
+
+    static List<CardCall> branch2list(CardCall first) {
+	LinkedList<CardCall> calls = new LinkedList<>();
+	calls.add(first);
+
+	CardCall next = first;
+	// while next is a select call
+	while (next.getResponseAPDU().get(0).getBody() == null) {
+	    // a select only has one call in its conclusion
+	    next = next.getResponseAPDU().get(0).getConclusion().getCardCall().get(0);
+	    calls.add(next);
+	}
+
+	return calls;
+    }
+
+
+    /**
+     * Walks the given calls of the recognition tree until a card type is recognized.
+     *
+     * @param channel Channel to the card.
+     * @param calls Calls of the current level of the tree.
+     * @param path Receives the indices of the calls and responses leading to the card type.
+     * @return The recognized card type, or {@code null} if the card is unknown.
+     * @throws RecognitionException Thrown in case the card is not accessible anymore.
+     */
+    static String treeCalls(ApduChannel channel, List<CardCall> calls, List<Integer> path)
+	    throws RecognitionException {
+	for (int callIdx = 0; callIdx < calls.size(); callIdx++) {
+	    CardCall c = calls.get(callIdx);
+	    // make list of next feature (aka branch)
+	    List<CardCall> branch = branch2list(c);
+	    // execute selects and then matcher, matcher decides over success
+	    for (CardCall next : branch) {
+		boolean matcher = (next.getResponseAPDU().get(0).getBody() != null) ? true : false;
+		byte[] resultBytes = channel.transmit(next.getCommandAPDU(), next.getResponseAPDU());
+		// break when outcome is wrong
+		if (resultBytes == null) {
+		    break;
+		}
+		// get command bytes and trailer
+		byte[] result = CardResponseAPDU.getData(resultBytes);
+		byte[] trailer = CardResponseAPDU.getTrailer(resultBytes);
+		// if select, only one response exists
+		if (! matcher && ! Arrays.equals(next.getResponseAPDU().get(0).getTrailer(), trailer)) {
+		    // break when outcome is wrong
+		    break;
+		} else if (! matcher) {
+		    // trailer matches expected response from select, continue
+		    continue;
+		} else {
+		    // matcher command, loop through responses
+		    List<ResponseAPDUType> responses = next.getResponseAPDU();
+		    for (int respIdx = 0; respIdx < responses.size(); respIdx++) {
+			ResponseAPDUType r = responses.get(respIdx);
+			// next response, when outcome is wrong
+			if (! Arrays.equals(r.getTrailer(), trailer)) {
+			    continue;
+			}
+			// check internals for match
+			if (checkBody(r.getBody(), result)) {
+			    // remember the way through the tree
+			    path.add(callIdx);
+			    path.add(respIdx);
+			    if (r.getConclusion().getRecognizedCardType() != null) {
+				// type recognised
+				return r.getConclusion().getRecognizedCardType();
+			    } else {
+				// type dependent on subtree
+				return treeCalls(channel, r.getConclusion().getCardCall(), path);
+			    }
+			}
+		    }
+		}
+	    }
+	}
+
+	return null;
+    }
+
+    static boolean checkBody(DataMaskType body, byte[] result) {
+	// tag in body has a special meaning
+	if (body.getTag() != null && body.getDataObject() != null) {
+	    byte[] tag = body.getTag();
+	    if (ByteUtils.isPrefix(tag, result)) {
+		result = ByteUtils.copy(result, tag.length, result.length - tag.length);
+		return checkDataObject(body.getDataObject(), result);
+	    } else {
+		return false;
+	    }
+	} else if (body.getDataObject() != null) {
+	    return checkDataObject(body.getDataObject(), result);
+	} else {
+	    return checkMatchingData(body.getMatchingData(), result);
+	}
+    }
+
+
+    private static boolean checkDataObject(DataMaskType matcher, byte[] result) {
+	// check if we have a tag and data object
+	if (matcher.getTag() != null && matcher.getDataObject() != null) {
+	    try {
+		TLV tlv = TLV.fromBER(result);
+		return checkDataObject(matcher, tlv);
+	    } catch (TLVException ex) {
+	    }
+	    // no TLV structure or fallthrough after tag not found
+	    return false;
+	}
+
+	// we have a matcher
+	return checkMatchingData(matcher.getMatchingData(), result);
+    }
+
+    private static boolean checkDataObject(DataMaskType matcher, TLV result) {
+	byte[] tag = matcher.getTag();
+	DataMaskType nextMatcher = matcher.getDataObject();
+
+	// this function only works with tag and dataobject
+	if (tag == null || nextMatcher == null) {
+	    return false;
+	}
+
+	long tagNum = ByteUtils.toLong(tag);
+
+	List<TLV> chunks = result.findNextTags(tagNum);
+	for (TLV next : chunks) {
+	    boolean outcome;
+	    if (nextMatcher.getMatchingData() != null) {
+		outcome = checkMatchingData(nextMatcher.getMatchingData(), next.getValue());
+	    } else {
+		outcome = checkDataObject(nextMatcher, next.getChild());
+	    }
+	    // evaluate outcome
+	    if (outcome == true) {
+		return true;
+	    }
+	}
+	// no match
+	return false;
+    }
+
+    private static boolean checkMatchingData(MatchingDataType matcher, byte[] result) {
+	// get values
+	byte[] offsetBytes = matcher.getOffset();
+	byte[] lengthBytes = matcher.getLength();
+	byte[] valueBytes  = matcher.getMatchingValue();
+	byte[] maskBytes   = matcher.getMask();
+
+	// convert values for convenience
+	if (offsetBytes == null) {
+	    offsetBytes = new byte[] {(byte) 0x00, (byte) 0x00};
+	}
+	int offset = ByteUtils.toInteger(offsetBytes);
+	if (lengthBytes == null) {
+	    lengthBytes = IntegerUtils.toByteArray(valueBytes.length);
+	}
+	int length = ByteUtils.toInteger(lengthBytes);
+	if (maskBytes == null) {
+	    maskBytes = new byte[valueBytes.length];
+	    for (int i = 0; i < maskBytes.length; i++) {
+		maskBytes[i] = (byte) 0xFF;
+	    }
+	}
+
+	// some basic integrity checks
+	if (maskBytes.length != valueBytes.length) {
+	    return false;
+	}
+	if (valueBytes.length != length) {
+	    return false;
+	}
+	if (result.length < length + offset) {
+	    return false;
+	}
+
+	// check
+	for (int i = offset; i < length + offset; i++) {
+	    if ((maskBytes[i - offset] & result[i]) != valueBytes[i - offset]) {
+		return false;
+	    }
+	}
+
+	return true;
+    }
+
+
+}
@@ -24,17 +24,22 @@ package org.openecard.recognition.staticrepo;
 
 import iso.std.iso_iec._24727.tech.schema.CardInfoType;
 import iso.std.iso_iec._24727.tech.schema.GetCardInfoOrACDResponse;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import javax.annotation.Nullable;
 import javax.xml.namespace.NamespaceContext;
 import javax.xml.xpath.XPath;
 import javax.xml.xpath.XPathConstants;
@@ -55,6 +60,8 @@ import org.xml.sax.SAXException;
 
 /**
  * Classpath resource based CardInfo repository.
+ * The card types of the CIFs are read from the CIF index, which the build of the cifs module generates from the CIFs.
+ * The CIFs themselves are only loaded when their card type is requested.
  *
  * @author Tobias Wich
  */
@@ -63,7 +70,7 @@ public class LocalCifRepo implements GetCardInfoOrACD {
     private static final Logger LOG = LoggerFactory.getLogger(LocalCifRepo.class);
 
     private final WSMarshaller m;
-    private final HashMap<String, Document> cifs = new HashMap<>();
+    private final LinkedHashMap<String, CifEntry> cifs = new LinkedHashMap<>();
 
     public LocalCifRepo(final WSMarshaller m) throws IOException, WSMarshallerException, SAXException {
 	this.m = m;
@@ -71,18 +78,34 @@ public class LocalCifRepo implements GetCardInfoOrACD {
 	InputStream propStream = getStream("repo-config.properties");
 	Properties conf = new Properties();
 	conf.load(propStream);
+	Properties index = loadIndex();
 
 	String fileNames = conf.getProperty("cifFiles");
 	String[] files = fileNames.split(",");
 
-	for (final String next : files) {
-	    // load and unmarshal
-	    InputStream cifStream = getStream(next.trim());
-	    Document cifDoc = m.str2doc(cifStream);
-            String cardType = getTypeFromCIF(cifDoc);
-            // add file
-            cifs.put(cardType, cifDoc);
+	for (String next : files) {
+	    next = next.trim();
+	    String cardType = index.getProperty(next);
+	    if (cardType != null) {
+		// the CIF is loaded when it is requested the first time
+		cifs.put(cardType, new CifEntry(next, null));
+	    } else {
+		LOG.warn("CIF file {} is missing in the CIF index, parsing it now.", next);
+		Document cifDoc = m.str2doc(getStream(next));
+		cardType = getTypeFromCIF(cifDoc);
+		cifs.put(cardType, new CifEntry(next, cifDoc));
+	    }
+	}
+    }
+
+    private static Properties loadIndex() throws IOException {
+	Properties index = new Properties();
+	try (InputStream indexStream = getStream("cif-index.properties")) {
+	    index.load(indexStream);
+	} catch (FileNotFoundException ex) {
+	    LOG.warn("No CIF index available, all CIF files must be parsed.");
 	}
+	return index;
     }
 
     private static InputStream getStream(String res) throws FileNotFoundException {
@@ -122,6 +145,12 @@ public class LocalCifRepo implements GetCardInfoOrACD {
 	}
     }
 
+    /**
+     * Gets the card types of all CIFs in this repository.
+     * The types are taken from the CIF index, so calling this method does not load any CIF.
+     *
+     * @return The card types in the order of the repository configuration.
+     */
     public Set<String> getSupportedCardTypes() {
 	return Collections.unmodifiableSet(cifs.keySet());
     }
@@ -137,12 +166,11 @@ public class LocalCifRepo implements GetCardInfoOrACD {
 	    if (ECardConstants.CIF.GET_SPECIFIED.equals(parameters.getAction())) {
 		ArrayList<String> missingTypes = new ArrayList<>();
 		for (String cardType : cardTypes) {
-		    Document cif = cifs.get(cardType);
+		    CifEntry cif = cifs.get(cardType);
 		    if (cif == null) {
 			missingTypes.add(cardType);
 		    } else {
-			// marshal here to receive a copy of the CIF
-			cifsResult.add((CardInfoType) m.unmarshal(cif));
+			cifsResult.add(cif.getCopy());
 		    }
 		}
 
@@ -154,14 +182,10 @@ public class LocalCifRepo implements GetCardInfoOrACD {
 		    result = WSHelper.makeResultError(ECardConstants.Minor.SAL.UNKNOWN_CARDTYPE, error.toString());
 		}
 	    } else if (ECardConstants.CIF.GET_OTHER.equals(parameters.getAction())) {
-		HashMap<String, Document> cifsTmp = new HashMap<>();
-		cifsTmp.putAll(cifs);
-		for (String cardType : cardTypes) {
-		    cifsTmp.remove(cardType);
-		}
-		for (Map.Entry<String, Document> e : cifsTmp.entrySet()) {
-		    Document next = e.getValue();
-		    cifsResult.add((CardInfoType) m.unmarshal(next));
+		for (Map.Entry<String, CifEntry> e : cifs.entrySet()) {
+		    if (! cardTypes.contains(e.getKey())) {
+			cifsResult.add(e.getValue().getCopy());
+		    }
 		}
 	    } else {
 		result = WSHelper.makeResultError(ECardConstants.Minor.App.INT_ERROR, "Given action is unsupported.");
@@ -172,7 +196,7 @@ public class LocalCifRepo implements GetCardInfoOrACD {
 	    LOG.debug("Returning CIFs from GetCardInfoOrACD call.");
 	    return res;
 	} catch (WSMarshallerException ex) {
-	    String msg = "Failed to unmarshal a CIF document.";
+	    String msg = "Failed to load a CIF document.";
 	    LOG.error(msg, ex);
 	    result = WSHelper.makeResultError(ECardConstants.Minor.App.INT_ERROR, msg);
 	    GetCardInfoOrACDResponse res = WSHelper.makeResponse(GetCardInfoOrACDResponse.class, result);
@@ -180,4 +204,81 @@ public class LocalCifRepo implements GetCardInfoOrACD {
 	}
     }
 
+    /**
+     * Lazily loaded CIF of the repository.
+     * The CIF is unmarshalled once and then kept in its serialized form, which is considerably smaller than the DOM
+     * and much faster to turn into a fresh copy than unmarshalling the document again. Only if the CIF can not be
+     * serialized, the document is kept and unmarshalled for each copy.
+     */
+    private class CifEntry {
+
+	private final String fileName;
+	private volatile byte[] serialized;
+	private Document doc;
+
+	CifEntry(String fileName, @Nullable Document doc) {
+	    this.fileName = fileName;
+	    this.doc = doc;
+	}
+
+	/**
+	 * Gets a copy of the CIF which can be modified freely by the caller.
+	 *
+	 * @return A new CardInfoType instance.
+	 * @throws WSMarshallerException Thrown in case the CIF could not be loaded.
+	 */
+	public CardInfoType getCopy() throws WSMarshallerException {
+	    byte[] data = serialized;
+	    if (data == null) {
+		synchronized (this) {
+		    data = serialized;
+		    if (data == null) {
+			return load();
+		    }
+		}
+	    }
+	    return deserialize(data);
+	}
+
+	private CardInfoType load() throws WSMarshallerException {
+	    try {
+		if (doc == null) {
+		    LOG.debug("Loading CIF file {}.", fileName);
+		    try (InputStream cifStream = getStream(fileName)) {
+			doc = m.str2doc(cifStream);
+		    }
+		}
+		CardInfoType cif = (CardInfoType) m.unmarshal(doc);
+		try {
+		    serialized = serialize(cif);
+		    doc = null;
+		} catch (IOException ex) {
+		    LOG.warn("CIF file {} can not be serialized, keeping the document instead.", fileName);
+		    LOG.debug(ex.getMessage(), ex);
+		}
+		// nobody else has a reference to this instance, so there is no need to copy it
+		return cif;
+	    } catch (IOException | SAXException ex) {
+		throw new WSMarshallerException("Failed to read CIF file " + fileName + ".", ex);
+	    }
+	}
+
+    }
+
+    private static byte[] serialize(CardInfoType cif) throws IOException {
+	ByteArrayOutputStream out = new ByteArrayOutputStream(64 * 1024);
+	try (ObjectOutputStream oout = new ObjectOutputStream(out)) {
+	    oout.writeObject(cif);
+	}
+	return out.toByteArray();
+    }
+
+    private static CardInfoType deserialize(byte[] data) throws WSMarshallerException {
+	try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(data))) {
+	    return (CardInfoType) in.readObject();
+	} catch (IOException | ClassNotFoundException ex) {
+	    throw new WSMarshallerException("Failed to copy CIF.", ex);
+	}
+    }
+
 }
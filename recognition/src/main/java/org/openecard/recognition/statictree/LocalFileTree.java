@@ -24,8 +24,12 @@ package org.openecard.recognition.statictree;
 
 import iso.std.iso_iec._24727.tech.schema.GetRecognitionTree;
 import iso.std.iso_iec._24727.tech.schema.GetRecognitionTreeResponse;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import org.openecard.common.util.ByteUtils;
 import org.openecard.common.util.FileUtils;
 import org.openecard.ws.marshal.WSMarshaller;
 import org.openecard.ws.marshal.WSMarshallerException;
@@ -40,12 +44,33 @@ public class LocalFileTree implements org.openecard.ws.GetRecognitionTree {
 
     private final WSMarshaller marshaller;
     private final GetRecognitionTreeResponse response;
+    private final String version;
 
     public LocalFileTree(WSMarshaller marshaller) throws WSMarshallerException, SAXException, IOException {
 	this.marshaller = marshaller;
 	// load file
 	InputStream in = FileUtils.resolveResourceAsStream(LocalFileTree.class, "/StaticTree.xml");
-	response = (GetRecognitionTreeResponse) marshaller.unmarshal(marshaller.str2doc(in));
+	byte[] treeData = FileUtils.toByteArray(in);
+	version = hash(treeData);
+	response = (GetRecognitionTreeResponse) marshaller.unmarshal(marshaller.str2doc(new ByteArrayInputStream(treeData)));
+    }
+
+    /**
+     * Gets the version of the tree, which is the SHA-256 hash of the tree file.
+     *
+     * @return The version of the tree, or {@code null} if the hash could not be computed.
+     */
+    public String getVersion() {
+	return version;
+    }
+
+    private static String hash(byte[] data) {
+	try {
+	    MessageDigest md = MessageDigest.getInstance("SHA-256");
+	    return ByteUtils.toHexString(md.digest(data));
+	} catch (NoSuchAlgorithmException ex) {
+	    return null;
+	}
     }
 
 
@@ -0,0 +1,168 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.recognition;
+
+import iso.std.iso_iec._24727.tech.schema.CardCall;
+import iso.std.iso_iec._24727.tech.schema.Conclusion;
+import iso.std.iso_iec._24727.tech.schema.DataMaskType;
+import iso.std.iso_iec._24727.tech.schema.MatchingDataType;
+import iso.std.iso_iec._24727.tech.schema.ResponseAPDUType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.openecard.common.apdu.common.CardResponseAPDU;
+import org.openecard.common.interfaces.RecognitionException;
+import org.openecard.common.util.ByteUtils;
+import org.openecard.common.util.StringUtils;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+import static org.testng.Assert.*;
+
+
+/**
+ * Tests the confirmation of cached recognition results in {@link CardRecognitionImpl}.
+ */
+public class CachedRecognitionTest {
+
+    private static final byte[] ATR = new byte[] { 0x3B, (byte) 0x8A, (byte) 0x80, 0x01 };
+    private static final String SELECT_X = "00A4040C03AAAAAA";
+    private static final String SELECT_Y = "00A4040C03BBBBBB";
+    private static final String READ = "00B0000001";
+    private static final String TYPE_A = "http://example.org/cardA";
+    private static final String TYPE_B = "http://example.org/cardB";
+
+    // card A only has application Y, card B has both applications
+    private static final SimulatedCard CARD_A = new SimulatedCard("6A82", "9000", "039000");
+    private static final SimulatedCard CARD_B = new SimulatedCard("9000", "9000", "039000");
+
+    private final List<CardCall> rootCalls;
+
+    public CachedRecognitionTest() {
+	// the first branch matches every odd value, so card B is recognized there
+	rootCalls = Arrays.asList(branch(SELECT_X, "01", "01", TYPE_B), branch(SELECT_Y, "03", "FF", TYPE_A));
+    }
+
+    @DataProvider(name = "engines")
+    public Object[][] engines() {
+	return new Object[][] { { null }, { RecognitionProgram.compile(rootCalls) } };
+    }
+
+    @Test(dataProvider = "engines")
+    public void testSameCardIsConfirmed(RecognitionProgram p) throws Exception {
+	RecognitionCache.Entry entry = record(CARD_A, p);
+	assertEquals(entry.getCardType(), TYPE_A);
+	assertEquals(entry.getCommands().size(), 3);
+
+	assertTrue(CardRecognitionImpl.isConfirmed(entry, CARD_A.answer(entry.getCommands()), p, rootCalls));
+    }
+
+    @Test(dataProvider = "engines")
+    public void testEarlierBranchIsNotSkipped(RecognitionProgram p) throws Exception {
+	RecognitionCache.Entry entry = record(CARD_A, p);
+	assertEquals(record(CARD_B, p).getCardType(), TYPE_B);
+
+	// card B answers the final branch of card A exactly like card A, but the complete recognition yields type B
+	assertFalse(CardRecognitionImpl.isConfirmed(entry, CARD_B.answer(entry.getCommands()), p, rootCalls));
+    }
+
+    @Test(dataProvider = "engines")
+    public void testMissingResponses(RecognitionProgram p) throws Exception {
+	RecognitionCache.Entry entry = record(CARD_A, p);
+	List<byte[]> responses = CARD_A.answer(entry.getCommands());
+	responses.remove(responses.size() - 1);
+
+	assertFalse(CardRecognitionImpl.isConfirmed(entry, responses, p, rootCalls));
+    }
+
+    private RecognitionCache.Entry record(SimulatedCard card, RecognitionProgram p) throws RecognitionException {
+	List<byte[]> commands = new ArrayList<>();
+	List<byte[]> trailers = new ArrayList<>();
+	ApduChannel channel = (command, expected) -> {
+	    byte[] response = card.transmit(command, expected);
+	    commands.add(command);
+	    trailers.add(CardResponseAPDU.getTrailer(response));
+	    return response;
+	};
+	String type = CardRecognitionImpl.recognize(channel, p, rootCalls);
+
+	RecognitionCache cache = new RecognitionCache("1", null);
+	cache.put(ATR, type, commands, trailers);
+	return cache.get(ATR);
+    }
+
+    private static CardCall branch(String select, String value, String mask, String type) {
+	MatchingDataType matchingData = new MatchingDataType();
+	matchingData.setMatchingValue(StringUtils.toByteArray(value));
+	matchingData.setMask(StringUtils.toByteArray(mask));
+	DataMaskType body = new DataMaskType();
+	body.setMatchingData(matchingData);
+	CardCall read = call(READ, body, StringUtils.toByteArray("9000"));
+	read.getResponseAPDU().get(0).getConclusion().setRecognizedCardType(type);
+
+	CardCall selectCall = call(select, null, StringUtils.toByteArray("9000"));
+	selectCall.getResponseAPDU().get(0).getConclusion().getCardCall().add(read);
+	return selectCall;
+    }
+
+    private static CardCall call(String command, DataMaskType body, byte[] trailer) {
+	ResponseAPDUType r = new ResponseAPDUType();
+	r.setBody(body);
+	r.setTrailer(trailer);
+	r.setConclusion(new Conclusion());
+	CardCall c = new CardCall();
+	c.setCommandAPDU(StringUtils.toByteArray(command));
+	c.getResponseAPDU().add(r);
+	return c;
+    }
+
+    /**
+     * Card answering the commands of the test tree with fixed responses.
+     */
+    private static class SimulatedCard implements ApduChannel {
+
+	private final Map<String, byte[]> responses = new HashMap<>();
+
+	SimulatedCard(String selectX, String selectY, String read) {
+	    responses.put(SELECT_X, StringUtils.toByteArray(selectX));
+	    responses.put(SELECT_Y, StringUtils.toByteArray(selectY));
+	    responses.put(READ, StringUtils.toByteArray(read));
+	}
+
+	@Override
+	public byte[] transmit(byte[] command, List<ResponseAPDUType> expected) {
+	    return responses.get(ByteUtils.toHexString(command)).clone();
+	}
+
+	List<byte[]> answer(List<byte[]> commands) {
+	    List<byte[]> result = new ArrayList<>();
+	    for (byte[] next : commands) {
+		result.add(transmit(next, new ArrayList<>()));
+	    }
+	    return result;
+	}
+
+    }
+
+}
@@ -0,0 +1,129 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.recognition;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import org.openecard.common.util.StringUtils;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import static org.testng.Assert.*;
+
+
+/**
+ * Tests for the {@link RecognitionCache}.
+ */
+public class RecognitionCacheTest {
+
+    private static final byte[] ATR_A = new byte[] { 0x3B, (byte) 0x8A, (byte) 0x80, 0x01 };
+    private static final byte[] ATR_B = new byte[] { 0x3B, (byte) 0x88, (byte) 0x80, 0x01 };
+    private static final List<byte[]> COMMANDS = Arrays.asList(StringUtils.toByteArray("00A4040C03AAAAAA"),
+	    StringUtils.toByteArray("00B0000001"));
+    private static final List<byte[]> TRAILERS = Arrays.asList(StringUtils.toByteArray("9000"),
+	    StringUtils.toByteArray("6282"));
+
+    private File store;
+
+    @BeforeMethod
+    public void setUp() throws IOException {
+	store = File.createTempFile("recognition-cache", ".properties");
+	store.delete();
+    }
+
+    @AfterMethod
+    public void tearDown() {
+	store.delete();
+    }
+
+    @Test
+    public void testHitsAndMisses() {
+	RecognitionCache cache = new RecognitionCache("1", null);
+	assertNull(cache.get(ATR_A));
+	cache.put(ATR_A, "http://example.org/cardA", COMMANDS, TRAILERS);
+
+	RecognitionCache.Entry e = cache.get(ATR_A);
+	assertNotNull(e);
+	assertEquals(e.getCardType(), "http://example.org/cardA");
+	assertEquals(e.getCommands().get(1), COMMANDS.get(1));
+	assertEquals(e.getTrailers().get(1), TRAILERS.get(1));
+	assertEquals(e.getConfidence(), 1);
+	cache.confirm(ATR_A);
+	assertEquals(e.getConfidence(), 2);
+
+	cache.reject(ATR_A);
+	assertNull(cache.get(ATR_B));
+	assertNull(cache.get(ATR_A));
+	assertEquals(cache.getHits(), 1);
+	assertEquals(cache.getMisses(), 3);
+	assertEquals(cache.getRejections(), 1);
+    }
+
+    @Test
+    public void testPersistence() throws InterruptedException {
+	RecognitionCache cache = new RecognitionCache("1", store);
+	cache.put(ATR_A, "http://example.org/cardA", COMMANDS.subList(0, 1), TRAILERS.subList(0, 1));
+	cache.put(ATR_B, "http://example.org/cardB", COMMANDS, TRAILERS);
+	cache.flush();
+	assertTrue(store.isFile());
+
+	// confirmations are written with the next change or on flush only
+	store.delete();
+	cache.confirm(ATR_B);
+	assertFalse(store.isFile());
+	cache.flush();
+	assertTrue(store.isFile());
+
+	RecognitionCache loaded = new RecognitionCache("1", store);
+	assertEquals(loaded.size(), 2);
+	RecognitionCache.Entry e = loaded.get(ATR_B);
+	assertEquals(e.getCardType(), "http://example.org/cardB");
+	assertEquals(e.getCommands().size(), 2);
+	for (int i = 0; i < COMMANDS.size(); i++) {
+	    assertEquals(e.getCommands().get(i), COMMANDS.get(i));
+	    assertEquals(e.getTrailers().get(i), TRAILERS.get(i));
+	}
+	assertEquals(e.getConfidence(), 2);
+
+	// a changed tree invalidates all entries
+	RecognitionCache changed = new RecognitionCache("2", store);
+	assertEquals(changed.size(), 0);
+    }
+
+    @Test
+    public void testEvictionKeepsConfidentEntries() {
+	RecognitionCache cache = new RecognitionCache("1", null);
+	cache.put(ATR_A, "http://example.org/cardA", COMMANDS, TRAILERS);
+	cache.confirm(ATR_A);
+	for (int i = 0; i < RecognitionCache.MAX_ENTRIES; i++) {
+	    cache.put(new byte[] { (byte) i }, "http://example.org/other", COMMANDS, TRAILERS);
+	}
+
+	assertEquals(cache.size(), RecognitionCache.MAX_ENTRIES);
+	assertNotNull(cache.get(ATR_A));
+	assertNull(cache.get(new byte[] { 0 }));
+    }
+
+}
@@ -0,0 +1,374 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.recognition;
+
+import iso.std.iso_iec._24727.tech.schema.CardCall;
+import iso.std.iso_iec._24727.tech.schema.DataMaskType;
+import iso.std.iso_iec._24727.tech.schema.GetRecognitionTree;
+import iso.std.iso_iec._24727.tech.schema.MatchingDataType;
+import iso.std.iso_iec._24727.tech.schema.ResponseAPDUType;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import org.openecard.common.util.ByteUtils;
+import org.openecard.recognition.staticrepo.LocalCifRepo;
+import org.openecard.recognition.statictree.LocalFileTree;
+import org.openecard.ws.jaxb.JAXBMarshaller;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import static org.testng.Assert.*;
+
+
+/**
+ * Compares the {@link RecognitionProgram} with the {@link TreeInterpreter}.
+ * For every card type of the local CIF repository which is contained in the recognition tree, a simulated card is
+ * recorded which answers the commands leading to the card type. Both engines must recognize the same card type on all
+ * simulated cards.
+ */
+public class RecognitionProgramTest {
+
+    private static final byte[] NOT_FOUND = new byte[] { 0x6A, (byte) 0x82 };
+
+    private List<CardCall> rootCalls;
+    private RecognitionProgram program;
+    private Map<String, List<int[]>> leaves;
+    private Set<String> cifTypes;
+
+    @BeforeClass
+    public void setUp() throws Exception {
+	JAXBMarshaller m = new JAXBMarshaller();
+	rootCalls = new LocalFileTree(m).getRecognitionTree(new GetRecognitionTree()).getRecognitionTree()
+		.getCardCall();
+	program = RecognitionProgram.compile(rootCalls);
+	cifTypes = new LocalCifRepo(m).getSupportedCardTypes();
+	leaves = new HashMap<>();
+	collectLeaves(rootCalls, new ArrayList<>());
+    }
+
+    @Test
+    public void testCommandsAreDeduplicated() {
+	Set<String> distinct = new HashSet<>();
+	int total = countCommands(rootCalls, distinct);
+	assertEquals(program.getNumCommands(), distinct.size());
+	assertTrue(program.getNumCommands() < total);
+    }
+
+    @Test
+    public void testRecordedCards() throws Exception {
+	int numCards = 0;
+	int numRecognized = 0;
+	for (String type : cifTypes) {
+	    List<int[]> paths = leaves.get(type);
+	    if (paths == null) {
+		// card type is recognized by other means
+		continue;
+	    }
+	    for (int[] path : paths) {
+		SimulatedCard card = recordCard(path, false);
+		// the recorded responses may also match a more general card type earlier in the tree
+		if (type.equals(compareEngines(card))) {
+		    numRecognized++;
+		}
+		compareEngines(recordCard(path, true));
+		numCards++;
+	    }
+	}
+	assertTrue(numCards > 0, "No card of the CIF repository is contained in the recognition tree.");
+	assertTrue(numRecognized > numCards / 2, "Too few recorded cards have been recognized.");
+
+	assertNull(compareEngines(new SimulatedCard(new HashMap<>())));
+    }
+
+    @Test
+    public void testMatchersAgainstInterpreter() {
+	Random rnd = new Random(42);
+	List<DataMaskType> bodies = new ArrayList<>();
+	collectBodies(rootCalls, bodies);
+	for (DataMaskType body : bodies) {
+	    CompiledMatcher matcher = CompiledMatcher.compile(body);
+	    byte[] good = generate(body);
+	    assertTrue(matcher.matches(withTrailer(good)));
+	    for (int i = 0; i < 200; i++) {
+		byte[] data = mutate(good, rnd);
+		// the interpreter does not catch all errors in malformed data, so compare the exceptions as well
+		Object expected = evaluate(() -> TreeInterpreter.checkBody(body, data));
+		Object actual = evaluate(() -> matcher.matches(withTrailer(data)));
+		assertEquals(actual, expected, ByteUtils.toHexString(data));
+	    }
+	}
+    }
+
+    private static Object evaluate(Callable<Boolean> c) {
+	try {
+	    return c.call();
+	} catch (Exception ex) {
+	    return ex.getClass();
+	}
+    }
+
+    private String compareEngines(SimulatedCard card) throws Exception {
+	List<Integer> interpreterPath = new ArrayList<>();
+	String interpreterType = TreeInterpreter.treeCalls(card, rootCalls, interpreterPath);
+	int interpreterApdus = card.numApdus;
+
+	card.reset();
+	List<Integer> programPath = new ArrayList<>();
+	String programType = program.run(card, programPath);
+	int programApdus = card.numApdus;
+
+	assertEquals(programType, interpreterType);
+	assertEquals(programPath, interpreterPath);
+	assertTrue(programApdus <= interpreterApdus, "Program sent more APDUs than the interpreter.");
+	return programType;
+    }
+
+    private void collectLeaves(List<CardCall> calls, List<Integer> prefix) {
+	for (int i = 0; i < calls.size(); i++) {
+	    List<CardCall> chain = TreeInterpreter.branch2list(calls.get(i));
+	    List<ResponseAPDUType> responses = chain.get(chain.size() - 1).getResponseAPDU();
+	    for (int j = 0; j < responses.size(); j++) {
+		List<Integer> path = new ArrayList<>(prefix);
+		path.add(i);
+		path.add(j);
+		ResponseAPDUType r = responses.get(j);
+		String type = r.getConclusion().getRecognizedCardType();
+		if (type != null) {
+		    int[] p = new int[path.size()];
+		    for (int k = 0; k < p.length; k++) {
+			p[k] = path.get(k);
+		    }
+		    leaves.computeIfAbsent(type, k -> new ArrayList<>()).add(p);
+		} else {
+		    collectLeaves(r.getConclusion().getCardCall(), path);
+		}
+	    }
+	}
+    }
+
+    private static int countCommands(List<CardCall> calls, Set<String> distinct) {
+	int count = 0;
+	for (CardCall c : calls) {
+	    distinct.add(ByteUtils.toHexString(c.getCommandAPDU()));
+	    count++;
+	    for (ResponseAPDUType r : c.getResponseAPDU()) {
+		if (r.getConclusion() != null && r.getConclusion().getCardCall() != null) {
+		    count += countCommands(r.getConclusion().getCardCall(), distinct);
+		}
+	    }
+	}
+	return count;
+    }
+
+    private static void collectBodies(List<CardCall> calls, List<DataMaskType> bodies) {
+	for (CardCall c : calls) {
+	    for (ResponseAPDUType r : c.getResponseAPDU()) {
+		if (r.getBody() != null) {
+		    bodies.add(r.getBody());
+		}
+		if (r.getConclusion() != null && r.getConclusion().getCardCall() != null) {
+		    collectBodies(r.getConclusion().getCardCall(), bodies);
+		}
+	    }
+	}
+    }
+
+    /**
+     * Records the responses a card gives when it matches the given path through the tree.
+     */
+    private SimulatedCard recordCard(int[] path, boolean mutateLast) {
+	Map<String, byte[]> responses = new HashMap<>();
+	SimulatedCard recorder = new SimulatedCard(responses);
+	List<CardCall> calls = rootCalls;
+	for (int i = 0; i < path.length; i += 2) {
+	    List<CardCall> chain = TreeInterpreter.branch2list(calls.get(path[i]));
+	    for (int j = 0; j < chain.size() - 1; j++) {
+		CardCall select = chain.get(j);
+		recorder.record(select.getCommandAPDU(), select.getResponseAPDU().get(0).getTrailer());
+	    }
+	    CardCall matcher = chain.get(chain.size() - 1);
+	    ResponseAPDUType r = matcher.getResponseAPDU().get(path[i + 1]);
+	    byte[] data = generate(r.getBody());
+	    if (mutateLast && i == path.length - 2) {
+		for (int k = 0; k < data.length; k++) {
+		    data[k] = (byte) ~data[k];
+		}
+	    }
+	    recorder.record(matcher.getCommandAPDU(), ByteUtils.concatenate(data, r.getTrailer()));
+	    calls = r.getConclusion().getCardCall();
+	}
+	return new SimulatedCard(responses);
+    }
+
+    private static byte[] withTrailer(byte[] data) {
+	return ByteUtils.concatenate(data, new byte[] { (byte) 0x90, 0x00 });
+    }
+
+    private static byte[] mutate(byte[] data, Random rnd) {
+	byte[] result = data.clone();
+	switch (rnd.nextInt(4)) {
+	    case 0:
+		if (result.length > 0) {
+		    result[rnd.nextInt(result.length)] ^= (byte) (1 << rnd.nextInt(8));
+		}
+		return result;
+	    case 1:
+		return Arrays.copyOf(result, rnd.nextInt(result.length + 1));
+	    case 2:
+		byte[] garbage = new byte[rnd.nextInt(4) + 1];
+		rnd.nextBytes(garbage);
+		return ByteUtils.concatenate(result, garbage);
+	    default:
+		byte[] random = new byte[rnd.nextInt(40)];
+		rnd.nextBytes(random);
+		return random;
+	}
+    }
+
+    ///
+    /// Generation of response data matching the tree
+    ///
+
+    private static byte[] generate(DataMaskType body) {
+	if (body.getTag() != null && body.getDataObject() != null) {
+	    return ByteUtils.concatenate(body.getTag(), generateDataObject(body.getDataObject()));
+	} else if (body.getDataObject() != null) {
+	    return generateDataObject(body.getDataObject());
+	} else {
+	    return generateMatchingData(body.getMatchingData());
+	}
+    }
+
+    private static byte[] generateDataObject(DataMaskType matcher) {
+	if (matcher.getTag() != null && matcher.getDataObject() != null) {
+	    return generateTlv(matcher);
+	} else {
+	    return generateMatchingData(matcher.getMatchingData());
+	}
+    }
+
+    private static byte[] generateTlv(DataMaskType matcher) {
+	DataMaskType next = matcher.getDataObject();
+	byte[] content;
+	if (next.getMatchingData() != null) {
+	    content = generateMatchingData(next.getMatchingData());
+	} else if (next.getTag() != null && next.getDataObject() != null) {
+	    content = generateTlv(next);
+	} else {
+	    content = new byte[0];
+	}
+	ByteArrayOutputStream out = new ByteArrayOutputStream();
+	out.write(matcher.getTag(), 0, matcher.getTag().length);
+	if (content.length < 0x80) {
+	    out.write(content.length);
+	} else if (content.length < 0x100) {
+	    out.write(0x81);
+	    out.write(content.length);
+	} else {
+	    out.write(0x82);
+	    out.write(content.length >> 8);
+	    out.write(content.length);
+	}
+	out.write(content, 0, content.length);
+	return out.toByteArray();
+    }
+
+    private static byte[] generateMatchingData(MatchingDataType md) {
+	byte[] value = md.getMatchingValue();
+	int offset = md.getOffset() != null ? ByteUtils.toInteger(md.getOffset()) : 0;
+	byte[] data = new byte[offset + value.length];
+	System.arraycopy(value, 0, data, offset, value.length);
+	return data;
+    }
+
+
+    /**
+     * Card answering with recorded responses.
+     * The responses depend on the current selection of the card, which is changed by successful selects only.
+     */
+    private static class SimulatedCard implements ApduChannel {
+
+	private final Map<String, byte[]> responses;
+	private String selection = "";
+	private int numApdus = 0;
+
+	SimulatedCard(Map<String, byte[]> responses) {
+	    this.responses = responses;
+	}
+
+	void reset() {
+	    selection = "";
+	    numApdus = 0;
+	}
+
+	void record(byte[] command, byte[] response) {
+	    String key = key(command);
+	    byte[] existing = responses.get(key);
+	    if (existing != null && existing.length > 2 && response.length > 2) {
+		// the same file is read in several branches, merge the data expected in each branch
+		byte[] merged = Arrays.copyOf(existing, Math.max(existing.length, response.length));
+		for (int i = 0; i < response.length - 2; i++) {
+		    if (response[i] != 0) {
+			merged[i] = response[i];
+		    }
+		}
+		merged[merged.length - 2] = response[response.length - 2];
+		merged[merged.length - 1] = response[response.length - 1];
+		response = merged;
+	    } else if (existing != null) {
+		response = existing;
+	    }
+	    responses.put(key, response);
+	    updateSelection(command, response);
+	}
+
+	@Override
+	public byte[] transmit(byte[] command, List<ResponseAPDUType> expected) {
+	    numApdus++;
+	    byte[] response = responses.getOrDefault(key(command), NOT_FOUND);
+	    updateSelection(command, response);
+	    return response.clone();
+	}
+
+	private String key(byte[] command) {
+	    String prefix = RecognitionProgram.isAbsoluteSelect(command) ? "" : selection;
+	    return prefix + "|" + ByteUtils.toHexString(command);
+	}
+
+	private void updateSelection(byte[] command, byte[] response) {
+	    boolean isSelect = command[1] == (byte) 0xA4;
+	    boolean success = response[response.length - 2] == (byte) 0x90;
+	    if (isSelect && success) {
+		selection = key(command);
+	    }
+	}
+
+    }
+
+}
@@ -22,9 +22,12 @@
 
 package org.openecard.recognition;
 
+import iso.std.iso_iec._24727.tech.schema.CardInfoType;
 import iso.std.iso_iec._24727.tech.schema.GetCardInfoOrACD;
 import iso.std.iso_iec._24727.tech.schema.GetCardInfoOrACDResponse;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
 import org.openecard.common.ECardConstants;
 import org.openecard.common.WSHelper;
 import org.openecard.common.WSHelper.WSException;
@@ -58,4 +61,63 @@ public class TestLocalCif {
 	Assert.assertEquals(1, res.getCardInfoOrCapabilityInfo().size());
     }
 
+    @Test
+    public void testCifIndex() throws WSMarshallerException, IOException, SAXException {
+	JAXBMarshaller m = new JAXBMarshaller();
+	Properties conf = loadResource("repo-config.properties");
+	Properties index = loadResource("cif-index.properties");
+
+	for (String next : conf.getProperty("cifFiles").split(",")) {
+	    next = next.trim();
+	    String indexType = index.getProperty(next);
+	    Assert.assertNotNull(indexType, "CIF file " + next + " is missing in the CIF index.");
+	    try (InputStream in = getClass().getResourceAsStream("/cif-repo/" + next)) {
+		CardInfoType cif = (CardInfoType) m.unmarshal(m.str2doc(in));
+		String type = cif.getCardType().getObjectIdentifier();
+		Assert.assertEquals(indexType, type, "CIF index entry of " + next + " is wrong.");
+	    }
+	}
+    }
+
+    @Test
+    public void testCopies() throws WSMarshallerException, IOException, SAXException {
+	LocalCifRepo repo = new LocalCifRepo(new JAXBMarshaller());
+	String type = "http://bsi.bund.de/cif/npa.xml";
+	Assert.assertTrue(repo.getSupportedCardTypes().contains(type));
+
+	GetCardInfoOrACD req = new GetCardInfoOrACD();
+	req.setAction(ECardConstants.CIF.GET_SPECIFIED);
+	req.getCardTypeIdentifier().add(type);
+	CardInfoType first = getCif(repo, req);
+	String firstName = first.getCardType().getSpecificationBodyOrIssuer();
+	first.getCardType().setSpecificationBodyOrIssuer("modified");
+	CardInfoType second = getCif(repo, req);
+	CardInfoType third = getCif(repo, req);
+
+	Assert.assertNotSame(second, third);
+	Assert.assertEquals(second.getCardType().getSpecificationBodyOrIssuer(), firstName);
+	Assert.assertEquals(second.getCardType().getObjectIdentifier(), type);
+	Assert.assertEquals(second.getApplicationCapabilities().getCardApplication().size(),
+		first.getApplicationCapabilities().getCardApplication().size());
+
+	req.setAction(ECardConstants.CIF.GET_OTHER);
+	GetCardInfoOrACDResponse res = repo.getCardInfoOrACD(req);
+	Assert.assertEquals(res.getCardInfoOrCapabilityInfo().size(), repo.getSupportedCardTypes().size() - 1);
+    }
+
+    private static CardInfoType getCif(LocalCifRepo repo, GetCardInfoOrACD req) {
+	GetCardInfoOrACDResponse res = repo.getCardInfoOrACD(req);
+	Assert.assertEquals(res.getResult().getResultMajor(), ECardConstants.Major.OK);
+	Assert.assertEquals(res.getCardInfoOrCapabilityInfo().size(), 1);
+	return (CardInfoType) res.getCardInfoOrCapabilityInfo().get(0);
+    }
+
+    private Properties loadResource(String name) throws IOException {
+	Properties props = new Properties();
+	try (InputStream in = getClass().getResourceAsStream("/cif-repo/" + name)) {
+	    props.load(in);
+	}
+	return props;
+    }
+
 }
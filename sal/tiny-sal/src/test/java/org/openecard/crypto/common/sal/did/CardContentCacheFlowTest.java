@@ -0,0 +1,255 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.crypto.common.sal.did;
+
+import iso.std.iso_iec._24727.tech.schema.ACLList;
+import iso.std.iso_iec._24727.tech.schema.ACLListResponse;
+import iso.std.iso_iec._24727.tech.schema.AccessControlListType;
+import iso.std.iso_iec._24727.tech.schema.ApplicationCapabilitiesType;
+import iso.std.iso_iec._24727.tech.schema.CardApplicationType;
+import iso.std.iso_iec._24727.tech.schema.CardInfoType;
+import iso.std.iso_iec._24727.tech.schema.CardTypeType;
+import iso.std.iso_iec._24727.tech.schema.ConnectionHandleType;
+import iso.std.iso_iec._24727.tech.schema.ConnectionHandleType.RecognitionInfo;
+import iso.std.iso_iec._24727.tech.schema.DSIRead;
+import iso.std.iso_iec._24727.tech.schema.DSIReadResponse;
+import iso.std.iso_iec._24727.tech.schema.DataSetList;
+import iso.std.iso_iec._24727.tech.schema.DataSetListResponse;
+import iso.std.iso_iec._24727.tech.schema.DataSetNameListType;
+import iso.std.iso_iec._24727.tech.schema.DataSetSelect;
+import iso.std.iso_iec._24727.tech.schema.DataSetSelectResponse;
+import java.math.BigInteger;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import mockit.Expectations;
+import mockit.Mocked;
+import org.openecard.common.ClientEnv;
+import org.openecard.common.WSHelper;
+import org.openecard.common.event.EventDispatcherImpl;
+import org.openecard.common.event.EventType;
+import org.openecard.common.event.IfdEventObject;
+import org.openecard.common.interfaces.CIFProvider;
+import org.openecard.common.interfaces.CardRecognition;
+import org.openecard.common.interfaces.Dispatcher;
+import org.openecard.common.sal.state.CardStateEntry;
+import org.openecard.common.sal.state.CardStateMap;
+import org.openecard.common.util.ByteUtils;
+import org.openecard.common.util.CardContentCache;
+import org.openecard.ifd.event.Recognizer;
+import org.openecard.ifd.scio.wrapper.ChannelManager;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import static org.testng.Assert.*;
+
+
+/**
+ * Tests the {@link CardContentCache} with the handles produced by recognition, card states and connect.
+ */
+public class CardContentCacheFlowTest {
+
+    private static final String CARD_TYPE = "http://example.org/cardtype";
+    private static final byte[] ATR = new byte[] { 0x3B, (byte) 0x8A, (byte) 0x80, 0x01 };
+    private static final byte[] APP = new byte[] { (byte) 0xE8, 0x28, (byte) 0xBD, 0x08, 0x0F };
+    private static final String CERT_DS = "EF.C.CH.AUT";
+
+    @Mocked
+    private CIFProvider cifProvider;
+    @Mocked
+    private CardRecognition recognition;
+
+    private ClientEnv env;
+    private EventDispatcherImpl eventDispatcher;
+    private final BlockingQueue<ConnectionHandleType> recognized = new LinkedBlockingQueue<>();
+
+    @BeforeMethod
+    public void setUp() {
+	CardContentCache.getInstance().clear();
+	eventDispatcher = new EventDispatcherImpl();
+	eventDispatcher.start();
+	eventDispatcher.add((type, data) -> recognized.add(data.getHandle()), EventType.CARD_RECOGNIZED);
+	env = new ClientEnv();
+	env.setCIFProvider(cifProvider);
+	env.setRecognition(recognition);
+	env.setEventDispatcher(eventDispatcher);
+    }
+
+    @AfterMethod
+    public void tearDown() {
+	eventDispatcher.terminate();
+	CardContentCache.getInstance().clear();
+    }
+
+    @Test(timeOut = 10000)
+    public void testContentFollowsCardConnection() throws Exception {
+	new Expectations() {{
+	    cifProvider.needsRecognition((byte[]) any);
+	    result = true;
+	    recognition.recognizeCard((byte[]) any, anyString, (BigInteger) any, (byte[]) any);
+	    result = recognitionInfo();
+	}};
+	CardContentCache contentCache = CardContentCache.getInstance();
+	CardDispatcher card = new CardDispatcher();
+	CardStateMap states = new CardStateMap();
+
+	// first card is inserted, recognized and connected
+	ConnectionHandleType inserted = insertedHandle();
+	ConnectionHandleType handle1 = recognize(inserted);
+	// the ATR is gone after the recognition, so the cache must not depend on it
+	assertNull(handle1.getRecognitionInfo().getCardIdentifier());
+	states.addEntry(new CardStateEntry(handle1, cif(), null));
+	ConnectionHandleType conn1 = connect(states, handle1);
+	card.insert(conn1, new byte[] { 0x30, 0x01, 0x01 });
+
+	byte[] cert = new DidInfos(card, null, conn1).getDataSetInfo(APP, CERT_DS).readStatic();
+	assertEquals(cert, new byte[] { 0x30, 0x01, 0x01 });
+	assertEquals(card.reads, 1);
+
+	// a new entry point for the same connection gets the content from the cache
+	cert = new DidInfos(card, null, conn1).getDataSetInfo(APP, CERT_DS).readStatic();
+	assertEquals(cert, new byte[] { 0x30, 0x01, 0x01 });
+	assertEquals(card.reads, 1);
+
+	// another card is put into the slot before the cache has seen the removal
+	states.removeEntry(inserted);
+	ConnectionHandleType handle2 = recognize(insertedHandle());
+	states.addEntry(new CardStateEntry(handle2, cif(), null));
+	ConnectionHandleType conn2 = connect(states, handle2);
+	card.insert(conn2, new byte[] { 0x30, 0x01, 0x02 });
+
+	cert = new DidInfos(card, null, conn2).getDataSetInfo(APP, CERT_DS).readStatic();
+	assertEquals(cert, new byte[] { 0x30, 0x01, 0x02 });
+	assertEquals(card.reads, 2);
+
+	// the removal drops all content read from the slot
+	contentCache.signalEvent(EventType.CARD_REMOVED, new IfdEventObject(inserted));
+	assertEquals(contentCache.getSize(), 0);
+    }
+
+    private ConnectionHandleType recognize(ConnectionHandleType inserted) throws InterruptedException {
+	new Recognizer(env, inserted, null).run();
+	return recognized.take();
+    }
+
+    /**
+     * Performs the state changes of CardApplicationConnect.
+     */
+    private static ConnectionHandleType connect(CardStateMap states, ConnectionHandleType recognized) {
+	CardStateEntry entry = states.getMatchingEntries(recognized, false).iterator().next();
+	CardStateEntry connected = entry.derive(entry.handleCopy());
+	connected.setSlotHandle(ChannelManager.createSlotHandle());
+	states.addEntry(connected);
+	return connected.handleCopy();
+    }
+
+    private static ConnectionHandleType insertedHandle() {
+	ConnectionHandleType handle = new ConnectionHandleType();
+	handle.setContextHandle(new byte[] { 1, 2, 3, 4 });
+	handle.setIFDName("Reader 1");
+	handle.setSlotIndex(BigInteger.ZERO);
+	RecognitionInfo rInfo = new RecognitionInfo();
+	rInfo.setCardIdentifier(ATR);
+	handle.setRecognitionInfo(rInfo);
+	return handle;
+    }
+
+    private static RecognitionInfo recognitionInfo() {
+	RecognitionInfo rInfo = new RecognitionInfo();
+	rInfo.setCardType(CARD_TYPE);
+	return rInfo;
+    }
+
+    private static CardInfoType cif() {
+	CardInfoType cif = new CardInfoType();
+	CardTypeType type = new CardTypeType();
+	type.setObjectIdentifier(CARD_TYPE);
+	cif.setCardType(type);
+	ApplicationCapabilitiesType caps = new ApplicationCapabilitiesType();
+	caps.setImplicitlySelectedApplication(APP);
+	CardApplicationType app = new CardApplicationType();
+	app.setApplicationIdentifier(APP);
+	caps.getCardApplication().add(app);
+	cif.setApplicationCapabilities(caps);
+	return cif;
+    }
+
+
+    /**
+     * Answers the SAL requests of {@link DataSetInfo} with the certificate of the card behind the slot handle.
+     */
+    private static class CardDispatcher implements Dispatcher {
+
+	private final Map<String, byte[]> cards = new HashMap<>();
+	private int reads = 0;
+
+	void insert(ConnectionHandleType handle, byte[] certificate) {
+	    cards.put(ByteUtils.toHexString(handle.getSlotHandle()), certificate);
+	}
+
+	@Override
+	public Object deliver(Object request) {
+	    return safeDeliver(request);
+	}
+
+	@Override
+	public Object safeDeliver(Object request) {
+	    if (request instanceof DataSetList) {
+		DataSetListResponse res = WSHelper.makeResponse(DataSetListResponse.class, WSHelper.makeResultOK());
+		DataSetNameListType names = new DataSetNameListType();
+		names.getDataSetName().add(CERT_DS);
+		res.setDataSetNameList(names);
+		return res;
+	    } else if (request instanceof ACLList) {
+		// no access rules, so the data set is always readable
+		ACLListResponse res = WSHelper.makeResponse(ACLListResponse.class, WSHelper.makeResultOK());
+		res.setTargetACL(new AccessControlListType());
+		return res;
+	    } else if (request instanceof DataSetSelect) {
+		return WSHelper.makeResponse(DataSetSelectResponse.class, WSHelper.makeResultOK());
+	    } else if (request instanceof DSIRead) {
+		reads++;
+		byte[] slotHandle = ((DSIRead) request).getConnectionHandle().getSlotHandle();
+		DSIReadResponse res = WSHelper.makeResponse(DSIReadResponse.class, WSHelper.makeResultOK());
+		res.setDSIContent(cards.get(ByteUtils.toHexString(slotHandle)));
+		return res;
+	    }
+	    throw new IllegalArgumentException("Unexpected request " + request.getClass().getSimpleName() + ".");
+	}
+
+	@Override
+	public List<String> getServiceList() {
+	    return Collections.emptyList();
+	}
+
+	@Override
+	public Dispatcher getFilter() {
+	    return this;
+	}
+
+    }
+
+}
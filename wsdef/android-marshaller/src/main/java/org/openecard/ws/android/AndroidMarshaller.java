@@ -201,15 +201,12 @@ public class AndroidMarshaller implements WSMarshaller {
 
     @Override
     public Object unmarshal(Node n) throws MarshallingTypeException, WSMarshallerException {
-	Document newDoc = createDoc(n);
-	String docStr;
-	try {
-	    docStr = doc2str(newDoc);
-	} catch (TransformerException ex) {
-	    throw new WSMarshallerException("Failed to transform DOM to text.", ex);
+	if (! (n instanceof Document || n instanceof Element)) {
+	    throw new WSMarshallerException("Only w3c Document and Element are accepted.");
 	}
 	try {
-	    return new Unmarshaller(documentBuilder).unmarshal(new StringReader(docStr));
+	    // the node is read in place, serializing and reparsing it is not necessary
+	    return new Unmarshaller(documentBuilder).unmarshal(n);
 	} catch (IOException | DatatypeConfigurationException | ParserConfigurationException | XmlPullParserException ex) {
 	    LOG.error("Unable to unmarshal Node element.", ex);
 	    throw new MarshallingTypeException(ex);
@@ -230,20 +227,6 @@ public class AndroidMarshaller implements WSMarshaller {
 	throw new MarshallingTypeException(String.format("Invalid type requested for unmarshalling: '%s'", c));
     }
 
-    private Document createDoc(Node n) throws WSMarshallerException {
-	Document newDoc = null;
-	if (n instanceof Document) {
-	    newDoc = (Document) n;
-	} else if (n instanceof Element) {
-	    newDoc = documentBuilder.newDocument();
-	    Node root = newDoc.importNode(n, true);
-	    newDoc.appendChild(root);
-	} else {
-	    throw new WSMarshallerException("Only w3c Document and Element are accepted.");
-	}
-	return newDoc;
-    }
-
     @Override
     public synchronized SOAPMessage doc2soap(Document envDoc) throws SOAPException {
 	SOAPMessage msg = soapFactory.createMessage(envDoc);
@@ -0,0 +1,476 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.ws.android;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+
+/**
+ * XmlPullParser implementation which emits the events of an existing DOM tree.
+ * This way the pull based unmarshaller can process DOM nodes without serializing and reparsing them.
+ * <p>The parser is always namespace aware. Like a regular pull parser, adjacent text and CDATA nodes are coalesced
+ * into one text event and comments as well as processing instructions are skipped. Namespace declarations are not
+ * reported as attributes.</p>
+ */
+class DomPullParser implements XmlPullParser {
+
+    private final Element root;
+
+    private int eventType;
+    private int depth;
+    private Node node;
+    private Node lastTextNode;
+    private String text;
+    private List<Attr> attributes;
+
+    /**
+     * Creates a parser for the given document or element.
+     * The parser is positioned at the {@code START_DOCUMENT} event.
+     *
+     * @param n Document or element which is processed by this parser.
+     * @throws IllegalArgumentException Thrown in case the node is neither a document nor an element.
+     */
+    DomPullParser(Node n) {
+	if (n instanceof Document) {
+	    this.root = ((Document) n).getDocumentElement();
+	} else if (n instanceof Element) {
+	    this.root = (Element) n;
+	} else {
+	    throw new IllegalArgumentException("Only w3c Document and Element are accepted.");
+	}
+	this.eventType = START_DOCUMENT;
+    }
+
+
+    @Override
+    public int next() throws XmlPullParserException, IOException {
+	// an end tag has the depth of its start tag, so the element is left with the following event
+	if (eventType == END_TAG) {
+	    depth--;
+	}
+	switch (eventType) {
+	    case START_DOCUMENT:
+		return startTag(root);
+	    case START_TAG:
+		Node child = node.getFirstChild();
+		return child != null ? content(child) : endTag(node);
+	    case END_TAG:
+		if (node == root) {
+		    node = null;
+		    attributes = null;
+		    return eventType = END_DOCUMENT;
+		}
+		return following(node);
+	    case TEXT:
+		return following(lastTextNode);
+	    default:
+		throw new XmlPullParserException("Parser is already at the end of the document.", this, null);
+	}
+    }
+
+    private int following(Node n) {
+	Node sibling = n.getNextSibling();
+	return sibling != null ? content(sibling) : endTag(n.getParentNode());
+    }
+
+    private int content(Node n) {
+	while (n != null) {
+	    if (n.getNodeType() == Node.ELEMENT_NODE) {
+		return startTag(n);
+	    } else if (isText(n)) {
+		return text(n);
+	    }
+	    // comments and processing instructions are not reported by next()
+	    lastTextNode = n;
+	    n = n.getNextSibling();
+	}
+	return endTag(lastTextNode.getParentNode());
+    }
+
+    private int startTag(Node n) {
+	node = n;
+	attributes = null;
+	text = null;
+	depth++;
+	return eventType = START_TAG;
+    }
+
+    private int endTag(Node n) {
+	node = n;
+	attributes = null;
+	text = null;
+	return eventType = END_TAG;
+    }
+
+    private int text(Node n) {
+	StringBuilder sb = new StringBuilder();
+	Node last = n;
+	for (Node next = n; next != null; next = next.getNextSibling()) {
+	    if (isText(next)) {
+		sb.append(next.getNodeValue() != null ? next.getNodeValue() : next.getTextContent());
+	    } else if (next.getNodeType() != Node.COMMENT_NODE
+		    && next.getNodeType() != Node.PROCESSING_INSTRUCTION_NODE) {
+		break;
+	    }
+	    last = next;
+	}
+	node = n.getParentNode();
+	lastTextNode = last;
+	attributes = null;
+	text = sb.toString();
+	return eventType = TEXT;
+    }
+
+    private static boolean isText(Node n) {
+	switch (n.getNodeType()) {
+	    case Node.TEXT_NODE:
+	    case Node.CDATA_SECTION_NODE:
+	    case Node.ENTITY_REFERENCE_NODE:
+		return true;
+	    default:
+		return false;
+	}
+    }
+
+    @Override
+    public int nextToken() throws XmlPullParserException, IOException {
+	// the DOM contains no token information beyond what next() reports
+	return next();
+    }
+
+    @Override
+    public String nextText() throws XmlPullParserException, IOException {
+	if (eventType != START_TAG) {
+	    throw new XmlPullParserException("Parser must be on START_TAG to read next text.", this, null);
+	}
+	int type = next();
+	if (type == TEXT) {
+	    String result = getText();
+	    type = next();
+	    if (type != END_TAG) {
+		throw new XmlPullParserException("Event TEXT must be immediately followed by END_TAG.", this, null);
+	    }
+	    return result;
+	} else if (type == END_TAG) {
+	    return "";
+	} else {
+	    throw new XmlPullParserException("Parser must be on START_TAG or TEXT to read text.", this, null);
+	}
+    }
+
+    @Override
+    public int nextTag() throws XmlPullParserException, IOException {
+	int type = next();
+	if (type == TEXT && isWhitespace()) {
+	    type = next();
+	}
+	if (type != START_TAG && type != END_TAG) {
+	    throw new XmlPullParserException("Expected start or end tag.", this, null);
+	}
+	return type;
+    }
+
+    @Override
+    public void require(int type, String namespace, String name) throws XmlPullParserException, IOException {
+	if (type != eventType
+		|| (namespace != null && ! namespace.equals(getNamespace()))
+		|| (name != null && ! name.equals(getName()))) {
+	    throw new XmlPullParserException("Expected event " + TYPES[type] + " but found " + getPositionDescription(),
+		    this, null);
+	}
+    }
+
+    @Override
+    public int getEventType() {
+	return eventType;
+    }
+
+    @Override
+    public int getDepth() {
+	return depth;
+    }
+
+    @Override
+    public String getText() {
+	return eventType == TEXT ? text : null;
+    }
+
+    @Override
+    public char[] getTextCharacters(int[] holderForStartAndLength) {
+	String t = getText();
+	if (t == null) {
+	    holderForStartAndLength[0] = -1;
+	    holderForStartAndLength[1] = -1;
+	    return null;
+	}
+	holderForStartAndLength[0] = 0;
+	holderForStartAndLength[1] = t.length();
+	return t.toCharArray();
+    }
+
+    @Override
+    public boolean isWhitespace() throws XmlPullParserException {
+	if (eventType != TEXT) {
+	    throw new XmlPullParserException("Whitespace check is only possible for TEXT events.", this, null);
+	}
+	return text.trim().isEmpty();
+    }
+
+    @Override
+    public String getName() {
+	return isTag() ? localName(node) : null;
+    }
+
+    @Override
+    public String getNamespace() {
+	if (isTag()) {
+	    String ns = node.getNamespaceURI();
+	    return ns != null ? ns : "";
+	}
+	return null;
+    }
+
+    @Override
+    public String getPrefix() {
+	return isTag() ? node.getPrefix() : null;
+    }
+
+    @Override
+    public String getNamespace(String prefix) {
+	Node ctx = node != null ? node : root;
+	if ("xml".equals(prefix)) {
+	    return AndroidMarshaller.XML_NS;
+	} else if ("xmlns".equals(prefix)) {
+	    return AndroidMarshaller.XMLNS_NS;
+	}
+	return ctx.lookupNamespaceURI(prefix);
+    }
+
+    @Override
+    public boolean isEmptyElementTag() throws XmlPullParserException {
+	if (eventType != START_TAG) {
+	    throw new XmlPullParserException("Empty element check is only possible for START_TAG events.", this, null);
+	}
+	return ! node.hasChildNodes();
+    }
+
+    private boolean isTag() {
+	return eventType == START_TAG || eventType == END_TAG;
+    }
+
+    private static String localName(Node n) {
+	String name = n.getLocalName();
+	if (name == null) {
+	    // DOM created without namespace support
+	    name = n.getNodeName();
+	    int idx = name.indexOf(':');
+	    if (idx >= 0) {
+		name = name.substring(idx + 1);
+	    }
+	}
+	return name;
+    }
+
+
+    ///
+    /// Attributes
+    ///
+
+    private List<Attr> attributes() {
+	if (attributes == null) {
+	    NamedNodeMap attrMap = node.getAttributes();
+	    attributes = new ArrayList<>(attrMap.getLength());
+	    for (int i = 0; i < attrMap.getLength(); i++) {
+		Attr a = (Attr) attrMap.item(i);
+		// namespace declarations are no attributes for a namespace aware pull parser
+		String name = a.getNodeName();
+		if (! AndroidMarshaller.XMLNS_NS.equals(a.getNamespaceURI())
+			&& ! "xmlns".equals(name) && ! name.startsWith("xmlns:")) {
+		    attributes.add(a);
+		}
+	    }
+	}
+	return attributes;
+    }
+
+    private Attr attribute(int index) {
+	if (eventType != START_TAG) {
+	    throw new IndexOutOfBoundsException("Attributes are only available for START_TAG events.");
+	}
+	return attributes().get(index);
+    }
+
+    @Override
+    public int getAttributeCount() {
+	return eventType == START_TAG ? attributes().size() : -1;
+    }
+
+    @Override
+    public String getAttributeNamespace(int index) {
+	String ns = attribute(index).getNamespaceURI();
+	return ns != null ? ns : "";
+    }
+
+    @Override
+    public String getAttributeName(int index) {
+	return localName(attribute(index));
+    }
+
+    @Override
+    public String getAttributePrefix(int index) {
+	return attribute(index).getPrefix();
+    }
+
+    @Override
+    public String getAttributeType(int index) {
+	attribute(index);
+	return "CDATA";
+    }
+
+    @Override
+    public boolean isAttributeDefault(int index) {
+	return ! attribute(index).getSpecified();
+    }
+
+    @Override
+    public String getAttributeValue(int index) {
+	return attribute(index).getValue();
+    }
+
+    @Override
+    public String getAttributeValue(String namespace, String name) {
+	if (eventType != START_TAG) {
+	    throw new IndexOutOfBoundsException("Attributes are only available for START_TAG events.");
+	}
+	if (namespace != null && namespace.isEmpty()) {
+	    namespace = null;
+	}
+	for (Attr a : attributes()) {
+	    String ns = a.getNamespaceURI();
+	    boolean nsMatches = namespace == null ? ns == null || ns.isEmpty() : namespace.equals(ns);
+	    if (nsMatches && name.equals(localName(a))) {
+		return a.getValue();
+	    }
+	}
+	return null;
+    }
+
+
+    ///
+    /// Position information
+    ///
+
+    @Override
+    public String getPositionDescription() {
+	StringBuilder sb = new StringBuilder(TYPES[eventType]);
+	if (isTag()) {
+	    sb.append(" ").append(getName());
+	}
+	sb.append(" (depth ").append(depth).append(")");
+	return sb.toString();
+    }
+
+    @Override
+    public int getLineNumber() {
+	return -1;
+    }
+
+    @Override
+    public int getColumnNumber() {
+	return -1;
+    }
+
+
+    ///
+    /// Configuration, which is fixed for this parser
+    ///
+
+    @Override
+    public void setFeature(String name, boolean state) throws XmlPullParserException {
+	if (getFeature(name) != state) {
+	    throw new XmlPullParserException("Feature " + name + " can not be changed in a DOM based parser.");
+	}
+    }
+
+    @Override
+    public boolean getFeature(String name) {
+	return FEATURE_PROCESS_NAMESPACES.equals(name);
+    }
+
+    @Override
+    public void setProperty(String name, Object value) throws XmlPullParserException {
+	throw new XmlPullParserException("Property " + name + " is not supported by a DOM based parser.");
+    }
+
+    @Override
+    public Object getProperty(String name) {
+	return null;
+    }
+
+    @Override
+    public void setInput(Reader in) throws XmlPullParserException {
+	throw new XmlPullParserException("Input of a DOM based parser can not be changed.");
+    }
+
+    @Override
+    public void setInput(InputStream inputStream, String inputEncoding) throws XmlPullParserException {
+	throw new XmlPullParserException("Input of a DOM based parser can not be changed.");
+    }
+
+    @Override
+    public String getInputEncoding() {
+	return null;
+    }
+
+    @Override
+    public void defineEntityReplacementText(String entityName, String replacementText) throws XmlPullParserException {
+	throw new XmlPullParserException("Entities are already resolved in a DOM based parser.");
+    }
+
+    @Override
+    public int getNamespaceCount(int depth) throws XmlPullParserException {
+	throw new XmlPullParserException("Namespace stack is not available in a DOM based parser.");
+    }
+
+    @Override
+    public String getNamespacePrefix(int pos) throws XmlPullParserException {
+	throw new XmlPullParserException("Namespace stack is not available in a DOM based parser.");
+    }
+
+    @Override
+    public String getNamespaceUri(int pos) throws XmlPullParserException {
+	throw new XmlPullParserException("Namespace stack is not available in a DOM based parser.");
+    }
+
+}
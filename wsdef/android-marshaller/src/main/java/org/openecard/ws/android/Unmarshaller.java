@@ -119,12 +119,16 @@ import iso.std.iso_iec._24727.tech.schema.Transmit;
 import iso.std.iso_iec._24727.tech.schema.TransmitResponse;
 import iso.std.iso_iec._24727.tech.schema.WaitResponse;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.Reader;
 import java.lang.reflect.InvocationTargetException;
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import javax.xml.datatype.DatatypeConfigurationException;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.ParserConfigurationException;
@@ -144,6 +148,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
+import org.w3c.dom.Node;
 import org.xmlpull.v1.XmlPullParser;
 import org.xmlpull.v1.XmlPullParserException;
 import org.xmlpull.v1.XmlPullParserFactory;
@@ -157,6 +162,56 @@ public class Unmarshaller {
 
     private static final Logger LOG = LoggerFactory.getLogger(Unmarshaller.class);
 
+    /**
+     * Parsers for the supported root elements, indexed by their local name.
+     */
+    private static final Map<String, ElementParser> ROOT_PARSERS;
+
+    static {
+	Map<String, ElementParser> parsers = new HashMap<>();
+	parsers.put("DestroyChannelResponse", Unmarshaller::parseDestroyChannelResponse);
+	parsers.put("DestroyChannel", Unmarshaller::parseDestroyChannel);
+	parsers.put("EstablishChannelResponse", Unmarshaller::parseEstablishChannelResponse);
+	parsers.put("DIDAuthenticate", Unmarshaller::parseDIDAuthenticate);
+	parsers.put("DIDAuthenticateResponse", Unmarshaller::parseDIDAuthenticateResponse);
+	parsers.put("StartPAOSResponse", Unmarshaller::parseStartPAOSResponse);
+	parsers.put("InitializeFramework", Unmarshaller::parseInitializeFramework);
+	parsers.put("InitializeFrameworkResponse", Unmarshaller::parseInitFrameworkResponse);
+	parsers.put("Conclusion", Unmarshaller::parseConclusion);
+	parsers.put("WaitResponse", Unmarshaller::parseWaitResponse);
+	parsers.put("GetStatusResponse", Unmarshaller::parseGetStatusResponse);
+	parsers.put("ListIFDs", Unmarshaller::parseListIFDs);
+	parsers.put("GetIFDCapabilities", Unmarshaller::parseGetIFDCapabilities);
+	parsers.put("GetIFDCapabilitiesResponse", Unmarshaller::parseGetIFDCapabilitiesResponse);
+	parsers.put("BeginTransaction", Unmarshaller::parseBeginTransaction);
+	parsers.put("BeginTransactionResponse", Unmarshaller::parseBeginTransactionResponse);
+	parsers.put("EndTransaction", Unmarshaller::parseEndTransaction);
+	parsers.put("EndTransactionResponse", Unmarshaller::parseEndTransactionResponse);
+	parsers.put("CardApplicationPath", Unmarshaller::parseCardApplicationPathRequest);
+	parsers.put("CardAppPathRequest", Unmarshaller::parseCardApplicationPath);
+	parsers.put("CardApplicationPathResult", Unmarshaller::parseCardApplicationPath);
+	parsers.put("CardApplicationPathResponse", Unmarshaller::parseCardApplicationPathResponse);
+	parsers.put("CardAppPathResultSet", Unmarshaller::parseCardAppPathResultSet);
+	parsers.put("CardApplicationConnect", Unmarshaller::parseCardApplicationConnect);
+	parsers.put("CardApplicationConnectResponse", Unmarshaller::parseCardApplicationConnectResponse);
+	parsers.put("CardApplicationDisconnect", Unmarshaller::parseCardApplicationDisconnect);
+	parsers.put("CardApplicationDisconnectResponse", Unmarshaller::parseCardApplicationDisconnectResponse);
+	parsers.put("GetRecognitionTreeResponse", Unmarshaller::parseGetRecognitionTreeResponse);
+	parsers.put("EstablishContext", Unmarshaller::parseEstablishContext);
+	parsers.put("EstablishContextResponse", Unmarshaller::parseEstablishContextResponse);
+	parsers.put("ListIFDsResponse", Unmarshaller::parseListIFDsResponse);
+	parsers.put("ConnectResponse", Unmarshaller::parseConnectResponse);
+	parsers.put("Connect", Unmarshaller::parseConnect);
+	parsers.put("Disconnect", Unmarshaller::parseDisconnect);
+	parsers.put("DisconnectResponse", Unmarshaller::parseDisconnectResponse);
+	parsers.put("Transmit", Unmarshaller::parseTransmit);
+	parsers.put("TransmitResponse", Unmarshaller::parseTransmitResponse);
+	parsers.put("CardInfo", Unmarshaller::parseCardInfo);
+	parsers.put("AddonSpecification", Unmarshaller::parseAddonSpecification);
+	parsers.put("EstablishChannel", Unmarshaller::parseEstablishChannel);
+	ROOT_PARSERS = Collections.unmodifiableMap(parsers);
+    }
+
     private final DocumentBuilder documentBuilder;
 
     Unmarshaller(DocumentBuilder documentBuilder) {
@@ -166,10 +221,37 @@ public class Unmarshaller {
 
     public Object unmarshal(Reader in) throws XmlPullParserException, IOException,
 	    ParserConfigurationException, DatatypeConfigurationException {
-	XmlPullParserFactory factory = XmlPullParserFactory.newInstance();
-	factory.setNamespaceAware(true);
-	XmlPullParser parser = factory.newPullParser();
+	XmlPullParser parser = newPullParser();
 	parser.setInput(in);
+	return unmarshal(parser);
+    }
+
+    public Object unmarshal(InputStream in) throws XmlPullParserException, IOException,
+	    ParserConfigurationException, DatatypeConfigurationException {
+	XmlPullParser parser = newPullParser();
+	// let the parser detect the encoding
+	parser.setInput(in, null);
+	return unmarshal(parser);
+    }
+
+    /**
+     * Unmarshals the given DOM node.
+     * The node is read directly by a pull parser operating on the DOM, so no copy of the document is created.
+     *
+     * @param n Document or element which should be unmarshalled.
+     * @return The unmarshalled object.
+     * @throws XmlPullParserException Thrown in case the node is not a valid representation of a supported type.
+     * @throws IOException Thrown in case the element is not supported.
+     * @throws ParserConfigurationException Thrown in case the DOM for contained any elements could not be created.
+     * @throws DatatypeConfigurationException Thrown in case a contained date value could not be converted.
+     */
+    public Object unmarshal(Node n) throws XmlPullParserException, IOException,
+	    ParserConfigurationException, DatatypeConfigurationException {
+	return unmarshal(new DomPullParser(n));
+    }
+
+    private Object unmarshal(XmlPullParser parser) throws XmlPullParserException, IOException,
+	    ParserConfigurationException, DatatypeConfigurationException {
 	int eventType = parser.getEventType();
 	while (eventType != XmlPullParser.END_DOCUMENT) {
 	    if (eventType == XmlPullParser.START_TAG) {
@@ -181,6 +263,12 @@ public class Unmarshaller {
 	return null;
     }
 
+    private static XmlPullParser newPullParser() throws XmlPullParserException {
+	XmlPullParserFactory factory = XmlPullParserFactory.newInstance();
+	factory.setNamespaceAware(true);
+	return factory.newPullParser();
+    }
+
 
     private ResponseAPDUType parseResponseAPDUType(XmlPullParser parser) throws XmlPullParserException,
 	    IOException, ParserConfigurationException {
@@ -285,638 +373,722 @@ public class Unmarshaller {
     }
 
     private Object parse(XmlPullParser parser) throws XmlPullParserException, IOException, ParserConfigurationException, DatatypeConfigurationException {
-	if (parser.getName().equals("DestroyChannelResponse")) {
-	    DestroyChannelResponse destroyChannelResponse = new DestroyChannelResponse();
-	    int eventType;
-	    do {
-		parser.next();
-		eventType = parser.getEventType();
-		if (eventType == XmlPullParser.START_TAG) {
-		    if (parser.getName().equals("Profile")) {
-			destroyChannelResponse.setProfile(parser.nextText());
-		    } else if (parser.getName().equals("RequestID")) {
-			destroyChannelResponse.setRequestID(parser.nextText());
-		    } else if (parser.getName().equals("Result")) {
-			destroyChannelResponse.setResult(this.parseResult(parser));
-		    }
-		}
-	    } while (!(eventType == XmlPullParser.END_TAG && parser.getName().equals("DestroyChannelResponse")));
-	    return destroyChannelResponse;
+	ElementParser elemParser = ROOT_PARSERS.get(parser.getName());
+	if (elemParser == null) {
+	    throw new IOException("Unmarshalling of " + parser.getName() + " is not yet supported.");
 	}
-	else if (parser.getName().equals("DestroyChannel")) {
-	    DestroyChannel destroyChannel = new DestroyChannel();
-	    int eventType;
-	    do {
-		parser.next();
-		eventType = parser.getEventType();
-		if (eventType == XmlPullParser.START_TAG) {
-		    if (parser.getName().equals("SlotHandle")) {
-			destroyChannel.setSlotHandle(StringUtils.toByteArray(parser.nextText()));
-		    }
+	return elemParser.parse(this, parser);
+    }
+
+    private DestroyChannelResponse parseDestroyChannelResponse(XmlPullParser parser) throws XmlPullParserException, IOException,
+	    ParserConfigurationException, DatatypeConfigurationException {
+	DestroyChannelResponse destroyChannelResponse = new DestroyChannelResponse();
+	int eventType;
+	do {
+	    parser.next();
+	    eventType = parser.getEventType();
+	    if (eventType == XmlPullParser.START_TAG) {
+		if (parser.getName().equals("Profile")) {
+		    destroyChannelResponse.setProfile(parser.nextText());
+		} else if (parser.getName().equals("RequestID")) {
+		    destroyChannelResponse.setRequestID(parser.nextText());
+		} else if (parser.getName().equals("Result")) {
+		    destroyChannelResponse.setResult(this.parseResult(parser));
 		}
-	    } while (!(eventType == XmlPullParser.END_TAG && parser.getName().equals("DestroyChannel")));
-	    return destroyChannel;
-	}
+	    }
+	} while (!(eventType == XmlPullParser.END_TAG && parser.getName().equals("DestroyChannelResponse")));
+	return destroyChannelResponse;
+    }
 
-	else if (parser.getName().equals("EstablishChannelResponse")) {
-	    EstablishChannelResponse establishChannelResponse = new EstablishChannelResponse();
-	    int eventType;
-	    do {
-		parser.next();
-		eventType = parser.getEventType();
-		if (eventType == XmlPullParser.START_TAG) {
-		    if (parser.getName().equals("Profile")) {
-			establishChannelResponse.setProfile(parser.nextText());
-		    } else if (parser.getName().equals("RequestID")) {
-			establishChannelResponse.setRequestID(parser.nextText());
-		    } else if (parser.getName().equals("Result")) {
-			establishChannelResponse.setResult(this.parseResult(parser));
-		    } else if (parser.getName().equals("AuthenticationProtocolData")) {
-			establishChannelResponse.setAuthenticationProtocolData(this.parseDIDAuthenticationDataType(parser));
-		    }
+    private DestroyChannel parseDestroyChannel(XmlPullParser parser) throws XmlPullParserException, IOException,
+	    ParserConfigurationException, DatatypeConfigurationException {
+	DestroyChannel destroyChannel = new DestroyChannel();
+	int eventType;
+	do {
+	    parser.next();
+	    eventType = parser.getEventType();
+	    if (eventType == XmlPullParser.START_TAG) {
+		if (parser.getName().equals("SlotHandle")) {
+		    destroyChannel.setSlotHandle(StringUtils.toByteArray(parser.nextText()));
 		}
-	    } while (!(eventType == XmlPullParser.END_TAG && parser.getName().equals("EstablishChannelResponse")));
-	    return establishChannelResponse;
-	}
+	    }
+	} while (!(eventType == XmlPullParser.END_TAG && parser.getName().equals("DestroyChannel")));
+	return destroyChannel;
+    }
 
-	else if (parser.getName().equals("DIDAuthenticate")) {
-	    DIDAuthenticate didAuthenticate = new DIDAuthenticate();
-	    int eventType;
-	    do {
-		parser.next();
-		eventType = parser.getEventType();
-		if (eventType == XmlPullParser.START_TAG) {
-		    if (parser.getName().equals("DIDName")) {
-			didAuthenticate.setDIDName(parser.nextText());
-		    } else if (parser.getName().equals("SlotHandle")) {
-			ConnectionHandleType cht = new ConnectionHandleType();
-			cht.setSlotHandle(StringUtils.toByteArray(parser.nextText()));
-			didAuthenticate.setConnectionHandle(cht);
-		    } else if (parser.getName().equals("AuthenticationProtocolData")) {
-			didAuthenticate.setAuthenticationProtocolData(this.parseDIDAuthenticationDataType(parser));
-		    }
+    private EstablishChannelResponse parseEstablishChannelResponse(XmlPullParser parser) throws XmlPullParserException, IOException,
+	    ParserConfigurationException, DatatypeConfigurationException {
+	EstablishChannelResponse establishChannelResponse = new EstablishChannelResponse();
+	int eventType;
+	do {
+	    parser.next();
+	    eventType = parser.getEventType();
+	    if (eventType == XmlPullParser.START_TAG) {
+		if (parser.getName().equals("Profile")) {
+		    establishChannelResponse.setProfile(parser.nextText());
+		} else if (parser.getName().equals("RequestID")) {
+		    establishChannelResponse.setRequestID(parser.nextText());
+		} else if (parser.getName().equals("Result")) {
+		    establishChannelResponse.setResult(this.parseResult(parser));
+		} else if (parser.getName().equals("AuthenticationProtocolData")) {
+		    establishChannelResponse.setAuthenticationProtocolData(this.parseDIDAuthenticationDataType(parser));
 		}
-	    } while (!(eventType == XmlPullParser.END_TAG && parser.getName().equals("DIDAuthenticate")));
-	    return didAuthenticate;
-	} else if (parser.getName().equals("DIDAuthenticateResponse")) {
-	    DIDAuthenticateResponse response = new DIDAuthenticateResponse();
-	    int eventType;
-	    do {
-		parser.next();
-		eventType = parser.getEventType();
-		if (eventType == XmlPullParser.START_TAG) {
-		    if (parser.getName().equals("Result")) {
-			response.setResult(this.parseResult(parser));
-		    } if (parser.getName().equals("AuthenticationProtocolData")) {
-			response.setAuthenticationProtocolData(this.parseDIDAuthenticationDataType(parser));
-		    }
+	    }
+	} while (!(eventType == XmlPullParser.END_TAG && parser.getName().equals("EstablishChannelResponse")));
+	return establishChannelResponse;
+    }
+
+    private DIDAuthenticate parseDIDAuthenticate(XmlPullParser parser) throws XmlPullParserException, IOException,
+	    ParserConfigurationException, DatatypeConfigurationException {
+	DIDAuthenticate didAuthenticate = new DIDAuthenticate();
+	int eventType;
+	do {
+	    parser.next();
+	    eventType = parser.getEventType();
+	    if (eventType == XmlPullParser.START_TAG) {
+		if (parser.getName().equals("DIDName")) {
+		    didAuthenticate.setDIDName(parser.nextText());
+		} else if (parser.getName().equals("SlotHandle")) {
+		    ConnectionHandleType cht = new ConnectionHandleType();
+		    cht.setSlotHandle(StringUtils.toByteArray(parser.nextText()));
+		    didAuthenticate.setConnectionHandle(cht);
+		} else if (parser.getName().equals("AuthenticationProtocolData")) {
+		    didAuthenticate.setAuthenticationProtocolData(this.parseDIDAuthenticationDataType(parser));
 		}
-	    } while (!(eventType == XmlPullParser.END_TAG && parser.getName().equals("DIDAuthenticateResponse")));
-	    return response;
-	}
+	    }
+	} while (!(eventType == XmlPullParser.END_TAG && parser.getName().equals("DIDAuthenticate")));
+	return didAuthenticate;
+    }
 
-	else if (parser.getName().equals("StartPAOSResponse")) {
-	    StartPAOSResponse startPAOSResponse = new StartPAOSResponse();
-	    int eventType;
-	    do {
-		parser.next();
-		eventType = parser.getEventType();
-		if (eventType == XmlPullParser.START_TAG) {
-		    if (parser.getName().equals("Result")) {
-			startPAOSResponse.setResult(this.parseResult(parser));
-		    }
+    private DIDAuthenticateResponse parseDIDAuthenticateResponse(XmlPullParser parser) throws XmlPullParserException, IOException,
+	    ParserConfigurationException, DatatypeConfigurationException {
+	DIDAuthenticateResponse response = new DIDAuthenticateResponse();
+	int eventType;
+	do {
+	    parser.next();
+	    eventType = parser.getEventType();
+	    if (eventType == XmlPullParser.START_TAG) {
+		if (parser.getName().equals("Result")) {
+		    response.setResult(this.parseResult(parser));
+		} if (parser.getName().equals("AuthenticationProtocolData")) {
+		    response.setAuthenticationProtocolData(this.parseDIDAuthenticationDataType(parser));
+		}
+	    }
+	} while (!(eventType == XmlPullParser.END_TAG && parser.getName().equals("DIDAuthenticateResponse")));
+	return response;
+    }
 
+    private StartPAOSResponse parseStartPAOSResponse(XmlPullParser parser) throws XmlPullParserException, IOException,
+	    ParserConfigurationException, DatatypeConfigurationException {
+	StartPAOSResponse startPAOSResponse = new StartPAOSResponse();
+	int eventType;
+	do {
+	    parser.next();
+	    eventType = parser.getEventType();
+	    if (eventType == XmlPullParser.START_TAG) {
+		if (parser.getName().equals("Result")) {
+		    startPAOSResponse.setResult(this.parseResult(parser));
 		}
-	    } while (!(eventType == XmlPullParser.END_TAG && parser.getName().equals("StartPAOSResponse")));
-	    return startPAOSResponse;
-	} else if (parser.getName().equals("InitializeFramework")) {
-	    InitializeFramework initializeFramework = new InitializeFramework();
-	    return initializeFramework;
-	} else if (parser.getName().equals("InitializeFrameworkResponse")) {
-	    return parseInitFrameworkResponse(parser);
-	} else if (parser.getName().equals("Conclusion")) {
-	    return parseConclusion(parser);
-	} else if (parser.getName().equals("WaitResponse")) {
-	    WaitResponse waitResponse = new WaitResponse();
-	    int eventType;
-	    do {
-		parser.next();
-		eventType = parser.getEventType();
-		if (eventType == XmlPullParser.START_TAG) {
-		    if (parser.getName().equals("Result")) {
-			waitResponse.setResult(this.parseResult(parser));
-		    } else if (parser.getName().equals("IFDEvent")) {
-			waitResponse.getIFDEvent().add(parseIFDStatusType(parser, "IFDEvent"));
-		    } else if (parser.getName().equals("SessionIdentifier")) {
-			waitResponse.setSessionIdentifier(parser.nextText());
-		    }
+
+	    }
+	} while (!(eventType == XmlPullParser.END_TAG && parser.getName().equals("StartPAOSResponse")));
+	return startPAOSResponse;
+    }
+
+    private InitializeFramework parseInitializeFramework(XmlPullParser parser) throws XmlPullParserException, IOException,
+	    ParserConfigurationException, DatatypeConfigurationException {
+	InitializeFramework initializeFramework = new InitializeFramework();
+	return initializeFramework;
+    }
+
+    private WaitResponse parseWaitResponse(XmlPullParser parser) throws XmlPullParserException, IOException,
+	    ParserConfigurationException, DatatypeConfigurationException {
+	WaitResponse waitResponse = new WaitResponse();
+	int eventType;
+	do {
+	    parser.next();
+	    eventType = parser.getEventType();
+	    if (eventType == XmlPullParser.START_TAG) {
+		if (parser.getName().equals("Result")) {
+		    waitResponse.setResult(this.parseResult(parser));
+		} else if (parser.getName().equals("IFDEvent")) {
+		    waitResponse.getIFDEvent().add(parseIFDStatusType(parser, "IFDEvent"));
+		} else if (parser.getName().equals("SessionIdentifier")) {
+		    waitResponse.setSessionIdentifier(parser.nextText());
 		}
-	    } while (!(eventType == XmlPullParser.END_TAG && parser.getName().equals("WaitResponse")));
-	    return waitResponse;
+	    }
+	} while (!(eventType == XmlPullParser.END_TAG && parser.getName().equals("WaitResponse")));
+	return waitResponse;
+    }
 
-	} else if (parser.getName().equals("GetStatusResponse")) {
-	    GetStatusResponse getStatusResponse = new GetStatusResponse();
-	    int eventType;
-	    do {
-		parser.next();
-		eventType = parser.getEventType();
-		if (eventType == XmlPullParser.START_TAG) {
-		    if (parser.getName().equals("Result")) {
-			getStatusResponse.setResult(this.parseResult(parser));
-		    } else if (parser.getName().equals("IFDStatus")) {
-			getStatusResponse.getIFDStatus().add(parseIFDStatusType(parser, "IFDStatus"));
-		    }
+    private GetStatusResponse parseGetStatusResponse(XmlPullParser parser) throws XmlPullParserException, IOException,
+	    ParserConfigurationException, DatatypeConfigurationException {
+	GetStatusResponse getStatusResponse = new GetStatusResponse();
+	int eventType;
+	do {
+	    parser.next();
+	    eventType = parser.getEventType();
+	    if (eventType == XmlPullParser.START_TAG) {
+		if (parser.getName().equals("Result")) {
+		    getStatusResponse.setResult(this.parseResult(parser));
+		} else if (parser.getName().equals("IFDStatus")) {
+		    getStatusResponse.getIFDStatus().add(parseIFDStatusType(parser, "IFDStatus"));
 		}
-	    } while (!(eventType == XmlPullParser.END_TAG && parser.getName().equals("GetStatusResponse")));
-	    return getStatusResponse;
+	    }
+	} while (!(eventType == XmlPullParser.END_TAG && parser.getName().equals("GetStatusResponse")));
+	return getStatusResponse;
+    }
 
-	} else if (parser.getName().equals("ListIFDs")) {
-	    ListIFDs listIFDs = new ListIFDs();
-	    int eventType;
-	    do {
-		parser.next();
-		eventType = parser.getEventType();
-		if (eventType == XmlPullParser.START_TAG) {
-		    if (parser.getName().equals("ContextHandle")) {
-			listIFDs.setContextHandle(StringUtils.toByteArray(parser.nextText()));
-		    }
+    private ListIFDs parseListIFDs(XmlPullParser parser) throws XmlPullParserException, IOException,
+	    ParserConfigurationException, DatatypeConfigurationException {
+	ListIFDs listIFDs = new ListIFDs();
+	int eventType;
+	do {
+	    parser.next();
+	    eventType = parser.getEventType();
+	    if (eventType == XmlPullParser.START_TAG) {
+		if (parser.getName().equals("ContextHandle")) {
+		    listIFDs.setContextHandle(StringUtils.toByteArray(parser.nextText()));
 		}
-	    } while (!(eventType == XmlPullParser.END_TAG && parser.getName().equals("ListIFDs")));
-	    return listIFDs;
-	} else if (parser.getName().equals("GetIFDCapabilities")) {
-	    GetIFDCapabilities getIFDCapabilities = new GetIFDCapabilities();
-	    int eventType;
-	    do {
-		parser.next();
-		eventType = parser.getEventType();
-		if (eventType == XmlPullParser.START_TAG) {
-		    if (parser.getName().equals("ContextHandle")) {
-			getIFDCapabilities.setContextHandle(StringUtils.toByteArray(parser.nextText()));
-		    } else if (parser.getName().equals("IFDName")) {
-			getIFDCapabilities.setIFDName(parser.nextText());
-		    }
+	    }
+	} while (!(eventType == XmlPullParser.END_TAG && parser.getName().equals("ListIFDs")));
+	return listIFDs;
+    }
+
+    private GetIFDCapabilities parseGetIFDCapabilities(XmlPullParser parser) throws XmlPullParserException, IOException,
+	    ParserConfigurationException, DatatypeConfigurationException {
+	GetIFDCapabilities getIFDCapabilities = new GetIFDCapabilities();
+	int eventType;
+	do {
+	    parser.next();
+	    eventType = parser.getEventType();
+	    if (eventType == XmlPullParser.START_TAG) {
+		if (parser.getName().equals("ContextHandle")) {
+		    getIFDCapabilities.setContextHandle(StringUtils.toByteArray(parser.nextText()));
+		} else if (parser.getName().equals("IFDName")) {
+		    getIFDCapabilities.setIFDName(parser.nextText());
 		}
-	    } while (! (eventType == XmlPullParser.END_TAG && parser.getName().equals("GetIFDCapabilities")));
-	    return getIFDCapabilities;
-	} else if (parser.getName().equals("GetIFDCapabilitiesResponse")) {
-	    GetIFDCapabilitiesResponse resp = new GetIFDCapabilitiesResponse();
-	    int eventType;
-	    do {
-		parser.next();
-		eventType = parser.getEventType();
-		if (eventType == XmlPullParser.START_TAG) {
-		    if (parser.getName().equals("Profile")) {
-			resp.setProfile(parser.nextText());
-		    } else if (parser.getName().equals("RequestID")) {
-			resp.setRequestID(parser.nextText());
-		    } else if (parser.getName().equals("Result")) {
-			resp.setResult(this.parseResult(parser));
-		    } else if (parser.getName().equals("GetIFDCapabilitiesResponse")) {
-			resp.setIFDCapabilities(parseIFDCapabilitiesType(parser));
-		    }
+	    }
+	} while (! (eventType == XmlPullParser.END_TAG && parser.getName().equals("GetIFDCapabilities")));
+	return getIFDCapabilities;
+    }
+
+    private GetIFDCapabilitiesResponse parseGetIFDCapabilitiesResponse(XmlPullParser parser) throws XmlPullParserException, IOException,
+	    ParserConfigurationException, DatatypeConfigurationException {
+	GetIFDCapabilitiesResponse resp = new GetIFDCapabilitiesResponse();
+	int eventType;
+	do {
+	    parser.next();
+	    eventType = parser.getEventType();
+	    if (eventType == XmlPullParser.START_TAG) {
+		if (parser.getName().equals("Profile")) {
+		    resp.setProfile(parser.nextText());
+		} else if (parser.getName().equals("RequestID")) {
+		    resp.setRequestID(parser.nextText());
+		} else if (parser.getName().equals("Result")) {
+		    resp.setResult(this.parseResult(parser));
+		} else if (parser.getName().equals("GetIFDCapabilitiesResponse")) {
+		    resp.setIFDCapabilities(parseIFDCapabilitiesType(parser));
 		}
-	    } while (! (eventType == XmlPullParser.END_TAG && parser.getName().equals("GetIFDCapabilitiesResponse")));
-	    return resp;
+	    }
+	} while (! (eventType == XmlPullParser.END_TAG && parser.getName().equals("GetIFDCapabilitiesResponse")));
+	return resp;
+    }
 
-	} else if (parser.getName().equals("BeginTransaction")) {
-	    BeginTransaction trans = new BeginTransaction();
-	    int eventType;
-	    do {
-		parser.next();
-		eventType = parser.getEventType();
-		if (eventType == XmlPullParser.START_TAG) {
-		    if (parser.getName().equals("SlotHandle")) {
-			trans.setSlotHandle(StringUtils.toByteArray(parser.nextText()));
-		    }
+    private BeginTransaction parseBeginTransaction(XmlPullParser parser) throws XmlPullParserException, IOException,
+	    ParserConfigurationException, DatatypeConfigurationException {
+	BeginTransaction trans = new BeginTransaction();
+	int eventType;
+	do {
+	    parser.next();
+	    eventType = parser.getEventType();
+	    if (eventType == XmlPullParser.START_TAG) {
+		if (parser.getName().equals("SlotHandle")) {
+		    trans.setSlotHandle(StringUtils.toByteArray(parser.nextText()));
 		}
-	    } while (! (eventType == XmlPullParser.END_TAG && parser.getName().equals("BeginTransaction")));
-	    return trans;
-	} else if (parser.getName().equals("BeginTransactionResponse")) {
-	    BeginTransactionResponse response = new BeginTransactionResponse();
-	    int eventType;
-	    do {
-		parser.next();
-		eventType = parser.getEventType();
-		if (eventType == XmlPullParser.START_TAG) {
-		    if (parser.getName().equals("Profile")) {
-			response.setProfile(parser.nextText());
-		    } else if (parser.getName().equals("RequestID")) {
-			response.setRequestID(parser.nextText());
-		    } else if (parser.getName().equals("Result")) {
-			response.setResult(this.parseResult(parser));
-		    }
+	    }
+	} while (! (eventType == XmlPullParser.END_TAG && parser.getName().equals("BeginTransaction")));
+	return trans;
+    }
+
+    private BeginTransactionResponse parseBeginTransactionResponse(XmlPullParser parser) throws XmlPullParserException, IOException,
+	    ParserConfigurationException, DatatypeConfigurationException {
+	BeginTransactionResponse response = new BeginTransactionResponse();
+	int eventType;
+	do {
+	    parser.next();
+	    eventType = parser.getEventType();
+	    if (eventType == XmlPullParser.START_TAG) {
+		if (parser.getName().equals("Profile")) {
+		    response.setProfile(parser.nextText());
+		} else if (parser.getName().equals("RequestID")) {
+		    response.setRequestID(parser.nextText());
+		} else if (parser.getName().equals("Result")) {
+		    response.setResult(this.parseResult(parser));
 		}
-	    } while (! (eventType == XmlPullParser.END_TAG && parser.getName().equals("BeginTransactionResponse")));
-	    return response;
+	    }
+	} while (! (eventType == XmlPullParser.END_TAG && parser.getName().equals("BeginTransactionResponse")));
+	return response;
+    }
 
-	} else if (parser.getName().equals("EndTransaction")) {
-	    EndTransaction end = new EndTransaction();
-	    int eventType;
-	    do {
-		parser.next();
-		eventType = parser.getEventType();
-		if (eventType == XmlPullParser.START_TAG) {
-		    if (parser.getName().equals("SlotHandle")) {
-			end.setSlotHandle(StringUtils.toByteArray(parser.nextText()));
-		    }
+    private EndTransaction parseEndTransaction(XmlPullParser parser) throws XmlPullParserException, IOException,
+	    ParserConfigurationException, DatatypeConfigurationException {
+	EndTransaction end = new EndTransaction();
+	int eventType;
+	do {
+	    parser.next();
+	    eventType = parser.getEventType();
+	    if (eventType == XmlPullParser.START_TAG) {
+		if (parser.getName().equals("SlotHandle")) {
+		    end.setSlotHandle(StringUtils.toByteArray(parser.nextText()));
 		}
-	    } while (! (eventType == XmlPullParser.END_TAG && parser.getName().equals("EndTransaction")));
-	    return end;
-	} else if (parser.getName().equals("EndTransactionResponse")) {
-	    EndTransactionResponse response = new EndTransactionResponse();
-	    int eventType;
-	    do {
-		parser.next();
-		eventType = parser.getEventType();
-		if (eventType == XmlPullParser.START_TAG) {
-		    if (parser.getName().equals("Profile")) {
-			response.setProfile(parser.nextText());
-		    } else if (parser.getName().equals("RequestID")) {
-			response.setRequestID(parser.nextText());
-		    } else if (parser.getName().equals("Result")) {
-			response.setResult(this.parseResult(parser));
-		    }
+	    }
+	} while (! (eventType == XmlPullParser.END_TAG && parser.getName().equals("EndTransaction")));
+	return end;
+    }
+
+    private EndTransactionResponse parseEndTransactionResponse(XmlPullParser parser) throws XmlPullParserException, IOException,
+	    ParserConfigurationException, DatatypeConfigurationException {
+	EndTransactionResponse response = new EndTransactionResponse();
+	int eventType;
+	do {
+	    parser.next();
+	    eventType = parser.getEventType();
+	    if (eventType == XmlPullParser.START_TAG) {
+		if (parser.getName().equals("Profile")) {
+		    response.setProfile(parser.nextText());
+		} else if (parser.getName().equals("RequestID")) {
+		    response.setRequestID(parser.nextText());
+		} else if (parser.getName().equals("Result")) {
+		    response.setResult(this.parseResult(parser));
 		}
-	    } while (! (eventType == XmlPullParser.END_TAG && parser.getName().equals("EndTransactionResponse")));
-	    return response;
+	    }
+	} while (! (eventType == XmlPullParser.END_TAG && parser.getName().equals("EndTransactionResponse")));
+	return response;
+    }
 
-	} else if (parser.getName().equals("CardApplicationPath")) {
-	    CardApplicationPath path = new CardApplicationPath();
-	    int eventType;
-	    do {
-		parser.next();
-		eventType = parser.getEventType();
-		String name = parser.getName();
-		if (eventType == XmlPullParser.START_TAG) {
-		    if (name.equals("CardAppPathRequest")) {
-			path.setCardAppPathRequest(parseCardApplicationPath(parser));
-		    }
+    private CardApplicationPath parseCardApplicationPathRequest(XmlPullParser parser) throws XmlPullParserException, IOException,
+	    ParserConfigurationException, DatatypeConfigurationException {
+	CardApplicationPath path = new CardApplicationPath();
+	int eventType;
+	do {
+	    parser.next();
+	    eventType = parser.getEventType();
+	    String name = parser.getName();
+	    if (eventType == XmlPullParser.START_TAG) {
+		if (name.equals("CardAppPathRequest")) {
+		    path.setCardAppPathRequest(parseCardApplicationPath(parser));
 		}
-	    } while (! (eventType == XmlPullParser.END_TAG && parser.getName().equals("CardApplicationPath")));
-	    return path;
-	} else if (parser.getName().equals("CardAppPathRequest") || parser.getName().equals("CardApplicationPathResult")) {
-	    CardApplicationPathType type = parseCardApplicationPath(parser);
-	    return type;
-	} else if (parser.getName().equals("CardApplicationPathResponse")) {
-	    CardApplicationPathResponse resp = new CardApplicationPathResponse();
-	    int eventType;
-	    do {
-		parser.next();
-		eventType = parser.getEventType();
-		if (eventType == XmlPullParser.START_TAG) {
-		    if (parser.getName().equals("CardAppPathResultSet")) {
-			resp.setCardAppPathResultSet((CardApplicationPathResponse.CardAppPathResultSet) parse(parser));
-		    }
+	    }
+	} while (! (eventType == XmlPullParser.END_TAG && parser.getName().equals("CardApplicationPath")));
+	return path;
+    }
+
+    private CardApplicationPathResponse parseCardApplicationPathResponse(XmlPullParser parser) throws XmlPullParserException, IOException,
+	    ParserConfigurationException, DatatypeConfigurationException {
+	CardApplicationPathResponse resp = new CardApplicationPathResponse();
+	int eventType;
+	do {
+	    parser.next();
+	    eventType = parser.getEventType();
+	    if (eventType == XmlPullParser.START_TAG) {
+		if (parser.getName().equals("CardAppPathResultSet")) {
+		    resp.setCardAppPathResultSet((CardApplicationPathResponse.CardAppPathResultSet) parse(parser));
 		}
-	    } while (! (eventType == XmlPullParser.END_TAG && parser.getName().equals("CardApplicationPathResponse")));
-	    return resp;
-	} else if (parser.getName().equals("CardAppPathResultSet")) {
-	    CardApplicationPathResponse.CardAppPathResultSet result = new CardApplicationPathResponse.CardAppPathResultSet();
-	    int eventType;
-	    do {
-		parser.next();
-		eventType = parser.getEventType();
-		if (eventType == XmlPullParser.START_TAG) {
-		    if (parser.getName().equals("CardApplicationPathResult")) {
-			result.getCardApplicationPathResult().add(parseCardApplicationPath(parser));
-		    }
+	    }
+	} while (! (eventType == XmlPullParser.END_TAG && parser.getName().equals("CardApplicationPathResponse")));
+	return resp;
+    }
+
+    private CardApplicationPathResponse.CardAppPathResultSet parseCardAppPathResultSet(XmlPullParser parser) throws XmlPullParserException, IOException,
+	    ParserConfigurationException, DatatypeConfigurationException {
+	CardApplicationPathResponse.CardAppPathResultSet result = new CardApplicationPathResponse.CardAppPathResultSet();
+	int eventType;
+	do {
+	    parser.next();
+	    eventType = parser.getEventType();
+	    if (eventType == XmlPullParser.START_TAG) {
+		if (parser.getName().equals("CardApplicationPathResult")) {
+		    result.getCardApplicationPathResult().add(parseCardApplicationPath(parser));
 		}
-	    } while (! (eventType == XmlPullParser.END_TAG && parser.getName().equals("CardAppPathResultSet")));
-	    return result;
-	} else if (parser.getName().equals("CardApplicationConnect")) {
-	    CardApplicationConnect result = new CardApplicationConnect();
-	    int eventType;
-	    do {
-		parser.next();
-		eventType = parser.getEventType();
-		if (eventType == XmlPullParser.START_TAG) {
-		    if (parser.getName().equals("CardApplicationPath")) {
-			result.setCardApplicationPath(parseCardApplicationPath(parser));
-		    } else if (parser.getName().equals("Output")) {
-			result.setOutput(parseOutputInfoType(parser));
-		    } else if (parser.getName().equals("ExclusiveUse")) {
-			result.setExclusiveUse(Boolean.getBoolean(parser.nextText()));
-		    }
+	    }
+	} while (! (eventType == XmlPullParser.END_TAG && parser.getName().equals("CardAppPathResultSet")));
+	return result;
+    }
+
+    private CardApplicationConnect parseCardApplicationConnect(XmlPullParser parser) throws XmlPullParserException, IOException,
+	    ParserConfigurationException, DatatypeConfigurationException {
+	CardApplicationConnect result = new CardApplicationConnect();
+	int eventType;
+	do {
+	    parser.next();
+	    eventType = parser.getEventType();
+	    if (eventType == XmlPullParser.START_TAG) {
+		if (parser.getName().equals("CardApplicationPath")) {
+		    result.setCardApplicationPath(parseCardApplicationPath(parser));
+		} else if (parser.getName().equals("Output")) {
+		    result.setOutput(parseOutputInfoType(parser));
+		} else if (parser.getName().equals("ExclusiveUse")) {
+		    result.setExclusiveUse(Boolean.getBoolean(parser.nextText()));
+		}
+	    }
+	} while (! (eventType == XmlPullParser.END_TAG && parser.getName().equals("CardApplicationConnect")));
+	return result;
+    }
+
+    private CardApplicationConnectResponse parseCardApplicationConnectResponse(XmlPullParser parser) throws XmlPullParserException, IOException,
+	    ParserConfigurationException, DatatypeConfigurationException {
+	CardApplicationConnectResponse result = new CardApplicationConnectResponse();
+	int eventType;
+	do {
+	    parser.next();
+	    eventType = parser.getEventType();
+	    if (eventType == XmlPullParser.START_TAG) {
+		if (parser.getName().equals("Profile")) {
+		    result.setProfile(parser.nextText());
+		} else if (parser.getName().equals("RequestID")) {
+		    result.setRequestID(parser.nextText());
+		} else if (parser.getName().equals("Result")) {
+		    result.setResult(this.parseResult(parser));
+		} else if (parser.getName().equals("ConnectionHandle")) {
+		    result.setConnectionHandle(parseConnectionHandle(parser));
 		}
-	    } while (! (eventType == XmlPullParser.END_TAG && parser.getName().equals("CardApplicationConnect")));
-	    return result;
-	} else if (parser.getName().equals("CardApplicationConnectResponse")) {
-	    CardApplicationConnectResponse result = new CardApplicationConnectResponse();
-	    int eventType;
-	    do {
-		parser.next();
-		eventType = parser.getEventType();
-		if (eventType == XmlPullParser.START_TAG) {
-		    if (parser.getName().equals("Profile")) {
-			result.setProfile(parser.nextText());
-		    } else if (parser.getName().equals("RequestID")) {
-			result.setRequestID(parser.nextText());
-		    } else if (parser.getName().equals("Result")) {
-			result.setResult(this.parseResult(parser));
-		    } else if (parser.getName().equals("ConnectionHandle")) {
-			result.setConnectionHandle(parseConnectionHandle(parser));
-		    }
+	    }
+	} while (! (eventType == XmlPullParser.END_TAG && parser.getName().equals("CardApplicationConnectResponse")));
+	return result;
+    }
+
+    private CardApplicationDisconnect parseCardApplicationDisconnect(XmlPullParser parser) throws XmlPullParserException, IOException,
+	    ParserConfigurationException, DatatypeConfigurationException {
+	CardApplicationDisconnect result = new CardApplicationDisconnect();
+	int eventType;
+	do {
+	    parser.next();
+	    eventType = parser.getEventType();
+	    if (eventType == XmlPullParser.START_TAG) {
+		if (parser.getName().equals("ConnectionHandle")) {
+		    result.setConnectionHandle(parseConnectionHandle(parser));
+		} else if (parser.getName().equals("Action")) {
+		    result.setAction(ActionType.fromValue(parser.nextText()));
 		}
-	    } while (! (eventType == XmlPullParser.END_TAG && parser.getName().equals("CardApplicationConnectResponse")));
-	    return result;
-	} else if (parser.getName().equals("CardApplicationDisconnect")) {
-	    CardApplicationDisconnect result = new CardApplicationDisconnect();
-	    int eventType;
-	    do {
-		parser.next();
-		eventType = parser.getEventType();
-		if (eventType == XmlPullParser.START_TAG) {
-		    if (parser.getName().equals("ConnectionHandle")) {
-			result.setConnectionHandle(parseConnectionHandle(parser));
-		    } else if (parser.getName().equals("Action")) {
-			result.setAction(ActionType.fromValue(parser.nextText()));
-		    }
+	    }
+	} while (! (eventType == XmlPullParser.END_TAG && parser.getName().equals("CardApplicationDisconnect")));
+	return result;
+    }
+
+    private CardApplicationDisconnectResponse parseCardApplicationDisconnectResponse(XmlPullParser parser) throws XmlPullParserException, IOException,
+	    ParserConfigurationException, DatatypeConfigurationException {
+	CardApplicationDisconnectResponse result = new CardApplicationDisconnectResponse();
+	int eventType;
+	do {
+	    parser.next();
+	    eventType = parser.getEventType();
+	    if (eventType == XmlPullParser.START_TAG) {
+		if (parser.getName().equals("Profile")) {
+		    result.setProfile(parser.nextText());
+		} else if (parser.getName().equals("RequestID")) {
+		    result.setRequestID(parser.nextText());
+		} else if (parser.getName().equals("Result")) {
+		    result.setResult(this.parseResult(parser));
 		}
-	    } while (! (eventType == XmlPullParser.END_TAG && parser.getName().equals("CardApplicationDisconnect")));
-	    return result;
-	} else if (parser.getName().equals("CardApplicationDisconnectResponse")) {
-	    CardApplicationDisconnectResponse result = new CardApplicationDisconnectResponse();
-	    int eventType;
-	    do {
-		parser.next();
-		eventType = parser.getEventType();
-		if (eventType == XmlPullParser.START_TAG) {
-		    if (parser.getName().equals("Profile")) {
-			result.setProfile(parser.nextText());
-		    } else if (parser.getName().equals("RequestID")) {
-			result.setRequestID(parser.nextText());
-		    } else if (parser.getName().equals("Result")) {
-			result.setResult(this.parseResult(parser));
-		    }
+	    }
+	} while (! (eventType == XmlPullParser.END_TAG && parser.getName().equals("CardApplicationDisconnectResponse")));
+	return result;
+    }
+
+    private GetRecognitionTreeResponse parseGetRecognitionTreeResponse(XmlPullParser parser) throws XmlPullParserException, IOException,
+	    ParserConfigurationException, DatatypeConfigurationException {
+	GetRecognitionTreeResponse resp = new GetRecognitionTreeResponse();
+	RecognitionTree recTree = new RecognitionTree();
+	int eventType;
+	do {
+	    parser.next();
+	    eventType = parser.getEventType();
+	    if (eventType == XmlPullParser.START_TAG) {
+		if (parser.getName().equals("Result")) {
+		    resp.setResult(this.parseResult(parser));
+		} else if (parser.getName().equals("CardCall")) {
+		    recTree.getCardCall().add(this.parseCardCall(parser));
 		}
-	    } while (! (eventType == XmlPullParser.END_TAG && parser.getName().equals("CardApplicationDisconnectResponse")));
-	    return result;
-	} else if (parser.getName().equals("GetRecognitionTreeResponse")) {
-	    GetRecognitionTreeResponse resp = new GetRecognitionTreeResponse();
-	    RecognitionTree recTree = new RecognitionTree();
-	    int eventType;
-	    do {
-		parser.next();
-		eventType = parser.getEventType();
-		if (eventType == XmlPullParser.START_TAG) {
-		    if (parser.getName().equals("Result")) {
-			resp.setResult(this.parseResult(parser));
-		    } else if (parser.getName().equals("CardCall")) {
-			recTree.getCardCall().add(this.parseCardCall(parser));
-		    }
-		} else if (eventType == XmlPullParser.END_TAG) {
-		    if (parser.getName().equals("CardCall")) {
+	    } else if (eventType == XmlPullParser.END_TAG) {
+		if (parser.getName().equals("CardCall")) {
 
-		    }
 		}
-	    } while (!(eventType == XmlPullParser.END_TAG && parser.getName().equals("GetRecognitionTreeResponse")));
-	    resp.setRecognitionTree(recTree);
-	    return resp;
+	    }
+	} while (!(eventType == XmlPullParser.END_TAG && parser.getName().equals("GetRecognitionTreeResponse")));
+	resp.setRecognitionTree(recTree);
+	return resp;
+    }
 
-	} else if (parser.getName().equals("EstablishContext")) {
-	    EstablishContext establishContext = new EstablishContext();
-	    return establishContext;
+    private EstablishContext parseEstablishContext(XmlPullParser parser) throws XmlPullParserException, IOException,
+	    ParserConfigurationException, DatatypeConfigurationException {
+	EstablishContext establishContext = new EstablishContext();
+	return establishContext;
+    }
 
-	} else if (parser.getName().equals("EstablishContextResponse")) {
-	    EstablishContextResponse establishContextResponse = new EstablishContextResponse();
-	    int eventType;
-	    do {
-		parser.next();
-		eventType = parser.getEventType();
-		if (eventType == XmlPullParser.START_TAG) {
-		    if (parser.getName().equals("Result")) {
-			establishContextResponse.setResult(this.parseResult(parser));
-		    } else if (parser.getName().equals("ContextHandle")) {
-			establishContextResponse.setContextHandle(StringUtils.toByteArray(parser.nextText()));
-		    }
+    private EstablishContextResponse parseEstablishContextResponse(XmlPullParser parser) throws XmlPullParserException, IOException,
+	    ParserConfigurationException, DatatypeConfigurationException {
+	EstablishContextResponse establishContextResponse = new EstablishContextResponse();
+	int eventType;
+	do {
+	    parser.next();
+	    eventType = parser.getEventType();
+	    if (eventType == XmlPullParser.START_TAG) {
+		if (parser.getName().equals("Result")) {
+		    establishContextResponse.setResult(this.parseResult(parser));
+		} else if (parser.getName().equals("ContextHandle")) {
+		    establishContextResponse.setContextHandle(StringUtils.toByteArray(parser.nextText()));
 		}
-	    } while (!(eventType == XmlPullParser.END_TAG && parser.getName().equals("EstablishContextResponse")));
-	    return establishContextResponse;
+	    }
+	} while (!(eventType == XmlPullParser.END_TAG && parser.getName().equals("EstablishContextResponse")));
+	return establishContextResponse;
+    }
 
-	} else if (parser.getName().equals("ListIFDsResponse")) {
-	    ListIFDsResponse listIFDsResponse = new ListIFDsResponse();
-	    int eventType;
-	    do {
-		parser.next();
-		eventType = parser.getEventType();
-		if (eventType == XmlPullParser.START_TAG) {
-		    if (parser.getName().equals("Result")) {
-			listIFDsResponse.setResult(this.parseResult(parser));
-		    } else if (parser.getName().equals("IFDName")) {
-			listIFDsResponse.getIFDName().add(parser.nextText());
-		    }
+    private ListIFDsResponse parseListIFDsResponse(XmlPullParser parser) throws XmlPullParserException, IOException,
+	    ParserConfigurationException, DatatypeConfigurationException {
+	ListIFDsResponse listIFDsResponse = new ListIFDsResponse();
+	int eventType;
+	do {
+	    parser.next();
+	    eventType = parser.getEventType();
+	    if (eventType == XmlPullParser.START_TAG) {
+		if (parser.getName().equals("Result")) {
+		    listIFDsResponse.setResult(this.parseResult(parser));
+		} else if (parser.getName().equals("IFDName")) {
+		    listIFDsResponse.getIFDName().add(parser.nextText());
 		}
-	    } while (!(eventType == XmlPullParser.END_TAG && parser.getName().equals("ListIFDsResponse")));
-	    return listIFDsResponse;
+	    }
+	} while (!(eventType == XmlPullParser.END_TAG && parser.getName().equals("ListIFDsResponse")));
+	return listIFDsResponse;
+    }
 
-	} else if (parser.getName().equals("ConnectResponse")) {
-	    ConnectResponse connectResponse = new ConnectResponse();
-	    int eventType;
-	    do {
-		parser.next();
-		eventType = parser.getEventType();
-		if (eventType == XmlPullParser.START_TAG) {
-		    if (parser.getName().equals("Result")) {
-			connectResponse.setResult(this.parseResult(parser));
-		    } else if (parser.getName().equals("SlotHandle")) {
-			connectResponse.setSlotHandle(StringUtils.toByteArray(parser.nextText()));
-		    }
+    private ConnectResponse parseConnectResponse(XmlPullParser parser) throws XmlPullParserException, IOException,
+	    ParserConfigurationException, DatatypeConfigurationException {
+	ConnectResponse connectResponse = new ConnectResponse();
+	int eventType;
+	do {
+	    parser.next();
+	    eventType = parser.getEventType();
+	    if (eventType == XmlPullParser.START_TAG) {
+		if (parser.getName().equals("Result")) {
+		    connectResponse.setResult(this.parseResult(parser));
+		} else if (parser.getName().equals("SlotHandle")) {
+		    connectResponse.setSlotHandle(StringUtils.toByteArray(parser.nextText()));
 		}
-	    } while (!(eventType == XmlPullParser.END_TAG && parser.getName().equals("ConnectResponse")));
-	    return connectResponse;
+	    }
+	} while (!(eventType == XmlPullParser.END_TAG && parser.getName().equals("ConnectResponse")));
+	return connectResponse;
+    }
 
-	} else if (parser.getName().equals("Connect")) {
-	    Connect c = new Connect();
-	    int eventType;
-	    do {
-		parser.next();
-		eventType = parser.getEventType();
-		if (eventType == XmlPullParser.START_TAG) {
-		    if (parser.getName().equals("IFDName")) {
-			c.setIFDName(parser.nextText());
-		    } else if (parser.getName().equals("ContextHandle")) {
-			c.setContextHandle(StringUtils.toByteArray(parser.nextText()));
-		    } else if (parser.getName().equals("Slot")) {
-			c.setSlot(new BigInteger(parser.nextText()));
-		    } // TODO exclusive
-		}
-	    } while (!(eventType == XmlPullParser.END_TAG && parser.getName().equals("Connect")));
-	    return c;
-	} else if (parser.getName().equals("Disconnect")) {
-	    Disconnect d = new Disconnect();
-	    int eventType;
-	    do {
-		parser.next();
-		eventType = parser.getEventType();
-		if (eventType == XmlPullParser.START_TAG) {
-		    if (parser.getName().equals("SlotHandle")) {
-			d.setSlotHandle(StringUtils.toByteArray(parser.nextText()));
-		    } else if (parser.getName().equals("Action")) {
-			d.setAction(ActionType.fromValue(parser.nextText()));
-		    }
+    private Connect parseConnect(XmlPullParser parser) throws XmlPullParserException, IOException,
+	    ParserConfigurationException, DatatypeConfigurationException {
+	Connect c = new Connect();
+	int eventType;
+	do {
+	    parser.next();
+	    eventType = parser.getEventType();
+	    if (eventType == XmlPullParser.START_TAG) {
+		if (parser.getName().equals("IFDName")) {
+		    c.setIFDName(parser.nextText());
+		} else if (parser.getName().equals("ContextHandle")) {
+		    c.setContextHandle(StringUtils.toByteArray(parser.nextText()));
+		} else if (parser.getName().equals("Slot")) {
+		    c.setSlot(new BigInteger(parser.nextText()));
+		} // TODO exclusive
+	    }
+	} while (!(eventType == XmlPullParser.END_TAG && parser.getName().equals("Connect")));
+	return c;
+    }
+
+    private Disconnect parseDisconnect(XmlPullParser parser) throws XmlPullParserException, IOException,
+	    ParserConfigurationException, DatatypeConfigurationException {
+	Disconnect d = new Disconnect();
+	int eventType;
+	do {
+	    parser.next();
+	    eventType = parser.getEventType();
+	    if (eventType == XmlPullParser.START_TAG) {
+		if (parser.getName().equals("SlotHandle")) {
+		    d.setSlotHandle(StringUtils.toByteArray(parser.nextText()));
+		} else if (parser.getName().equals("Action")) {
+		    d.setAction(ActionType.fromValue(parser.nextText()));
 		}
-	    } while (!(eventType == XmlPullParser.END_TAG && parser.getName().equals("Disconnect")));
-	    return d;
-	} else if (parser.getName().equals("DisconnectResponse")) {
-	    DisconnectResponse response = new DisconnectResponse();
-	    int eventType;
-	    do {
-		parser.next();
-		eventType = parser.getEventType();
-		if (eventType == XmlPullParser.START_TAG) {
-		    if (parser.getName().equals("Profile")) {
-			response.setProfile(parser.nextText());
-		    } else if (parser.getName().equals("RequestID")) {
-			response.setRequestID(parser.nextText());
-		    } else if (parser.getName().equals("Result")) {
-			response.setResult(this.parseResult(parser));
-		    }
+	    }
+	} while (!(eventType == XmlPullParser.END_TAG && parser.getName().equals("Disconnect")));
+	return d;
+    }
+
+    private DisconnectResponse parseDisconnectResponse(XmlPullParser parser) throws XmlPullParserException, IOException,
+	    ParserConfigurationException, DatatypeConfigurationException {
+	DisconnectResponse response = new DisconnectResponse();
+	int eventType;
+	do {
+	    parser.next();
+	    eventType = parser.getEventType();
+	    if (eventType == XmlPullParser.START_TAG) {
+		if (parser.getName().equals("Profile")) {
+		    response.setProfile(parser.nextText());
+		} else if (parser.getName().equals("RequestID")) {
+		    response.setRequestID(parser.nextText());
+		} else if (parser.getName().equals("Result")) {
+		    response.setResult(this.parseResult(parser));
 		}
-	    } while (! (eventType == XmlPullParser.END_TAG && parser.getName().equals("DisconnectResponse")));
-	    return response;
+	    }
+	} while (! (eventType == XmlPullParser.END_TAG && parser.getName().equals("DisconnectResponse")));
+	return response;
+    }
 
-	} else if (parser.getName().equals("Transmit")) {
-	    Transmit t = new Transmit();
-	    int eventType;
-	    do {
-		parser.next();
-		eventType = parser.getEventType();
-		if (eventType == XmlPullParser.START_TAG) {
-		    if (parser.getName().equals("InputAPDUInfo")) {
-			t.getInputAPDUInfo().add(this.parseInputAPDUInfo(parser));
-		    } else if (parser.getName().equals("SlotHandle")) {
-			t.setSlotHandle(StringUtils.toByteArray(parser.nextText()));
-		    }
+    private Transmit parseTransmit(XmlPullParser parser) throws XmlPullParserException, IOException,
+	    ParserConfigurationException, DatatypeConfigurationException {
+	Transmit t = new Transmit();
+	int eventType;
+	do {
+	    parser.next();
+	    eventType = parser.getEventType();
+	    if (eventType == XmlPullParser.START_TAG) {
+		if (parser.getName().equals("InputAPDUInfo")) {
+		    t.getInputAPDUInfo().add(this.parseInputAPDUInfo(parser));
+		} else if (parser.getName().equals("SlotHandle")) {
+		    t.setSlotHandle(StringUtils.toByteArray(parser.nextText()));
 		}
-	    } while (!(eventType == XmlPullParser.END_TAG && parser.getName().equals("Transmit")));
-	    return t;
+	    }
+	} while (!(eventType == XmlPullParser.END_TAG && parser.getName().equals("Transmit")));
+	return t;
+    }
 
-	} else if (parser.getName().equals("TransmitResponse")) {
-	    TransmitResponse transmitResponse = new TransmitResponse();
-	    int eventType;
-	    do {
-		parser.next();
-		eventType = parser.getEventType();
-		if (eventType == XmlPullParser.START_TAG) {
-		    if (parser.getName().equals("Result")) {
-			transmitResponse.setResult(this.parseResult(parser));
-		    } else if (parser.getName().equals("OutputAPDU")) {
-			transmitResponse.getOutputAPDU().add(StringUtils.toByteArray(parser.nextText()));
-		    }
+    private TransmitResponse parseTransmitResponse(XmlPullParser parser) throws XmlPullParserException, IOException,
+	    ParserConfigurationException, DatatypeConfigurationException {
+	TransmitResponse transmitResponse = new TransmitResponse();
+	int eventType;
+	do {
+	    parser.next();
+	    eventType = parser.getEventType();
+	    if (eventType == XmlPullParser.START_TAG) {
+		if (parser.getName().equals("Result")) {
+		    transmitResponse.setResult(this.parseResult(parser));
+		} else if (parser.getName().equals("OutputAPDU")) {
+		    transmitResponse.getOutputAPDU().add(StringUtils.toByteArray(parser.nextText()));
 		}
-	    } while (!(eventType == XmlPullParser.END_TAG && parser.getName().equals("TransmitResponse")));
-	    return transmitResponse;
-	} else if (parser.getName().equals("CardInfo")) {
-	    // TODO CardIdentification and CardCapabilities are ignored
-	    CardInfo cardInfo = new CardInfo();
-	    ApplicationCapabilitiesType applicationCapabilities = new ApplicationCapabilitiesType();
-	    int eventType;
-	    do {
-		parser.next();
-		eventType = parser.getEventType();
-		if (eventType == XmlPullParser.START_TAG) {
-		    if (parser.getName().equals("ObjectIdentifier")) {
-			CardTypeType cardType = new CardTypeType();
-			cardType.setObjectIdentifier(parser.nextText());
-			cardInfo.setCardType(cardType);
-		    } else if (parser.getName().equals("ImplicitlySelectedApplication")) {
-			try {
-			    // TODO iso:Path, see CardInfo_ecard-AT_0-9-0
-			    String selectedApplication = parser.nextText();
-			    applicationCapabilities.setImplicitlySelectedApplication(StringUtils.toByteArray(selectedApplication));
-			} catch (XmlPullParserException ex) {
-			}
-		    } else if (parser.getName().equals("CardApplication")) {
-			applicationCapabilities.getCardApplication().add(this.parseCardApplication(parser));
-		    } else if (parser.getName().equals("CardTypeName")) {
-			InternationalStringType internationalString = new InternationalStringType();
-			String lang = parser.getAttributeValue("http://www.w3.org/XML/1998/namespace", "lang");
-			internationalString.setLang(lang);
-			internationalString.setValue(parser.nextText());
-			cardInfo.getCardType().getCardTypeName().add(internationalString);
-		    } else if (parser.getName().equals("SpecificationBodyOrIssuer")) {
-			cardInfo.getCardType().setSpecificationBodyOrIssuer(parser.nextText());
-		    } else if (parser.getName().equals("Status")) {
-			cardInfo.getCardType().setStatus(parser.nextText());
-		    } else if (parser.getName().equals("Date")) {
-			// currently not working; see http://code.google.com/p/android/issues/detail?id=14379
-			/*String text = parser.nextText();
-			XMLGregorianCalendar date = DatatypeFactory.newInstance().newXMLGregorianCalendar(text);
-			cardInfo.getCardType().setDate(date);*/
-		    } else if (parser.getName().equals("Version")) {
-			cardInfo.getCardType().setVersion(this.parseVersion(parser));
+	    }
+	} while (!(eventType == XmlPullParser.END_TAG && parser.getName().equals("TransmitResponse")));
+	return transmitResponse;
+    }
+
+    private CardInfo parseCardInfo(XmlPullParser parser) throws XmlPullParserException, IOException,
+	    ParserConfigurationException, DatatypeConfigurationException {
+	// TODO CardIdentification and CardCapabilities are ignored
+	CardInfo cardInfo = new CardInfo();
+	ApplicationCapabilitiesType applicationCapabilities = new ApplicationCapabilitiesType();
+	int eventType;
+	do {
+	    parser.next();
+	    eventType = parser.getEventType();
+	    if (eventType == XmlPullParser.START_TAG) {
+		if (parser.getName().equals("ObjectIdentifier")) {
+		    CardTypeType cardType = new CardTypeType();
+		    cardType.setObjectIdentifier(parser.nextText());
+		    cardInfo.setCardType(cardType);
+		} else if (parser.getName().equals("ImplicitlySelectedApplication")) {
+		    try {
+			// TODO iso:Path, see CardInfo_ecard-AT_0-9-0
+			String selectedApplication = parser.nextText();
+			applicationCapabilities.setImplicitlySelectedApplication(StringUtils.toByteArray(selectedApplication));
+		    } catch (XmlPullParserException ex) {
 		    }
+		} else if (parser.getName().equals("CardApplication")) {
+		    applicationCapabilities.getCardApplication().add(this.parseCardApplication(parser));
+		} else if (parser.getName().equals("CardTypeName")) {
+		    InternationalStringType internationalString = new InternationalStringType();
+		    String lang = parser.getAttributeValue("http://www.w3.org/XML/1998/namespace", "lang");
+		    internationalString.setLang(lang);
+		    internationalString.setValue(parser.nextText());
+		    cardInfo.getCardType().getCardTypeName().add(internationalString);
+		} else if (parser.getName().equals("SpecificationBodyOrIssuer")) {
+		    cardInfo.getCardType().setSpecificationBodyOrIssuer(parser.nextText());
+		} else if (parser.getName().equals("Status")) {
+		    cardInfo.getCardType().setStatus(parser.nextText());
+		} else if (parser.getName().equals("Date")) {
+		    // currently not working; see http://code.google.com/p/android/issues/detail?id=14379
+		    /*String text = parser.nextText();
+		    XMLGregorianCalendar date = DatatypeFactory.newInstance().newXMLGregorianCalendar(text);
+		    cardInfo.getCardType().setDate(date);*/
+		} else if (parser.getName().equals("Version")) {
+		    cardInfo.getCardType().setVersion(this.parseVersion(parser));
 		}
-	    } while (!(eventType == XmlPullParser.END_TAG && parser.getName().equals("CardInfo")));
-	    cardInfo.setApplicationCapabilities(applicationCapabilities);
-	    return cardInfo;
-	} else if (parser.getName().equals("AddonSpecification")) {
-	    AddonSpecification addonBundleDescription = new AddonSpecification();
-	    int eventType;
-	    do {
-		parser.next();
-		eventType = parser.getEventType();
-		if (eventType == XmlPullParser.START_TAG) {
-		    if (parser.getName().equals("ID")) {
-			addonBundleDescription.setId(parser.nextText());
-		    } else if (parser.getName().equals("Version")) {
-			addonBundleDescription.setVersion(parser.nextText());
-		    } else if (parser.getName().equals("License")) {
-			addonBundleDescription.setLicense(parser.nextText());
-		    } else if (parser.getName().equals("LocalizedName")) {
-			LocalizedString string = new LocalizedString();
-			string.setLang(parser.getAttributeValue("http://www.w3.org/XML/1998/namespace", "lang"));
-			string.setValue(parser.nextText());
-			addonBundleDescription.getLocalizedName().add(string);
-		    } else if (parser.getName().equals("LocalizedDescription")) {
-			LocalizedString string = new LocalizedString();
-			string.setLang(parser.getAttributeValue("http://www.w3.org/XML/1998/namespace", "lang"));
-			string.setValue(parser.nextText());
-			addonBundleDescription.getLocalizedDescription().add(string);
-		    } else if (parser.getName().equals("About")) {
-			LocalizedString string = new LocalizedString();
-			string.setLang(parser.getAttributeValue("http://www.w3.org/XML/1998/namespace", "lang"));
-			string.setValue(parser.nextText());
-			addonBundleDescription.getAbout().add(string);
-		    } else if (parser.getName().equals("Logo")) {
-			addonBundleDescription.setLogo(parser.nextText());
-		    } else if (parser.getName().equals("ConfigDescription")) {
-			addonBundleDescription.setConfigDescription(parseConfigDescription(parser));
-		    } else if (parser.getName().equals("BindingActions")) {
-			addonBundleDescription.getBindingActions().addAll(parseBindingActions(parser));
-		    } else if (parser.getName().equals("ApplicationActions")) {
-			addonBundleDescription.getApplicationActions().addAll(parseApplicationActions(parser));
-		    } else if (parser.getName().equals("IFDActions")) {
-			addonBundleDescription.getIfdActions().addAll(
-				parseProtocolPluginSpecification(parser, "IFDActions"));
-		    } else if (parser.getName().equals("SALActions")) {
-			addonBundleDescription.getSalActions().addAll(
-				parseProtocolPluginSpecification(parser, "SALActions"));
-		    } else {
-			throw new IllegalArgumentException(parser.getName()
-				+ " in AddonSpecification is not supported.");
-		    }
+	    }
+	} while (!(eventType == XmlPullParser.END_TAG && parser.getName().equals("CardInfo")));
+	cardInfo.setApplicationCapabilities(applicationCapabilities);
+	return cardInfo;
+    }
+
+    private AddonSpecification parseAddonSpecification(XmlPullParser parser) throws XmlPullParserException, IOException,
+	    ParserConfigurationException, DatatypeConfigurationException {
+	AddonSpecification addonBundleDescription = new AddonSpecification();
+	int eventType;
+	do {
+	    parser.next();
+	    eventType = parser.getEventType();
+	    if (eventType == XmlPullParser.START_TAG) {
+		if (parser.getName().equals("ID")) {
+		    addonBundleDescription.setId(parser.nextText());
+		} else if (parser.getName().equals("Version")) {
+		    addonBundleDescription.setVersion(parser.nextText());
+		} else if (parser.getName().equals("License")) {
+		    addonBundleDescription.setLicense(parser.nextText());
+		} else if (parser.getName().equals("LocalizedName")) {
+		    LocalizedString string = new LocalizedString();
+		    string.setLang(parser.getAttributeValue("http://www.w3.org/XML/1998/namespace", "lang"));
+		    string.setValue(parser.nextText());
+		    addonBundleDescription.getLocalizedName().add(string);
+		} else if (parser.getName().equals("LocalizedDescription")) {
+		    LocalizedString string = new LocalizedString();
+		    string.setLang(parser.getAttributeValue("http://www.w3.org/XML/1998/namespace", "lang"));
+		    string.setValue(parser.nextText());
+		    addonBundleDescription.getLocalizedDescription().add(string);
+		} else if (parser.getName().equals("About")) {
+		    LocalizedString string = new LocalizedString();
+		    string.setLang(parser.getAttributeValue("http://www.w3.org/XML/1998/namespace", "lang"));
+		    string.setValue(parser.nextText());
+		    addonBundleDescription.getAbout().add(string);
+		} else if (parser.getName().equals("Logo")) {
+		    addonBundleDescription.setLogo(parser.nextText());
+		} else if (parser.getName().equals("ConfigDescription")) {
+		    addonBundleDescription.setConfigDescription(parseConfigDescription(parser));
+		} else if (parser.getName().equals("BindingActions")) {
+		    addonBundleDescription.getBindingActions().addAll(parseBindingActions(parser));
+		} else if (parser.getName().equals("ApplicationActions")) {
+		    addonBundleDescription.getApplicationActions().addAll(parseApplicationActions(parser));
+		} else if (parser.getName().equals("IFDActions")) {
+		    addonBundleDescription.getIfdActions().addAll(
+			    parseProtocolPluginSpecification(parser, "IFDActions"));
+		} else if (parser.getName().equals("SALActions")) {
+		    addonBundleDescription.getSalActions().addAll(
+			    parseProtocolPluginSpecification(parser, "SALActions"));
+		} else {
+		    throw new IllegalArgumentException(parser.getName()
+			    + " in AddonSpecification is not supported.");
 		}
-	    } while (!(eventType == XmlPullParser.END_TAG && parser.getName().equals("AddonSpecification")));
-	    return addonBundleDescription;
-	} else if (parser.getName().equals("EstablishChannel")) {
-	    EstablishChannel result = new EstablishChannel();
-	    int eventType;
-	    do {
-		parser.next();
-		eventType = parser.getEventType();
-		if (eventType == XmlPullParser.START_TAG) {
-		    if (parser.getName().equals("SlotHandle")) {
-			result.setSlotHandle(StringUtils.toByteArray(parser.nextText()));
-		    } else if (parser.getName().equals("AuthenticationProtocolData")) {
-			result.setAuthenticationProtocolData(parseDIDAuthenticationDataType(parser));
-		    }
+	    }
+	} while (!(eventType == XmlPullParser.END_TAG && parser.getName().equals("AddonSpecification")));
+	return addonBundleDescription;
+    }
+
+    private EstablishChannel parseEstablishChannel(XmlPullParser parser) throws XmlPullParserException, IOException,
+	    ParserConfigurationException, DatatypeConfigurationException {
+	EstablishChannel result = new EstablishChannel();
+	int eventType;
+	do {
+	    parser.next();
+	    eventType = parser.getEventType();
+	    if (eventType == XmlPullParser.START_TAG) {
+		if (parser.getName().equals("SlotHandle")) {
+		    result.setSlotHandle(StringUtils.toByteArray(parser.nextText()));
+		} else if (parser.getName().equals("AuthenticationProtocolData")) {
+		    result.setAuthenticationProtocolData(parseDIDAuthenticationDataType(parser));
 		}
-	    } while (! (eventType == XmlPullParser.END_TAG && parser.getName().equals("EstablishChannel")));
-	    return result;
-	} else {
-	    throw new IOException("Unmarshalling of " + parser.getName() + " is not yet supported.");
-	}
+	    }
+	} while (! (eventType == XmlPullParser.END_TAG && parser.getName().equals("EstablishChannel")));
+	return result;
     }
 
     private ConnectionHandleType parseConnectionHandle(XmlPullParser parser) throws XmlPullParserException, IOException,
@@ -1175,6 +1347,8 @@ public class Unmarshaller {
 		    protocolPluginDescription.setConfigDescription(parseConfigDescription(parser));
 		} else if (parser.getName().equals("LoadOnStartup")) {
 		    protocolPluginDescription.setLoadOnStartup(Boolean.parseBoolean(parser.nextText()));
+		} else if (parser.getName().equals("Reusable")) {
+		    protocolPluginDescription.setReusable(Boolean.parseBoolean(parser.nextText()));
 		} else {
 		    throw new IllegalArgumentException("Unexpected Tag found: " + parser.getName());
 		}
@@ -1227,6 +1401,8 @@ public class Unmarshaller {
 		    appExtensionActionDescription.setConfigDescription(parseConfigDescription(parser));
 		} else if (parser.getName().equals("LoadOnStartup")) {
 		    appExtensionActionDescription.setLoadOnStartup(Boolean.parseBoolean(parser.nextText()));
+		} else if (parser.getName().equals("Reusable")) {
+		    appExtensionActionDescription.setReusable(Boolean.parseBoolean(parser.nextText()));
 		} else if (parser.getName().equals("BackgroundJob")) {
 		    appExtensionActionDescription.setBackgroundJob(Boolean.parseBoolean(parser.nextText()));
 		} else if (parser.getName().equals("AutoRestartBackgroundJob")) {
@@ -1283,6 +1459,8 @@ public class Unmarshaller {
 		    appPluginActionDescription.setConfigDescription(parseConfigDescription(parser));
 		} else if (parser.getName().equals("LoadOnStartup")) {
 		    appPluginActionDescription.setLoadOnStartup(Boolean.parseBoolean(parser.nextText()));
+		} else if (parser.getName().equals("Reusable")) {
+		    appPluginActionDescription.setReusable(Boolean.parseBoolean(parser.nextText()));
 		} else {
 		    throw new IllegalArgumentException("Unexpected Tag found: " + parser.getName());
 		}
@@ -1959,4 +2137,13 @@ public class Unmarshaller {
 	return ifr;
     }
 
+
+    /**
+     * Parser for one specific root element.
+     */
+    private interface ElementParser {
+	Object parse(Unmarshaller unmarshaller, XmlPullParser parser) throws XmlPullParserException, IOException,
+		ParserConfigurationException, DatatypeConfigurationException;
+    }
+
 }
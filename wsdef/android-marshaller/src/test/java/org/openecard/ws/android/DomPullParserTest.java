@@ -0,0 +1,141 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.ws.android;
+
+import iso.std.iso_iec._24727.tech.schema.StartPAOSResponse;
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import org.openecard.common.ECardConstants;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserFactory;
+import org.testng.annotations.Test;
+import static org.testng.Assert.*;
+
+
+/**
+ * Tests that the DOM based pull parser emits the same events as a stream based parser.
+ */
+public class DomPullParserTest {
+
+    private static final String DOC = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+	    + "<a:Root xmlns:a=\"urn:a\" xmlns=\"urn:default\" attr=\"1\" a:nsAttr=\"2\">\n"
+	    + "  <Child xml:lang=\"de\">text<!-- comment -->more<![CDATA[ <cdata> ]]></Child>\n"
+	    + "  <Empty/>\n"
+	    + "  <a:Nested><Inner>inner</Inner><Inner/></a:Nested>\n"
+	    + "</a:Root>";
+
+    private static final String START_PAOS_RESPONSE = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+	    + "<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\""
+	    + " xmlns:iso=\"urn:iso:std:iso-iec:24727:tech:schema\" xmlns:dss=\"urn:oasis:names:tc:dss:1.0:core:schema\">"
+	    + "<soap:Body><iso:StartPAOSResponse><dss:Result>"
+	    + "<dss:ResultMajor>http://www.bsi.bund.de/ecard/api/1.1/resultmajor#ok</dss:ResultMajor>"
+	    + "</dss:Result></iso:StartPAOSResponse></soap:Body></soap:Envelope>";
+
+    @Test
+    public void testSameEvents() throws Exception {
+	XmlPullParserFactory factory = XmlPullParserFactory.newInstance();
+	factory.setNamespaceAware(true);
+	XmlPullParser streamParser = factory.newPullParser();
+	streamParser.setInput(new StringReader(DOC));
+
+	XmlPullParser domParser = new DomPullParser(parse(DOC));
+
+	assertEquals(events(domParser), events(streamParser));
+    }
+
+    @Test
+    public void testNextText() throws Exception {
+	XmlPullParser p = new DomPullParser(parse(DOC));
+	assertEquals(p.next(), XmlPullParser.START_TAG);
+	assertEquals(p.getAttributeValue(null, "attr"), "1");
+	assertEquals(p.getAttributeValue("urn:a", "nsAttr"), "2");
+	assertEquals(p.nextTag(), XmlPullParser.START_TAG);
+	assertEquals(p.getName(), "Child");
+	assertEquals(p.getAttributeValue("http://www.w3.org/XML/1998/namespace", "lang"), "de");
+	assertEquals(p.nextText(), "textmore <cdata> ");
+	assertEquals(p.getEventType(), XmlPullParser.END_TAG);
+	assertEquals(p.nextTag(), XmlPullParser.START_TAG);
+	assertEquals(p.getName(), "Empty");
+	assertEquals(p.nextText(), "");
+	assertEquals(p.getName(), "Empty");
+    }
+
+    @Test
+    public void testUnmarshalNestedElement() throws Exception {
+	// namespaces of the element are declared on the envelope, which is not part of the unmarshalled node
+	Document doc = parse(START_PAOS_RESPONSE);
+	Element body = (Element) doc.getDocumentElement().getFirstChild().getFirstChild();
+
+	AndroidMarshaller m = new AndroidMarshaller();
+	Object o = m.unmarshal(body);
+	assertTrue(o instanceof StartPAOSResponse);
+	assertEquals(((StartPAOSResponse) o).getResult().getResultMajor(), ECardConstants.Major.OK);
+
+	// same result when reading the element from a stream
+	String bodyStr = m.doc2str(body);
+	DocumentBuilder builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+	o = new Unmarshaller(builder).unmarshal(new ByteArrayInputStream(bodyStr.getBytes("UTF-8")));
+	assertTrue(o instanceof StartPAOSResponse);
+	assertEquals(((StartPAOSResponse) o).getResult().getResultMajor(), ECardConstants.Major.OK);
+    }
+
+    private static Document parse(String xml) throws Exception {
+	DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+	dbf.setNamespaceAware(true);
+	return dbf.newDocumentBuilder().parse(new ByteArrayInputStream(xml.getBytes("UTF-8")));
+    }
+
+    private static List<String> events(XmlPullParser p) throws Exception {
+	List<String> result = new ArrayList<>();
+	int type = p.getEventType();
+	while (type != XmlPullParser.END_DOCUMENT) {
+	    StringBuilder sb = new StringBuilder(XmlPullParser.TYPES[type]);
+	    sb.append(" depth=").append(p.getDepth());
+	    if (type == XmlPullParser.START_TAG || type == XmlPullParser.END_TAG) {
+		sb.append(" {").append(p.getNamespace()).append("}").append(p.getName());
+	    }
+	    if (type == XmlPullParser.START_TAG) {
+		// attribute order is not significant
+		TreeSet<String> attrs = new TreeSet<>();
+		for (int i = 0; i < p.getAttributeCount(); i++) {
+		    attrs.add("{" + p.getAttributeNamespace(i) + "}" + p.getAttributeName(i) + "=" + p.getAttributeValue(i));
+		}
+		sb.append(" ").append(attrs);
+	    }
+	    if (type == XmlPullParser.TEXT) {
+		sb.append(" '").append(p.getText()).append("'");
+	    }
+	    result.add(sb.toString());
+	    type = p.next();
+	}
+	return result;
+    }
+
+}
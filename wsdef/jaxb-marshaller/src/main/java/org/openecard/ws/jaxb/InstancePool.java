@@ -0,0 +1,134 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+package org.openecard.ws.jaxb;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nonnull;
+
+
+/**
+ * Bounded pool of instances which must not be used by more than one thread at a time.
+ * This class is used for the JAXB marshallers and unmarshallers as well as for the XML parsers and serializers, so
+ * that concurrent callers of the {@link JAXBMarshaller} do not have to wait for each other.
+ *
+ * @param <T> Type of the pooled instances.
+ * @param <E> Type of the exception thrown when creating a new instance.
+ */
+public class InstancePool <T, E extends Exception> {
+
+    /**
+     * Factory for new pool instances.
+     *
+     * @param <T> Type of the created instances.
+     * @param <E> Type of the exception thrown when creating an instance.
+     */
+    public interface Factory <T, E extends Exception> {
+	@Nonnull
+	T create() throws E;
+    }
+
+    private final String name;
+    private final Factory<T, E> factory;
+    private final int maxIdle;
+
+    private final ConcurrentLinkedQueue<T> idle = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong acquired = new AtomicLong();
+
+    /**
+     * Creates a new empty pool.
+     *
+     * @param name Name of the pool used in the statistics.
+     * @param factory Factory creating new instances when the pool is empty.
+     * @param maxIdle Maximum number of instances kept in the pool.
+     */
+    public InstancePool(String name, Factory<T, E> factory, int maxIdle) {
+	this.name = name;
+	this.factory = factory;
+	this.maxIdle = maxIdle;
+    }
+
+    /**
+     * Takes an instance from the pool or creates a new one if the pool is empty.
+     * The instance must be handed back with {@link #release(Object)} after use.
+     *
+     * @return An instance which is exclusively used by the caller.
+     * @throws E Thrown in case a new instance could not be created.
+     */
+    @Nonnull
+    public T acquire() throws E {
+	acquired.incrementAndGet();
+	T instance = idle.poll();
+	if (instance != null) {
+	    idleCount.decrementAndGet();
+	    return instance;
+	}
+	created.incrementAndGet();
+	return factory.create();
+    }
+
+    /**
+     * Hands back an instance obtained from {@link #acquire()}.
+     * The instance is dropped if the pool is full. Instances in an undefined state must not be handed back.
+     *
+     * @param instance The instance to return to the pool.
+     */
+    public void release(@Nonnull T instance) {
+	if (idleCount.incrementAndGet() <= maxIdle) {
+	    idle.offer(instance);
+	} else {
+	    idleCount.decrementAndGet();
+	}
+    }
+
+    public String getName() {
+	return name;
+    }
+
+    public int getIdleCount() {
+	return idleCount.get();
+    }
+
+    /**
+     * Gets the number of instances created by this pool.
+     * The difference to {@link #getAcquiredCount()} is the number of times an instance has been reused.
+     *
+     * @return Number of created instances.
+     */
+    public long getCreatedCount() {
+	return created.get();
+    }
+
+    public long getAcquiredCount() {
+	return acquired.get();
+    }
+
+    @Override
+    public String toString() {
+	return String.format("%s[idle=%d, created=%d, acquired=%d]", name, getIdleCount(), getCreatedCount(),
+		getAcquiredCount());
+    }
+
+}
@@ -25,11 +25,17 @@ package org.openecard.ws.jaxb;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.StringReader;
 import java.io.UnsupportedEncodingException;
+import java.util.Arrays;
+import java.util.List;
 import javax.xml.XMLConstants;
+import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBElement;
 import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
@@ -59,6 +65,9 @@ import org.xml.sax.SAXException;
 
 /**
  * Implementation of a WSMarshaller utilizing JAXB and Javas default XML facilities.
+ * The instance can be used by several threads concurrently. The JAXB marshallers and unmarshallers, the DOM builders
+ * and the serializers are not thread safe, so each call takes its own instances from a pool and hands them back
+ * afterwards. All JAXB instances share the JAXB context of the marshaller.
  *
  * @author Tobias Wich
  */
@@ -66,12 +75,16 @@ public final class JAXBMarshaller implements WSMarshaller {
 
     private static final Logger LOG = LoggerFactory.getLogger(JAXBMarshaller.class);
 
+    private static final int MAX_IDLE = Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+
     // Marshaller and Unmarshaller
     private final MarshallerImpl marshaller;
+    private volatile JaxbPools jaxbPools;
     // w3 factory
     private final DocumentBuilderFactory w3Factory;
-    private final DocumentBuilder w3Builder;
-    private final Transformer serializer;
+    private final InstancePool<DocumentBuilder, ParserConfigurationException> w3Builders;
+    private final TransformerFactory tFactory;
+    private final InstancePool<Transformer, TransformerConfigurationException> serializers;
     // soap
     private final MessageFactory soapFactory;
 
@@ -83,6 +96,7 @@ public final class JAXBMarshaller implements WSMarshaller {
 	MarshallerImpl tmpMarshaller;
 	DocumentBuilderFactory tmpW3Factory;
 	DocumentBuilder tmpW3Builder;
+	TransformerFactory tfactory;
 	Transformer tmpSerializer;
 	MessageFactory tmpSoapFactory;
 
@@ -124,7 +138,7 @@ public final class JAXBMarshaller implements WSMarshaller {
 
 	    tmpW3Builder = tmpW3Factory.newDocumentBuilder();
 
-	    TransformerFactory tfactory = TransformerFactory.newInstance();
+	    tfactory = TransformerFactory.newInstance();
 	    try {
 		tfactory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
 	    } catch (TransformerConfigurationException ex) {
@@ -147,15 +161,7 @@ public final class JAXBMarshaller implements WSMarshaller {
 		//LOG.debug("Failed to disallow DTDs entirely.");
 	    }
 
-	    tmpSerializer = tfactory.newTransformer();
-	    try {
-		tmpSerializer.setOutputProperty(OutputKeys.INDENT, "yes");
-		tmpSerializer.setOutputProperty(OutputKeys.STANDALONE, "yes");
-		tmpSerializer.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
-		tmpSerializer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "2");
-	    } catch (IllegalArgumentException ex) {
-		LOG.warn("Failed to configure output formatting.");
-	    }
+	    tmpSerializer = createSerializer(tfactory);
 
 	    // instantiate soap stuff
 	    tmpSoapFactory = MessageFactory.newInstance();
@@ -167,11 +173,81 @@ public final class JAXBMarshaller implements WSMarshaller {
 
 	marshaller = tmpMarshaller;
 	w3Factory = tmpW3Factory;
-	w3Builder = tmpW3Builder;
-	serializer = tmpSerializer;
+	w3Builders = new InstancePool<>("DocumentBuilder", this::createW3Builder, MAX_IDLE);
+	w3Builders.release(tmpW3Builder);
+	tFactory = tfactory;
+	serializers = new InstancePool<>("Transformer", this::createSerializer, MAX_IDLE);
+	serializers.release(tmpSerializer);
 	soapFactory = tmpSoapFactory;
     }
 
+    private DocumentBuilder createW3Builder() throws ParserConfigurationException {
+	// the factories are not thread safe
+	synchronized (w3Factory) {
+	    return w3Factory.newDocumentBuilder();
+	}
+    }
+
+    private Transformer createSerializer() throws TransformerConfigurationException {
+	synchronized (tFactory) {
+	    return createSerializer(tFactory);
+	}
+    }
+
+    private static Transformer createSerializer(TransformerFactory tfactory) throws TransformerConfigurationException {
+	Transformer serializer = tfactory.newTransformer();
+	try {
+	    serializer.setOutputProperty(OutputKeys.INDENT, "yes");
+	    serializer.setOutputProperty(OutputKeys.STANDALONE, "yes");
+	    serializer.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
+	    serializer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "2");
+	} catch (IllegalArgumentException ex) {
+	    LOG.warn("Failed to configure output formatting.");
+	}
+	return serializer;
+    }
+
+    private DocumentBuilder acquireW3Builder() {
+	try {
+	    return w3Builders.acquire();
+	} catch (ParserConfigurationException ex) {
+	    // the configuration has been tested in the constructor already
+	    throw new IllegalStateException("Failed to create DOM builder.", ex);
+	}
+    }
+
+    private void releaseW3Builder(DocumentBuilder builder) {
+	builder.reset();
+	w3Builders.release(builder);
+    }
+
+    private JaxbPools getJaxbPools() throws JAXBException {
+	JAXBContext ctx = marshaller.getJaxbContext();
+	JaxbPools pools = jaxbPools;
+	if (pools == null || pools.ctx != ctx) {
+	    // the supported types have changed, so instances of the old context must not be used anymore
+	    pools = new JaxbPools(ctx);
+	    jaxbPools = pools;
+	}
+	return pools;
+    }
+
+    /**
+     * Gets the pools of the instances used by this marshaller.
+     * The pools provide statistics about how many instances have been created and how often they have been used.
+     *
+     * @return The DOM builder, serializer, JAXB marshaller and JAXB unmarshaller pools.
+     * @throws MarshallingTypeException Thrown in case the JAXB context could not be created.
+     */
+    public List<InstancePool<?, ?>> getPools() throws MarshallingTypeException {
+	try {
+	    JaxbPools pools = getJaxbPools();
+	    return Arrays.<InstancePool<?, ?>>asList(w3Builders, serializers, pools.marshallers, pools.unmarshallers);
+	} catch (JAXBException ex) {
+	    throw new MarshallingTypeException(ex);
+	}
+    }
+
 
 
     ////////////////////////////////////////////////////////////////////////////
@@ -190,7 +266,8 @@ public final class JAXBMarshaller implements WSMarshaller {
 
 
     @Override
-    public synchronized Document str2doc(String docStr) throws SAXException {
+    public Document str2doc(String docStr) throws SAXException {
+	DocumentBuilder w3Builder = acquireW3Builder();
 	try {
 	    // read dom as w3
 	    StringReader strReader = new StringReader(docStr);
@@ -202,23 +279,30 @@ public final class JAXBMarshaller implements WSMarshaller {
 	    return doc;
 	} catch (IOException ex) {
 	    throw new SAXException(ex);
+	} finally {
+	    releaseW3Builder(w3Builder);
 	}
     }
 
     @Override
-    public synchronized Document str2doc(InputStream docStr) throws SAXException, IOException {
-	// read dom as w3
-	Document doc = w3Builder.parse(docStr);
+    public Document str2doc(InputStream docStr) throws SAXException, IOException {
+	DocumentBuilder w3Builder = acquireW3Builder();
+	try {
+	    // read dom as w3
+	    Document doc = w3Builder.parse(docStr);
 
-	WhitespaceFilter.filter(doc);
+	    WhitespaceFilter.filter(doc);
 
-	return doc;
+	    return doc;
+	} finally {
+	    releaseW3Builder(w3Builder);
+	}
     }
 
     @Override
-    public synchronized String doc2str(Node doc) throws TransformerException {
+    public String doc2str(Node doc) throws TransformerException {
 	ByteArrayOutputStream out = new ByteArrayOutputStream();
-	serializer.transform(new DOMSource(doc), new StreamResult(out));
+	doc2stream(doc, out);
 	String result;
 	try {
 	    result = out.toString("UTF-8");
@@ -229,49 +313,73 @@ public final class JAXBMarshaller implements WSMarshaller {
     }
 
     @Override
-    public synchronized Object unmarshal(Node n) throws MarshallingTypeException, WSMarshallerException {
-	Document newDoc = createDoc(n);
-	Object result;
+    public void doc2stream(Node doc, OutputStream out) throws TransformerException {
+	Transformer serializer = serializers.acquire();
+	try {
+	    serializer.transform(new DOMSource(doc), new StreamResult(out));
+	} finally {
+	    serializers.release(serializer);
+	}
+    }
+
+    @Override
+    public Object unmarshal(Node n) throws MarshallingTypeException, WSMarshallerException {
+	checkUnmarshalInput(n);
 	try {
-	    result = marshaller.getUnmarshaller().unmarshal(newDoc); //NOI18N
+	    InstancePool<Unmarshaller, JAXBException> unmarshallers = getJaxbPools().unmarshallers;
+	    Unmarshaller unmarshaller = unmarshallers.acquire();
+	    try {
+		return unmarshaller.unmarshal(n); //NOI18N
+	    } finally {
+		unmarshallers.release(unmarshaller);
+	    }
 	} catch (JAXBException ex) {
 	    throw new MarshallingTypeException(ex);
 	}
-	return result;
     }
 
     @Override
-    public synchronized <T> JAXBElement<T> unmarshal(Node n, Class<T> c) throws MarshallingTypeException,
+    public <T> JAXBElement<T> unmarshal(Node n, Class<T> c) throws MarshallingTypeException,
 	    WSMarshallerException {
-	Document newDoc = createDoc(n);
-	JAXBElement<T> result;
+	checkUnmarshalInput(n);
 	try {
-	    result = marshaller.getUnmarshaller().unmarshal(newDoc, c); //NOI18N
+	    InstancePool<Unmarshaller, JAXBException> unmarshallers = getJaxbPools().unmarshallers;
+	    Unmarshaller unmarshaller = unmarshallers.acquire();
+	    try {
+		return unmarshaller.unmarshal(n, c); //NOI18N
+	    } finally {
+		unmarshallers.release(unmarshaller);
+	    }
 	} catch (JAXBException ex) {
 	    throw new MarshallingTypeException(ex);
 	}
-	return result;
     }
 
-    private Document createDoc(Node n) throws WSMarshallerException {
-	Document newDoc = null;
-	if (n instanceof Document) {
-	    newDoc = (Document) n;
-	} else if (n instanceof Element) {
-	    newDoc = w3Builder.newDocument();
-	    Node root = newDoc.importNode(n, true);
-	    newDoc.appendChild(root);
-	} else {
+    private static void checkUnmarshalInput(Node n) throws WSMarshallerException {
+	// JAXB reads the node without modifying it and takes the namespace declarations of the ancestors into account,
+	// so elements can be unmarshalled in place without copying them into a new document first
+	if (! (n instanceof Document || n instanceof Element)) {
 	    throw new WSMarshallerException("Only w3c Document and Element are accepted.");
 	}
-	return newDoc;
     }
 
     @Override
-    public synchronized Document marshal(Object o) throws MarshallingTypeException {
+    public Document marshal(Object o) throws MarshallingTypeException {
+	DocumentBuilder w3Builder = acquireW3Builder();
+	Document d;
 	try {
-	    Document d = w3Builder.newDocument();
-	    marshaller.getMarshaller().marshal(o, d);
+	    d = w3Builder.newDocument();
+	} finally {
+	    releaseW3Builder(w3Builder);
+	}
+	try {
+	    InstancePool<Marshaller, JAXBException> marshallers = getJaxbPools().marshallers;
+	    Marshaller m = marshallers.acquire();
+	    try {
+		m.marshal(o, d);
+	    } finally {
+		marshallers.release(m);
+	    }
 	    return d;
 	} catch (JAXBException ex) {
 	    throw new MarshallingTypeException(ex);
@@ -279,18 +387,42 @@ public final class JAXBMarshaller implements WSMarshaller {
     }
 
     @Override
-    public synchronized SOAPMessage doc2soap(Document envDoc) throws SOAPException {
+    public SOAPMessage doc2soap(Document envDoc) throws SOAPException {
 	SOAPMessage msg = soapFactory.createMessage(envDoc);
 	return msg;
     }
 
     @Override
-    public synchronized SOAPMessage add2soap(Document content) throws SOAPException {
-	SOAPMessage msg = soapFactory.createMessage();
+    public SOAPMessage add2soap(Document content) throws SOAPException {
+	DocumentBuilder w3Builder = acquireW3Builder();
+	SOAPMessage msg;
+	try {
+	    msg = MessageFactory.newInstance(w3Builder).createMessage();
+	} finally {
+	    releaseW3Builder(w3Builder);
+	}
 	SOAPBody body = msg.getSOAPBody();
 	body.addDocument(content);
 
 	return msg;
     }
 
+
+    /**
+     * Pools of the JAXB instances belonging to one JAXB context.
+     */
+    private static class JaxbPools {
+
+	private final JAXBContext ctx;
+	private final InstancePool<Marshaller, JAXBException> marshallers;
+	private final InstancePool<Unmarshaller, JAXBException> unmarshallers;
+
+	JaxbPools(final JAXBContext ctx) {
+	    this.ctx = ctx;
+	    this.marshallers = new InstancePool<>("Marshaller", ctx::createMarshaller, MAX_IDLE);
+	    this.unmarshallers = new InstancePool<>("Unmarshaller", ctx::createUnmarshaller, MAX_IDLE);
+	}
+
+    }
+
 }
@@ -66,6 +66,7 @@ public class MarshallerImpl {
     private boolean userOverride;
     private final TreeSet<Class<?>> userClasses;
 
+    private volatile JAXBContext jaxbCtx;
     private Marshaller marshaller;
     private Unmarshaller unmarshaller;
 
@@ -142,9 +143,9 @@ public class MarshallerImpl {
      * @return The wrapped JAXB marshaller instance.
      * @throws JAXBException If the marshaller could not be created.
      */
-    public Marshaller getMarshaller() throws JAXBException {
+    public synchronized Marshaller getMarshaller() throws JAXBException {
 	if (marshaller == null) {
-	    loadInstances();
+	    marshaller = getJaxbContext().createMarshaller();
 	}
 	return marshaller;
     }
@@ -155,34 +156,57 @@ public class MarshallerImpl {
      * @return The wrapped JAXB unmarshaller instance.
      * @throws JAXBException If the unmarshaller could not be created.
      */
-    public Unmarshaller getUnmarshaller() throws JAXBException {
+    public synchronized Unmarshaller getUnmarshaller() throws JAXBException {
 	if (unmarshaller == null) {
-	    loadInstances();
+	    unmarshaller = getJaxbContext().createUnmarshaller();
 	}
 	return unmarshaller;
     }
 
+    /**
+     * Gets the JAXB context for the currently supported JAXB types.
+     * The context is thread safe and can be used to create further marshallers and unmarshallers. A new context
+     * instance is returned after the supported types have been changed.
+     *
+     * @return The JAXB context for the current types.
+     * @throws JAXBException If the context could not be created.
+     */
+    public JAXBContext getJaxbContext() throws JAXBException {
+	JAXBContext ctx = jaxbCtx;
+	if (ctx == null) {
+	    synchronized (this) {
+		ctx = jaxbCtx;
+		if (ctx == null) {
+		    ctx = loadContext();
+		    jaxbCtx = ctx;
+		}
+	    }
+	}
+	return ctx;
+    }
+
 
     private void resetMarshaller() {
+	jaxbCtx = null;
 	marshaller = null;
 	unmarshaller = null;
     }
 
-    private synchronized void loadInstances() throws JAXBException {
-	JAXBContext jaxbCtx;
+    private JAXBContext loadContext() throws JAXBException {
+	JAXBContext ctx;
 	if (userOverride) {
 	    String classHash = calculateClassesHash();
 	    synchronized (specificContexts) {
 		if (! specificContexts.containsKey(classHash)) {
-		    jaxbCtx = JAXBContext.newInstance(userClasses.toArray(new Class<?>[userClasses.size()]));
-		    specificContexts.put(classHash, jaxbCtx);
+		    ctx = JAXBContext.newInstance(userClasses.toArray(new Class<?>[userClasses.size()]));
+		    specificContexts.put(classHash, ctx);
 		} else {
-		    jaxbCtx = specificContexts.get(classHash);
+		    ctx = specificContexts.get(classHash);
 		}
 	    }
 	} else {
 	    try {
-		jaxbCtx = baseJaxbContext.get();
+		ctx = baseJaxbContext.get();
 	    } catch (ExecutionException ex) {
 		LOG.error("Failed to create JAXBContext instance.", ex);
 		throw new RuntimeException("Failed to create JAXBContext.");
@@ -191,8 +215,7 @@ public class MarshallerImpl {
 		throw new RuntimeException("Thread interrupted during waiting on the creation of the JAXBContext.");
 	    }
 	}
-	marshaller = jaxbCtx.createMarshaller();
-	unmarshaller = jaxbCtx.createUnmarshaller();
+	return ctx;
     }
 
 
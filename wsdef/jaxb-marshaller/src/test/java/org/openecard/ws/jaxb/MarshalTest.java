@@ -24,9 +24,17 @@ package org.openecard.ws.jaxb;
 
 import de.bund.bsi.ecard.api._1.InitializeFrameworkResponse;
 import de.bund.bsi.ecard.api._1.InitializeFrameworkResponse.Version;
+import iso.std.iso_iec._24727.tech.schema.DIDAuthenticate;
 import iso.std.iso_iec._24727.tech.schema.DIDAuthenticateResponse;
+import iso.std.iso_iec._24727.tech.schema.EAC1InputType;
 import iso.std.iso_iec._24727.tech.schema.EAC2OutputType;
 import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import javax.xml.namespace.QName;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -195,4 +203,68 @@ public class MarshalTest {
 	System.out.println(m.doc2str(msg.getDocument()));
     }
 
+    @Test
+    public void testUnmarshalNestedElement() throws Exception {
+	String envelope
+	    = "<soap11:Envelope xmlns:soap11=\"http://schemas.xmlsoap.org/soap/envelope/\"\n"
+	    + "                 xmlns:iso=\"urn:iso:std:iso-iec:24727:tech:schema\"\n"
+	    + "                 xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\">\n"
+	    + "  <soap11:Body>\n"
+	    + "    <iso:DIDAuthenticate>\n"
+	    + "      <iso:DIDName>PIN</iso:DIDName>\n"
+	    + "      <iso:AuthenticationProtocolData xsi:type=\"iso:EAC1InputType\" Protocol=\"urn:oid:1.3.162.15480.3.0.14\">\n"
+	    + "        <iso:Certificate>7F21</iso:Certificate>\n"
+	    + "      </iso:AuthenticationProtocolData>\n"
+	    + "    </iso:DIDAuthenticate>\n"
+	    + "  </soap11:Body>\n"
+	    + "</soap11:Envelope>";
+	JAXBMarshaller m = new JAXBMarshaller();
+	Document doc = m.str2doc(envelope);
+	Element body = m.doc2soap(doc).getSOAPBody().getChildElements().get(0);
+	String before = m.doc2str(doc);
+
+	// the prefixes used in the type attribute are only declared on the envelope
+	DIDAuthenticate didAuth = (DIDAuthenticate) m.unmarshal(body);
+	assertEquals(didAuth.getDIDName(), "PIN");
+	assertTrue(didAuth.getAuthenticationProtocolData() instanceof EAC1InputType);
+	EAC1InputType eac1 = (EAC1InputType) didAuth.getAuthenticationProtocolData();
+	assertEquals(eac1.getProtocol(), "urn:oid:1.3.162.15480.3.0.14");
+	assertEquals(eac1.getAny().size(), 1);
+	// the source document is not touched
+	assertEquals(m.doc2str(doc), before);
+    }
+
+    @Test
+    public void testConcurrentUse() throws Exception {
+	final JAXBMarshaller m = new JAXBMarshaller();
+	Element expectedBody = m.doc2soap(m.str2doc(xmlStr)).getSOAPBody().getChildElements().get(0);
+	final String expected = m.doc2str(m.marshal(m.unmarshal(expectedBody)));
+	ExecutorService exec = Executors.newFixedThreadPool(8);
+	try {
+	    List<Future<String>> results = new ArrayList<>();
+	    for (int i = 0; i < 64; i++) {
+		results.add(exec.submit(new Callable<String>() {
+		    @Override
+		    public String call() throws Exception {
+			Document doc = m.str2doc(xmlStr);
+			Element body = m.doc2soap(doc).getSOAPBody().getChildElements().get(0);
+			Object o = m.unmarshal(body);
+			return m.doc2str(m.marshal(o));
+		    }
+		}));
+	    }
+	    for (Future<String> next : results) {
+		assertEquals(next.get(), expected);
+	    }
+	} finally {
+	    exec.shutdown();
+	}
+
+	for (InstancePool<?, ?> pool : m.getPools()) {
+	    // instances are reused instead of being created for each call
+	    assertTrue(pool.getCreatedCount() <= 8 + 1, pool.toString());
+	    assertTrue(pool.getAcquiredCount() >= 64, pool.toString());
+	}
+    }
+
 }
@@ -24,6 +24,7 @@ package org.openecard.ws.marshal;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import javax.xml.bind.JAXBElement;
 import javax.xml.transform.TransformerException;
 import org.openecard.ws.soap.SOAPException;
@@ -87,6 +88,21 @@ public interface WSMarshaller {
      * @throws TransformerException If the XML document could not be serialized.
      */
     String doc2str(Node doc) throws TransformerException;
+    /**
+     * Writes a DOM node as an XML document to the given stream.
+     * The document is encoded in UTF-8 and contains a preamble stating so. The stream is not closed.
+     * <p>
+     * The default implementation converts the node with {@link #doc2str(Node)} first, implementations should write the
+     * document directly to the stream instead.
+     *
+     * @param doc The DOM node which should be written.
+     * @param out The stream receiving the XML document.
+     * @throws TransformerException If the XML document could not be serialized.
+     * @throws IOException If the stream produced an error while writing.
+     */
+    default void doc2stream(Node doc, OutputStream out) throws TransformerException, IOException {
+	out.write(doc2str(doc).getBytes("UTF-8"));
+    }
 
     /**
      * Unmarshal the given document node.